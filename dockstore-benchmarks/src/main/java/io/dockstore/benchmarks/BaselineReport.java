@@ -0,0 +1,193 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares the results of a benchmark run to those of a baseline run, both written by JMH with {@code -rf json}, and
+ * prints the comparison as a Markdown table to paste in a pull request.
+ *
+ * <p>A benchmark has regressed when it got worse by more than the threshold, and by more than the error margins of both
+ * runs together, so that noise between runs is not reported. The report exits with 1 when any benchmark regressed.
+ *
+ * <p>Usage: {@code java -cp benchmarks.jar io.dockstore.benchmarks.BaselineReport baseline.json results.json [threshold %]}
+ */
+public final class BaselineReport {
+
+    public static final double DEFAULT_THRESHOLD_PERCENT = 10;
+    private static final double PERCENT = 100;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private BaselineReport() {
+        // hide the constructor for utility classes
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineReport <baseline.json> <results.json> [threshold %, default " + DEFAULT_THRESHOLD_PERCENT + "]");
+            System.exit(2);
+        }
+        final Map<String, Result> baseline = parse(Files.readString(Paths.get(args[0]), StandardCharsets.UTF_8));
+        final Map<String, Result> results = parse(Files.readString(Paths.get(args[1]), StandardCharsets.UTF_8));
+        final double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        final List<Comparison> comparisons = compare(baseline, results);
+        System.out.print(format(comparisons, threshold));
+        System.exit(comparisons.stream().anyMatch(comparison -> comparison.isRegression(threshold)) ? 1 : 0);
+    }
+
+    /**
+     * @param json the results of a run, as written by JMH
+     * @return each result, by benchmark and parameters
+     */
+    static Map<String, Result> parse(String json) throws IOException {
+        final Map<String, Result> results = new TreeMap<>();
+        for (JsonNode node : MAPPER.readTree(json)) {
+            final Map<String, String> params = new TreeMap<>();
+            node.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            final JsonNode metric = node.path("primaryMetric");
+            final Result result = new Result(node.path("benchmark").asText(), params, node.path("mode").asText(), metric.path("score").asDouble(),
+                metric.path("scoreError").asDouble(Double.NaN), metric.path("scoreUnit").asText());
+            results.put(result.getKey(), result);
+        }
+        return results;
+    }
+
+    /**
+     * @return a comparison for every benchmark in either run, in the order of the benchmarks
+     */
+    static List<Comparison> compare(Map<String, Result> baseline, Map<String, Result> results) {
+        final Map<String, Comparison> comparisons = new TreeMap<>();
+        baseline.forEach((key, result) -> comparisons.put(key, new Comparison(result, results.get(key))));
+        results.forEach((key, result) -> comparisons.putIfAbsent(key, new Comparison(null, result)));
+        return new ArrayList<>(comparisons.values());
+    }
+
+    static String format(List<Comparison> comparisons, double threshold) {
+        final StringBuilder table = new StringBuilder("| Benchmark | Parameters | Baseline | Result | Change | |\n|---|---|---:|---:|---:|---|\n");
+        for (Comparison comparison : comparisons) {
+            final Result any = comparison.baseline != null ? comparison.baseline : comparison.result;
+            table.append("| ").append(any.benchmark.substring(any.benchmark.lastIndexOf('.', any.benchmark.lastIndexOf('.') - 1) + 1))
+                .append(" | ").append(any.params.isEmpty() ? "" : any.params.toString())
+                .append(" | ").append(comparison.baseline == null ? "" : comparison.baseline.format())
+                .append(" | ").append(comparison.result == null ? "" : comparison.result.format())
+                .append(" | ");
+            if (comparison.baseline == null) {
+                table.append(" | new");
+            } else if (comparison.result == null) {
+                table.append(" | missing");
+            } else {
+                table.append(String.format(Locale.ROOT, "%+.1f%%", comparison.getChangePercent()))
+                    .append(" | ").append(comparison.isRegression(threshold) ? "**regressed**" : comparison.isImprovement(threshold) ? "improved" : "");
+            }
+            table.append(" |\n");
+        }
+        final long regressions = comparisons.stream().filter(comparison -> comparison.isRegression(threshold)).count();
+        table.append('\n').append(regressions).append(" of ").append(comparisons.size()).append(" benchmarks regressed by more than ")
+            .append(threshold).append("%\n");
+        return table.toString();
+    }
+
+    /**
+     * The primary metric of one benchmark with one set of parameters
+     */
+    static final class Result {
+        private final String benchmark;
+        private final Map<String, String> params;
+        private final String mode;
+        private final double score;
+        private final double error;
+        private final String unit;
+
+        Result(String benchmark, Map<String, String> params, String mode, double score, double error, String unit) {
+            this.benchmark = benchmark;
+            this.params = params;
+            this.mode = mode;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        String getKey() {
+            return benchmark + params + mode;
+        }
+
+        /**
+         * @return true if a higher score is better, like for throughput, false if a lower score is better, like for the
+         *     average time
+         */
+        boolean isHigherBetter() {
+            return "thrpt".equals(mode);
+        }
+
+        double getError() {
+            return Double.isNaN(error) ? 0 : error;
+        }
+
+        String format() {
+            return String.format(Locale.ROOT, "%.3f +- %.3f %s", score, getError(), unit);
+        }
+    }
+
+    /**
+     * The result of a benchmark in the baseline run and in the compared run, either of which is null if the benchmark
+     * only ran once
+     */
+    static final class Comparison {
+        private final Result baseline;
+        private final Result result;
+
+        Comparison(Result baseline, Result result) {
+            this.baseline = baseline;
+            this.result = result;
+        }
+
+        /**
+         * @return by how much the score changed, positive if it got worse
+         */
+        double getChangePercent() {
+            final double change = (result.score - baseline.score) / baseline.score * PERCENT;
+            return baseline.isHigherBetter() ? -change : change;
+        }
+
+        boolean isRegression(double threshold) {
+            return isComparable() && getChangePercent() > threshold && isBeyondError();
+        }
+
+        boolean isImprovement(double threshold) {
+            return isComparable() && getChangePercent() < -threshold && isBeyondError();
+        }
+
+        private boolean isComparable() {
+            return baseline != null && result != null && baseline.score != 0 && baseline.unit.equals(result.unit);
+        }
+
+        private boolean isBeyondError() {
+            return Math.abs(result.score - baseline.score) > baseline.getError() + result.getError();
+        }
+    }
+}
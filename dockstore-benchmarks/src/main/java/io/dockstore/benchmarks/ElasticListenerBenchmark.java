@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.dockstore.webservice.core.BioWorkflow;
+import io.dockstore.webservice.core.Tool;
+import io.dockstore.webservice.helpers.statelisteners.ElasticListener;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Converts Dockstore entries to the documents indexed in Elasticsearch, which every publish, refresh and bulk
+ * reindex does
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ElasticListenerBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int versions;
+
+    @Param({"2", "20"})
+    public int files;
+
+    private BioWorkflow workflow;
+    private Tool tool;
+
+    @Setup
+    public void setUp() {
+        workflow = Fixtures.workflow(versions, files);
+        tool = Fixtures.tool(versions, files);
+    }
+
+    @Benchmark
+    public JsonNode workflowToElasticsearch() throws IOException {
+        return ElasticListener.dockstoreEntryToElasticSearchObject(workflow);
+    }
+
+    @Benchmark
+    public JsonNode toolToElasticsearch() throws IOException {
+        return ElasticListener.dockstoreEntryToElasticSearchObject(tool);
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.benchmarks;
+
+import io.dockstore.common.DescriptorLanguage;
+import io.dockstore.common.DescriptorLanguage.FileType;
+import io.dockstore.common.Registry;
+import io.dockstore.common.SourceControl;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.core.BioWorkflow;
+import io.dockstore.webservice.core.Checksum;
+import io.dockstore.webservice.core.Image;
+import io.dockstore.webservice.core.SourceFile;
+import io.dockstore.webservice.core.Tag;
+import io.dockstore.webservice.core.Tool;
+import io.dockstore.webservice.core.ToolMode;
+import io.dockstore.webservice.core.WorkflowMode;
+import io.dockstore.webservice.core.WorkflowVersion;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds the entries and descriptors that the benchmarks run on. Entries are built in memory, the way Hibernate would
+ * load them, with as many versions and files as each benchmark asks for. Descriptors are either generated to a given
+ * size, or are the real workflows that the webservice's tests use.
+ */
+public final class Fixtures {
+
+    public static final String PRIMARY_CWL = "/workflow.cwl";
+
+    private Fixtures() {
+        // hide the constructor for utility classes
+    }
+
+    /**
+     * @return a configuration with the external URL that TRS responses link to
+     */
+    public static DockstoreWebserviceConfiguration config() {
+        final DockstoreWebserviceConfiguration config = new DockstoreWebserviceConfiguration();
+        config.getExternalConfig().setHostname("localhost");
+        config.getExternalConfig().setPort("8080");
+        config.getExternalConfig().setScheme("http");
+        return config;
+    }
+
+    /**
+     * A published CWL workflow
+     * @param versions number of versions
+     * @param files number of files in each version, the primary descriptor and the tools it runs
+     */
+    public static BioWorkflow workflow(int versions, int files) {
+        final BioWorkflow workflow = new BioWorkflow();
+        workflow.setMode(WorkflowMode.DOCKSTORE_YML);
+        workflow.setSourceControl(SourceControl.GITHUB);
+        workflow.setOrganization("dockstore");
+        workflow.setRepository("benchmarks");
+        workflow.setWorkflowName("workflow");
+        workflow.setDescriptorType(DescriptorLanguage.CWL);
+        workflow.setDefaultWorkflowPath(PRIMARY_CWL);
+        workflow.setAuthor("Jane Doe");
+        workflow.setEmail("jane.doe@example.org");
+        workflow.setDescription("A workflow of " + (files - 1) + " steps");
+        workflow.setIsPublished(true);
+        for (int i = 0; i < versions; i++) {
+            final WorkflowVersion version = new WorkflowVersion();
+            version.setName("1." + i);
+            version.setReference("1." + i);
+            version.setWorkflowPath(PRIMARY_CWL);
+            version.setLastModified(new Date(i));
+            version.setValid(true);
+            version.setAuthor("Jane Doe");
+            cwlWorkflow(files - 1).forEach(version::addSourceFile);
+            workflow.addWorkflowVersion(version);
+        }
+        return workflow;
+    }
+
+    /**
+     * A published tool from Quay.io, with an image for each tag
+     * @param tags number of tags
+     * @param files number of files in each tag, the Dockerfile, the CWL descriptor and its test parameter files
+     */
+    public static Tool tool(int tags, int files) {
+        final Tool tool = new Tool();
+        tool.setMode(ToolMode.AUTO_DETECT_QUAY_TAGS_AUTOMATED_BUILDS);
+        tool.setRegistry(Registry.QUAY_IO.getDockerPath());
+        tool.setNamespace("dockstore");
+        tool.setName("benchmarks");
+        tool.setToolname("tool");
+        tool.setGitUrl("git@github.com:dockstore/benchmarks.git");
+        tool.setDefaultDockerfilePath("/Dockerfile");
+        tool.setDefaultCwlPath("/Dockstore.cwl");
+        tool.setAuthor("Jane Doe");
+        tool.setIsPublished(true);
+        for (int i = 0; i < tags; i++) {
+            final Tag tag = new Tag();
+            tag.setName("1." + i);
+            tag.setReference("1." + i);
+            tag.setDockerfilePath("/Dockerfile");
+            tag.setCwlPath("/Dockstore.cwl");
+            tag.setAutomated(true);
+            tag.setValid(true);
+            tag.setSize((long)i);
+            final List<Checksum> checksums = List.of(new Checksum("sha256", String.format("%064x", i)));
+            tag.setImages(Set.of(new Image(checksums, "dockstore/benchmarks", tag.getName(), "image" + i, Registry.QUAY_IO, (long)i, null)));
+            tag.addSourceFile(sourceFile("/Dockerfile", FileType.DOCKERFILE, "FROM ubuntu:20.04\nRUN apt-get update && apt-get install -y samtools\n"));
+            tag.addSourceFile(sourceFile("/Dockstore.cwl", FileType.DOCKSTORE_CWL, cwlTool(i)));
+            for (int j = 2; j < files; j++) {
+                tag.addSourceFile(sourceFile("/test/parameters" + j + ".json", FileType.CWL_TEST_JSON, "{\"input\": {\"class\": \"File\", \"path\": \"input" + j + ".bam\"}}"));
+            }
+            tool.addWorkflowVersion(tag);
+        }
+        return tool;
+    }
+
+    /**
+     * A CWL workflow whose steps run one after another, each running its own tool
+     * @param steps number of steps
+     * @return the primary descriptor, then a tool descriptor for each step
+     */
+    public static Set<SourceFile> cwlWorkflow(int steps) {
+        final Set<SourceFile> sourceFiles = new TreeSet<>();
+        final StringBuilder workflow = new StringBuilder("cwlVersion: v1.0\nclass: Workflow\n"
+            + "doc: A workflow that runs " + steps + " tools one after another\n"
+            + "dct:creator:\n  foaf:name: Jane Doe\n  foaf:mbox: mailto:jane.doe@example.org\n"
+            + "$namespaces:\n  dct: http://purl.org/dc/terms/\n  foaf: http://xmlns.com/foaf/0.1/\n"
+            + "inputs:\n  input_file: File\noutputs:\n  output_file:\n    type: File\n    outputSource: step" + (steps - 1) + "/output_file\n"
+            + "steps:\n");
+        for (int i = 0; i < steps; i++) {
+            workflow.append("  step").append(i).append(":\n    run: tools/tool").append(i).append(".cwl\n")
+                .append("    in:\n      input_file: ").append(i == 0 ? "input_file" : "step" + (i - 1) + "/output_file").append('\n')
+                .append("    out: [output_file]\n");
+            sourceFiles.add(sourceFile("/tools/tool" + i + ".cwl", FileType.DOCKSTORE_CWL, cwlTool(i)));
+        }
+        sourceFiles.add(sourceFile(PRIMARY_CWL, FileType.DOCKSTORE_CWL, workflow.toString()));
+        return sourceFiles;
+    }
+
+    private static String cwlTool(int i) {
+        return "cwlVersion: v1.0\nclass: CommandLineTool\n"
+            + "doc: Sorts the reads of a BAM file, number " + i + "\n"
+            + "requirements:\n  DockerRequirement:\n    dockerPull: quay.io/dockstore/samtools:1." + i + "\n"
+            + "  ResourceRequirement:\n    coresMin: 1\n    ramMin: 4092\n"
+            + "baseCommand: [samtools, sort]\n"
+            + "inputs:\n  input_file:\n    type: File\n    format: http://edamontology.org/format_2572\n    inputBinding:\n      position: 1\n"
+            + "outputs:\n  output_file:\n    type: File\n    format: http://edamontology.org/format_2572\n    outputBinding:\n      glob: sorted.bam\n"
+            + "$namespaces:\n  edam: http://edamontology.org/\n";
+    }
+
+    /**
+     * Reads a directory of descriptors from the classpath, whether the benchmarks run from classes or from their jar
+     * @param directory the directory, relative to the root of the classpath
+     * @param type the type of the descriptors
+     * @return the descriptors, with absolute paths relative to the directory
+     */
+    public static Set<SourceFile> resources(String directory, FileType type) {
+        final URL url = Fixtures.class.getResource("/" + directory);
+        if (url == null) {
+            throw new IllegalArgumentException("No such resource directory " + directory);
+        }
+        try {
+            final URI uri = url.toURI();
+            if ("jar".equals(uri.getScheme())) {
+                try (FileSystem fileSystem = FileSystems.newFileSystem(uri, Map.of())) {
+                    return resources(fileSystem.getPath("/" + directory), type);
+                }
+            }
+            return resources(Paths.get(uri), type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static Set<SourceFile> resources(Path root, FileType type) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile).map(path -> {
+                try {
+                    final String absolutePath = "/" + root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+                    return sourceFile(absolutePath, type, Files.readString(path, StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).collect(Collectors.toCollection(TreeSet::new));
+        }
+    }
+
+    /**
+     * @param sourceFiles some files
+     * @param absolutePath the absolute path of one of them
+     * @return that file
+     */
+    public static SourceFile find(Set<SourceFile> sourceFiles, String absolutePath) {
+        return sourceFiles.stream().filter(sourceFile -> absolutePath.equals(sourceFile.getAbsolutePath())).findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("No such file " + absolutePath));
+    }
+
+    public static SourceFile sourceFile(String absolutePath, FileType type, String content) {
+        final SourceFile sourceFile = new SourceFile();
+        sourceFile.setType(type);
+        sourceFile.setPath(absolutePath);
+        sourceFile.setAbsolutePath(absolutePath);
+        sourceFile.setContent(content);
+        return sourceFile;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.benchmarks;
+
+import io.dockstore.common.DescriptorLanguage.FileType;
+import io.dockstore.webservice.core.SourceFile;
+import io.dockstore.webservice.core.Version;
+import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.languages.CWLHandler;
+import io.dockstore.webservice.languages.WDLHandler;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses the metadata of workflows out of their descriptors, which every refresh of a version does.
+ *
+ * <p>The small workflows are a CWL workflow of two tools and a WDL workflow of four files. The large ones are a
+ * generated CWL workflow of a hundred tools and the GATK-SV clinical pipeline, a WDL workflow of 89 files.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LanguageHandlerBenchmark {
+
+    private static final int LARGE_CWL_STEPS = 100;
+
+    @Param({"small", "large"})
+    public String size;
+
+    private final CWLHandler cwlHandler = new CWLHandler();
+    private final WDLHandler wdlHandler = new WDLHandler();
+    private Set<SourceFile> cwlFiles;
+    private SourceFile cwlPrimary;
+    private Set<SourceFile> wdlFiles;
+    private SourceFile wdlPrimary;
+
+    @Setup
+    public void setUp() {
+        if ("small".equals(size)) {
+            cwlFiles = Fixtures.resources("tools-cwl-workflow-experiments/cwl", FileType.DOCKSTORE_CWL);
+            cwlPrimary = Fixtures.find(cwlFiles, "/workflow_docker.cwl");
+            wdlFiles = Fixtures.resources("not-really-recursive", FileType.DOCKSTORE_WDL);
+            wdlPrimary = Fixtures.find(wdlFiles, "/not-really-recursive.wdl");
+        } else {
+            cwlFiles = Fixtures.cwlWorkflow(LARGE_CWL_STEPS);
+            cwlPrimary = Fixtures.find(cwlFiles, Fixtures.PRIMARY_CWL);
+            wdlFiles = Fixtures.resources("gatk-sv-clinical", FileType.DOCKSTORE_WDL);
+            wdlPrimary = Fixtures.find(wdlFiles, "/GATKSVPipelineClinical.wdl");
+        }
+    }
+
+    @Benchmark
+    public Version parseCwl() {
+        return cwlHandler.parseWorkflowContent(cwlPrimary.getAbsolutePath(), cwlPrimary.getContent(), cwlFiles, new WorkflowVersion());
+    }
+
+    @Benchmark
+    public Version parseWdl() {
+        return wdlHandler.parseWorkflowContent(wdlPrimary.getAbsolutePath(), wdlPrimary.getContent(), wdlFiles, new WorkflowVersion());
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import com.sun.net.httpserver.HttpServer;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.VirtualThreadConfig;
+import io.dockstore.webservice.helpers.DockstoreServerFactory;
+import io.dockstore.webservice.helpers.VirtualThreads;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * Load tests Jetty on the webservice's platform thread pool, and on virtual threads, with requests that spend most of their time
+ * waiting on another service, like the webservice's requests that call GitHub, SAM, Elasticsearch or image registries.
+ *
+ * <p>Each request to Jetty makes a blocking call to a stand-in backend, which answers after a fixed latency. Clients keep a fixed
+ * number of requests in flight, more than the platform pool has threads, so that the platform pool saturates. Both pools are built by
+ * {@link DockstoreServerFactory}, like the webservice's. The results are printed as a Markdown table.
+ *
+ * <p>Both pools are run with the same max threads twice: with the webservice's server.maxThreads, and with the ceiling, as many threads
+ * as there are clients, past which more platform threads cannot help. The first shows what switching to virtual threads changes, the
+ * second whether raising server.maxThreads on platform threads would do as well.
+ *
+ * <p>Virtual threads need Java 21 or later; on earlier versions only the platform pool is tested.
+ *
+ * <p>Usage: {@code java -cp benchmarks.jar io.dockstore.benchmarks.ThreadPoolLoadComparison [clients] [seconds] [backend latency ms]
+ * [max threads] [ceiling max threads]}
+ */
+public final class ThreadPoolLoadComparison {
+
+    private static final int DEFAULT_CLIENTS = 2000;
+    private static final int DEFAULT_SECONDS = 20;
+    private static final int DEFAULT_BACKEND_LATENCY_MILLIS = 200;
+    // Dropwizard's default server.maxThreads, which the webservice uses
+    private static final int DEFAULT_MAX_THREADS = 1024;
+    private static final int WARM_UP_SECONDS = 5;
+    private static final byte[] BACKEND_RESPONSE = "{\"sha\": \"3f786850e387550fdab836ed7e6dc881de23001b\"}".getBytes(StandardCharsets.UTF_8);
+
+    private ThreadPoolLoadComparison() {
+        // hide the constructor for utility classes
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int clients = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLIENTS;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        final int backendLatencyMillis = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BACKEND_LATENCY_MILLIS;
+        final int maxThreads = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAX_THREADS;
+        final int ceilingMaxThreads = args.length > 4 ? Integer.parseInt(args[4]) : clients;
+
+        final ScheduledExecutorService backendExecutor = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
+        final HttpServer backend = startBackend(backendExecutor, backendLatencyMillis);
+        final URI backendUri = URI.create("http://" + backend.getAddress().getHostString() + ":" + backend.getAddress().getPort() + "/");
+        final StringBuilder table = new StringBuilder("| Threads | Max threads | Requests/s | p50 | p99 | Max | Errors |\n|---|---:|---:|---:|---:|---:|---:|\n");
+        try {
+            for (int threads : new int[] {maxThreads, ceilingMaxThreads}) {
+                table.append(run(false, threads, backendUri, clients, seconds).format("platform", threads));
+                if (VirtualThreads.isSupported()) {
+                    table.append(run(true, threads, backendUri, clients, seconds).format("virtual", threads));
+                }
+            }
+        } finally {
+            backend.stop(0);
+            backendExecutor.shutdownNow();
+        }
+        System.out.printf(Locale.ROOT, "%d clients for %d s, backend latency %d ms, Java %s%n%n", clients, seconds, backendLatencyMillis,
+            System.getProperty("java.version"));
+        System.out.print(table);
+        if (!VirtualThreads.isSupported()) {
+            System.out.println("\nVirtual threads need Java 21 or later, only the platform pool was tested");
+        }
+    }
+
+    /**
+     * Answers every request after the latency, without holding a thread while it waits
+     */
+    private static HttpServer startBackend(ScheduledExecutorService executor, int latencyMillis) throws IOException {
+        final HttpServer backend = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), DEFAULT_CLIENTS);
+        backend.setExecutor(executor);
+        backend.createContext("/", exchange -> executor.schedule(() -> {
+            try (OutputStream out = exchange.getResponseBody()) {
+                exchange.sendResponseHeaders(HttpServletResponse.SC_OK, BACKEND_RESPONSE.length);
+                out.write(BACKEND_RESPONSE);
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }, latencyMillis, TimeUnit.MILLISECONDS));
+        backend.start();
+        return backend;
+    }
+
+    private static Stats run(boolean virtual, int maxThreads, URI backendUri, int clients, int seconds) throws Exception {
+        final VirtualThreadConfig config = new VirtualThreadConfig();
+        config.setEnabled(virtual);
+        VirtualThreads.init(config);
+        final LoadTestServerFactory serverFactory = new LoadTestServerFactory();
+        serverFactory.setMaxThreads(maxThreads);
+        final Server server = new Server(serverFactory.threadPool());
+        final ServerConnector connector = new ServerConnector(server);
+        connector.setHost(InetAddress.getLoopbackAddress().getHostAddress());
+        connector.setAcceptQueueSize(clients);
+        server.addConnector(connector);
+        final HttpClient backendClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        final HttpRequest backendRequest = HttpRequest.newBuilder(backendUri).build();
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                try {
+                    // blocks the request's thread, like a call to GitHub does
+                    final byte[] body = backendClient.send(backendRequest, HttpResponse.BodyHandlers.ofByteArray()).body();
+                    response.setStatus(HttpServletResponse.SC_OK);
+                    response.getOutputStream().write(body);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                }
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+        final ExecutorService clientExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clientExecutor).build();
+            final HttpRequest request = HttpRequest.newBuilder(URI.create("http://" + connector.getHost() + ":" + connector.getLocalPort() + "/")).build();
+            load(client, request, clients, WARM_UP_SECONDS);
+            return load(client, request, clients, seconds);
+        } finally {
+            server.stop();
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Keeps {@code clients} requests in flight for {@code seconds}
+     */
+    private static Stats load(HttpClient client, HttpRequest request, int clients, int seconds) throws InterruptedException {
+        final Stats stats = new Stats();
+        final CountDownLatch done = new CountDownLatch(clients);
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        for (int i = 0; i < clients; i++) {
+            send(client, request, deadline, stats, done);
+        }
+        done.await();
+        stats.elapsedNanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    private static void send(HttpClient client, HttpRequest request, long deadline, Stats stats, CountDownLatch done) {
+        final long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            stats.record(System.nanoTime() - start, error == null && response.statusCode() == HttpServletResponse.SC_OK);
+            if (System.nanoTime() < deadline) {
+                send(client, request, deadline, stats, done);
+            } else {
+                done.countDown();
+            }
+        });
+    }
+
+    /**
+     * Exposes the server factory's Jetty thread pool
+     */
+    private static final class LoadTestServerFactory extends DockstoreServerFactory {
+        ThreadPool threadPool() {
+            return createThreadPool(new MetricRegistry());
+        }
+    }
+
+    private static final class Stats {
+        private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final LongAdder errors = new LongAdder();
+        private long elapsedNanos;
+
+        void record(long latencyNanos, boolean success) {
+            if (success) {
+                latencies.add(latencyNanos);
+            } else {
+                errors.increment();
+            }
+        }
+
+        String format(String threads, int maxThreads) {
+            final long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            final double requestsPerSecond = sorted.length / (elapsedNanos / (double)TimeUnit.SECONDS.toNanos(1));
+            return String.format(Locale.ROOT, "| %s | %d | %.0f | %s | %s | %s | %d |%n", threads, maxThreads, requestsPerSecond,
+                millis(sorted, 0.5), millis(sorted, 0.99), millis(sorted, 1), errors.sum());
+        }
+
+        private static String millis(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return "";
+            }
+            final int index = (int)Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+            return String.format(Locale.ROOT, "%.1f ms", sorted[Math.max(0, index)] / (double)TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.benchmarks;
+
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.core.BioWorkflow;
+import io.dockstore.webservice.core.Tool;
+import io.swagger.api.impl.ToolsImplCommon;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Converts Dockstore entries to TRS tools, which every TRS request for a tool or a list of tools does
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ToolsImplCommonBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int versions;
+
+    @Param({"2", "20"})
+    public int files;
+
+    private DockstoreWebserviceConfiguration config;
+    private BioWorkflow workflow;
+    private Tool tool;
+
+    @Setup
+    public void setUp() {
+        config = Fixtures.config();
+        workflow = Fixtures.workflow(versions, files);
+        tool = Fixtures.tool(versions, files);
+    }
+
+    @Benchmark
+    public io.openapi.model.Tool convertWorkflow() {
+        return ToolsImplCommon.convertEntryToTool(workflow, config);
+    }
+
+    @Benchmark
+    public io.openapi.model.Tool convertTool() {
+        return ToolsImplCommon.convertEntryToTool(tool, config);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.benchmarks;
+
+import io.openapi.model.Tool;
+import io.swagger.api.impl.ApiV1VersionConverter;
+import io.swagger.api.impl.ApiV2BetaVersionConverter;
+import io.swagger.api.impl.ToolsImplCommon;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Converts TRS V2 responses to the older TRS versions, which every TRS V2 beta and V1 request does. V1 responses are
+ * converted from V2 beta ones, like the V1 API does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VersionConverterBenchmark {
+
+    /**
+     * Number of tools in a listing
+     */
+    @Param({"1", "100"})
+    public int tools;
+
+    @Param({"1", "10"})
+    public int versions;
+
+    private Response v2Response;
+    private Response v2BetaResponse;
+
+    @Setup
+    public void setUp() {
+        final Tool tool = ToolsImplCommon.convertEntryToTool(Fixtures.workflow(versions, 2), Fixtures.config());
+        final List<Tool> listing = Collections.nCopies(tools, tool);
+        v2Response = Response.ok(listing).header("next_page", "http://localhost:8080/api/ga4gh/v2/tools?offset=1").build();
+        v2BetaResponse = ApiV2BetaVersionConverter.convertToVersion(v2Response);
+    }
+
+    @Benchmark
+    public Response convertToV2Beta() {
+        return ApiV2BetaVersionConverter.convertToVersion(v2Response);
+    }
+
+    @Benchmark
+    public Response convertToV1() {
+        return ApiV1VersionConverter.convertToVersion(v2BetaResponse);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.benchmarks;
+
+import io.dockstore.common.DescriptorLanguage.FileType;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.LimitConfig;
+import io.dockstore.webservice.core.SourceFile;
+import io.dockstore.webservice.helpers.EntryVersionHelper;
+import io.dockstore.webservice.helpers.ZipSourceFileHelper;
+import io.dockstore.webservice.jdbi.EntryDAO;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes the files of a version to a zip, like downloading a version as a zip does, and reads them back from a zip,
+ * like uploading a zip to a hosted workflow does
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZipBenchmark {
+
+    private static final Path WORKING_DIRECTORY = Paths.get("");
+
+    @Param({"10", "100"})
+    public int files;
+
+    private final EntryVersionHelper helper = new EntryVersionHelperImpl();
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final LimitConfig limitConfig = new LimitConfig();
+    private Set<SourceFile> sourceFiles;
+    private byte[] zip;
+
+    @Setup
+    public void setUp() {
+        sourceFiles = Fixtures.cwlWorkflow(files - 1);
+        final Set<SourceFile> upload = new TreeSet<>(sourceFiles);
+        upload.add(Fixtures.sourceFile("/.dockstore.yml", FileType.DOCKSTORE_YML,
+            "dockstoreVersion: 1.0\nclass: workflow\nprimaryDescriptor: " + Fixtures.PRIMARY_CWL.substring(1) + "\n"));
+        final ByteArrayOutputStream zipOutput = new ByteArrayOutputStream();
+        helper.writeStreamAsZip(upload, zipOutput, WORKING_DIRECTORY);
+        zip = zipOutput.toByteArray();
+        // the benchmark measures reading the zip, not rejecting it. One more byte than the size limit is read, to tell when it is exceeded.
+        limitConfig.setZipSizeLimit(Long.MAX_VALUE - 1);
+        limitConfig.setZipUncompressedSizeLimit(Long.MAX_VALUE);
+        limitConfig.setZipEntriesLimit(Integer.MAX_VALUE);
+        limitConfig.setZipCompressionRatioLimit(Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public int writeZip() {
+        output.reset();
+        // writing a zip removes the files without content from the set it is given
+        helper.writeStreamAsZip(new TreeSet<>(sourceFiles), output, WORKING_DIRECTORY);
+        return output.size();
+    }
+
+    @Benchmark
+    public ZipSourceFileHelper.SourceFiles readZip() {
+        return ZipSourceFileHelper.sourceFilesFromInputStream(new ByteArrayInputStream(zip), FileType.DOCKSTORE_CWL, limitConfig);
+    }
+
+    /**
+     * We need an EntryVersionHelper instance so we can call EntryVersionHelper.writeStreamAsZip; getDAO never gets invoked.
+     */
+    private static class EntryVersionHelperImpl implements EntryVersionHelper {
+
+        @Override
+        public EntryDAO getDAO() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BaselineReportTest {
+
+    private static final double THRESHOLD = BaselineReport.DEFAULT_THRESHOLD_PERCENT;
+
+    private static String result(String benchmark, String mode, double score, double error) {
+        return "{\"benchmark\": \"io.dockstore.benchmarks." + benchmark + "\", \"mode\": \"" + mode + "\", \"params\": {\"versions\": \"10\"}, "
+            + "\"primaryMetric\": {\"score\": " + score + ", \"scoreError\": " + error + ", \"scoreUnit\": \"" + ("thrpt".equals(mode) ? "ops/us" : "us/op") + "\"}}";
+    }
+
+    private static List<BaselineReport.Comparison> compare(String baseline, String results) throws IOException {
+        return BaselineReport.compare(BaselineReport.parse("[" + baseline + "]"), BaselineReport.parse("[" + results + "]"));
+    }
+
+    @Test
+    public void testSlowerAverageTimeIsARegression() throws IOException {
+        final BaselineReport.Comparison comparison = compare(result("ZipBenchmark.readZip", "avgt", 100, 2), result("ZipBenchmark.readZip", "avgt", 120, 2)).get(0);
+        Assert.assertEquals(20, comparison.getChangePercent(), 0.001);
+        Assert.assertTrue(comparison.isRegression(THRESHOLD));
+        Assert.assertFalse(comparison.isImprovement(THRESHOLD));
+    }
+
+    @Test
+    public void testLowerThroughputIsARegression() throws IOException {
+        final BaselineReport.Comparison comparison = compare(result("ZipBenchmark.readZip", "thrpt", 100, 2), result("ZipBenchmark.readZip", "thrpt", 80, 2)).get(0);
+        Assert.assertEquals(20, comparison.getChangePercent(), 0.001);
+        Assert.assertTrue(comparison.isRegression(THRESHOLD));
+    }
+
+    @Test
+    public void testChangesWithinTheThresholdOrTheErrorAreNotRegressions() throws IOException {
+        Assert.assertFalse(compare(result("ZipBenchmark.readZip", "avgt", 100, 2), result("ZipBenchmark.readZip", "avgt", 105, 2)).get(0).isRegression(THRESHOLD));
+        // noisy runs: the difference is within the error of the runs
+        Assert.assertFalse(compare(result("ZipBenchmark.readZip", "avgt", 100, 15), result("ZipBenchmark.readZip", "avgt", 120, 15)).get(0).isRegression(THRESHOLD));
+        Assert.assertTrue(compare(result("ZipBenchmark.readZip", "avgt", 100, 2), result("ZipBenchmark.readZip", "avgt", 50, 2)).get(0).isImprovement(THRESHOLD));
+    }
+
+    @Test
+    public void testFormat() throws IOException {
+        final List<BaselineReport.Comparison> comparisons = compare(
+            result("ZipBenchmark.readZip", "avgt", 100, 2) + ", " + result("ZipBenchmark.writeZip", "avgt", 100, 2),
+            result("ZipBenchmark.readZip", "avgt", 150, 2) + ", " + result("LanguageHandlerBenchmark.parseCwl", "avgt", 100, 2));
+        Assert.assertEquals(3, comparisons.size());
+        final String report = BaselineReport.format(comparisons, THRESHOLD);
+        Assert.assertTrue(report, report.contains("| ZipBenchmark.readZip | {versions=10} | 100.000 +- 2.000 us/op | 150.000 +- 2.000 us/op | +50.0% | **regressed** |"));
+        Assert.assertTrue(report, report.contains("| ZipBenchmark.writeZip | {versions=10} | 100.000 +- 2.000 us/op |  |  | missing |"));
+        Assert.assertTrue(report, report.contains("| LanguageHandlerBenchmark.parseCwl | {versions=10} |  | 100.000 +- 2.000 us/op |  | new |"));
+        Assert.assertTrue(report, report.endsWith("1 of 3 benchmarks regressed by more than 10.0%\n"));
+    }
+
+    @Test
+    public void testResultsAreMatchedByParameters() throws IOException {
+        final Map<String, BaselineReport.Result> results = BaselineReport.parse("[" + result("ZipBenchmark.readZip", "avgt", 100, 2) + ", "
+            + result("ZipBenchmark.readZip", "avgt", 100, 2).replace("\"10\"", "\"100\"") + "]");
+        Assert.assertEquals(2, results.size());
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.benchmarks;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs every benchmark once, with every parameter, like {@code -wi 0 -i 1 -f 1}, so that a benchmark that no longer runs fails the
+ * build instead of the next comparison to a baseline
+ */
+public class BenchmarksSmokeTest {
+
+    private static final List<Class<?>> BENCHMARKS = List.of(ElasticListenerBenchmark.class, LanguageHandlerBenchmark.class, ToolsImplCommonBenchmark.class,
+        VersionConverterBenchmark.class, ZipBenchmark.class);
+
+    @Test
+    public void testEveryBenchmarkRuns() throws RunnerException {
+        final OptionsBuilder options = new OptionsBuilder();
+        BENCHMARKS.forEach(benchmark -> options.include(benchmark.getName() + "\\."));
+        final Collection<RunResult> results = new Runner(options
+            .warmupIterations(0)
+            .measurementIterations(1)
+            .measurementTime(TimeValue.milliseconds(100))
+            .forks(1)
+            .shouldFailOnError(true)
+            .build()).run();
+
+        final Set<String> expected = BENCHMARKS.stream()
+            .flatMap(benchmark -> Arrays.stream(benchmark.getMethods()).filter(method -> method.isAnnotationPresent(Benchmark.class))
+                .map(method -> benchmark.getName() + "." + method.getName()))
+            .collect(Collectors.toSet());
+        final Set<String> ran = results.stream().map(result -> result.getParams().getBenchmark()).collect(Collectors.toSet());
+        Assert.assertEquals(expected, ran);
+    }
+}
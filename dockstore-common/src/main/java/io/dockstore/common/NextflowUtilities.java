@@ -30,6 +30,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.ConfigurationConverter;
 import org.apache.commons.configuration2.INIConfiguration;
@@ -43,6 +44,7 @@ public final class NextflowUtilities {
     //TODO upgrade to stable release when possible
     private static final String DEFAULT_NEXTFLOW_VERSION = "21.10.6";
     private static final long TIMEOUT_MILLISECONDS = 15000;  // based on webservice logs, usually <6 seconds is needed
+    private static final ReentrantLock NEXTFLOW_LOCK = new ReentrantLock(true);
 
     private NextflowUtilities() {
         // hide the default constructor for a utility class
@@ -140,13 +142,19 @@ public final class NextflowUtilities {
 
     /**
      * This is an expensive operation; a new Java VM is spun up for this, so only allow one at a time by
-     * synchronizing the method.
+     * locking. A lock rather than a synchronized method, since a virtual thread that blocks on the process, or waits
+     * for its turn, inside a synchronized method is pinned to its carrier thread for up to the timeout.
      * @param content
      * @param join
      * @return
      */
-    private static synchronized ImmutablePair<String, String> executeNextflowConfig(File content, String join) {
-        return Utilities.executeCommand(join, content.getParentFile(), TIMEOUT_MILLISECONDS);
+    private static ImmutablePair<String, String> executeNextflowConfig(File content, String join) {
+        NEXTFLOW_LOCK.lock();
+        try {
+            return Utilities.executeCommand(join, content.getParentFile(), TIMEOUT_MILLISECONDS);
+        } finally {
+            NEXTFLOW_LOCK.unlock();
+        }
     }
 
     /**
@@ -15,16 +15,25 @@
  */
 package io.dockstore.consumer;
 
-import com.google.common.collect.Lists;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import io.dockstore.common.model.BasicMessage;
 import io.dockstore.consumer.handler.DOIHandler;
 import io.dockstore.consumer.handler.MessageHandler;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.configuration2.PropertiesConfiguration;
 import org.apache.commons.configuration2.builder.fluent.Configurations;
 import org.apache.commons.configuration2.ex.ConfigurationException;
@@ -32,13 +41,34 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
 import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
 import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
 import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
 import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SqsException;
 
-public final class EventConsumer {
+/**
+ * Receives messages from SQS and hands them to a bounded pool of workers.
+ *
+ * <p>Each poll receives up to {@link #MAX_MESSAGES} messages, but never more than there are idle workers, so messages
+ * are not left waiting in memory while their visibility timeout runs out. While a message is being handled its
+ * visibility timeout is extended in the background. Handled messages are deleted in batches. A message that cannot
+ * be read, that no handler takes, or that has been received more than the maximum number of times is moved to the
+ * dead-letter queue, so that it does not keep coming back.</p>
+ */
+public final class EventConsumer implements AutoCloseable {
+
+    /**
+     * the most messages SQS receives, deletes or changes the visibility of in one call
+     */
+    static final int MAX_MESSAGES = 10;
+
+    static final String DEAD_LETTER_REASON_ATTRIBUTE = "deadLetterReason";
 
     private static final Logger LOG = LoggerFactory.getLogger(EventConsumer.class);
 
@@ -46,25 +76,67 @@ public final class EventConsumer {
      * the maximum wait time allowed
      */
     private static final int MAX_WAIT_TIME_SECONDS = 20;
-    private PropertiesConfiguration config;
+    private static final int MAX_MESSAGE_ATTRIBUTES = 10;
+    private static final int DEFAULT_WORKER_THREADS = 4;
+    private static final int DEFAULT_VISIBILITY_TIMEOUT_SECONDS = 60;
+    private static final int DEFAULT_MAX_RECEIVE_COUNT = 5;
+    private static final long DELETE_INTERVAL_MILLISECONDS = 1000;
+
+    private final SqsClient sqs;
+    private final String queueURL;
+    private final String deadLetterQueueURL;
+    private final Map<String, MessageHandler> messageHandlers;
+    private final int visibilityTimeoutSeconds;
+    private final int maxReceiveCount;
+    private final int waitTimeSeconds;
+    private final Gson gson = new Gson();
+    private final ExecutorService workers;
+    private final Semaphore idleWorkers;
+    private final ScheduledExecutorService scheduler;
+    /**
+     * receipt handles of the messages being handled, by message id
+     */
+    private final Map<String, String> inFlight = new ConcurrentHashMap<>();
+    /**
+     * receipt handles of the messages that are done with and can be deleted
+     */
+    private final Queue<String> completed = new ConcurrentLinkedQueue<>();
 
-    private EventConsumer() {
-        this.config = getConsumerConfiguration();
+    /**
+     * @param sqs SQS client
+     * @param queueURL queue to receive messages from
+     * @param deadLetterQueueURL queue to move poison messages to, null to only log and delete them
+     * @param messageHandlers handlers by the type attribute of the messages they handle
+     * @param workerThreads how many messages are handled at the same time
+     * @param visibilityTimeoutSeconds how long received messages are hidden from other consumers, extended while they are handled
+     * @param maxReceiveCount how often a message is received before it is considered poison
+     * @param waitTimeSeconds how long a poll waits for messages to arrive
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    EventConsumer(SqsClient sqs, String queueURL, String deadLetterQueueURL, Map<String, MessageHandler> messageHandlers, int workerThreads,
+        int visibilityTimeoutSeconds, int maxReceiveCount, int waitTimeSeconds) {
+        this.sqs = sqs;
+        this.queueURL = queueURL;
+        this.deadLetterQueueURL = deadLetterQueueURL;
+        this.messageHandlers = messageHandlers;
+        this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+        this.maxReceiveCount = maxReceiveCount;
+        this.waitTimeSeconds = waitTimeSeconds;
+        this.workers = Executors.newFixedThreadPool(workerThreads);
+        this.idleWorkers = new Semaphore(workerThreads);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
     }
 
-    private PropertiesConfiguration getConsumerConfiguration() {
-        if (this.config == null) {
-            Configurations configs = new Configurations();
-            // Read data from this file
-            File propertiesFile = new File(System.getProperty("user.home"), ".dockstore/consumer.config");
+    private static PropertiesConfiguration getConsumerConfiguration() {
+        Configurations configs = new Configurations();
+        // Read data from this file
+        File propertiesFile = new File(System.getProperty("user.home"), ".dockstore/consumer.config");
 
-            try {
-                this.config = configs.properties(propertiesFile);
-            } catch (ConfigurationException e) {
-                throw new RuntimeException("Could not read ~/.dockstore/consumer.config", e);
-            }
+        try {
+            return configs.properties(propertiesFile);
+        } catch (ConfigurationException e) {
+            throw new RuntimeException("Could not read ~/.dockstore/consumer.config", e);
         }
-        return this.config;
     }
 
     /**
@@ -74,58 +146,204 @@ public final class EventConsumer {
      * @return
      */
     public static void main(String[] args) {
-
-        EventConsumer consumer = new EventConsumer();
-        String sqsURL = consumer.getConsumerConfiguration().getString("sqsURL");
-        String dockstoreToken = consumer.getConsumerConfiguration().getString("dockstoreToken");
-        String dockstoreURL = consumer.getConsumerConfiguration().getString("dockstoreURL");
-        String zenodoToken = consumer.getConsumerConfiguration().getString("zenodoToken");
-        String zenodoURL = consumer.getConsumerConfiguration().getString("zenodoURL");
+        PropertiesConfiguration config = getConsumerConfiguration();
+        String sqsURL = config.getString("sqsURL");
+        String dockstoreToken = config.getString("dockstoreToken");
+        String dockstoreURL = config.getString("dockstoreURL");
+        String zenodoToken = config.getString("zenodoToken");
+        String zenodoURL = config.getString("zenodoURL");
 
         final SqsClient sqs = SqsClient.builder().region(Region.US_EAST_1).build();
-        LOG.info("Receiving messages from MyFifoQueue.fifo");
-        final ReceiveMessageRequest receiveMessageRequest = ReceiveMessageRequest.builder().queueUrl(sqsURL).attributeNamesWithStrings(Lists.newArrayList(".*")).waitTimeSeconds(MAX_WAIT_TIME_SECONDS).maxNumberOfMessages(1).build();
-
-        Gson gson = new Gson();
 
         DOIHandler doiHandler = new DOIHandler(dockstoreURL, dockstoreToken, zenodoURL, zenodoToken);
         Map<String, MessageHandler> messageHandlers = new HashMap<>();
         messageHandlers.put(doiHandler.messageTypeHandled(), doiHandler);
 
-        do {
-            final List<Message> messages = sqs.receiveMessage(receiveMessageRequest).messages();
+        LOG.info("Receiving messages from {}", sqsURL);
+        try (EventConsumer consumer = new EventConsumer(sqs, sqsURL, config.getString("deadLetterQueueURL", null), messageHandlers,
+            config.getInt("workerThreads", DEFAULT_WORKER_THREADS), config.getInt("visibilityTimeoutSeconds", DEFAULT_VISIBILITY_TIMEOUT_SECONDS),
+            config.getInt("maxReceiveCount", DEFAULT_MAX_RECEIVE_COUNT), MAX_WAIT_TIME_SECONDS)) {
+            consumer.start();
+            while (true) {
+                consumer.poll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts extending the visibility of the messages being handled and deleting handled messages in the background
+     */
+    void start() {
+        final long extendIntervalMillis = TimeUnit.SECONDS.toMillis(visibilityTimeoutSeconds) / 2;
+        scheduler.scheduleWithFixedDelay(() -> runSafely(this::extendVisibility), extendIntervalMillis, extendIntervalMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(() -> runSafely(this::deleteCompleted), DELETE_INTERVAL_MILLISECONDS, DELETE_INTERVAL_MILLISECONDS,
+            TimeUnit.MILLISECONDS);
+    }
+
+    private static void runSafely(Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (RuntimeException e) {
+            // keep the schedule going, SQS calls are retried at the next run
+            LOG.error("Could not update SQS", e);
+        }
+    }
+
+    /**
+     * Waits for an idle worker, then receives as many messages as there are idle workers (at most {@link #MAX_MESSAGES})
+     * and hands them to the workers
+     * @return the number of messages received
+     */
+    int poll() throws InterruptedException {
+        idleWorkers.acquire();
+        int permits = 1;
+        while (permits < MAX_MESSAGES && idleWorkers.tryAcquire()) {
+            permits++;
+        }
+        List<Message> messages = List.of();
+        try {
+            final ReceiveMessageRequest receiveMessageRequest = ReceiveMessageRequest.builder().queueUrl(queueURL)
+                .attributeNamesWithStrings(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT.toString()).messageAttributeNames("All")
+                .visibilityTimeout(visibilityTimeoutSeconds).waitTimeSeconds(waitTimeSeconds).maxNumberOfMessages(permits).build();
+            messages = sqs.receiveMessage(receiveMessageRequest).messages();
             for (Message message : messages) {
-                LOG.debug("  Message");
-                LOG.debug("    MessageId:     " + message.messageId());
-                LOG.debug("    ReceiptHandle: " + message.receiptHandle());
-                LOG.debug("    MD5OfBody:     " + message.md5OfBody());
-                LOG.debug("    Body:          " + message.body());
-                for (Entry<MessageSystemAttributeName, String> entry: message.attributes().entrySet()) {
-                    LOG.debug("  Attribute");
-                    LOG.debug("    Name:  " + entry.getKey());
-                    LOG.debug("    Value: " + entry.getValue());
-                }
-
-                // in reality, get the workflow here and create a zenodo entry for it
-                MessageHandler messageHandler = messageHandlers.get(message.messageAttributes().get("type").stringValue());
-                if (messageHandler != null) {
-                    BasicMessage basicMessage = (BasicMessage)gson.fromJson(message.body(), messageHandler.messageClassHandled());
-                    boolean handled = messageHandler.handleMessage(basicMessage);
-
-                    String messageReceiptHandle = messages.get(0).receiptHandle();
-                    if (handled) {
-                        // Delete the message
-                        LOG.info("Deleting the message");
-                        sqs.deleteMessage(DeleteMessageRequest.builder().queueUrl(sqsURL).receiptHandle(messageReceiptHandle).build());
-                    } else {
-                        // requeue the message
-                        final ChangeMessageVisibilityRequest request = ChangeMessageVisibilityRequest.builder().queueUrl(sqsURL)
-                            .receiptHandle(messageReceiptHandle).visibilityTimeout(0).build();
-                        sqs.changeMessageVisibility(request);
-                    }
-                }
+                inFlight.put(message.messageId(), message.receiptHandle());
+                workers.execute(() -> handle(message));
+            }
+        } finally {
+            idleWorkers.release(permits - messages.size());
+        }
+        deleteCompleted();
+        return messages.size();
+    }
+
+    private void handle(Message message) {
+        try {
+            LOG.debug("  Message");
+            LOG.debug("    MessageId:     " + message.messageId());
+            LOG.debug("    ReceiptHandle: " + message.receiptHandle());
+            LOG.debug("    MD5OfBody:     " + message.md5OfBody());
+            LOG.debug("    Body:          " + message.body());
+            for (Entry<MessageSystemAttributeName, String> entry: message.attributes().entrySet()) {
+                LOG.debug("  Attribute");
+                LOG.debug("    Name:  " + entry.getKey());
+                LOG.debug("    Value: " + entry.getValue());
+            }
 
+            final int receiveCount = Integer.parseInt(message.attributes().getOrDefault(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT, "1"));
+            if (receiveCount > maxReceiveCount) {
+                deadLetter(message, "received " + receiveCount + " times");
+                return;
             }
-        } while (true);
+            final MessageAttributeValue type = message.messageAttributes().get("type");
+            final MessageHandler messageHandler = type == null ? null : messageHandlers.get(type.stringValue());
+            if (messageHandler == null) {
+                deadLetter(message, "no handler for type " + (type == null ? null : type.stringValue()));
+                return;
+            }
+            final BasicMessage basicMessage;
+            try {
+                basicMessage = (BasicMessage)gson.fromJson(message.body(), messageHandler.messageClassHandled());
+            } catch (JsonParseException e) {
+                deadLetter(message, "unreadable body: " + e.getMessage());
+                return;
+            }
+
+            boolean handled;
+            try {
+                handled = messageHandler.handleMessage(basicMessage);
+            } catch (RuntimeException e) {
+                LOG.error("Could not handle message " + message.messageId(), e);
+                handled = false;
+            }
+            if (handled) {
+                completed.add(message.receiptHandle());
+            } else {
+                // requeue the message, it is dead-lettered once it has been received too often
+                final ChangeMessageVisibilityRequest request = ChangeMessageVisibilityRequest.builder().queueUrl(queueURL)
+                    .receiptHandle(message.receiptHandle()).visibilityTimeout(0).build();
+                sqs.changeMessageVisibility(request);
+            }
+        } catch (RuntimeException e) {
+            // the message becomes visible again once its visibility timeout is no longer extended
+            LOG.error("Could not process message " + message.messageId(), e);
+        } finally {
+            inFlight.remove(message.messageId());
+            idleWorkers.release();
+        }
+    }
+
+    private void deadLetter(Message message, String reason) {
+        if (deadLetterQueueURL == null) {
+            LOG.error("Dropping message {} ({}): {}", message.messageId(), reason, message.body());
+        } else {
+            LOG.error("Moving message {} to the dead-letter queue ({})", message.messageId(), reason);
+            final Map<String, MessageAttributeValue> attributes = new HashMap<>(message.messageAttributes());
+            if (attributes.size() < MAX_MESSAGE_ATTRIBUTES) {
+                attributes.put(DEAD_LETTER_REASON_ATTRIBUTE, MessageAttributeValue.builder().dataType("String").stringValue(reason).build());
+            }
+            sqs.sendMessage(SendMessageRequest.builder().queueUrl(deadLetterQueueURL).messageBody(message.body()).messageAttributes(attributes).build());
+        }
+        completed.add(message.receiptHandle());
+    }
+
+    /**
+     * Deletes the messages that are done with, in batches
+     */
+    void deleteCompleted() {
+        List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>();
+        for (String receiptHandle = completed.poll(); receiptHandle != null; receiptHandle = completed.poll()) {
+            entries.add(DeleteMessageBatchRequestEntry.builder().id(String.valueOf(entries.size())).receiptHandle(receiptHandle).build());
+            if (entries.size() == MAX_MESSAGES) {
+                deleteBatch(entries);
+                entries = new ArrayList<>();
+            }
+        }
+        if (!entries.isEmpty()) {
+            deleteBatch(entries);
+        }
+    }
+
+    private void deleteBatch(List<DeleteMessageBatchRequestEntry> entries) {
+        try {
+            logFailures("delete", sqs.deleteMessageBatch(request -> request.queueUrl(queueURL).entries(entries)).failed());
+        } catch (SqsException e) {
+            // the messages will be received and handled again
+            LOG.error("Could not delete " + entries.size() + " messages", e);
+        }
+    }
+
+    /**
+     * Extends the visibility timeout of the messages being handled, so that they are not received again in the meantime
+     */
+    void extendVisibility() {
+        final List<Entry<String, String>> messages = new ArrayList<>(inFlight.entrySet());
+        for (int start = 0; start < messages.size(); start += MAX_MESSAGES) {
+            final List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>();
+            for (Entry<String, String> message : messages.subList(start, Math.min(start + MAX_MESSAGES, messages.size()))) {
+                entries.add(ChangeMessageVisibilityBatchRequestEntry.builder().id(message.getKey()).receiptHandle(message.getValue())
+                    .visibilityTimeout(visibilityTimeoutSeconds).build());
+            }
+            logFailures("extend the visibility of", sqs.changeMessageVisibilityBatch(request -> request.queueUrl(queueURL).entries(entries)).failed());
+        }
+    }
+
+    private static void logFailures(String action, List<BatchResultErrorEntry> failures) {
+        failures.forEach(failure -> LOG.error("Could not {} message {}: {} {}", action, failure.id(), failure.code(), failure.message()));
+    }
+
+    /**
+     * Stops receiving, waits for the messages being handled and deletes the ones that are done with
+     */
+    @Override
+    public void close() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(visibilityTimeoutSeconds, TimeUnit.SECONDS)) {
+            LOG.warn("Stopped before all messages were handled, they will be received again");
+        }
+        scheduler.shutdownNow();
+        deleteCompleted();
     }
 }
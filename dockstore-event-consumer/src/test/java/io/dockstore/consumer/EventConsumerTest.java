@@ -0,0 +1,162 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.dockstore.consumer;
+
+import io.dockstore.common.model.DOIMessage;
+import io.dockstore.consumer.handler.MessageHandler;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+
+public class EventConsumerTest {
+
+    private static final String QUEUE_URL = "queue";
+    private static final String DEAD_LETTER_QUEUE_URL = "dead-letter-queue";
+    private static final int VISIBILITY_TIMEOUT_SECONDS = 60;
+    private static final int MAX_RECEIVE_COUNT = 3;
+
+    private final InMemorySqsClient sqs = new InMemorySqsClient();
+    private final AtomicInteger handled = new AtomicInteger();
+    private EventConsumer consumer;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (consumer != null) {
+            consumer.close();
+        }
+    }
+
+    private EventConsumer consumer(int workerThreads, Predicate<DOIMessage> handler) {
+        final MessageHandler<DOIMessage> messageHandler = new MessageHandler<>() {
+            @Override
+            public boolean handleMessage(DOIMessage message) {
+                handled.incrementAndGet();
+                return handler.test(message);
+            }
+
+            @Override
+            public String messageTypeHandled() {
+                return DOIMessage.class.getName();
+            }
+
+            @Override
+            public Class<DOIMessage> messageClassHandled() {
+                return DOIMessage.class;
+            }
+        };
+        consumer = new EventConsumer(sqs, QUEUE_URL, DEAD_LETTER_QUEUE_URL, Map.of(messageHandler.messageTypeHandled(), messageHandler), workerThreads,
+            VISIBILITY_TIMEOUT_SECONDS, MAX_RECEIVE_COUNT, 0);
+        return consumer;
+    }
+
+    private void sendDOIMessages(int count) {
+        for (int i = 0; i < count; i++) {
+            sqs.send(QUEUE_URL, DOIMessage.class.getName(), "{\"targetEntry\": \"workflow\", \"entryId\": " + i + "}");
+        }
+    }
+
+    @Test
+    public void testMessagesAreReceivedAndDeletedInBatches() throws InterruptedException {
+        sendDOIMessages(25);
+        consumer(EventConsumer.MAX_MESSAGES, message -> true);
+        int received = 0;
+        while (received < 25) {
+            received += consumer.poll();
+        }
+        consumer.close();
+        consumer = null;
+
+        Assert.assertEquals(25, handled.get());
+        Assert.assertTrue(sqs.messages(QUEUE_URL).isEmpty());
+        Assert.assertTrue(sqs.requests(ReceiveMessageRequest.class).stream().allMatch(request -> request.maxNumberOfMessages() <= EventConsumer.MAX_MESSAGES));
+        final List<DeleteMessageBatchRequest> deletes = sqs.requests(DeleteMessageBatchRequest.class);
+        Assert.assertTrue("25 messages need at least 3 batches and get at most one per poll and one when closing", deletes.size() >= 3);
+        Assert.assertTrue(deletes.stream().allMatch(request -> request.entries().size() <= EventConsumer.MAX_MESSAGES));
+    }
+
+    @Test
+    public void testReceivesNoMoreMessagesThanIdleWorkers() throws InterruptedException {
+        sendDOIMessages(5);
+        final CountDownLatch release = new CountDownLatch(1);
+        consumer(2, message -> {
+            try {
+                return release.await(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+        Assert.assertEquals(2, consumer.poll());
+        Assert.assertEquals(2, sqs.requests(ReceiveMessageRequest.class).get(0).maxNumberOfMessages().intValue());
+
+        // the messages being handled are hidden for longer while the others wait in the queue
+        consumer.extendVisibility();
+        final List<ChangeMessageVisibilityBatchRequest> extensions = sqs.requests(ChangeMessageVisibilityBatchRequest.class);
+        Assert.assertEquals(1, extensions.size());
+        Assert.assertEquals(2, extensions.get(0).entries().size());
+        Assert.assertTrue(extensions.get(0).entries().stream().allMatch(entry -> entry.visibilityTimeout() == VISIBILITY_TIMEOUT_SECONDS));
+
+        release.countDown();
+        int received = 0;
+        while (received < 3) {
+            received += consumer.poll();
+        }
+        consumer.close();
+        consumer = null;
+        Assert.assertTrue(sqs.messages(QUEUE_URL).isEmpty());
+    }
+
+    @Test
+    public void testFailedMessagesAreRetriedThenDeadLettered() throws InterruptedException {
+        sendDOIMessages(1);
+        consumer(1, message -> false);
+        // each poll waits for the only worker, which makes the message visible again or moves it
+        final long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        while (sqs.messages(DEAD_LETTER_QUEUE_URL).isEmpty() && System.currentTimeMillis() < deadline) {
+            consumer.poll();
+        }
+        consumer.close();
+        consumer = null;
+        Assert.assertEquals(MAX_RECEIVE_COUNT, handled.get());
+        Assert.assertTrue(sqs.messages(QUEUE_URL).isEmpty());
+        final Message deadLetter = sqs.messages(DEAD_LETTER_QUEUE_URL).get(0);
+        Assert.assertTrue(deadLetter.body().contains("\"entryId\": 0"));
+        Assert.assertEquals("received 4 times", deadLetter.messageAttributes().get(EventConsumer.DEAD_LETTER_REASON_ATTRIBUTE).stringValue());
+    }
+
+    @Test
+    public void testPoisonMessagesAreDeadLettered() throws InterruptedException {
+        sqs.send(QUEUE_URL, "unknown", "{}");
+        sqs.send(QUEUE_URL, DOIMessage.class.getName(), "not json {");
+        consumer(2, message -> true);
+        Assert.assertEquals(2, consumer.poll());
+        consumer.close();
+        consumer = null;
+        Assert.assertEquals(0, handled.get());
+        Assert.assertTrue(sqs.messages(QUEUE_URL).isEmpty());
+        Assert.assertEquals(2, sqs.messages(DEAD_LETTER_QUEUE_URL).size());
+    }
+}
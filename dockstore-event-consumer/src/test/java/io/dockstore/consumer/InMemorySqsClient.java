@@ -0,0 +1,170 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.dockstore.consumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+import software.amazon.awssdk.services.sqs.model.ReceiptHandleIsInvalidException;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+
+/**
+ * An in-process stand-in for the SQS operations the consumer uses. Queues are created on first use, messages become
+ * visible again once their visibility timeout has passed, and every call is recorded so that tests can check how SQS was used.
+ */
+class InMemorySqsClient implements SqsClient {
+
+    private final Map<String, List<QueuedMessage>> queues = new ConcurrentHashMap<>();
+    private final List<Object> requests = new CopyOnWriteArrayList<>();
+
+    void send(String queueURL, String type, String body) {
+        sendMessage(SendMessageRequest.builder().queueUrl(queueURL).messageBody(body)
+            .messageAttributes(Map.of("type", MessageAttributeValue.builder().dataType("String").stringValue(type).build())).build());
+    }
+
+    /**
+     * @return the messages in a queue, whether they are visible or not
+     */
+    List<Message> messages(String queueURL) {
+        return queue(queueURL).stream().map(message -> message.message).collect(Collectors.toList());
+    }
+
+    <T> List<T> requests(Class<T> requestClass) {
+        return requests.stream().filter(requestClass::isInstance).map(requestClass::cast).collect(Collectors.toList());
+    }
+
+    private List<QueuedMessage> queue(String queueURL) {
+        return queues.computeIfAbsent(queueURL, url -> Collections.synchronizedList(new ArrayList<>()));
+    }
+
+    private QueuedMessage find(String queueURL, String receiptHandle) {
+        synchronized (queue(queueURL)) {
+            return queue(queueURL).stream().filter(message -> receiptHandle.equals(message.receiptHandle)).findFirst()
+                .orElseThrow(() -> ReceiptHandleIsInvalidException.builder().message(receiptHandle).build());
+        }
+    }
+
+    @Override
+    public SendMessageResponse sendMessage(SendMessageRequest request) {
+        requests.add(request);
+        final Message message = Message.builder().messageId(UUID.randomUUID().toString()).body(request.messageBody())
+            .messageAttributes(request.messageAttributes()).build();
+        queue(request.queueUrl()).add(new QueuedMessage(message));
+        return SendMessageResponse.builder().messageId(message.messageId()).build();
+    }
+
+    @Override
+    public ReceiveMessageResponse receiveMessage(ReceiveMessageRequest request) {
+        requests.add(request);
+        final List<Message> received = new ArrayList<>();
+        final long now = System.currentTimeMillis();
+        final List<QueuedMessage> queue = queue(request.queueUrl());
+        synchronized (queue) {
+            for (QueuedMessage queued : queue) {
+                if (received.size() < request.maxNumberOfMessages() && queued.visibleAt <= now) {
+                    queued.receiveCount++;
+                    queued.receiptHandle = UUID.randomUUID().toString();
+                    queued.visibleAt = now + request.visibilityTimeout() * 1000L;
+                    received.add(queued.message.toBuilder().receiptHandle(queued.receiptHandle)
+                        .attributes(Map.of(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT, String.valueOf(queued.receiveCount))).build());
+                }
+            }
+        }
+        return ReceiveMessageResponse.builder().messages(received).build();
+    }
+
+    @Override
+    public ChangeMessageVisibilityResponse changeMessageVisibility(ChangeMessageVisibilityRequest request) {
+        requests.add(request);
+        find(request.queueUrl(), request.receiptHandle()).visibleAt = System.currentTimeMillis() + request.visibilityTimeout() * 1000L;
+        return ChangeMessageVisibilityResponse.builder().build();
+    }
+
+    @Override
+    public ChangeMessageVisibilityBatchResponse changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest request) {
+        requests.add(request);
+        final List<ChangeMessageVisibilityBatchResultEntry> successful = new ArrayList<>();
+        final List<BatchResultErrorEntry> failed = new ArrayList<>();
+        for (ChangeMessageVisibilityBatchRequestEntry entry : request.entries()) {
+            try {
+                find(request.queueUrl(), entry.receiptHandle()).visibleAt = System.currentTimeMillis() + entry.visibilityTimeout() * 1000L;
+                successful.add(ChangeMessageVisibilityBatchResultEntry.builder().id(entry.id()).build());
+            } catch (ReceiptHandleIsInvalidException e) {
+                failed.add(BatchResultErrorEntry.builder().id(entry.id()).code("ReceiptHandleIsInvalid").senderFault(true).build());
+            }
+        }
+        return ChangeMessageVisibilityBatchResponse.builder().successful(successful).failed(failed).build();
+    }
+
+    @Override
+    public DeleteMessageBatchResponse deleteMessageBatch(DeleteMessageBatchRequest request) {
+        requests.add(request);
+        final List<DeleteMessageBatchResultEntry> successful = new ArrayList<>();
+        final List<BatchResultErrorEntry> failed = new ArrayList<>();
+        for (DeleteMessageBatchRequestEntry entry : request.entries()) {
+            try {
+                queue(request.queueUrl()).remove(find(request.queueUrl(), entry.receiptHandle()));
+                successful.add(DeleteMessageBatchResultEntry.builder().id(entry.id()).build());
+            } catch (ReceiptHandleIsInvalidException e) {
+                failed.add(BatchResultErrorEntry.builder().id(entry.id()).code("ReceiptHandleIsInvalid").senderFault(true).build());
+            }
+        }
+        return DeleteMessageBatchResponse.builder().successful(successful).failed(failed).build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static final class QueuedMessage {
+        private final Message message;
+        private volatile String receiptHandle;
+        private volatile long visibleAt = 0;
+        private volatile int receiveCount = 0;
+
+        private QueuedMessage(Message message) {
+            this.message = message;
+        }
+    }
+}
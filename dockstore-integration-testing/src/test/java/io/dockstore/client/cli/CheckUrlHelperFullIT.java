@@ -45,6 +45,8 @@ import org.junit.runner.Description;
 public class CheckUrlHelperFullIT {
 
     public static String fakeCheckUrlLambdaBaseURL = "http://fakecheckurllambdabaseurl:3000";
+    private static final int MAX_CHECK_URL_POLLS = 60;
+    private static final long CHECK_URL_POLL_MILLIS = 500;
 
     @ClassRule
     public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE =
@@ -80,7 +82,7 @@ public class CheckUrlHelperFullIT {
         // Test creating new version
         client.handleGitHubRelease(workflowRepo, "DockstoreTestUser2", "refs/tags/0.1", installationId);
 
-        WorkflowVersion workflowVersion = getWorkflowVersion(client);
+        WorkflowVersion workflowVersion = awaitCheckedWorkflowVersion(client);
         Assert.assertTrue("Should be set to true since there's no inaccessible URL in the JSON", workflowVersion.getVersionMetadata().isPublicAccessibleTestParameterFile());
 
         testingPostgres.runUpdateStatement("update version_metadata set publicaccessibletestparameterfile = null");
@@ -89,10 +91,22 @@ public class CheckUrlHelperFullIT {
 
         // Test updating existing version
         client.handleGitHubRelease(workflowRepo, "DockstoreTestUser2", "refs/tags/0.1", installationId);
-        workflowVersion = getWorkflowVersion(client);
+        workflowVersion = awaitCheckedWorkflowVersion(client);
         Assert.assertTrue("Should be set to true since there's no inaccessible URL in the JSON", workflowVersion.getVersionMetadata().isPublicAccessibleTestParameterFile());
     }
 
+    /**
+     * URLs are checked in the background once the version is saved, wait for the result
+     */
+    private WorkflowVersion awaitCheckedWorkflowVersion(WorkflowsApi client) throws InterruptedException {
+        WorkflowVersion workflowVersion = getWorkflowVersion(client);
+        for (int i = 0; i < MAX_CHECK_URL_POLLS && workflowVersion.getVersionMetadata().isPublicAccessibleTestParameterFile() == null; i++) {
+            Thread.sleep(CHECK_URL_POLL_MILLIS);
+            workflowVersion = getWorkflowVersion(client);
+        }
+        return workflowVersion;
+    }
+
     private Workflow getFoobar1Workflow(WorkflowsApi client) {
         return client.getWorkflowByPath("github.com/" + workflowRepo + "/foobar", BIOWORKFLOW, "versions");
     }
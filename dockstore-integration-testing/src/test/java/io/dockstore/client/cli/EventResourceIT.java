@@ -13,12 +13,14 @@ import io.swagger.client.api.EventsApi;
 import io.swagger.client.model.DockstoreTool;
 import io.swagger.client.model.Event;
 import io.swagger.client.model.Event.TypeEnum;
+import io.swagger.client.model.EventSummary;
 import io.swagger.client.model.StarRequest;
 import io.swagger.client.model.Tag;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Assert;
@@ -106,6 +108,51 @@ public class EventResourceIT extends BaseIT {
         }
         events = eventsApi.getEvents(EventSearchType.STARRED_ENTRIES.toString(), null, null);
         Assert.assertEquals("Should have used the default limit", 10, events.size());
+
+        List<EventSummary> page = eventsApi.getEventFeed(EventSearchType.STARRED_ENTRIES.toString(), null, EventDAO.MAX_LIMIT);
+        Assert.assertEquals("Should have been able to use the max limit", EventDAO.MAX_LIMIT, page.size());
+        Assert.assertEquals("The feed should start with the same events", events.get(0).getId(), page.get(0).getId());
+        page.forEach(event -> Assert.assertEquals(tool.getToolPath(), event.getEntryPath()));
+        final long cursor = page.get(page.size() - 1).getId();
+        List<EventSummary> nextPage = eventsApi.getEventFeed(EventSearchType.STARRED_ENTRIES.toString(), cursor, EventDAO.MAX_LIMIT);
+        Assert.assertFalse("Should have the events that did not fit on the first page", nextPage.isEmpty());
+        Assert.assertTrue("Should only have events older than the cursor", nextPage.stream().allMatch(event -> event.getId() < cursor));
+    }
+
+    /**
+     * Stands in for an event that was fanned out while a star was being committed, which neither the fan-out nor the star saw
+     */
+    @Test
+    public void testStarsAreCheckedAgainAfterCommit() throws InterruptedException {
+        ApiClient client = getWebClient(USER_1_USERNAME, testingPostgres);
+        ContainersApi toolsApi = new ContainersApi(client);
+        DockstoreTool tool = manualRegisterAndPublish(toolsApi, "dockstoretestuser", "dockerhubandgithub", "regular",
+                "git@github.com:DockstoreTestUser/dockstore-whalesay.git", "/Dockstore.cwl", "/Dockstore.wdl", "/Dockerfile",
+                DockstoreTool.RegistryEnum.DOCKER_HUB, "master", "latest", true);
+        StarRequest starRequest = new StarRequest();
+        starRequest.setStar(true);
+        toolsApi.starEntry(tool.getId(), starRequest);
+        new ContainertagsApi(client).addTags(tool.getId(), getRandomTags("missed"));
+        EventsApi eventsApi = new EventsApi(client);
+        Assert.assertFalse("Events are in the feed right after they are created",
+            eventsApi.getEventFeed(EventSearchType.STARRED_ENTRIES.toString(), null, EventDAO.MAX_LIMIT).isEmpty());
+
+        final long userId = testingPostgres.runSelectStatement("select id from enduser where username = '" + USER_1_USERNAME + "'", long.class);
+        // wait for the star to be checked, then forget the feed, as if the events had been fanned out before the star committed
+        final long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        while (testingPostgres.runSelectStatement("select count(*) from event_feed_pending_star", long.class) > 0
+            || testingPostgres.runSelectStatement("select count(*) from event_feed_pending", long.class) > 0) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(100);
+        }
+        testingPostgres.runUpdateStatement("delete from event_feed where userid = " + userId);
+        Assert.assertTrue(eventsApi.getEventFeed(EventSearchType.STARRED_ENTRIES.toString(), null, EventDAO.MAX_LIMIT).isEmpty());
+
+        testingPostgres.runUpdateStatement("insert into event_feed_pending_star (userid, entryid) values (" + userId + ", " + tool.getId() + ")");
+        while (eventsApi.getEventFeed(EventSearchType.STARRED_ENTRIES.toString(), null, EventDAO.MAX_LIMIT).isEmpty()) {
+            Assert.assertTrue("The star should have been checked again", System.currentTimeMillis() < deadline);
+            Thread.sleep(100);
+        }
     }
 
     private List<Tag> getRandomTags(String name) {
@@ -37,6 +37,7 @@ import io.swagger.client.ApiException;
 import io.swagger.client.api.HostedApi;
 import io.swagger.client.api.UsersApi;
 import io.swagger.client.api.WorkflowsApi;
+import io.swagger.client.model.FileFormat;
 import io.swagger.client.model.SourceFile;
 import io.swagger.client.model.Workflow;
 import io.swagger.client.model.WorkflowVersion;
@@ -47,6 +48,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.apache.commons.io.FileUtils;
 import org.hibernate.Session;
 import org.hibernate.context.internal.ManagedSessionContext;
@@ -346,4 +349,60 @@ public class HostedWorkflowIT extends BaseIT {
         assertFalse(workflow.getInputFileFormats().isEmpty());
         assertFalse(workflow.getOutputFileFormats().isEmpty());
     }
+
+    private static Set<String> values(List<FileFormat> fileFormats) {
+        return fileFormats.stream().map(FileFormat::getValue).collect(Collectors.toSet());
+    }
+
+    /**
+     * The file formats of an entry are counted from its versions by database triggers, they must follow versions being added and removed
+     */
+    @Test
+    public void testHostedWorkflowFileFormatsFollowVersions() throws IOException {
+        final ApiClient webClient = getWebClient(USER_2_USERNAME, testingPostgres);
+        HostedApi hostedApi = new HostedApi(webClient);
+        Workflow hostedWorkflow = hostedApi.createHostedWorkflow("formats", null, DescriptorType.CWL.toString(), null, null);
+        final String fastq = "http://edamontology.org/format_1930";
+        final String bam = "http://edamontology.org/format_2572";
+        final String sam = "http://edamontology.org/format_2573";
+        final String text = "http://edamontology.org/format_1964";
+
+        // version 1 reads bam and writes text
+        SourceFile source = new SourceFile();
+        source.setPath("/Dockstore.cwl");
+        source.setAbsolutePath("/Dockstore.cwl");
+        source.setContent(FileUtils.readFileToString(new File(ResourceHelpers.resourceFilePath("hosted_metadata/Dockstore.cwl")), StandardCharsets.UTF_8));
+        source.setType(SourceFile.TypeEnum.DOCKSTORE_CWL);
+        SourceFile sortTool = new SourceFile();
+        sortTool.setPath("sorttool.cwl");
+        sortTool.setAbsolutePath("/sorttool.cwl");
+        sortTool.setContent(FileUtils.readFileToString(new File(ResourceHelpers.resourceFilePath("hosted_metadata/sorttool.cwl")), StandardCharsets.UTF_8));
+        sortTool.setType(SourceFile.TypeEnum.DOCKSTORE_CWL);
+        SourceFile revTool = new SourceFile();
+        revTool.setPath("revtool.cwl");
+        revTool.setAbsolutePath("/revtool.cwl");
+        revTool.setContent(FileUtils.readFileToString(new File(ResourceHelpers.resourceFilePath("hosted_metadata/revtool.cwl")), StandardCharsets.UTF_8));
+        revTool.setType(SourceFile.TypeEnum.DOCKSTORE_CWL);
+        Workflow workflow = hostedApi.editHostedWorkflow(hostedWorkflow.getId(), Lists.newArrayList(source, sortTool, revTool));
+        assertEquals(Set.of(bam), values(workflow.getInputFileFormats()));
+        assertEquals(Set.of(text), values(workflow.getOutputFileFormats()));
+
+        // version 2 reads fastq and writes sam and text
+        source.setContent("cwlVersion: v1.0\nclass: Workflow\ninputs:\n  reads:\n    type: File\n    format: " + fastq + "\noutputs:\n"
+            + "  aligned:\n    type: File\n    format: " + sam + "\n    outputSource: align/aligned\n"
+            + "  log:\n    type: File\n    format: " + text + "\n    outputSource: align/log\nsteps: []\n");
+        workflow = hostedApi.editHostedWorkflow(hostedWorkflow.getId(), Lists.newArrayList(source, sortTool, revTool));
+        assertEquals(Set.of(bam, fastq), values(workflow.getInputFileFormats()));
+        assertEquals(Set.of(sam, text), values(workflow.getOutputFileFormats()));
+
+        // formats that another version still has stay on the entry
+        workflow = hostedApi.deleteHostedWorkflowVersion(hostedWorkflow.getId(), "1");
+        assertEquals(Set.of(fastq), values(workflow.getInputFileFormats()));
+        assertEquals(Set.of(sam, text), values(workflow.getOutputFileFormats()));
+        assertEquals(Set.of(sam, text), values(new WorkflowsApi(webClient).getWorkflow(hostedWorkflow.getId(), null).getOutputFileFormats()));
+
+        workflow = hostedApi.deleteHostedWorkflowVersion(hostedWorkflow.getId(), "2");
+        assertTrue(workflow.getInputFileFormats().isEmpty());
+        assertTrue(workflow.getOutputFileFormats().isEmpty());
+    }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.dockstore.client.cli;
+
+import io.dockstore.common.BenchmarkTest;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemErrRule;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares query plans of case-insensitive and substring entry lookups on a synthetic dataset,
+ * before and after the expression and trigram indexes of the caseInsensitiveLookupIndexes migration.
+ * The SQL mirrors what the named queries and the criteria predicates of EntryDAO generate.
+ * Plans, including execution times, are logged.
+ */
+@Category(BenchmarkTest.class)
+public class LookupIndexBenchmarkIT extends BaseIT {
+
+    private static final int SYNTHETIC_ENTRIES = 100_000;
+    private static final Logger LOG = LoggerFactory.getLogger(LookupIndexBenchmarkIT.class);
+
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog().muteForSuccessfulTests();
+
+    @Rule
+    public final SystemErrRule systemErrRule = new SystemErrRule().enableLog().muteForSuccessfulTests();
+
+    /**
+     * Clones the first test tool and the published test workflow into published synthetic entries
+     */
+    @Before
+    public void generateEntries() {
+        testingPostgres.runUpdateStatement("create table synthetic_tool as select t.* from tool t, generate_series(1, " + SYNTHETIC_ENTRIES
+            + ") where t.id = (select min(id) from tool)");
+        testingPostgres.runUpdateStatement("update synthetic_tool set id = nextval('container_id_seq'), ispublished = true, checkerid = null, "
+            + "actualdefaultversion = null, description = md5(random()::text)");
+        testingPostgres.runUpdateStatement("update synthetic_tool set namespace = 'Namespace' || (id % 1000), name = 'name' || id, "
+            + "toolname = 'tool' || id, author = 'Author ' || (id % 5000)");
+        testingPostgres.runUpdateStatement("insert into tool select * from synthetic_tool");
+        testingPostgres.runUpdateStatement("drop table synthetic_tool");
+
+        testingPostgres.runUpdateStatement("create table synthetic_workflow as select w.* from workflow w, generate_series(1, " + SYNTHETIC_ENTRIES
+            + ") where w.id = 11");
+        testingPostgres.runUpdateStatement("update synthetic_workflow set id = nextval('container_id_seq'), ispublished = true, checkerid = null, "
+            + "actualdefaultversion = null, description = md5(random()::text)");
+        testingPostgres.runUpdateStatement("update synthetic_workflow set organization = 'Organization' || (id % 1000), repository = 'repository' || id, "
+            + "workflowname = null, author = 'Author ' || (id % 5000)");
+        testingPostgres.runUpdateStatement("insert into workflow select * from synthetic_workflow");
+        testingPostgres.runUpdateStatement("drop table synthetic_workflow");
+
+        testingPostgres.runUpdateStatement("analyze tool");
+        testingPostgres.runUpdateStatement("analyze workflow");
+    }
+
+    private String explain(String query) {
+        return String.join("\n", testingPostgres.runSelectListStatement("explain analyze " + query, String.class));
+    }
+
+    /**
+     * Logs the plans of a query without and with an index
+     * @param name what is being looked up
+     * @param before query as it runs without the index
+     * @param after query as it runs with the index
+     * @param index name of the index that should serve the second query
+     */
+    private void compare(String name, String before, String after, String index) {
+        final String planBefore = explain(before);
+        final String planAfter = explain(after);
+        LOG.info("{} before:\n{}\n{} after:\n{}", name, planBefore, name, planAfter);
+        Assert.assertTrue(planBefore.contains("Seq Scan"));
+        Assert.assertTrue(planAfter.contains(index));
+    }
+
+    /**
+     * Logs the plans of a query with an index and after dropping it
+     * @param name what is being looked up
+     * @param query the query
+     * @param index name of the index that should serve the query
+     */
+    private void compareWithoutIndex(String name, String query, String index) {
+        final String planAfter = explain(query);
+        testingPostgres.runUpdateStatement("drop index " + index);
+        final String planBefore = explain(query);
+        LOG.info("{} before:\n{}\n{} after:\n{}", name, planBefore, name, planAfter);
+        Assert.assertTrue(planBefore.contains("Seq Scan"));
+        Assert.assertTrue(planAfter.contains(index));
+    }
+
+    @Test
+    public void testNamespaceAndOrganizationLookups() {
+        compareWithoutIndex("Tool.findPublishedByNamespace", "select id from tool where lower(namespace) = lower('namespace42') and ispublished = true",
+            "tool_lower_namespace_index");
+        compareWithoutIndex("Workflow.findByOrganization", "select id from workflow where lower(organization) = lower('organization42')",
+            "workflow_lower_organization_index");
+    }
+
+    @Test
+    public void testPublishedFilter() {
+        compare("EntryDAO.processQuery on workflows",
+            "select id from workflow where ispublished and (upper(workflowname) like '%REPOSITORY4242%' or upper(author) like '%REPOSITORY4242%' "
+                + "or upper(repository) like '%REPOSITORY4242%' or upper(organization) like '%REPOSITORY4242%')",
+            "select id from workflow where ispublished and (lower(workflowname) like '%repository4242%' or lower(author) like '%repository4242%' "
+                + "or lower(repository) like '%repository4242%' or lower(organization) like '%repository4242%')",
+            "workflow_published_lower_repository_trgm_index");
+        compare("EntryDAO.processQuery on tools",
+            "select id from tool where ispublished and (upper(toolname) like '%TOOL4242%' or upper(author) like '%TOOL4242%' "
+                + "or upper(name) like '%TOOL4242%' or upper(namespace) like '%TOOL4242%')",
+            "select id from tool where ispublished and (lower(toolname) like '%tool4242%' or lower(author) like '%tool4242%' "
+                + "or lower(name) like '%tool4242%' or lower(namespace) like '%tool4242%')",
+            "tool_published_lower_toolname_trgm_index");
+    }
+
+    @Test
+    public void testTrsFilter() {
+        compare("EntryDAO.getWorkflowPredicate",
+            "select id from workflow where ispublished and repository like '%repository4242%'",
+            "select id from workflow where ispublished and lower(repository) like '%repository4242%' and repository like '%repository4242%'",
+            "workflow_published_lower_repository_trgm_index");
+        compare("ToolDAO.generatePredicate",
+            "select id from tool where ispublished and author like '%Author 4242%'",
+            "select id from tool where ispublished and lower(author) like '%author 4242%' and author like '%Author 4242%'",
+            "tool_published_lower_author_trgm_index");
+    }
+}
@@ -70,10 +70,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 import javax.ws.rs.core.UriBuilder;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -585,6 +587,53 @@ public class SwaggerClientIT extends BaseIT {
         containersApi.starEntry(containerId, STAR_REQUEST);
     }
 
+    /**
+     * This tests that the star counts used to sort published entries follow starring and unstarring
+     */
+    @Test
+    public void testStarCounts() throws ApiException {
+        ApiClient client = getWebClient();
+        ContainersApi containersApi = new ContainersApi(client);
+        WorkflowsApi workflowsApi = new WorkflowsApi(client);
+        containersApi.starEntry(2L, STAR_REQUEST);
+        workflowsApi.starEntry(11L, STAR_REQUEST);
+        assertEquals(1, (long)testingPostgres.runSelectStatement("select starcount from tool where id = 2", long.class));
+        assertEquals(1, (long)testingPostgres.runSelectStatement("select starcount from workflow where id = 11", long.class));
+        List<Long> descending = publishedContainerIdsByStars(containersApi, "desc");
+        List<Long> ascending = publishedContainerIdsByStars(containersApi, "asc");
+        assertEquals(2, descending.size());
+        assertEquals(2, ascending.size());
+        assertEquals(2L, (long)descending.get(0));
+        assertEquals(2L, (long)ascending.get(ascending.size() - 1));
+        assertSortedByStars(descending, true);
+        assertSortedByStars(ascending, false);
+
+        containersApi.starEntry(2L, UNSTAR_REQUEST);
+        assertEquals(0, (long)testingPostgres.runSelectStatement("select starcount from tool where id = 2", long.class));
+        assertEquals(0, (long)testingPostgres.runSelectStatement(
+            "select count(*) from tool where starcount <> (select count(*) from starred where entryid = tool.id)", long.class));
+        // every tool has no stars now, ties are broken by descending id in both directions
+        descending = publishedContainerIdsByStars(containersApi, "desc");
+        assertEquals(descending, publishedContainerIdsByStars(containersApi, "asc"));
+        assertSortedByStars(descending, true);
+        assertSortedByStars(descending, false);
+
+        workflowsApi.starEntry(11L, UNSTAR_REQUEST);
+        assertEquals(0, (long)testingPostgres.runSelectStatement("select starcount from workflow where id = 11", long.class));
+    }
+
+    private static List<Long> publishedContainerIdsByStars(ContainersApi containersApi, String sortOrder) throws ApiException {
+        return containersApi.allPublishedContainers(null, null, null, "stars", sortOrder).stream().map(DockstoreTool::getId).collect(Collectors.toList());
+    }
+
+    private void assertSortedByStars(List<Long> toolIds, boolean descending) {
+        Comparator<Long> byStars = Comparator.comparing(id -> testingPostgres.runSelectStatement("select starcount from tool where id = " + id, long.class));
+        if (descending) {
+            byStars = byStars.reversed();
+        }
+        assertEquals(toolIds.stream().sorted(byStars.thenComparing(Comparator.reverseOrder())).collect(Collectors.toList()), toolIds);
+    }
+
     /**
      * This tests if an already unstarred tool can be unstarred again.
      * This test will pass if this action cannot be performed.
@@ -23,6 +23,7 @@ import com.github.dockerjava.core.DockerClientConfig;
 import com.github.dockerjava.core.DockerClientImpl;
 import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
 import com.github.dockerjava.transport.DockerHttpClient;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
 import io.dockstore.webservice.DockstoreWebserviceConfiguration;
 import io.dropwizard.Application;
 import io.dropwizard.testing.DropwizardTestSupport;
@@ -279,9 +280,26 @@ public final class CommonTestUtilities {
             application = support.getApplication();
         }
         application.run("db", "drop-all", "--confirm-delete-everything", configPath);
+        clearCaches(application);
         return application;
     }
 
+    /**
+     * Forgets what a running webservice cached from the previous database, the recreated database reuses ids and tokens
+     * @param application the webservice
+     */
+    private static void clearCaches(Application<DockstoreWebserviceConfiguration> application) {
+        if (application instanceof DockstoreWebserviceApplication) {
+            DockstoreWebserviceApplication webservice = (DockstoreWebserviceApplication)application;
+            if (webservice.getCachingAuthenticator() != null) {
+                webservice.getCachingAuthenticator().invalidateAll();
+            }
+            if (webservice.getHibernate().getSessionFactory() != null) {
+                webservice.getHibernate().getSessionFactory().getCache().evictAllRegions();
+            }
+        }
+    }
+
     /**
      * Loads up a specific set of workflows into the database
      * Specifically for tests toolsIdGet4Workflows() in GA4GHV1IT.java and toolsIdGet4Workflows() in GA4GHV2IT.java
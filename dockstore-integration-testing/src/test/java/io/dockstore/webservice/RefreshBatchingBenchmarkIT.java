@@ -0,0 +1,176 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.dockstore.webservice;
+
+import io.dockstore.client.cli.BaseIT;
+import io.dockstore.common.BenchmarkTest;
+import io.dockstore.common.DescriptorLanguage;
+import io.dockstore.common.Registry;
+import io.dockstore.common.SourceControl;
+import io.dockstore.webservice.core.BioWorkflow;
+import io.dockstore.webservice.core.Image;
+import io.dockstore.webservice.core.SourceFile;
+import io.dockstore.webservice.core.Validation;
+import io.dockstore.webservice.core.Workflow;
+import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.jdbi.FileDAO;
+import io.dockstore.webservice.jdbi.WorkflowDAO;
+import io.dockstore.webservice.jdbi.WorkflowVersionDAO;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemErrRule;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persists a repository with 100 versions the way a refresh does, with one DAO call per version and file,
+ * once with JDBC batching turned off for the session and once with the batching of the webservice.
+ * Statement counts, sequence round trips and latencies are logged.
+ */
+@Category(BenchmarkTest.class)
+public class RefreshBatchingBenchmarkIT extends BaseIT {
+
+    private static final int VERSIONS = 100;
+    private static final int FILES_PER_VERSION = 3;
+    private static final String[] POOLED_SEQUENCES = { "sourcefile_id_seq", "validation_id_seq", "image_id_seq", "tag_id_seq" };
+    private static final Logger LOG = LoggerFactory.getLogger(RefreshBatchingBenchmarkIT.class);
+
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog().muteForSuccessfulTests();
+
+    @Rule
+    public final SystemErrRule systemErrRule = new SystemErrRule().enableLog().muteForSuccessfulTests();
+
+    private Statistics statistics;
+    private Session session;
+    private WorkflowDAO workflowDAO;
+    private WorkflowVersionDAO workflowVersionDAO;
+    private FileDAO fileDAO;
+
+    @Before
+    public void setup() {
+        DockstoreWebserviceApplication application = SUPPORT.getApplication();
+        SessionFactory sessionFactory = application.getHibernate().getSessionFactory();
+        statistics = sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        workflowDAO = new WorkflowDAO(sessionFactory);
+        workflowVersionDAO = new WorkflowVersionDAO(sessionFactory);
+        fileDAO = new FileDAO(sessionFactory);
+        session = sessionFactory.openSession();
+        ManagedSessionContext.bind(session);
+    }
+
+    @After
+    public void tearDown() {
+        statistics.setStatisticsEnabled(false);
+        ManagedSessionContext.unbind(session.getSessionFactory());
+        session.close();
+    }
+
+    /**
+     * @return how often the pooled sequences have been called
+     */
+    private long sequenceCalls() {
+        long calls = 0;
+        for (String sequence : POOLED_SEQUENCES) {
+            calls += testingPostgres.runSelectStatement("select coalesce(last_value, 0) / increment_by from pg_sequences where sequencename = '"
+                + sequence + "'", long.class);
+        }
+        return calls;
+    }
+
+    /**
+     * Persists a workflow whose versions each have a few files, a validation and an image
+     * @param repository name of the repository
+     * @param jdbcBatchSize batch size of the session, 1 turns batching off and null uses the batch size of the webservice
+     * @return number of prepared statements
+     */
+    private long persistRepository(String repository, Integer jdbcBatchSize) {
+        session.setJdbcBatchSize(jdbcBatchSize);
+        final long sequenceCallsBefore = sequenceCalls();
+        statistics.clear();
+        final long start = System.nanoTime();
+
+        final Transaction transaction = session.beginTransaction();
+        Workflow workflow = new BioWorkflow();
+        workflow.setSourceControl(SourceControl.GITHUB);
+        workflow.setDescriptorType(DescriptorLanguage.CWL);
+        workflow.setOrganization("batching");
+        workflow.setRepository(repository);
+        workflowDAO.create(workflow);
+        for (int i = 0; i < VERSIONS; i++) {
+            WorkflowVersion version = new WorkflowVersion();
+            version.setName("v" + i);
+            version.setReference("v" + i);
+            version.setWorkflowPath("/Dockstore.cwl");
+            workflow.addWorkflowVersion(version);
+            workflowVersionDAO.create(version);
+            for (int j = 0; j < FILES_PER_VERSION; j++) {
+                SourceFile file = new SourceFile();
+                file.setType(DescriptorLanguage.FileType.DOCKSTORE_CWL);
+                file.setPath("/tool" + j + ".cwl");
+                file.setAbsolutePath("/tool" + j + ".cwl");
+                file.setContent("cwlVersion: v1.0\nclass: CommandLineTool\n");
+                fileDAO.create(file);
+                version.getSourceFiles().add(file);
+            }
+            version.addOrUpdateValidation(new Validation(DescriptorLanguage.FileType.DOCKSTORE_CWL, true, Map.of()));
+            version.getImages().add(new Image(new ArrayList<>(), "batching/" + repository, "v" + i, null, Registry.QUAY_IO, null, null));
+        }
+        session.flush();
+        transaction.commit();
+        session.clear();
+
+        final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        final long statements = statistics.getPrepareStatementCount();
+        LOG.info("{} versions with JDBC batch size {}: {} entity inserts, {} statements, {} sequence calls, {} ms", VERSIONS, jdbcBatchSize,
+            statistics.getEntityInsertCount(), statements, sequenceCalls() - sequenceCallsBefore, millis);
+        return statements;
+    }
+
+    @Test
+    public void testRefreshStatements() {
+        // warm up
+        persistRepository("warmup", 1);
+        persistRepository("warmup2", null);
+
+        final long unbatched = persistRepository("unbatched", 1);
+        final long batched = persistRepository("batched", null);
+        // one statement per row without batching, one per table and batch with it
+        Assert.assertTrue(batched * 10 < unbatched);
+
+        // every sequence call hands out a block of ids, where it used to cost a round trip per inserted row
+        final long sequenceCallsBefore = sequenceCalls();
+        persistRepository("sequences", null);
+        // versions, their files, validations and images
+        final long pooledRows = (long)VERSIONS * (1 + FILES_PER_VERSION + 1 + 1);
+        Assert.assertTrue(sequenceCalls() - sequenceCallsBefore <= pooledRows / Constants.POOLED_ID_ALLOCATION_SIZE + POOLED_SEQUENCES.length);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.dockstore.webservice;
+
+import io.dockstore.client.cli.BaseIT;
+import io.dockstore.client.cli.OrganizationIT;
+import io.dockstore.common.ConfidentialTest;
+import io.dropwizard.db.DataSourceFactory;
+import io.swagger.client.api.OrganizationsApi;
+import io.swagger.client.model.Organization;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemErrRule;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+import org.junit.experimental.categories.Category;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * Checks that a change made through one webservice replica evicts the second-level cache of the others.
+ * The test stands in for the other replica, by listening to and sending notifications on the invalidation channel itself.
+ */
+@Category(ConfidentialTest.class)
+public class SecondLevelCacheIT extends BaseIT {
+
+    private static final String CHANNEL = "dockstore_second_level_cache";
+    private static final String ORGANIZATION = "io.dockstore.webservice.core.Organization";
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog().muteForSuccessfulTests();
+
+    @Rule
+    public final SystemErrRule systemErrRule = new SystemErrRule().enableLog().muteForSuccessfulTests();
+
+    private static Connection connect() throws SQLException {
+        DataSourceFactory dataSourceFactory = SUPPORT.getConfiguration().getDataSourceFactory();
+        return DriverManager.getConnection(dataSourceFactory.getUrl(), dataSourceFactory.getUser(), dataSourceFactory.getPassword());
+    }
+
+    private static Organization createOrganization(OrganizationsApi organizationsApi) {
+        Organization organization = OrganizationIT.stubOrgObject();
+        organization.setName("secondlevelcache");
+        organization.setDisplayName("second level cache");
+        return organizationsApi.createOrganization(organization);
+    }
+
+    @Test
+    public void testUpdateIsSentToOtherReplicas() throws SQLException, InterruptedException {
+        OrganizationsApi organizationsApi = new OrganizationsApi(getWebClient(USER_2_USERNAME, testingPostgres));
+        Organization organization = createOrganization(organizationsApi);
+        try (Connection connection = connect()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+            }
+            organization.setTopic("updated on this replica");
+            organizationsApi.updateOrganization(organization, organization.getId());
+
+            String key = "e|" + ORGANIZATION + "|" + organization.getId();
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (System.currentTimeMillis() < deadline) {
+                PGNotification[] notifications = pgConnection.getNotifications(1000);
+                if (notifications != null) {
+                    for (PGNotification notification : notifications) {
+                        if (notification.getParameter().lines().anyMatch(key::equals)) {
+                            return;
+                        }
+                    }
+                }
+            }
+            Assert.fail("Other replicas were not told to evict " + key);
+        }
+    }
+
+    @Test
+    public void testUpdateFromOtherReplicaIsRead() throws SQLException, InterruptedException {
+        OrganizationsApi organizationsApi = new OrganizationsApi(getWebClient(USER_2_USERNAME, testingPostgres));
+        Organization organization = createOrganization(organizationsApi);
+        final String topic = organizationsApi.getOrganizationById(organization.getId()).getTopic();
+
+        // the other replica's transaction, the row changes without this replica's cache knowing
+        testingPostgres.runUpdateStatement("update organization set topic = 'updated on another replica' where id = " + organization.getId());
+        Assert.assertEquals("The organization should be served from the cache", topic, organizationsApi.getOrganizationById(organization.getId()).getTopic());
+
+        try (Connection connection = connect(); PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, CHANNEL);
+            statement.setString(2, "another-replica\ne|" + ORGANIZATION + "|" + organization.getId());
+            statement.execute();
+        }
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!"updated on another replica".equals(organizationsApi.getOrganizationById(organization.getId()).getTopic())) {
+            Assert.assertTrue("The cached organization was not evicted", System.currentTimeMillis() < deadline);
+            Thread.sleep(100);
+        }
+    }
+}
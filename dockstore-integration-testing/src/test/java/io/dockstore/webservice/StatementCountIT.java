@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.dockstore.webservice;
+
+import io.dockstore.client.cli.BaseIT;
+import io.dockstore.client.cli.OrganizationIT;
+import io.dockstore.common.ConfidentialTest;
+import io.dockstore.common.DescriptorLanguage;
+import io.dockstore.common.Registry;
+import io.dockstore.webservice.resources.EventSearchType;
+import io.swagger.client.ApiClient;
+import io.swagger.client.api.EventsApi;
+import io.swagger.client.api.HostedApi;
+import io.swagger.client.api.OrganizationsApi;
+import io.swagger.client.api.UsersApi;
+import io.swagger.client.api.WorkflowsApi;
+import io.swagger.client.model.Organization;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemErrRule;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Checks that list endpoints run a fixed number of SQL statements, no matter how many rows they return.
+ * A regression to one or more statements per listed entity makes the counts diverge as rows are added.
+ */
+@Category(ConfidentialTest.class)
+public class StatementCountIT extends BaseIT {
+
+    private static final int ADDITIONAL_ROWS = 4;
+
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog().muteForSuccessfulTests();
+
+    @Rule
+    public final SystemErrRule systemErrRule = new SystemErrRule().enableLog().muteForSuccessfulTests();
+
+    private Statistics statistics;
+
+    @Before
+    public void enableStatistics() {
+        DockstoreWebserviceApplication application = SUPPORT.getApplication();
+        statistics = application.getHibernate().getSessionFactory().getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @After
+    public void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    /**
+     * Counts the statements a request runs once caches are warm
+     * @param request the request to count
+     * @return number of prepared statements
+     */
+    private long countStatements(Runnable request) {
+        request.run();
+        statistics.clear();
+        request.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static void createOrganization(OrganizationsApi organizationsApi, int index) {
+        Organization organization = OrganizationIT.stubOrgObject();
+        organization.setName("statementcount" + (char)('a' + index));
+        organization.setDisplayName("statement count " + (char)('a' + index));
+        organizationsApi.createOrganization(organization);
+    }
+
+    @Test
+    public void testGetAllOrganizations() {
+        OrganizationsApi organizationsApi = new OrganizationsApi(getWebClient(ADMIN_USERNAME, testingPostgres));
+        createOrganization(organizationsApi, 0);
+        final int organizations = organizationsApi.getAllOrganizations("all").size();
+        final long statements = countStatements(() -> organizationsApi.getAllOrganizations("all"));
+        for (int i = 1; i <= ADDITIONAL_ROWS; i++) {
+            createOrganization(organizationsApi, i);
+        }
+        Assert.assertEquals(organizations + ADDITIONAL_ROWS, organizationsApi.getAllOrganizations("all").size());
+        Assert.assertEquals(statements, countStatements(() -> organizationsApi.getAllOrganizations("all")));
+    }
+
+    @Test
+    public void testEvents() {
+        ApiClient client = getWebClient(ADMIN_USERNAME, testingPostgres);
+        OrganizationsApi organizationsApi = new OrganizationsApi(client);
+        EventsApi eventsApi = new EventsApi(client);
+        final long userId = new UsersApi(client).getUser().getId();
+        createOrganization(organizationsApi, 0);
+        final int events = eventsApi.getUserEvents(userId, EventSearchType.PROFILE.toString(), null, null).size();
+        final long statements = countStatements(() -> eventsApi.getUserEvents(userId, EventSearchType.PROFILE.toString(), null, null));
+        for (int i = 1; i <= ADDITIONAL_ROWS; i++) {
+            createOrganization(organizationsApi, i);
+        }
+        Assert.assertEquals(events + ADDITIONAL_ROWS, eventsApi.getUserEvents(userId, EventSearchType.PROFILE.toString(), null, null).size());
+        Assert.assertEquals(statements, countStatements(() -> eventsApi.getUserEvents(userId, EventSearchType.PROFILE.toString(), null, null)));
+    }
+
+    @Test
+    public void testUserContainers() {
+        ApiClient client = getWebClient(USER_2_USERNAME, testingPostgres);
+        HostedApi hostedApi = new HostedApi(client);
+        UsersApi usersApi = new UsersApi(client);
+        final long userId = usersApi.getUser().getId();
+        hostedApi.createHostedTool("tool0", Registry.QUAY_IO.getDockerPath(), DescriptorLanguage.CWL.getShortName(), "statementcount", null);
+        final int tools = usersApi.userContainers(userId).size();
+        final long statements = countStatements(() -> usersApi.userContainers(userId));
+        for (int i = 1; i <= ADDITIONAL_ROWS; i++) {
+            hostedApi.createHostedTool("tool" + i, Registry.QUAY_IO.getDockerPath(), DescriptorLanguage.CWL.getShortName(), "statementcount", null);
+        }
+        Assert.assertEquals(tools + ADDITIONAL_ROWS, usersApi.userContainers(userId).size());
+        Assert.assertEquals(statements, countStatements(() -> usersApi.userContainers(userId)));
+    }
+
+    @Test
+    public void testAllPublishedWorkflows() {
+        ApiClient client = getWebClient(USER_2_USERNAME, testingPostgres);
+        HostedApi hostedApi = new HostedApi(client);
+        WorkflowsApi workflowsApi = new WorkflowsApi(client);
+        for (int i = 0; i <= ADDITIONAL_ROWS; i++) {
+            hostedApi.createHostedWorkflow("workflow" + i, null, DescriptorLanguage.CWL.getShortName(), null, null);
+        }
+        final int published = workflowsApi.allPublishedWorkflows(null, null, null, null, null, false, null).size();
+        final long statements = countStatements(() -> workflowsApi.allPublishedWorkflows(null, null, null, null, null, false, null));
+        // the hosted workflows have no versions, so publish them directly
+        testingPostgres.runUpdateStatement("update workflow set ispublished = true where mode = 'HOSTED'");
+        Assert.assertEquals(published + ADDITIONAL_ROWS + 1, workflowsApi.allPublishedWorkflows(null, null, null, null, null, false, null).size());
+        Assert.assertEquals(statements, countStatements(() -> workflowsApi.allPublishedWorkflows(null, null, null, null, null, false, null)));
+    }
+}
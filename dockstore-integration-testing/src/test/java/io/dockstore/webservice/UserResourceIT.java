@@ -36,12 +36,14 @@ import io.dockstore.openapi.client.model.WorkflowSubClass;
 import io.dockstore.webservice.resources.WorkflowResource;
 import io.swagger.client.ApiClient;
 import io.swagger.client.ApiException;
+import io.swagger.client.ApiResponse;
 import io.swagger.client.api.HostedApi;
 import io.swagger.client.api.OrganizationsApi;
 import io.swagger.client.api.UsersApi;
 import io.swagger.client.api.WorkflowsApi;
 import io.swagger.client.model.BioWorkflow;
 import io.swagger.client.model.Collection;
+import io.swagger.client.model.DashboardEntry;
 import io.swagger.client.model.EntryUpdateTime;
 import io.swagger.client.model.Organization;
 import io.swagger.client.model.OrganizationUpdateTime;
@@ -49,6 +51,7 @@ import io.swagger.client.model.Profile;
 import io.swagger.client.model.Repository;
 import io.swagger.client.model.User;
 import io.swagger.client.model.Workflow;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -71,6 +74,7 @@ import org.junit.rules.ExpectedException;
  */
 @Category(ConfidentialTest.class)
 public class UserResourceIT extends BaseIT {
+    private static final int DASHBOARD_ENTRIES = 5;
     private static final String SERVICE_REPO = "DockstoreTestUser2/test-service";
     private static final String INSTALLATION_ID = "1179416";
 
@@ -580,6 +584,47 @@ public class UserResourceIT extends BaseIT {
         assertEquals("taco", organizations.get(0).getName());
     }
 
+    /**
+     * Tests paging through the entries of a user for dashboards
+     */
+    @Test
+    public void testDashboardEntries() {
+        ApiClient client = getWebClient(USER_2_USERNAME, testingPostgres);
+        UsersApi userApi = new UsersApi(client);
+        HostedApi hostedApi = new HostedApi(client);
+        final long userId = userApi.getUser().getId();
+        for (int i = 0; i < DASHBOARD_ENTRIES; i++) {
+            hostedApi.createHostedWorkflow("dashboard" + i, null, DescriptorLanguage.CWL.getShortName(), null, null);
+        }
+
+        // page through the workflows, newest first
+        List<DashboardEntry> entries = new ArrayList<>();
+        String cursor = null;
+        do {
+            ApiResponse<List<DashboardEntry>> page = userApi.getUserDashboardEntriesWithHttpInfo(userId, "WORKFLOW", "dashboard", cursor, 2);
+            assertTrue(page.getData().size() <= 2);
+            entries.addAll(page.getData());
+            cursor = page.getHeaders().entrySet().stream().filter(header -> "X-next-cursor".equalsIgnoreCase(header.getKey()))
+                .map(header -> header.getValue().get(0)).findFirst().orElse(null);
+        } while (cursor != null);
+        assertEquals(DASHBOARD_ENTRIES, entries.size());
+        assertEquals("dashboard" + (DASHBOARD_ENTRIES - 1), entries.get(0).getPrettyPath());
+        assertEquals(DASHBOARD_ENTRIES, entries.stream().map(DashboardEntry::getId).distinct().count());
+        assertTrue(entries.stream().allMatch(entry -> entry.getEntryType() == DashboardEntry.EntryTypeEnum.WORKFLOW && !entry.isPublished()));
+
+        // the filter ignores case and does not treat _ as a wildcard
+        assertEquals(1, userApi.getUserDashboardEntries(userId, null, "DASHBOARD0", null, null).size());
+        assertTrue(userApi.getUserDashboardEntries(userId, null, "dashboard_", null, null).isEmpty());
+        assertTrue(userApi.getUserDashboardEntries(userId, "TOOL", "dashboard", null, null).isEmpty());
+
+        try {
+            userApi.getUserDashboardEntries(userId, null, null, "garbage", null);
+            fail("Should not accept an invalid cursor");
+        } catch (ApiException ex) {
+            assertEquals(HttpStatus.SC_BAD_REQUEST, ex.getCode());
+        }
+    }
+
     /**
      * Creates a collection (does not save to database)
      * @return new collection
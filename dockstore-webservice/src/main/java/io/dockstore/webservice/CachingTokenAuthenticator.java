@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import io.dockstore.webservice.core.Token;
+import io.dockstore.webservice.core.User;
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.auth.Authenticator;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Caches the users that credentials authenticate as, replaces Dropwizard's CachingAuthenticator.
+ *
+ * <p>Entries are keyed by the SHA-256 digest of the credentials, so raw tokens are not kept in memory.
+ * Credentials that do not authenticate are remembered for a short time, so that a flood of bad tokens
+ * does not turn into token lookups and calls to Google.
+ */
+public class CachingTokenAuthenticator implements Authenticator<String, User> {
+
+    private static final long MAXIMUM_REJECTED_CREDENTIALS = 100_000;
+
+    private final Authenticator<String, User> underlying;
+    private final Cache<String, User> principals;
+    private final Cache<String, Boolean> rejected;
+    private final Timer gets;
+    private final Meter cacheMisses;
+    private final Meter rejectedHits;
+
+    /**
+     * @param metricRegistry registry for the cache metrics
+     * @param authenticator looks up credentials that are not cached
+     * @param cacheSpec policy for credentials that authenticate
+     * @param negativeTimeToLive how long credentials that do not authenticate are rejected without a lookup, zero to not remember them
+     */
+    public CachingTokenAuthenticator(MetricRegistry metricRegistry, Authenticator<String, User> authenticator, CaffeineSpec cacheSpec,
+        Duration negativeTimeToLive) {
+        this.underlying = authenticator;
+        this.principals = Caffeine.from(cacheSpec).build();
+        this.rejected = Caffeine.newBuilder().maximumSize(negativeTimeToLive.isZero() ? 0 : MAXIMUM_REJECTED_CREDENTIALS)
+            .expireAfterWrite(negativeTimeToLive).build();
+        this.gets = metricRegistry.timer(name(CachingTokenAuthenticator.class, "requests"));
+        this.cacheMisses = metricRegistry.meter(name(CachingTokenAuthenticator.class, "cache-misses"));
+        this.rejectedHits = metricRegistry.meter(name(CachingTokenAuthenticator.class, "rejected-hits"));
+    }
+
+    @Override
+    public Optional<User> authenticate(String credentials) throws AuthenticationException {
+        try (Timer.Context ignored = gets.time()) {
+            final String digest = Token.sha256(credentials);
+            final User cached = principals.getIfPresent(digest);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+            if (rejected.getIfPresent(digest) != null) {
+                rejectedHits.mark();
+                return Optional.empty();
+            }
+            cacheMisses.mark();
+            final Optional<User> user = underlying.authenticate(credentials);
+            if (user.isPresent()) {
+                principals.put(digest, user.get());
+            } else {
+                rejected.put(digest, Boolean.TRUE);
+            }
+            return user;
+        }
+    }
+
+    /**
+     * Forgets the user that credentials authenticate as, e.g. when the token is deleted
+     * @param credentials contents of a token
+     */
+    public void invalidate(String credentials) {
+        final String digest = Token.sha256(credentials);
+        principals.invalidate(digest);
+        rejected.invalidate(digest);
+    }
+
+    /**
+     * Forgets all credentials that authenticate as a user, including Google tokens that are not stored,
+     * e.g. when the user is banned or renamed
+     * @param userId id of the user
+     */
+    public void invalidateUser(long userId) {
+        principals.asMap().values().removeIf(user -> user.getId() == userId);
+    }
+
+    public void invalidateAll() {
+        principals.invalidateAll();
+        rejected.invalidateAll();
+    }
+}
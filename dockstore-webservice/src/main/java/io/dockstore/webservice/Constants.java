@@ -33,6 +33,11 @@ public final class Constants {
     public static final String USERNAME_CHANGE_REQUIRED = "Your username contains one or more of the following keywords: dockstore, admin, curator, system, or manager. "
         + "Several operations will be blocked until you change your username via the Accounts page.";
     public static final Pattern USERNAME_CONTAINS_KEYWORD_PATTERN = Pattern.compile("(?i)(dockstore|admin|curator|system|manager)");
+    /**
+     * Ids handed out per sequence call to entities that are inserted in bulk by refreshes, must match the increment of their sequences
+     * (see the pooledSequences changeSet), otherwise the webservice does not start
+     */
+    public static final int POOLED_ID_ALLOCATION_SIZE = 50;
 
     private Constants() {
         // not called
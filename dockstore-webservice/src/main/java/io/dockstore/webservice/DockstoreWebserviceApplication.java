@@ -64,16 +64,25 @@ import io.dockstore.webservice.core.Validation;
 import io.dockstore.webservice.core.VersionMetadata;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.core.ZenodoDoiRequest;
 import io.dockstore.webservice.doi.DOIGeneratorFactory;
 import io.dockstore.webservice.helpers.CacheConfigManager;
+import io.dockstore.webservice.helpers.CheckUrlService;
 import io.dockstore.webservice.helpers.ConstraintExceptionMapper;
 import io.dockstore.webservice.helpers.ElasticSearchHelper;
+import io.dockstore.webservice.helpers.EventFeedService;
 import io.dockstore.webservice.helpers.GoogleHelper;
 import io.dockstore.webservice.helpers.MetadataResourceHelper;
 import io.dockstore.webservice.helpers.ORCIDHelper;
 import io.dockstore.webservice.helpers.PersistenceExceptionMapper;
 import io.dockstore.webservice.helpers.PublicStateManager;
+import io.dockstore.webservice.helpers.ReadReplicaRoutingDataSource;
+import io.dockstore.webservice.helpers.RegistryRefreshExecutor;
+import io.dockstore.webservice.helpers.SecondLevelCacheManager;
 import io.dockstore.webservice.helpers.TransactionExceptionMapper;
+import io.dockstore.webservice.helpers.URIHelper;
+import io.dockstore.webservice.helpers.VirtualThreads;
+import io.dockstore.webservice.helpers.ZenodoDoiService;
 import io.dockstore.webservice.helpers.statelisteners.PopulateEntryListener;
 import io.dockstore.webservice.jdbi.AppToolDAO;
 import io.dockstore.webservice.jdbi.BioWorkflowDAO;
@@ -88,6 +97,8 @@ import io.dockstore.webservice.jdbi.UserDAO;
 import io.dockstore.webservice.jdbi.VersionDAO;
 import io.dockstore.webservice.jdbi.WorkflowDAO;
 import io.dockstore.webservice.languages.LanguageHandlerFactory;
+import io.dockstore.webservice.languages.LanguagePluginExecutor;
+import io.dockstore.webservice.languages.LanguageValidationEngine;
 import io.dockstore.webservice.permissions.PermissionsFactory;
 import io.dockstore.webservice.permissions.PermissionsInterface;
 import io.dockstore.webservice.resources.AdminPrivilegesFilter;
@@ -106,6 +117,7 @@ import io.dockstore.webservice.resources.LambdaEventResource;
 import io.dockstore.webservice.resources.MetadataResource;
 import io.dockstore.webservice.resources.NotificationResource;
 import io.dockstore.webservice.resources.OrganizationResource;
+import io.dockstore.webservice.resources.ResourceConstants;
 import io.dockstore.webservice.resources.ServiceResource;
 import io.dockstore.webservice.resources.TemplateHealthCheck;
 import io.dockstore.webservice.resources.TokenResource;
@@ -120,7 +132,6 @@ import io.dropwizard.Application;
 import io.dropwizard.assets.AssetsBundle;
 import io.dropwizard.auth.AuthDynamicFeature;
 import io.dropwizard.auth.AuthValueFactoryProvider;
-import io.dropwizard.auth.CachingAuthenticator;
 import io.dropwizard.auth.oauth.OAuthCredentialAuthFilter;
 import io.dropwizard.client.HttpClientBuilder;
 import io.dropwizard.db.DataSourceFactory;
@@ -128,6 +139,7 @@ import io.dropwizard.forms.MultiPartBundle;
 import io.dropwizard.hibernate.HibernateBundle;
 import io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory;
 import io.dropwizard.jersey.jackson.JsonProcessingExceptionMapper;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
 import io.dropwizard.migrations.MigrationsBundle;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
@@ -138,6 +150,7 @@ import io.swagger.api.ToolClassesApi;
 import io.swagger.api.ToolClassesApiV1;
 import io.swagger.api.ToolsApi;
 import io.swagger.api.ToolsApiV1;
+import io.swagger.api.impl.ToolsImplCommon;
 import io.swagger.jaxrs.config.BeanConfig;
 import io.swagger.jaxrs.listing.ApiListingResource;
 import io.swagger.jaxrs.listing.SwaggerSerializers;
@@ -146,12 +159,18 @@ import io.swagger.v3.jaxrs2.integration.resources.OpenApiResource;
 import io.swagger.v3.oas.integration.SwaggerConfiguration;
 import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import okhttp3.Cache;
 import okhttp3.OkHttpClient;
@@ -161,6 +180,9 @@ import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlets.CrossOriginFilter;
 import org.glassfish.jersey.CommonProperties;
 import org.glassfish.jersey.server.filter.RolesAllowedDynamicFeature;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.loader.BatchFetchStyle;
 import org.kohsuke.github.extras.okhttp3.ObsoleteUrlFactory;
 import org.pf4j.DefaultPluginManager;
 import org.pf4j.PluginWrapper;
@@ -183,6 +205,11 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
     private static final int BYTES_IN_KILOBYTE = 1024;
     private static final int KILOBYTES_IN_MEGABYTE = 1024;
     private static final int CACHE_IN_MB = 100;
+    private static final int VALIDATION_QUEUE_PER_THREAD = 64;
+    private static final Duration EVENT_FEED_POLL_INTERVAL = Duration.ofSeconds(10);
+    // like the executors built by environment.lifecycle()
+    private static final long EXECUTOR_SHUTDOWN_SECONDS = 5;
+    private static final int JDBC_BATCH_SIZE = 50;
     private static Cache cache = null;
 
     static {
@@ -194,13 +221,30 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
             Tag.class, Label.class, SourceFile.class, Workflow.class, CollectionOrganization.class, WorkflowVersion.class, FileFormat.class,
             Organization.class, Notification.class, OrganizationUser.class, Event.class, Collection.class, Validation.class, BioWorkflow.class, Service.class, VersionMetadata.class, Image.class, Checksum.class, LambdaEvent.class,
             ParsedInformation.class, EntryVersion.class, DeletedUsername.class, CloudInstance.class, Author.class, OrcidAuthor.class,
-            AppTool.class, Category.class, FullWorkflowPath.class) {
+            AppTool.class, Category.class, FullWorkflowPath.class, ZenodoDoiRequest.class) {
         @Override
         public DataSourceFactory getDataSourceFactory(DockstoreWebserviceConfiguration configuration) {
             return configuration.getDataSourceFactory();
         }
+
+        @Override
+        protected void configure(org.hibernate.cfg.Configuration configuration) {
+            SecondLevelCacheManager.configure(configuration);
+            // lazy associations of a page of results are loaded with one statement per association instead of one per entity
+            configuration.getProperties().putIfAbsent(AvailableSettings.DEFAULT_BATCH_FETCH_SIZE, ResourceConstants.PAGINATION_LIMIT);
+            configuration.getProperties().putIfAbsent(AvailableSettings.BATCH_FETCH_STYLE, BatchFetchStyle.DYNAMIC.name());
+            // refreshes insert hundreds of versions, files, validations and images, send them in batches ordered by table
+            configuration.getProperties().putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, String.valueOf(JDBC_BATCH_SIZE));
+            configuration.getProperties().putIfAbsent(AvailableSettings.ORDER_INSERTS, Boolean.TRUE.toString());
+            configuration.getProperties().putIfAbsent(AvailableSettings.ORDER_UPDATES, Boolean.TRUE.toString());
+            configuration.getProperties().putIfAbsent(AvailableSettings.BATCH_VERSIONED_DATA, Boolean.TRUE.toString());
+            // sequences with an allocation size above one hand out the block that starts at the fetched value, see Constants.POOLED_ID_ALLOCATION_SIZE
+            configuration.getProperties().putIfAbsent(AvailableSettings.PREFERRED_POOLED_OPTIMIZER, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        }
     };
 
+    private CachingTokenAuthenticator cachingAuthenticator;
+
     public static void main(String[] args) throws Exception {
         new DockstoreWebserviceApplication().run(args);
     }
@@ -320,6 +364,11 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
         final DefaultPluginManager languagePluginManager = LanguagePluginManager.getInstance(getFilePluginLocation(configuration));
         describeAvailableLanguagePlugins(languagePluginManager);
         LanguageHandlerFactory.setLanguagePluginManager(languagePluginManager);
+        // before the executors and the server, which is built once run returns, are created
+        if (VirtualThreads.init(configuration.getVirtualThreadConfig())) {
+            LOG.info("Running requests on virtual threads");
+        }
+        initExecutors(configuration, environment);
 
         final PublicStateManager publicStateManager = PublicStateManager.getInstance();
         publicStateManager.reset();
@@ -334,6 +383,9 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
         final ElasticSearchHealthCheck elasticSearchHealthCheck = new ElasticSearchHealthCheck(new ToolsExtendedApi());
         environment.healthChecks().register("elasticSearch", elasticSearchHealthCheck);
         environment.lifecycle().manage(new ElasticSearchHelper(configuration.getEsConfiguration()));
+        environment.lifecycle().manage(new SecondLevelCacheManager(hibernate.getSessionFactory(), configuration.getDataSourceFactory()));
+        SecondLevelCacheManager.registerMetrics(hibernate.getSessionFactory(), environment.metrics());
+        ReadReplicaRoutingDataSource.routeReadOnlyUnitsOfWork(hibernate.getSessionFactory());
         final UserDAO userDAO = new UserDAO(hibernate.getSessionFactory());
         final TokenDAO tokenDAO = new TokenDAO(hibernate.getSessionFactory());
         final DeletedUsernameDAO deletedUsernameDAO = new DeletedUsernameDAO(hibernate.getSessionFactory());
@@ -354,8 +406,8 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
         // setup authentication to allow session access in authenticators, see https://github.com/dropwizard/dropwizard/pull/1361
         SimpleAuthenticator authenticator = new UnitOfWorkAwareProxyFactory(getHibernate())
                 .create(SimpleAuthenticator.class, new Class[] { TokenDAO.class, UserDAO.class }, new Object[] { tokenDAO, userDAO });
-        CachingAuthenticator<String, User> cachingAuthenticator = new CachingAuthenticator<>(environment.metrics(), authenticator,
-                configuration.getAuthenticationCachePolicy());
+        cachingAuthenticator = new CachingTokenAuthenticator(environment.metrics(), authenticator,
+                configuration.getAuthenticationCachePolicy(), Duration.ofSeconds(configuration.getAuthenticationNegativeCacheTimeToLiveSeconds()));
         environment.jersey().register(new AuthDynamicFeature(
                 new OAuthCredentialAuthFilter.Builder<User>().setAuthenticator(cachingAuthenticator).setAuthorizer(new SimpleAuthorizer())
                         .setPrefix("Bearer").setRealm("Dockstore User Authentication").buildAuthFilter()));
@@ -448,6 +500,50 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
         cacheConfigManager.initCache();
     }
 
+    /**
+     * Sets up the bounded executors that keep slow or untrusted work off request threads
+     */
+    private void initExecutors(DockstoreWebserviceConfiguration configuration, Environment environment) {
+        final int validationThreads = configuration.getLanguageValidationThreads();
+        final ExecutorService validationExecutor = environment.lifecycle().executorService("language-validation-%d")
+                .minThreads(validationThreads).maxThreads(validationThreads)
+                .workQueue(new ArrayBlockingQueue<>(validationThreads * VALIDATION_QUEUE_PER_THREAD))
+                .rejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy()).build();
+        LanguageValidationEngine.init(validationExecutor, environment.metrics());
+        final ExecutorService pluginExecutor = environment.lifecycle().executorService("language-plugin-%d")
+                .minThreads(configuration.getLanguagePluginConfig().getThreads()).maxThreads(configuration.getLanguagePluginConfig().getThreads()).build();
+        LanguagePluginExecutor.init(pluginExecutor, environment.metrics(), configuration.getLanguagePluginConfig());
+        final ExecutorService checkUrlExecutor = ioExecutorService(environment, "check-url-%d", configuration.getCheckUrlThreads());
+        CheckUrlService.init(checkUrlExecutor, getHibernate().getSessionFactory(), Duration.ofMinutes(configuration.getCheckUrlCacheTimeToLiveMinutes()));
+        final ExecutorService registryRefreshExecutor = ioExecutorService(environment, "registry-refresh-%d",
+                configuration.getRegistryRefreshConfig().getThreads());
+        RegistryRefreshExecutor.init(registryRefreshExecutor, configuration.getRegistryRefreshConfig(), getOkHttpClient());
+        final ScheduledExecutorService eventFeedExecutor = environment.lifecycle().scheduledExecutorService("event-feed-%d").threads(1).build();
+        EventFeedService.init(eventFeedExecutor, getHibernate().getSessionFactory(), EVENT_FEED_POLL_INTERVAL);
+        final ExecutorService doiRequestExecutor = ioExecutorService(environment, "doi-request-%d", configuration.getDoiRequestThreads());
+        final String dockstoreUrl = URIHelper.createBaseUrl(configuration.getExternalConfig().getScheme(),
+                configuration.getExternalConfig().getHostname(), configuration.getExternalConfig().getUiPort());
+        try {
+            ZenodoDoiService.init(doiRequestExecutor, getHibernate().getSessionFactory(), configuration.getZenodoUrl(), dockstoreUrl,
+                    ToolsImplCommon.baseURL(configuration));
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Could not create Dockstore base URL", e);
+        }
+    }
+
+    /**
+     * Creates an executor for work that mostly waits on other services. With virtual threads, each task gets its own virtual thread, but
+     * no more than {@code threads} tasks run at once, like on a pool of platform threads. CPU heavy work stays on platform threads.
+     */
+    private static ExecutorService ioExecutorService(Environment environment, String nameFormat, int threads) {
+        if (!VirtualThreads.isEnabled()) {
+            return environment.lifecycle().executorService(nameFormat).minThreads(threads).maxThreads(threads).build();
+        }
+        final ExecutorService executor = VirtualThreads.newExecutor(nameFormat.replace("%d", ""), threads);
+        environment.lifecycle().manage(new ExecutorServiceManager(executor, io.dropwizard.util.Duration.seconds(EXECUTOR_SHUTDOWN_SECONDS), nameFormat));
+        return executor;
+    }
+
     private void registerAPIsAndMisc(Environment environment) {
         ToolsApi toolsApi = new ToolsApi(null);
         environment.jersey().register(toolsApi);
@@ -513,4 +609,8 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
         return hibernate;
     }
 
+    public CachingTokenAuthenticator getCachingAuthenticator() {
+        return cachingAuthenticator;
+    }
+
 }
@@ -18,10 +18,13 @@ package io.dockstore.webservice;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import io.dockstore.webservice.helpers.DockstoreServerFactory;
+import io.dockstore.webservice.helpers.ReadReplicaDataSourceFactory;
 import io.dropwizard.Configuration;
 import io.dropwizard.client.HttpClientConfiguration;
-import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.server.ServerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import javax.validation.Valid;
@@ -30,9 +33,14 @@ import javax.validation.constraints.NotNull;
 
 public class DockstoreWebserviceConfiguration extends Configuration {
 
+    private static final int DEFAULT_CHECK_URL_THREADS = 4;
+    private static final int DEFAULT_DOI_REQUEST_THREADS = 2;
+    private static final long DEFAULT_CHECK_URL_CACHE_TIME_TO_LIVE_MINUTES = 24 * 60;
+    private static final long DEFAULT_AUTHENTICATION_NEGATIVE_CACHE_TIME_TO_LIVE_SECONDS = 30;
+
     @Valid
     @NotNull
-    private DataSourceFactory database = new DataSourceFactory();
+    private ReadReplicaDataSourceFactory database = new ReadReplicaDataSourceFactory();
 
     @Valid
     @NotNull
@@ -51,6 +59,15 @@ public class DockstoreWebserviceConfiguration extends Configuration {
     @Valid
     private LimitConfig limitConfig = new LimitConfig();
 
+    @Valid
+    private LanguagePluginConfig languagePluginConfig = new LanguagePluginConfig();
+
+    @Valid
+    private RegistryRefreshConfig registryRefreshConfig = new RegistryRefreshConfig();
+
+    @Valid
+    private VirtualThreadConfig virtualThreadConfig = new VirtualThreadConfig();
+
     @NotEmpty
     private String template;
 
@@ -130,6 +147,11 @@ public class DockstoreWebserviceConfiguration extends Configuration {
     @NotNull
     private CaffeineSpec authenticationCachePolicy;
 
+    /**
+     * How long credentials that did not authenticate are rejected without looking them up again, 0 to always look them up
+     */
+    private long authenticationNegativeCacheTimeToLiveSeconds = DEFAULT_AUTHENTICATION_NEGATIVE_CACHE_TIME_TO_LIVE_SECONDS;
+
     private String languagePluginLocation;
 
     private String sqsURL;
@@ -148,13 +170,37 @@ public class DockstoreWebserviceConfiguration extends Configuration {
 
     private String checkUrlLambdaUrl;
 
+    /**
+     * Size of the bounded pool that checks test parameter file URLs in the background
+     */
+    private int checkUrlThreads = DEFAULT_CHECK_URL_THREADS;
+
+    /**
+     * How long the answer for a test parameter file URL is reused, 0 to not cache answers
+     */
+    private long checkUrlCacheTimeToLiveMinutes = DEFAULT_CHECK_URL_CACHE_TIME_TO_LIVE_MINUTES;
+
+    /**
+     * Size of the bounded pool used to validate the source files of a version concurrently
+     */
+    private int languageValidationThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Size of the pool that takes requested DOIs through the Zenodo deposit steps in the background
+     */
+    private int doiRequestThreads = DEFAULT_DOI_REQUEST_THREADS;
+
+    public DockstoreWebserviceConfiguration() {
+        super.setServerFactory(new DockstoreServerFactory());
+    }
+
     @JsonProperty("toolTesterBucket")
     public String getToolTesterBucket() {
         return toolTesterBucket;
     }
 
     @JsonProperty("database")
-    public DataSourceFactory getDataSourceFactory() {
+    public ReadReplicaDataSourceFactory getDataSourceFactory() {
         return database;
     }
 
@@ -214,7 +260,7 @@ public class DockstoreWebserviceConfiguration extends Configuration {
      * @param database the database to set
      */
     @JsonProperty("database")
-    public void setDatabase(DataSourceFactory database) {
+    public void setDatabase(ReadReplicaDataSourceFactory database) {
         this.database = database;
     }
 
@@ -316,6 +362,14 @@ public class DockstoreWebserviceConfiguration extends Configuration {
         this.authenticationCachePolicy = authenticationCachePolicy;
     }
 
+    public long getAuthenticationNegativeCacheTimeToLiveSeconds() {
+        return authenticationNegativeCacheTimeToLiveSeconds;
+    }
+
+    public void setAuthenticationNegativeCacheTimeToLiveSeconds(long authenticationNegativeCacheTimeToLiveSeconds) {
+        this.authenticationNegativeCacheTimeToLiveSeconds = authenticationNegativeCacheTimeToLiveSeconds;
+    }
+
     public String getGitlabClientID() {
         return gitlabClientID;
     }
@@ -523,6 +577,41 @@ public class DockstoreWebserviceConfiguration extends Configuration {
         this.limitConfig = limitConfig;
     }
 
+    public LanguagePluginConfig getLanguagePluginConfig() {
+        return languagePluginConfig;
+    }
+
+    public void setLanguagePluginConfig(LanguagePluginConfig languagePluginConfig) {
+        this.languagePluginConfig = languagePluginConfig;
+    }
+
+    public RegistryRefreshConfig getRegistryRefreshConfig() {
+        return registryRefreshConfig;
+    }
+
+    public void setRegistryRefreshConfig(RegistryRefreshConfig registryRefreshConfig) {
+        this.registryRefreshConfig = registryRefreshConfig;
+    }
+
+    public VirtualThreadConfig getVirtualThreadConfig() {
+        return virtualThreadConfig;
+    }
+
+    public void setVirtualThreadConfig(VirtualThreadConfig virtualThreadConfig) {
+        this.virtualThreadConfig = virtualThreadConfig;
+    }
+
+    /**
+     * Without a type, the server is a {@link DockstoreServerFactory}, which is Dropwizard's default server that can also run requests
+     * on virtual threads.
+     */
+    @Override
+    @JsonProperty("server")
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type", defaultImpl = DockstoreServerFactory.class)
+    public void setServerFactory(ServerFactory factory) {
+        super.setServerFactory(factory);
+    }
+
     @JsonProperty
     public UIConfig getUiConfig() {
         return uiConfig;
@@ -545,6 +634,38 @@ public class DockstoreWebserviceConfiguration extends Configuration {
         this.checkUrlLambdaUrl = checkUrlLambdaUrl;
     }
 
+    public int getCheckUrlThreads() {
+        return checkUrlThreads;
+    }
+
+    public void setCheckUrlThreads(int checkUrlThreads) {
+        this.checkUrlThreads = checkUrlThreads;
+    }
+
+    public long getCheckUrlCacheTimeToLiveMinutes() {
+        return checkUrlCacheTimeToLiveMinutes;
+    }
+
+    public void setCheckUrlCacheTimeToLiveMinutes(long checkUrlCacheTimeToLiveMinutes) {
+        this.checkUrlCacheTimeToLiveMinutes = checkUrlCacheTimeToLiveMinutes;
+    }
+
+    public int getLanguageValidationThreads() {
+        return languageValidationThreads;
+    }
+
+    public void setLanguageValidationThreads(int languageValidationThreads) {
+        this.languageValidationThreads = languageValidationThreads;
+    }
+
+    public int getDoiRequestThreads() {
+        return doiRequestThreads;
+    }
+
+    public void setDoiRequestThreads(int doiRequestThreads) {
+        this.doiRequestThreads = doiRequestThreads;
+    }
+
     /**
      * This config defines values that define the webservice from the outside world.
      * Most notably, for swagger. But also to configure generated RSS paths and TRS paths
@@ -604,13 +725,49 @@ public class DockstoreWebserviceConfiguration extends Configuration {
     }
 
     public static class ElasticSearchConfig {
+        private static final long DEFAULT_SEARCH_TARGET_LATENCY_MILLIS = 2000;
+        private static final long DEFAULT_SEARCH_CACHE_TIME_TO_LIVE_SECONDS = 60;
+        private static final long DEFAULT_SEARCH_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+        private static final long DEFAULT_SEARCH_CACHE_MAX_RESPONSE_BYTES = 1024L * 1024;
+        private static final long DEFAULT_SEARCH_CACHE_REFRESH_DELAY_MILLIS = 1000;
+
         private String hostname;
         private int port;
         private String protocol;
         private String user;
         private String password;
+        /**
+         * The most searches sent to Elasticsearch at once. Fewer are sent while Elasticsearch is slow or overloaded.
+         */
         private Integer maxConcurrentSessions;
 
+        /**
+         * Searches slower than this are taken as a sign that Elasticsearch is overloaded, and lower how many searches are sent at once
+         */
+        private long searchTargetLatencyMillis = DEFAULT_SEARCH_TARGET_LATENCY_MILLIS;
+
+        /**
+         * How long search results are reused, 0 to always search Elasticsearch. Results are dropped sooner when this webservice
+         * updates the index; this bounds how stale they get when another webservice updates it.
+         */
+        private long searchCacheTimeToLiveSeconds = DEFAULT_SEARCH_CACHE_TIME_TO_LIVE_SECONDS;
+
+        /**
+         * The most bytes of search results kept
+         */
+        private long searchCacheMaxBytes = DEFAULT_SEARCH_CACHE_MAX_BYTES;
+
+        /**
+         * Larger search results are streamed without being kept
+         */
+        private long searchCacheMaxResponseBytes = DEFAULT_SEARCH_CACHE_MAX_RESPONSE_BYTES;
+
+        /**
+         * How long after an update of the index its results are not kept, Elasticsearch's refresh interval, since searches do not
+         * see an update until the index is refreshed
+         */
+        private long searchCacheRefreshDelayMillis = DEFAULT_SEARCH_CACHE_REFRESH_DELAY_MILLIS;
+
         public String getProtocol() {
             return protocol;
         }
@@ -657,11 +814,58 @@ public class DockstoreWebserviceConfiguration extends Configuration {
         public Integer getMaxConcurrentSessions() {
             return this.maxConcurrentSessions;
         }
+
+        public long getSearchTargetLatencyMillis() {
+            return searchTargetLatencyMillis;
+        }
+
+        public void setSearchTargetLatencyMillis(long searchTargetLatencyMillis) {
+            this.searchTargetLatencyMillis = searchTargetLatencyMillis;
+        }
+
+        public long getSearchCacheTimeToLiveSeconds() {
+            return searchCacheTimeToLiveSeconds;
+        }
+
+        public void setSearchCacheTimeToLiveSeconds(long searchCacheTimeToLiveSeconds) {
+            this.searchCacheTimeToLiveSeconds = searchCacheTimeToLiveSeconds;
+        }
+
+        public long getSearchCacheMaxBytes() {
+            return searchCacheMaxBytes;
+        }
+
+        public void setSearchCacheMaxBytes(long searchCacheMaxBytes) {
+            this.searchCacheMaxBytes = searchCacheMaxBytes;
+        }
+
+        public long getSearchCacheMaxResponseBytes() {
+            return searchCacheMaxResponseBytes;
+        }
+
+        public void setSearchCacheMaxResponseBytes(long searchCacheMaxResponseBytes) {
+            this.searchCacheMaxResponseBytes = searchCacheMaxResponseBytes;
+        }
+
+        public long getSearchCacheRefreshDelayMillis() {
+            return searchCacheRefreshDelayMillis;
+        }
+
+        public void setSearchCacheRefreshDelayMillis(long searchCacheRefreshDelayMillis) {
+            this.searchCacheRefreshDelayMillis = searchCacheRefreshDelayMillis;
+        }
     }
 
     public static class SamConfiguration {
+        private static final long DEFAULT_DECISION_CACHE_TIME_TO_LIVE_SECONDS = 30;
+
         private String basepath;
 
+        /**
+         * How long a user's permission decisions and shared workflows are reused before asking SAM again, 0 to always ask SAM
+         */
+        private long decisionCacheTimeToLiveSeconds = DEFAULT_DECISION_CACHE_TIME_TO_LIVE_SECONDS;
+
         public String getBasepath() {
             return basepath;
         }
@@ -669,12 +873,45 @@ public class DockstoreWebserviceConfiguration extends Configuration {
         public void setBasepath(String basepath) {
             this.basepath = basepath;
         }
+
+        public long getDecisionCacheTimeToLiveSeconds() {
+            return decisionCacheTimeToLiveSeconds;
+        }
+
+        public void setDecisionCacheTimeToLiveSeconds(long decisionCacheTimeToLiveSeconds) {
+            this.decisionCacheTimeToLiveSeconds = decisionCacheTimeToLiveSeconds;
+        }
     }
 
     public static class LimitConfig {
+        private static final long DEFAULT_ZIP_SIZE_LIMIT = 100_000L;
+        private static final int DEFAULT_ZIP_ENTRIES_LIMIT = 100;
+        private static final long DEFAULT_ZIP_UNCOMPRESSED_SIZE_LIMIT = 100_000L;
+        private static final int DEFAULT_ZIP_COMPRESSION_RATIO_LIMIT = 100;
+
         private Integer workflowLimit;
         private Integer workflowVersionLimit;
 
+        /**
+         * The most bytes a zip posted to a hosted workflow can have
+         */
+        private long zipSizeLimit = DEFAULT_ZIP_SIZE_LIMIT;
+
+        /**
+         * The most entries, files and directories, a zip posted to a hosted workflow can have
+         */
+        private int zipEntriesLimit = DEFAULT_ZIP_ENTRIES_LIMIT;
+
+        /**
+         * The most bytes the files of a zip posted to a hosted workflow can add up to, once uncompressed
+         */
+        private long zipUncompressedSizeLimit = DEFAULT_ZIP_UNCOMPRESSED_SIZE_LIMIT;
+
+        /**
+         * The most times larger the files of a zip can be than the zip itself, to reject zip bombs early
+         */
+        private int zipCompressionRatioLimit = DEFAULT_ZIP_COMPRESSION_RATIO_LIMIT;
+
         public Integer getWorkflowLimit() {
             return workflowLimit;
         }
@@ -690,6 +927,153 @@ public class DockstoreWebserviceConfiguration extends Configuration {
         public void setWorkflowVersionLimit(int workflowVersionLimit) {
             this.workflowVersionLimit = workflowVersionLimit;
         }
+
+        public long getZipSizeLimit() {
+            return zipSizeLimit;
+        }
+
+        public void setZipSizeLimit(long zipSizeLimit) {
+            this.zipSizeLimit = zipSizeLimit;
+        }
+
+        public int getZipEntriesLimit() {
+            return zipEntriesLimit;
+        }
+
+        public void setZipEntriesLimit(int zipEntriesLimit) {
+            this.zipEntriesLimit = zipEntriesLimit;
+        }
+
+        public long getZipUncompressedSizeLimit() {
+            return zipUncompressedSizeLimit;
+        }
+
+        public void setZipUncompressedSizeLimit(long zipUncompressedSizeLimit) {
+            this.zipUncompressedSizeLimit = zipUncompressedSizeLimit;
+        }
+
+        public int getZipCompressionRatioLimit() {
+            return zipCompressionRatioLimit;
+        }
+
+        public void setZipCompressionRatioLimit(int zipCompressionRatioLimit) {
+            this.zipCompressionRatioLimit = zipCompressionRatioLimit;
+        }
+    }
+
+    /**
+     * Bounds on calls into language plugins, see {@link io.dockstore.webservice.languages.LanguagePluginExecutor}
+     */
+    public static class LanguagePluginConfig {
+        private static final int DEFAULT_THREADS = 8;
+        private static final int DEFAULT_CONCURRENT_CALLS_PER_PLUGIN = 4;
+        private static final int DEFAULT_TIMEOUT_SECONDS = 60;
+        private static final long DEFAULT_MAX_INPUT_CHARACTERS = 50_000_000L;
+
+        private int threads = DEFAULT_THREADS;
+        private int maxConcurrentCallsPerPlugin = DEFAULT_CONCURRENT_CALLS_PER_PLUGIN;
+        private int timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+        private long maxInputCharacters = DEFAULT_MAX_INPUT_CHARACTERS;
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getMaxConcurrentCallsPerPlugin() {
+            return maxConcurrentCallsPerPlugin;
+        }
+
+        public void setMaxConcurrentCallsPerPlugin(int maxConcurrentCallsPerPlugin) {
+            this.maxConcurrentCallsPerPlugin = maxConcurrentCallsPerPlugin;
+        }
+
+        public int getTimeoutSeconds() {
+            return timeoutSeconds;
+        }
+
+        public void setTimeoutSeconds(int timeoutSeconds) {
+            this.timeoutSeconds = timeoutSeconds;
+        }
+
+        public long getMaxInputCharacters() {
+            return maxInputCharacters;
+        }
+
+        public void setMaxInputCharacters(long maxInputCharacters) {
+            this.maxInputCharacters = maxInputCharacters;
+        }
+    }
+
+    /**
+     * Bounds on refreshing tools from image registries, see {@link io.dockstore.webservice.helpers.RegistryRefreshExecutor}
+     */
+    public static class RegistryRefreshConfig {
+        private static final int DEFAULT_THREADS = 8;
+        private static final double DEFAULT_REQUESTS_PER_SECOND = 10;
+
+        /**
+         * The most tools whose tags are fetched from image registries at once, across all refreshes
+         */
+        private int threads = DEFAULT_THREADS;
+
+        /**
+         * The most requests per second made to each image registry, not limited if not positive
+         */
+        private double requestsPerSecond = DEFAULT_REQUESTS_PER_SECOND;
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public void setRequestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+    }
+
+    public static class VirtualThreadConfig {
+
+        /**
+         * Run requests, and the executors that mostly wait on other services (checking URLs, fetching tags from image registries,
+         * requesting DOIs), on virtual threads, so that requests blocked on GitHub, SAM, Elasticsearch or registries do not use up the
+         * server's threads. Needs Java 21 or later, on earlier versions the webservice runs on platform threads and logs a warning.
+         * server.maxThreads still bounds concurrent requests, and can be raised well beyond what platform threads allow.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Print the stack of a virtual thread that blocks while pinned to its carrier thread, such as inside a synchronized method, to
+         * find code that keeps virtual threads from scaling. Sets jdk.tracePinnedThreads unless it is set already. Off by default,
+         * because on Java 21 the tracing can itself deadlock the thread it prints, so only turn it on while looking for pinning.
+         */
+        private boolean tracePinnedThreads = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isTracePinnedThreads() {
+            return tracePinnedThreads;
+        }
+
+        public void setTracePinnedThreads(boolean tracePinnedThreads) {
+            this.tracePinnedThreads = tracePinnedThreads;
+        }
     }
 
     /**
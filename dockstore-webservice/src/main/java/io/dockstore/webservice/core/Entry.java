@@ -69,7 +69,8 @@ import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
-import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -141,14 +142,13 @@ public abstract class Entry<S extends Entry, T extends Version> implements Compa
     @JoinTable(name = "entry_label", joinColumns = @JoinColumn(name = "entryid", referencedColumnName = "id"), inverseJoinColumns = @JoinColumn(name = "labelid", referencedColumnName = "id", columnDefinition = "bigint"))
     @ApiModelProperty(value = "Labels (i.e. meta tags) for describing the purpose and contents of containers", position = 3)
     @OrderBy("id")
-    @BatchSize(size = 25)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "entry-labels")
     private SortedSet<Label> labels = new TreeSet<>();
 
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "user_entry", inverseJoinColumns = @JoinColumn(name = "userid", nullable = false, updatable = false, referencedColumnName = "id"), joinColumns = @JoinColumn(name = "entryid", nullable = false, updatable = false, referencedColumnName = "id"))
     @ApiModelProperty(value = "This indicates the users that have control over this entry, dockstore specific", required = false, position = 4)
     @OrderBy("id")
-    @BatchSize(size = 25)
     private SortedSet<User> users;
 
     @ManyToMany(fetch = FetchType.EAGER)
@@ -156,9 +156,13 @@ public abstract class Entry<S extends Entry, T extends Version> implements Compa
     @ApiModelProperty(value = "This indicates the users that have starred this entry, dockstore specific", required = false, position = 5)
     @JsonSerialize(using = EntryStarredSerializer.class)
     @OrderBy("id")
-    @BatchSize(size = 25)
     private SortedSet<User> starredUsers;
 
+    // maintained by a database trigger on starred so that published listings can sort on an index
+    @JsonIgnore
+    @Column(name = "starcount", nullable = false, insertable = false, updatable = false, columnDefinition = "integer default 0")
+    private int starCount;
+
     @Column
     @ApiModelProperty(value = "This is the email of the git organization", position = 6)
     private String email;
@@ -187,7 +191,7 @@ public abstract class Entry<S extends Entry, T extends Version> implements Compa
 
     @JsonIgnore
     @JoinColumn(name = "checkerid", unique = true)
-    @OneToOne(targetEntity = BioWorkflow.class, fetch = FetchType.EAGER)
+    @OneToOne(targetEntity = BioWorkflow.class, fetch = FetchType.LAZY)
     @ApiModelProperty(value = "The id of the associated checker workflow")
     private BioWorkflow checkerWorkflow;
 
@@ -195,7 +199,7 @@ public abstract class Entry<S extends Entry, T extends Version> implements Compa
     @JoinTable(name = "entry_alias", joinColumns = @JoinColumn(name = "id"), uniqueConstraints = @UniqueConstraint(name = "unique_entry_aliases", columnNames = { "alias" }))
     @MapKeyColumn(name = "alias", columnDefinition = "text")
     @ApiModelProperty(value = "aliases can be used as an alternate unique id for entries")
-    @BatchSize(size = 25)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "entry-aliases")
     private Map<String, Alias> aliases = new HashMap<>();
 
     // database timestamps
@@ -229,7 +233,6 @@ public abstract class Entry<S extends Entry, T extends Version> implements Compa
     @Column(name = "path", nullable = false, columnDefinition = "text")
     @MapKeyColumn(name = "filetype")
     @CollectionTable(uniqueConstraints = @UniqueConstraint(name = "unique_paths", columnNames = { "entry_id", "filetype", "path" }))
-    @BatchSize(size = 25)
     private Map<DescriptorLanguage.FileType, String> defaultPaths = new HashMap<>();
 
     @Column
@@ -241,7 +244,7 @@ public abstract class Entry<S extends Entry, T extends Version> implements Compa
     @JoinTable(name = "entry_input_fileformat", joinColumns = @JoinColumn(name = "entryid", referencedColumnName = "id", columnDefinition = "bigint"), inverseJoinColumns = @JoinColumn(name = "fileformatid", referencedColumnName = "id", columnDefinition = "bigint"))
     @ApiModelProperty(value = "File formats for describing the input file formats of every version of an entry", position = 15)
     @OrderBy("id")
-    @BatchSize(size = 25)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "entry-input-fileformats")
     private SortedSet<FileFormat> inputFileFormats = new TreeSet<>();
 
     @JsonProperty("output_file_formats")
@@ -249,7 +252,7 @@ public abstract class Entry<S extends Entry, T extends Version> implements Compa
     @JoinTable(name = "entry_output_fileformat", joinColumns = @JoinColumn(name = "entryid", referencedColumnName = "id", columnDefinition = "bigint"), inverseJoinColumns = @JoinColumn(name = "fileformatid", referencedColumnName = "id", columnDefinition = "bigint"))
     @ApiModelProperty(value = "File formats for describing the output file formats of every version of an entry", position = 16)
     @OrderBy("id")
-    @BatchSize(size = 25)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "entry-output-fileformats")
     private SortedSet<FileFormat> outputFileFormats = new TreeSet<>();
 
     @Embedded
@@ -260,7 +263,6 @@ public abstract class Entry<S extends Entry, T extends Version> implements Compa
     @MapKeyColumn(name = "userid", columnDefinition = "bigint")
     @ApiModelProperty(value = "The presence of the put code for a userid indicates the entry was exported to ORCID for the corresponding Dockstore user.")
     @Schema(description = "The presence of the put code for a userid indicates the entry was exported to ORCID for the corresponding Dockstore user.")
-    @BatchSize(size = 25)
     private Map<Long, OrcidPutCode> userIdToOrcidPutCode = new HashMap<>();
 
     @Transient
@@ -671,6 +673,14 @@ public abstract class Entry<S extends Entry, T extends Version> implements Compa
         return dbUpdateDate;
     }
 
+    /**
+     * @return number of users that had starred this entry when it was loaded
+     */
+    @JsonIgnore
+    public int getStarCount() {
+        return starCount;
+    }
+
     @Override
     public int compareTo(@NotNull Entry that) {
         return ComparisonChain.start().compare(this.getId(), that.getId(), Ordering.natural().nullsLast())
@@ -15,6 +15,9 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.SequenceGenerator;
@@ -33,17 +36,38 @@ import org.hibernate.annotations.UpdateTimestamp;
 @Table(name = "event")
 @SuppressWarnings({"checkstyle:magicnumber", "checkstyle:hiddenfield"})
 @NamedQueries({
-    @NamedQuery(name = "io.dockstore.webservice.core.Event.findAllByEntryIds", query = "SELECT e FROM Event e where (e.tool.id in :entryIDs) OR (e.workflow.id in :entryIDs) OR (e.apptool.id in :entryIDs) ORDER by id desc"),
+    @NamedQuery(name = "io.dockstore.webservice.core.Event.findByIds", query = "SELECT e FROM Event e WHERE e.id IN :ids ORDER BY e.id DESC"),
+    @NamedQuery(name = "io.dockstore.webservice.core.Event.findSummariesByIds", query = "SELECT new io.dockstore.webservice.core.EventSummary(e.id, e.type, e.dbCreateDate, "
+        + "iu.id, iu.username, t.id, t.registry, t.namespace, t.name, t.toolname, w.id, w.sourceControl, w.organization, w.repository, w.workflowName, "
+        + "a.id, a.sourceControl, a.organization, a.repository, a.workflowName, o.id, o.name, o.displayName, c.id, c.name, c.displayName, v.id, v.name) "
+        + "FROM Event e LEFT JOIN e.initiatorUser iu LEFT JOIN e.tool t LEFT JOIN e.workflow w LEFT JOIN e.apptool a LEFT JOIN e.organization o "
+        + "LEFT JOIN e.collection c LEFT JOIN e.version v WHERE e.id IN :ids ORDER BY e.id DESC"),
     @NamedQuery(name = "io.dockstore.webservice.core.Event.deleteByEntryId", query = "DELETE from Event e where e.tool.id = :entryId OR e.workflow.id = :entryId OR e.apptool.id = :entryId"),
     @NamedQuery(name = "io.dockstore.webservice.core.Event.deleteByOrganizationId", query = "DELETE from Event e WHERE e.organization.id = :organizationId"),
     @NamedQuery(name = "io.dockstore.webservice.core.Event.findAllByUserId", query = "SELECT e FROM Event e where e.user.id = :userId"),
     @NamedQuery(name = "io.dockstore.webservice.core.Event.findAllByInitiatorUserId", query = "SELECT e FROM Event e where e.initiatorUser.id = :initiatorUser"),
+    @NamedQuery(name = "io.dockstore.webservice.core.Event.findIdsByInitiatorUserId", query = "SELECT e.id FROM Event e WHERE e.initiatorUser.id = :initiatorUser AND e.id < :before ORDER BY e.id DESC"),
     @NamedQuery(name = "io.dockstore.webservice.core.Event.findAllByEntryId", query = "SELECT e FROM Event e where e.workflow.id = :entryId OR e.tool.id = :entryId OR e.apptool.id = :entryId"),
     @NamedQuery(name = "io.dockstore.webservice.core.Event.findAllForOrganization", query = "SELECT eve FROM Event eve WHERE eve.organization.id = :organizationId ORDER BY id DESC"),
-    @NamedQuery(name = "io.dockstore.webservice.core.Event.findAllByOrganizationIds", query = "SELECT e FROM Event e WHERE e.organization.id in :organizationIDs ORDER BY id DESC"),
     @NamedQuery(name = "io.dockstore.webservice.core.Event.countAllForOrganization", query = "SELECT COUNT(*) FROM Event eve WHERE eve.organization.id = :organizationId")
 })
+@NamedEntityGraphs({
+    @NamedEntityGraph(name = Event.ALL_ASSOCIATIONS_GRAPH, attributeNodes = { @NamedAttributeNode("user"), @NamedAttributeNode("organization"),
+        @NamedAttributeNode("tool"), @NamedAttributeNode("workflow"), @NamedAttributeNode("apptool"), @NamedAttributeNode("collection"),
+        @NamedAttributeNode("initiatorUser"), @NamedAttributeNode("version") }),
+    @NamedEntityGraph(name = Event.ORGANIZATION_EVENTS_GRAPH, attributeNodes = { @NamedAttributeNode("collection"),
+        @NamedAttributeNode("initiatorUser"), @NamedAttributeNode("version") })
+})
 public class Event {
+    /**
+     * Fetches everything an event is serialized with in the same statement as the event
+     */
+    public static final String ALL_ASSOCIATIONS_GRAPH = "io.dockstore.webservice.core.Event.allAssociations";
+    /**
+     * Fetches what the events of an organization are serialized with, the organization itself is already loaded
+     */
+    public static final String ORGANIZATION_EVENTS_GRAPH = "io.dockstore.webservice.core.Event.organizationEvents";
+
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "event_id_seq")
     @SequenceGenerator(name = "event_id_seq", sequenceName = "event_id_seq", allocationSize = 1)
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.core;
+
+import io.dockstore.common.EntryType;
+import io.dockstore.common.SourceControl;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.Date;
+
+/**
+ * A compact event for feeds, selected in one statement with only the names and paths of what the event acts on, instead of the
+ * serialized entities of {@link Event}.
+ */
+@ApiModel(value = "EventSummary", description = "A compact event for feeds.")
+@Schema(name = "EventSummary", description = "A compact event for feeds.")
+public class EventSummary {
+    private final long id;
+    private final Event.EventType type;
+    @ApiModelProperty(dataType = "long")
+    @Schema(type = "integer", format = "int64")
+    private final Date dbCreateDate;
+    private final Long initiatorUserId;
+    private final String initiatorUsername;
+    private final Long entryId;
+    private final EntryType entryType;
+    private final String entryPath;
+    private final Long organizationId;
+    private final String organizationName;
+    private final String organizationDisplayName;
+    private final Long collectionId;
+    private final String collectionName;
+    private final String collectionDisplayName;
+    private final Long versionId;
+    private final String versionName;
+
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    public EventSummary(long id, Event.EventType type, Date dbCreateDate, Long initiatorUserId, String initiatorUsername,
+        Long toolId, String registry, String namespace, String name, String toolname,
+        Long workflowId, SourceControl workflowSourceControl, String workflowOrganization, String workflowRepository, String workflowName,
+        Long appToolId, SourceControl appToolSourceControl, String appToolOrganization, String appToolRepository, String appToolName,
+        Long organizationId, String organizationName, String organizationDisplayName,
+        Long collectionId, String collectionName, String collectionDisplayName, Long versionId, String versionName) {
+        this.id = id;
+        this.type = type;
+        this.dbCreateDate = dbCreateDate;
+        this.initiatorUserId = initiatorUserId;
+        this.initiatorUsername = initiatorUsername;
+        if (toolId != null) {
+            this.entryId = toolId;
+            this.entryType = EntryType.TOOL;
+            this.entryPath = pathFromFragments(registry, namespace, name, toolname);
+        } else if (workflowId != null) {
+            this.entryId = workflowId;
+            this.entryType = EntryType.WORKFLOW;
+            this.entryPath = pathFromFragments(workflowSourceControl.toString(), workflowOrganization, workflowRepository, workflowName);
+        } else if (appToolId != null) {
+            this.entryId = appToolId;
+            this.entryType = EntryType.APPTOOL;
+            this.entryPath = pathFromFragments(appToolSourceControl.toString(), appToolOrganization, appToolRepository, appToolName);
+        } else {
+            this.entryId = null;
+            this.entryType = null;
+            this.entryPath = null;
+        }
+        this.organizationId = organizationId;
+        this.organizationName = organizationName;
+        this.organizationDisplayName = organizationDisplayName;
+        this.collectionId = collectionId;
+        this.collectionName = collectionName;
+        this.collectionDisplayName = collectionDisplayName;
+        this.versionId = versionId;
+        this.versionName = versionName;
+    }
+
+    private static String pathFromFragments(String prefix, String organization, String repository, String entryName) {
+        return prefix + '/' + organization + '/' + repository + (entryName == null || "".equals(entryName) ? "" : '/' + entryName);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Event.EventType getType() {
+        return type;
+    }
+
+    public Date getDbCreateDate() {
+        return dbCreateDate;
+    }
+
+    public Long getInitiatorUserId() {
+        return initiatorUserId;
+    }
+
+    public String getInitiatorUsername() {
+        return initiatorUsername;
+    }
+
+    public Long getEntryId() {
+        return entryId;
+    }
+
+    public EntryType getEntryType() {
+        return entryType;
+    }
+
+    public String getEntryPath() {
+        return entryPath;
+    }
+
+    public Long getOrganizationId() {
+        return organizationId;
+    }
+
+    public String getOrganizationName() {
+        return organizationName;
+    }
+
+    public String getOrganizationDisplayName() {
+        return organizationDisplayName;
+    }
+
+    public Long getCollectionId() {
+        return collectionId;
+    }
+
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    public String getCollectionDisplayName() {
+        return collectionDisplayName;
+    }
+
+    public Long getVersionId() {
+        return versionId;
+    }
+
+    public String getVersionName() {
+        return versionName;
+    }
+}
@@ -17,6 +17,7 @@
 package io.dockstore.webservice.core;
 
 import io.dockstore.common.Registry;
+import io.dockstore.webservice.Constants;
 import io.dockstore.webservice.languages.LanguageHandlerInterface.DockerSpecifier;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
@@ -44,7 +45,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 public class Image {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "image_id_seq")
-    @SequenceGenerator(name = "image_id_seq", sequenceName = "image_id_seq", allocationSize = 1)
+    @SequenceGenerator(name = "image_id_seq", sequenceName = "image_id_seq", allocationSize = Constants.POOLED_ID_ALLOCATION_SIZE)
     @ApiModelProperty(value = "Implementation specific ID for the image in this webservice", position = 0)
     @Column(columnDefinition = "bigint default nextval('image_id_seq')")
     private long id;
@@ -0,0 +1,93 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.core;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.Objects;
+
+@Schema(description = "An entry, or a version of an entry, to export to ORCID, and how the export went")
+public class OrcidExport {
+
+    @Schema(description = "The id of the entry to export", required = true)
+    private Long entryId;
+
+    @Schema(description = "Optional id of the version of the entry to export, the entry itself is exported if absent")
+    private Long versionId;
+
+    @Schema(description = "The put code of the ORCID work, once exported", accessMode = Schema.AccessMode.READ_ONLY)
+    private String putCode;
+
+    @Schema(description = "Why the entry or version could not be exported", accessMode = Schema.AccessMode.READ_ONLY)
+    private String error;
+
+    public OrcidExport() {
+    }
+
+    public OrcidExport(Long entryId, Long versionId) {
+        this.entryId = entryId;
+        this.versionId = versionId;
+    }
+
+    public Long getEntryId() {
+        return entryId;
+    }
+
+    public void setEntryId(Long entryId) {
+        this.entryId = entryId;
+    }
+
+    public Long getVersionId() {
+        return versionId;
+    }
+
+    public void setVersionId(Long versionId) {
+        this.versionId = versionId;
+    }
+
+    public String getPutCode() {
+        return putCode;
+    }
+
+    public void setPutCode(String putCode) {
+        this.putCode = putCode;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        OrcidExport that = (OrcidExport) o;
+        return Objects.equals(entryId, that.entryId) && Objects.equals(versionId, that.versionId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(entryId, versionId);
+    }
+}
@@ -20,6 +20,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ComparisonChain;
 import io.dockstore.common.DescriptorLanguage;
+import io.dockstore.webservice.Constants;
 import io.dockstore.webservice.helpers.ZipSourceFileHelper;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
@@ -51,7 +52,6 @@ import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
-import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.slf4j.Logger;
@@ -67,6 +67,8 @@ import org.slf4j.LoggerFactory;
 @Table(name = "sourcefile")
 @NamedQueries({
     @NamedQuery(name = "io.dockstore.webservice.core.SourceFile.findSourceFilesForVersion", query = "SELECT sourcefiles FROM Version version INNER JOIN version.sourceFiles as sourcefiles WHERE version.id = :versionId"),
+    @NamedQuery(name = "io.dockstore.webservice.core.SourceFile.findPathsAndContentsForVersion", query = "SELECT sourcefiles.absolutePath, sourcefiles.content FROM Version version "
+        + "INNER JOIN version.sourceFiles as sourcefiles WHERE version.id = :versionId AND sourcefiles.content IS NOT NULL ORDER BY sourcefiles.path"),
 })
 @SuppressWarnings("checkstyle:magicnumber")
 public class SourceFile implements Comparable<SourceFile> {
@@ -78,7 +80,7 @@ public class SourceFile implements Comparable<SourceFile> {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sourcefile_id_seq")
-    @SequenceGenerator(name = "sourcefile_id_seq", sequenceName = "sourcefile_id_seq", allocationSize = 1)
+    @SequenceGenerator(name = "sourcefile_id_seq", sequenceName = "sourcefile_id_seq", allocationSize = Constants.POOLED_ID_ALLOCATION_SIZE)
     @ApiModelProperty(value = "Implementation specific ID for the source file in this web service", position = 0)
     @Column(columnDefinition = "bigint default nextval('sourcefile_id_seq')")
     private long id;
@@ -125,7 +127,6 @@ public class SourceFile implements Comparable<SourceFile> {
         "id", "source" }))
     @MapKeyColumn(name = "source", columnDefinition = "text")
     @ApiModelProperty(value = "maps from platform to whether an entry successfully ran on it using this test json")
-    @BatchSize(size = 25)
     private Map<String, VerificationInformation> verifiedBySource = new HashMap<>();
 
     public Map<String, VerificationInformation> getVerifiedBySource() {
@@ -20,9 +20,11 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonView;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ComparisonChain;
+import com.google.common.hash.Hashing;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.util.List;
 import java.util.Objects;
@@ -51,7 +53,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 @Table(name = "token")
 @NamedQueries({
     @NamedQuery(name = "io.dockstore.webservice.core.Token.findByContent",
-        query = "SELECT t FROM Token t WHERE t.content = :content"),
+        query = "SELECT t FROM Token t WHERE t.sha256 = :sha256 AND t.content = :content"),
     @NamedQuery(name = "io.dockstore.webservice.core.Token.findByUserId",
         query = "SELECT t FROM Token t WHERE t.userId = :userId"),
     @NamedQuery(name = "io.dockstore.webservice.core.Token.findDockstoreByUserId",
@@ -102,6 +104,11 @@ public class Token implements Comparable<Token> {
     @JsonView(TokenViews.Auth.class)
     private String content;
 
+    // generated by the database from the content, lets tokens be looked up by a short indexed value
+    @Column(columnDefinition = "text", updatable = false, insertable = false)
+    @JsonIgnore
+    private String sha256;
+
     @Column(nullable = false)
     @ApiModelProperty(value = "When an integrated service is not aware of the username, we store it", position = 3)
     @JsonView(TokenViews.User.class)
@@ -168,6 +175,15 @@ public class Token implements Comparable<Token> {
         return null;
     }
 
+    /**
+     * Computes the digest that the database stores for token contents
+     * @param content contents of a token
+     * @return hex encoded SHA-256 of the content
+     */
+    public static String sha256(String content) {
+        return Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString();
+    }
+
     public long getId() {
         return id;
     }
@@ -20,6 +20,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.collect.ComparisonChain;
 import io.dockstore.common.DescriptorLanguage;
 import io.dockstore.common.VersionTypeValidation;
+import io.dockstore.webservice.Constants;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
 import java.sql.Timestamp;
@@ -51,7 +52,7 @@ public class Validation implements Comparable<Validation> {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "validation_id_seq")
-    @SequenceGenerator(name = "validation_id_seq", sequenceName = "validation_id_seq", allocationSize = 1)
+    @SequenceGenerator(name = "validation_id_seq", sequenceName = "validation_id_seq", allocationSize = Constants.POOLED_ID_ALLOCATION_SIZE)
     @ApiModelProperty(value = "Implementation specific ID for the source file in this web service", required = true, position = 0)
     @Column(columnDefinition = "bigint default nextval('validation_id_seq')")
     private long id;
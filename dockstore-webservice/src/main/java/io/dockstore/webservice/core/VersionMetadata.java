@@ -34,6 +34,8 @@ import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.MapKeyColumn;
 import javax.persistence.MapsId;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
@@ -52,6 +54,10 @@ import org.hibernate.annotations.UpdateTimestamp;
  */
 @Entity
 @Table(name = "version_metadata")
+@NamedQueries({
+    @NamedQuery(name = "io.dockstore.webservice.core.VersionMetadata.updatePublicAccessibleTestParameterFile",
+        query = "UPDATE VersionMetadata vm SET vm.publicAccessibleTestParameterFile = :publicAccessibleTestParameterFile WHERE vm.id = :id")
+})
 public class VersionMetadata {
     @Column(columnDefinition =  "boolean default false")
     protected boolean verified;
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.core;
+
+import java.sql.Timestamp;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+/**
+ * Tracks how far the DOI requested for a workflow version has come, so that minting it on Zenodo can be done in the
+ * background one step at a time and picked up again at the step that failed or was interrupted.
+ */
+@Entity
+@Table(name = "zenodo_doi_request")
+@NamedQueries({
+    @NamedQuery(name = "io.dockstore.webservice.core.ZenodoDoiRequest.findByWorkflowVersionId", query = "SELECT r FROM ZenodoDoiRequest r WHERE r.workflowVersionId = :workflowVersionId"),
+    @NamedQuery(name = "io.dockstore.webservice.core.ZenodoDoiRequest.findInterrupted", query = "SELECT r.id FROM ZenodoDoiRequest r WHERE r.state <> :done AND r.error IS NULL")
+})
+public class ZenodoDoiRequest {
+
+    @Id
+    @Column
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(nullable = false, unique = true)
+    private long workflowVersionId;
+
+    @Column(nullable = false)
+    private long workflowId;
+
+    @Column(nullable = false)
+    private long userId;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private State state = State.REQUESTED;
+
+    @Column
+    private Integer depositionId;
+
+    @Column
+    private String doiAlias;
+
+    @Column
+    private String doiUrl;
+
+    @Column
+    private String conceptDoi;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    @Column(updatable = false)
+    @CreationTimestamp
+    private Timestamp dbCreateDate;
+
+    @Column
+    @UpdateTimestamp
+    private Timestamp dbUpdateDate;
+
+    public ZenodoDoiRequest() {
+
+    }
+
+    public ZenodoDoiRequest(long workflowId, long workflowVersionId, long userId) {
+        this.workflowId = workflowId;
+        this.workflowVersionId = workflowVersionId;
+        this.userId = userId;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getWorkflowVersionId() {
+        return workflowVersionId;
+    }
+
+    public long getWorkflowId() {
+        return workflowId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    /**
+     * The user who requested the DOI last, their Zenodo account is used for the remaining steps
+     */
+    public void setUserId(long userId) {
+        this.userId = userId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public Integer getDepositionId() {
+        return depositionId;
+    }
+
+    public void setDepositionId(Integer depositionId) {
+        this.depositionId = depositionId;
+    }
+
+    public String getDoiAlias() {
+        return doiAlias;
+    }
+
+    public void setDoiAlias(String doiAlias) {
+        this.doiAlias = doiAlias;
+    }
+
+    public String getDoiUrl() {
+        return doiUrl;
+    }
+
+    public void setDoiUrl(String doiUrl) {
+        this.doiUrl = doiUrl;
+    }
+
+    public String getConceptDoi() {
+        return conceptDoi;
+    }
+
+    public void setConceptDoi(String conceptDoi) {
+        this.conceptDoi = conceptDoi;
+    }
+
+    /**
+     * @return why the last attempt stopped, null while the request is being worked on or once it is done
+     */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    /**
+     * Forgets the previous DOI, to request a new one from the first step
+     * @param requesterId the user who requested the DOI again
+     */
+    public void restart(long requesterId) {
+        this.userId = requesterId;
+        this.state = State.REQUESTED;
+        this.depositionId = null;
+        this.doiAlias = null;
+        this.doiUrl = null;
+        this.conceptDoi = null;
+        this.error = null;
+    }
+
+    /**
+     * The steps of minting a DOI, each one is the last step that completed
+     */
+    public enum State {
+        /**
+         * Nothing has been done on Zenodo yet
+         */
+        REQUESTED,
+        /**
+         * Zenodo has been asked for a draft deposition, whose id is recorded here as soon as Zenodo returns it
+         */
+        DRAFTING,
+        /**
+         * A draft deposition exists and its DOI is reserved
+         */
+        DRAFTED,
+        /**
+         * The source files of the version are the only files of the draft
+         */
+        FILES_UPLOADED,
+        /**
+         * The deposition is published, so the DOI is registered
+         */
+        PUBLISHED,
+        /**
+         * The version has the DOI and its alias, so the request is done
+         */
+        ALIASED
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.core.database;
+
+import io.dockstore.common.EntryType;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.swagger.annotations.ApiModelProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.apache.http.HttpStatus;
+
+/**
+ * An entry of a user with only what dashboards show, selected for all entry types in one statement by UserDAO.findDashboardEntries()
+ */
+@Schema(name = "DashboardEntry", description = "An entry of a user with only what dashboards show")
+public class DashboardEntry {
+    private static final String CURSOR_SEPARATOR = "_";
+
+    private final long id;
+    private final EntryType entryType;
+    private final String path;
+    private final boolean published;
+    @ApiModelProperty(dataType = "long")
+    @Schema(type = "integer", format = "int64")
+    private final Timestamp lastUpdated;
+
+    public DashboardEntry(long id, EntryType entryType, String path, boolean published, Timestamp lastUpdated) {
+        this.id = id;
+        this.entryType = entryType;
+        this.path = path;
+        this.published = published;
+        this.lastUpdated = lastUpdated;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public EntryType getEntryType() {
+        return entryType;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the path without the registry or source control and the namespace or organization
+     */
+    public String getPrettyPath() {
+        List<String> pathElements = Arrays.asList(path.split("/"));
+        return String.join("/", pathElements.subList(2, pathElements.size()));
+    }
+
+    public boolean isPublished() {
+        return published;
+    }
+
+    public Date getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * @return a cursor for the entries after this one, in the order of the dashboards
+     */
+    public String cursor() {
+        return lastUpdated.toInstant() + CURSOR_SEPARATOR + id;
+    }
+
+    /**
+     * Where a page of entries starts
+     */
+    public static final class Cursor {
+        private final Timestamp lastUpdated;
+        private final long id;
+
+        private Cursor(Timestamp lastUpdated, long id) {
+            this.lastUpdated = lastUpdated;
+            this.id = id;
+        }
+
+        /**
+         * @param cursor a cursor from {@link DashboardEntry#cursor()}
+         * @return the parsed cursor
+         */
+        public static Cursor parse(String cursor) {
+            final int separator = cursor.lastIndexOf(CURSOR_SEPARATOR);
+            try {
+                return new Cursor(Timestamp.from(Instant.parse(cursor.substring(0, separator))), Long.parseLong(cursor.substring(separator + 1)));
+            } catch (DateTimeParseException | IndexOutOfBoundsException | NumberFormatException e) {
+                throw new CustomWebApplicationException("Invalid cursor: " + cursor, HttpStatus.SC_BAD_REQUEST);
+            }
+        }
+
+        public Timestamp getLastUpdated() {
+            return lastUpdated;
+        }
+
+        public long getId() {
+            return id;
+        }
+    }
+}
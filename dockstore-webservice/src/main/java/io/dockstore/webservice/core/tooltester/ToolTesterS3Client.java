@@ -18,15 +18,20 @@
 
 package io.dockstore.webservice.core.tooltester;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
 import org.apache.commons.io.IOUtils;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.regions.Region;
@@ -35,10 +40,12 @@ import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
-import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.S3Object;
 
 /**
+ * Reads ToolTester logs from S3. One instance is meant to be shared, it holds the S3 client and its connection pool,
+ * and an index of the logs of each tool version so that searching for logs does not list S3 every time.
+ *
  * @author gluu
  * @since 24/04/19
  */
@@ -46,13 +53,24 @@ public class ToolTesterS3Client {
     private static final int MAX_TOOL_ID_STRING_SEGMENTS = 5;
     private static final int TOOL_ID_REPOSITORY_INDEX = 3;
     private static final int TOOL_ID_TOOLNAME_INDEX = 4;
+    // the key of a log below its tool version is the test file path, the runner and the file name
+    private static final int LOG_KEY_SEGMENTS = 3;
+    private static final int MAX_INDEXED_VERSIONS = 1000;
+    // ToolTester adds logs as it runs, so the index of a version is only kept for a while
+    private static final Duration LOG_INDEX_EXPIRY = Duration.ofMinutes(5);
     private final S3Client s3;
     private final String bucketName;
+    private final LoadingCache<LogIndexKey, List<ToolTesterLog>> logIndex;
 
     public ToolTesterS3Client(String bucketName) {
-        this.bucketName = bucketName;
         //TODO should not need to hardcode region since buckets are global, but http://opensourceforgeeks.blogspot.com/2018/07/how-to-fix-unable-to-find-region-via.html
-        this.s3 = S3Client.builder().region(Region.US_EAST_1).build();
+        this(S3Client.builder().region(Region.US_EAST_1).build(), bucketName);
+    }
+
+    public ToolTesterS3Client(S3Client s3, String bucketName) {
+        this.s3 = s3;
+        this.bucketName = bucketName;
+        this.logIndex = Caffeine.newBuilder().maximumSize(MAX_INDEXED_VERSIONS).expireAfterWrite(LOG_INDEX_EXPIRY).build(this::listToolTesterLogs);
     }
 
     /**
@@ -117,22 +135,87 @@ public class ToolTesterS3Client {
 
     public String getToolTesterLog(String toolId, String versionName, String testFilePath, String runner, String filename)
             throws IOException {
-        String key = generateKey(toolId, versionName, testFilePath, runner, filename);
-        GetObjectRequest request = GetObjectRequest.builder().bucket(bucketName).key(key).build();
-        ResponseInputStream<GetObjectResponse> object = s3.getObject(request);
-        return IOUtils.toString(object, StandardCharsets.UTF_8);
+        try (ResponseInputStream<GetObjectResponse> object = getToolTesterLogStream(toolId, versionName, testFilePath, runner, filename, null)) {
+            return IOUtils.toString(object, StandardCharsets.UTF_8);
+        }
+    }
 
+    /**
+     * Opens a log, or part of it, without reading it, so that it can be streamed to the client
+     *
+     * @param range an HTTP range of bytes of the log, e.g. "bytes=0-1023", or null for all of it
+     * @return the log, to close once read. Its response has the content range and length of what is returned.
+     */
+    public ResponseInputStream<GetObjectResponse> getToolTesterLogStream(String toolId, String versionName, String testFilePath, String runner, String filename,
+            String range) throws UnsupportedEncodingException {
+        String key = generateKey(toolId, versionName, testFilePath, runner, filename);
+        GetObjectRequest request = GetObjectRequest.builder().bucket(bucketName).key(key).range(range).build();
+        return s3.getObject(request);
     }
 
     public List<ToolTesterLog> getToolTesterLogs(String toolId, String toolVersionName) throws UnsupportedEncodingException {
-        String key = convertToolIdToPartialKey(toolId) + "/" + URLEncoder.encode(toolVersionName, StandardCharsets.UTF_8.name());
-        ListObjectsV2Request request = ListObjectsV2Request.builder().bucket(bucketName).prefix(key).build();
-        ListObjectsV2Response listObjectsV2Response = s3.listObjectsV2(request);
-        List<S3Object> contents = listObjectsV2Response.contents();
-        return contents.stream().map(s3Object -> {
-            HeadObjectRequest build = HeadObjectRequest.builder().bucket(bucketName).key(s3Object.key()).build();
-            Map<String, String> metadata = s3.headObject(build).metadata();
-            return convertUserMetadataToToolTesterLog(metadata, s3Object.key());
-        }).collect(Collectors.toList());
+        try {
+            return logIndex.get(new LogIndexKey(toolId, toolVersionName));
+        } catch (UncheckedIOException e) {
+            throw (UnsupportedEncodingException) e.getCause();
+        }
+    }
+
+    /**
+     * Lists the logs of a tool version, one page of keys at a time. Which log a key is for is read from the key
+     * itself, only keys that are not laid out like ToolTester's need their metadata read.
+     */
+    private List<ToolTesterLog> listToolTesterLogs(LogIndexKey logIndexKey) {
+        final String prefix;
+        try {
+            // the trailing slash keeps the logs of other versions that start with this version name out
+            prefix = convertToolIdToPartialKey(logIndexKey.toolId) + "/" + URLEncoder.encode(logIndexKey.toolVersionName, StandardCharsets.UTF_8.name()) + "/";
+        } catch (UnsupportedEncodingException e) {
+            throw new UncheckedIOException(e);
+        }
+        ListObjectsV2Request request = ListObjectsV2Request.builder().bucket(bucketName).prefix(prefix).build();
+        List<ToolTesterLog> logs = new ArrayList<>();
+        for (S3Object s3Object : s3.listObjectsV2Paginator(request).contents()) {
+            String[] segments = s3Object.key().substring(prefix.length()).split("/");
+            if (segments.length == LOG_KEY_SEGMENTS) {
+                String testFilename = URLDecoder.decode(segments[0], StandardCharsets.UTF_8);
+                logs.add(new ToolTesterLog(logIndexKey.toolId, logIndexKey.toolVersionName, testFilename, segments[1], ToolTesterLogType.FULL, s3Object.key()));
+            } else {
+                HeadObjectRequest build = HeadObjectRequest.builder().bucket(bucketName).key(s3Object.key()).build();
+                Map<String, String> metadata = s3.headObject(build).metadata();
+                logs.add(convertUserMetadataToToolTesterLog(metadata, s3Object.key()));
+            }
+        }
+        return List.copyOf(logs);
+    }
+
+    /**
+     * The logs of a tool version are indexed together
+     */
+    private static final class LogIndexKey {
+        private final String toolId;
+        private final String toolVersionName;
+
+        private LogIndexKey(String toolId, String toolVersionName) {
+            this.toolId = toolId;
+            this.toolVersionName = toolVersionName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            LogIndexKey that = (LogIndexKey) o;
+            return toolId.equals(that.toolId) && toolVersionName.equals(that.toolVersionName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(toolId, toolVersionName);
+        }
     }
 }
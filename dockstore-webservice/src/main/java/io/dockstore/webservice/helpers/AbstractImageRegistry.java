@@ -47,10 +47,8 @@ import io.dockstore.webservice.jdbi.ToolDAO;
 import io.dockstore.webservice.jdbi.UserDAO;
 import io.dockstore.webservice.languages.LanguageHandlerFactory;
 import io.dockstore.webservice.languages.LanguageHandlerInterface;
-import java.io.IOException;
+import io.dockstore.webservice.languages.LanguageValidationEngine;
 import java.lang.reflect.Type;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -64,9 +62,10 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 import javax.validation.constraints.NotNull;
-import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,6 +81,8 @@ public abstract class AbstractImageRegistry {
     private static final Logger LOG = LoggerFactory.getLogger(AbstractImageRegistry.class);
     private static final String GITLAB_URL = "https://gitlab.com/api/v4/";
     private static final String SHA_TYPE_FOR_SOURCEFILES = "SHA-1";
+    private static final Gson GSON = new Gson();
+    private static final Gson GITLAB_GSON = new GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").create();
 
 
     /**
@@ -186,20 +187,36 @@ public abstract class AbstractImageRegistry {
         List<Tool> newDBTools = updateTools(apiTools, notManualTools, user, toolDAO);
         setTopic(newDBTools, githubToken);
 
-        // Get tags and update for each tool
-        for (Tool tool : newDBTools) {
+        // Get tags for all tools at once, then update each tool
+        List<CompletableFuture<List<Tag>>> tags = RegistryRefreshExecutor.getTags(newDBTools, this::getTags);
+        for (int i = 0; i < newDBTools.size(); i++) {
+            Tool tool = newDBTools.get(i);
             logToolRefresh(dashboardPrefix, tool);
 
-            List<Tag> toolTags = getTags(tool);
+            List<Tag> toolTags = join(tags.get(i));
             final SourceCodeRepoInterface sourceCodeRepo = SourceCodeRepoFactory
                 .createSourceCodeRepo(tool.getGitUrl(), bitbucketToken == null ? null : bitbucketToken.getContent(),
                     gitlabToken == null ? null : gitlabToken.getContent(), githubToken);
-            updateTags(toolTags, tool, sourceCodeRepo, tagDAO, fileDAO, toolDAO, fileFormatDAO, eventDAO, user);
+            updateTags(toolTags, tool, sourceCodeRepo, tagDAO, fileDAO, toolDAO, fileFormatDAO, eventDAO, user, true);
         }
 
         return newDBTools;
     }
 
+    /**
+     * @return the tags fetched for a tool, rethrowing what prevented fetching them
+     */
+    private static List<Tag> join(CompletableFuture<List<Tag>> tags) {
+        try {
+            return tags.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     private void setTopic(List<Tool> tools, Token githubToken) {
         TopicHarvester topicHarvester = new TopicHarvester(githubToken);
         tools.forEach(topicHarvester::harvestAndSetTopic);
@@ -240,16 +257,18 @@ public abstract class AbstractImageRegistry {
 
         List<String> exceptionMessages = new ArrayList<>();
 
-        // Get tags and update for each tool
-        for (Tool tool : newDBTools) {
+        // Get tags for all tools at once, then update each tool
+        List<CompletableFuture<List<Tag>>> tags = RegistryRefreshExecutor.getTags(newDBTools, this::getTags);
+        for (int i = 0; i < newDBTools.size(); i++) {
+            Tool tool = newDBTools.get(i);
             try {
                 logToolRefresh(dashboardPrefix, tool);
 
-                List<Tag> toolTags = getTags(tool);
+                List<Tag> toolTags = join(tags.get(i));
                 final SourceCodeRepoInterface sourceCodeRepo = SourceCodeRepoFactory
                     .createSourceCodeRepo(tool.getGitUrl(), bitbucketToken == null ? null : bitbucketToken.getContent(),
                         gitlabToken == null ? null : gitlabToken.getContent(), githubToken);
-                updateTags(toolTags, tool, sourceCodeRepo, tagDAO, fileDAO, toolDAO, fileFormatDAO, eventDAO, user);
+                updateTags(toolTags, tool, sourceCodeRepo, tagDAO, fileDAO, toolDAO, fileFormatDAO, eventDAO, user, true);
             } catch (Exception e) {
                 LOG.info(String.format("Refreshing %s error: %s", tool.getPath(), e));
                 exceptionMessages.add(String.format("Refreshing %s error: %s", tool.getPath(), e.getMessage()));
@@ -340,7 +359,7 @@ public abstract class AbstractImageRegistry {
             toolTags = getTags(tool);
         }
 
-        updateTags(toolTags, tool, sourceCodeRepoInterface, tagDAO, fileDAO, toolDAO, fileFormatDAO, eventDAO, user);
+        updateTags(toolTags, tool, sourceCodeRepoInterface, tagDAO, fileDAO, toolDAO, fileFormatDAO, eventDAO, user, false);
         Tool updatedTool = newDBTools.get(0);
 
         List<String> descriptorTypes = updatedTool.calculateDescriptorType();
@@ -393,17 +412,16 @@ public abstract class AbstractImageRegistry {
         DockerHubTag dockerHubTag;
 
         if (dockerHubResponse.isPresent()) {
-            Gson gson = new Gson();
             final String errorJSON = dockerHubResponse.get();
             final String manifestJSON = dockerHubResponse.get();
 
-            error = (Map<String, String>)gson.fromJson(errorJSON, error.getClass());
+            error = (Map<String, String>)GSON.fromJson(errorJSON, error.getClass());
             if (error.get("message") != null) {
                 LOG.info("Error response from DockerHub: " + error.get("message"));
                 return new ArrayList<>();
             }
 
-            dockerHubTag = gson.fromJson(manifestJSON, DockerHubTag.class);
+            dockerHubTag = GSON.fromJson(manifestJSON, DockerHubTag.class);
             Results[] results = dockerHubTag.getResults();
 
             try {
@@ -443,18 +461,7 @@ public abstract class AbstractImageRegistry {
 
     public static Optional<String> getDockerHubToolAsOptionalString(String repo) {
         final String repoUrl = DOCKERHUB_URL + "repositories/" + repo + "/tags";
-        Optional<String> response;
-        try {
-            URL url = new URL(repoUrl);
-            response = Optional.of(IOUtils.toString(url, StandardCharsets.UTF_8));
-            if (response.isPresent()) {
-                return response;
-            }
-
-        } catch (IOException ex) {
-            LOG.info("Unable to get DockerHub response for " + repo);
-        }
-        return Optional.empty();
+        return RegistryRefreshExecutor.getListing(Registry.DOCKER_HUB, repoUrl);
     }
 
 
@@ -467,10 +474,16 @@ public abstract class AbstractImageRegistry {
      * @param tagDAO
      * @param fileDAO
      * @param toolDAO
+     * @param skipUnchangedTags if true, do not load the files of tags that the registry and source control report no changes for
      */
     @SuppressWarnings("checkstyle:ParameterNumber")
     private void updateTags(List<Tag> newTags, @NotNull Tool tool, SourceCodeRepoInterface sourceCodeRepoInterface, final TagDAO tagDAO,
-        final FileDAO fileDAO, final ToolDAO toolDAO, final FileFormatDAO fileFormatDAO, final EventDAO eventDAO, final User user) {
+        final FileDAO fileDAO, final ToolDAO toolDAO, final FileFormatDAO fileFormatDAO, final EventDAO eventDAO, final User user,
+        final boolean skipUnchangedTags) {
+        // Remember what each tag looked like before, to tell which ones changed
+        final Map<String, String> fingerprints = skipUnchangedTags
+            ? tool.getWorkflowVersions().stream().collect(Collectors.toMap(Tag::getName, AbstractImageRegistry::fingerprint, (a, b) -> a))
+            : Collections.emptyMap();
         // Get all existing tags
         List<Tag> existingTags = new ArrayList<>(tool.getWorkflowVersions());
         if (tool.getMode() != ToolMode.MANUAL_IMAGE_PATH || (tool.getRegistry().equals(Registry.QUAY_IO.getDockerPath()) && existingTags.isEmpty())) {
@@ -580,39 +593,72 @@ public abstract class AbstractImageRegistry {
 
         // Now grab default/main tag to grab general information (defaults to github/bitbucket "main branch")
         if (sourceCodeRepoInterface != null) {
-            // Grab files for each version/tag and check if valid
-            Set<Tag> tags = tool.getWorkflowVersions();
-            for (Tag tag : tags) {
-                // check to see whether the commit id has changed
-
-                //TODO: calls validation eventually, may simplify if we take into account metadata parsing below
-                updateFiles(tool, tag, fileDAO, sourceCodeRepoInterface, sourceCodeRepoInterface.gitUsername);
-                // Grab and parse files to get tool information
-                // Add for new descriptor types
+            updateFilesAndMetadata(tool, sourceCodeRepoInterface, fileDAO, fingerprints);
+        }
+        FileFormatHelper.updateFileFormats(tool, tool.getWorkflowVersions(), fileFormatDAO);
+        // ensure updated tags are saved to the database, not sure why this is necessary. See GeneralIT#testImageIDUpdateDuringRefresh
+        tool.getWorkflowVersions().forEach(tagDAO::create);
+        toolDAO.create(tool);
+    }
+
+    /**
+     * Loads the files of each tag from source control and validates them, then updates the tool's metadata from its default version
+     */
+    private void updateFilesAndMetadata(Tool tool, SourceCodeRepoInterface sourceCodeRepoInterface, FileDAO fileDAO, Map<String, String> fingerprints) {
+        // Grab files for each version/tag and check if valid
+        Set<Tag> tags = tool.getWorkflowVersions();
+        for (Tag tag : tags) {
+            // check to see whether the commit id has changed
+            if (isUnchanged(tool, tag, fingerprints.get(tag.getName()), sourceCodeRepoInterface)) {
+                LOG.info(sourceCodeRepoInterface.gitUsername + " : Skipping unchanged tag {}", tag.getName());
+                continue;
             }
 
-            //TODO to parse metadata in WDL, there is a hidden dependency on validation now (validation does checks for things like recursive imports)
-            // this means that two paths need to pass data in the same way to avoid oddities like validation passing and metadata parsing crashing on an invalid parse tree
+            //TODO: calls validation eventually, may simplify if we take into account metadata parsing below
+            updateFiles(tool, tag, fileDAO, sourceCodeRepoInterface, sourceCodeRepoInterface.gitUsername);
+            // Grab and parse files to get tool information
+            // Add for new descriptor types
+        }
 
-            //Check if default version is set
-            // If not set or invalid, set tag of interest to tag stored in main tag
-            // If set and valid, set tag of interest to tag stored in default version
+        //TODO to parse metadata in WDL, there is a hidden dependency on validation now (validation does checks for things like recursive imports)
+        // this means that two paths need to pass data in the same way to avoid oddities like validation passing and metadata parsing crashing on an invalid parse tree
 
-            if (tool.getDefaultCwlPath() != null) {
-                LOG.info(tool.getToolPath() + " " + sourceCodeRepoInterface.gitUsername + " : Parsing CWL...");
-                sourceCodeRepoInterface.updateEntryMetadata(tool, DescriptorLanguage.CWL);
-            }
+        //Check if default version is set
+        // If not set or invalid, set tag of interest to tag stored in main tag
+        // If set and valid, set tag of interest to tag stored in default version
 
-            if (tool.getDefaultWdlPath() != null) {
-                LOG.info(tool.getToolPath() + " " + sourceCodeRepoInterface.gitUsername + " : Parsing WDL...");
-                sourceCodeRepoInterface.updateEntryMetadata(tool, DescriptorLanguage.WDL);
-            }
+        if (tool.getDefaultCwlPath() != null) {
+            LOG.info(tool.getToolPath() + " " + sourceCodeRepoInterface.gitUsername + " : Parsing CWL...");
+            sourceCodeRepoInterface.updateEntryMetadata(tool, DescriptorLanguage.CWL);
+        }
 
+        if (tool.getDefaultWdlPath() != null) {
+            LOG.info(tool.getToolPath() + " " + sourceCodeRepoInterface.gitUsername + " : Parsing WDL...");
+            sourceCodeRepoInterface.updateEntryMetadata(tool, DescriptorLanguage.WDL);
         }
-        FileFormatHelper.updateFileFormats(tool, tool.getWorkflowVersions(), fileFormatDAO, true);
-        // ensure updated tags are saved to the database, not sure why this is necessary. See GeneralIT#testImageIDUpdateDuringRefresh
-        tool.getWorkflowVersions().forEach(tagDAO::create);
-        toolDAO.create(tool);
+    }
+
+    /**
+     * Summarizes what loading the files of a tag depends on, other than the contents of its git reference
+     * @param tag a tag
+     * @return the summary
+     */
+    static String fingerprint(Tag tag) {
+        final String images = tag.getImages().stream().flatMap(image -> image.getChecksums().stream()).map(Checksum::toString).sorted()
+            .collect(Collectors.joining(","));
+        final String files = tag.getSourceFiles().stream().map(file -> file.getType() + ":" + file.getPath()).sorted()
+            .collect(Collectors.joining(","));
+        return String.join("|", tag.getReference(), tag.getCwlPath(), tag.getWdlPath(), tag.getDockerfilePath(), images, files);
+    }
+
+    /**
+     * A tag is unchanged if it is summarized the same as before the refresh, has files, and its git reference still points at the same commit
+     */
+    static boolean isUnchanged(Tool tool, Tag tag, String fingerprint, SourceCodeRepoInterface sourceCodeRepo) {
+        if (fingerprint == null || tag.getCommitID() == null || tag.getSourceFiles().isEmpty() || !fingerprint.equals(fingerprint(tag))) {
+            return false;
+        }
+        return tag.getCommitID().equals(sourceCodeRepo.getCommitID(sourceCodeRepo.getRepositoryId(tool), tag));
     }
 
     private void deleteToolWithNoUsers(@NotNull Tool tool, List<Tag> toDelete) {
@@ -653,56 +699,46 @@ public abstract class AbstractImageRegistry {
         final String repo = tool.getNamespace() + "%2F" + tool.getName();
         final String projectPath = GITLAB_URL + "projects/" + repo + "/registry/repositories";
         final List<Tag> tags = new ArrayList<>();
-        Optional<String> projectResponse;
-
-        try {
-            URL projectURL = new URL(projectPath);
-            projectResponse = Optional.of(IOUtils.toString(projectURL, StandardCharsets.UTF_8));
-
-            if (projectResponse.isPresent()) {
-                final String projectJSON = projectResponse.get();
-                Gson gson = new GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").create();
-                Type gitLabContainerRegistryListType = new TypeToken<ArrayList<GitLabContainerRegistry>>() { }.getType();
-                List<GitLabContainerRegistry> registries = gson.fromJson(projectJSON, gitLabContainerRegistryListType);
-
-                final String tagsListPath = projectPath + '/' + registries.get(0).getId() + '/' + "tags";
-                URL tagsListURL = new URL(tagsListPath);
-                Optional<String> tagsListResponse = Optional.of(IOUtils.toString(tagsListURL, StandardCharsets.UTF_8));
-
-                if (tagsListResponse.isPresent()) {
-                    String tagsListJSON = tagsListResponse.get();
-                    Type gitLabTagType = new TypeToken<ArrayList<GitLabTag>>() { }.getType();
-                    List<GitLabTag> gitLabTags = gson.fromJson(tagsListJSON, gitLabTagType);
-
-                    try {
-                        for (GitLabTag gitLabTag : gitLabTags) {
-                            final String detailedTagInfoUrlString = tagsListPath + '/' + gitLabTag.getName();
-                            URL detailedTagInfoURL = new URL(detailedTagInfoUrlString);
-                            Optional<String> detailedTagInfoResponse = Optional.of(IOUtils.toString(detailedTagInfoURL, StandardCharsets.UTF_8));
-
-                            if (detailedTagInfoResponse.isPresent()) {
-                                final String detailedTagInfoJSON = detailedTagInfoResponse.get();
-                                gitLabTag = gson.fromJson(detailedTagInfoJSON, GitLabTag.class);
-                                final Tag tag = new Tag();
-                                tag.setName(gitLabTag.getName());
-                                final String manifestDigest = gitLabTag.getDigest();
-                                List<Checksum> checksums = new ArrayList<>();
-
-                                checksums.add(new Checksum(manifestDigest.split(":")[0], manifestDigest.split(":")[1]));
-                                tag.getImages().add(new Image(checksums, tool.getNamespace() + '/' + tool.getName(), tag.getName(), null, Registry.GITLAB, gitLabTag.getTotalSize(), gitLabTag.getCreatedAt()));
-                                tags.add(tag);
-                            }
+        Optional<String> projectResponse = RegistryRefreshExecutor.getListing(Registry.GITLAB, projectPath);
+
+        if (projectResponse.isPresent()) {
+            final String projectJSON = projectResponse.get();
+            Type gitLabContainerRegistryListType = new TypeToken<ArrayList<GitLabContainerRegistry>>() { }.getType();
+            List<GitLabContainerRegistry> registries = GITLAB_GSON.fromJson(projectJSON, gitLabContainerRegistryListType);
+
+            final String tagsListPath = projectPath + '/' + registries.get(0).getId() + '/' + "tags";
+            Optional<String> tagsListResponse = RegistryRefreshExecutor.getListing(Registry.GITLAB, tagsListPath);
+
+            if (tagsListResponse.isPresent()) {
+                String tagsListJSON = tagsListResponse.get();
+                Type gitLabTagType = new TypeToken<ArrayList<GitLabTag>>() { }.getType();
+                List<GitLabTag> gitLabTags = GITLAB_GSON.fromJson(tagsListJSON, gitLabTagType);
+
+                try {
+                    for (GitLabTag gitLabTag : gitLabTags) {
+                        final String detailedTagInfoUrlString = tagsListPath + '/' + gitLabTag.getName();
+                        Optional<String> detailedTagInfoResponse = RegistryRefreshExecutor.getListing(Registry.GITLAB, detailedTagInfoUrlString);
+
+                        if (detailedTagInfoResponse.isPresent()) {
+                            final String detailedTagInfoJSON = detailedTagInfoResponse.get();
+                            gitLabTag = GITLAB_GSON.fromJson(detailedTagInfoJSON, GitLabTag.class);
+                            final Tag tag = new Tag();
+                            tag.setName(gitLabTag.getName());
+                            final String manifestDigest = gitLabTag.getDigest();
+                            List<Checksum> checksums = new ArrayList<>();
+
+                            checksums.add(new Checksum(manifestDigest.split(":")[0], manifestDigest.split(":")[1]));
+                            tag.getImages().add(new Image(checksums, tool.getNamespace() + '/' + tool.getName(), tag.getName(), null, Registry.GITLAB, gitLabTag.getTotalSize(), gitLabTag.getCreatedAt()));
+                            tags.add(tag);
                         }
-                    } catch (IndexOutOfBoundsException | NullPointerException ex) {
-                        LOG.error("Unable to grab image and checksum information for" + tool.getNamespace() + '/' + tool.getName(), ex);
                     }
-                    return tags;
+                } catch (IndexOutOfBoundsException | NullPointerException ex) {
+                    LOG.error("Unable to grab image and checksum information for" + tool.getNamespace() + '/' + tool.getName(), ex);
                 }
-            } else {
-                LOG.info("Could not get response from GitLab");
+                return tags;
             }
-        } catch (IOException ex) {
-            LOG.error("Unable to get GitLab response for " + repo, ex);
+        } else {
+            LOG.info("Could not get response from GitLab");
         }
         return Collections.emptyList();
     }
@@ -856,8 +892,8 @@ public abstract class AbstractImageRegistry {
      * @return Validated tag
      */
     private Tag validateTagDescriptorType(Tag tag, DescriptorLanguage.FileType fileType, String primaryDescriptorPath) {
-        VersionTypeValidation isValidDescriptor = LanguageHandlerFactory.getInterface(fileType)
-                .validateToolSet(tag.getSourceFiles(), primaryDescriptorPath);
+        VersionTypeValidation isValidDescriptor = LanguageValidationEngine.timed(fileType, LanguageValidationEngine.TOOL_SET,
+            () -> LanguageHandlerFactory.getInterface(fileType).validateToolSet(tag.getSourceFiles(), primaryDescriptorPath));
         Validation descriptorValidation = new Validation(fileType, isValidDescriptor);
         tag.addOrUpdateValidation(descriptorValidation);
 
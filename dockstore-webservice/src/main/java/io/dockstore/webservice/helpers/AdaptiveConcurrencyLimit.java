@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many calls are made to a backend at once, and adapts the limit to how the backend copes, like TCP congestion control.
+ *
+ * <p>A call that fails because the backend is overloaded, or that takes longer than the target latency, cuts the limit by 10%. A call
+ * that succeeds while at least half of the limit is in use raises it by one, up to the configured maximum. A call that cannot start
+ * is rejected rather than queued, so that callers can tell their clients to retry later.
+ */
+public final class AdaptiveConcurrencyLimit {
+
+    private static final int MIN_LIMIT = 1;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private double limit;
+    private int inFlight = 0;
+
+    /**
+     * @param maxLimit the most calls at once, and the starting limit
+     * @param targetLatencyMillis calls slower than this lower the limit
+     */
+    public AdaptiveConcurrencyLimit(int maxLimit, long targetLatencyMillis) {
+        this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.limit = this.maxLimit;
+    }
+
+    /**
+     * @return true if a call can start, in which case {@link #release(long, boolean)} must be called once it is done
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= getLimit()) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * @param latencyNanos how long the call took
+     * @param overloaded true if the call failed in a way that shows the backend is overloaded, such as a 429, a 503, or a timeout
+     */
+    public synchronized void release(long latencyNanos, boolean overloaded) {
+        final int inUse = inFlight;
+        inFlight--;
+        if (overloaded || latencyNanos > targetLatencyNanos) {
+            limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+        } else if (inUse * 2 >= getLimit()) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    public synchronized int getLimit() {
+        return (int)limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
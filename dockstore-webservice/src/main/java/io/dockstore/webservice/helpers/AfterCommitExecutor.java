@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the background work of a service on its executor, once the transaction of the current request has committed, and in sessions
+ * of its own.
+ *
+ * <p>Work that reads what a request wrote must not start before the request's transaction commits, or it may not see the writes, and
+ * must not run at all if the transaction rolls back. Work that runs after the request must not touch the request's session or
+ * entities either, so it opens its own session with {@link #inTransaction(Supplier)}.
+ */
+public final class AfterCommitExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AfterCommitExecutor.class);
+
+    private final ExecutorService executorService;
+    private final SessionFactory sessionFactory;
+
+    public AfterCommitExecutor(ExecutorService executorService, SessionFactory sessionFactory) {
+        this.executorService = executorService;
+        this.sessionFactory = sessionFactory;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    public SessionFactory getSessionFactory() {
+        return sessionFactory;
+    }
+
+    /**
+     * Runs the work on the executor
+     * @param work the work
+     * @return false if the executor is shutting down, and the work will not run
+     */
+    public boolean execute(Runnable work) {
+        try {
+            executorService.execute(work);
+            return true;
+        } catch (RejectedExecutionException e) {
+            LOG.info("Could not run background work while shutting down");
+            return false;
+        }
+    }
+
+    /**
+     * Runs the work on the executor once the current transaction has committed. Nothing runs if it rolls back.
+     * @param work the work
+     * @return false if there is no current transaction to wait for (e.g. in tests), and nothing will run
+     */
+    public boolean executeAfterCommit(Runnable work) {
+        return afterCommit(() -> execute(work));
+    }
+
+    /**
+     * Runs the callback on the thread that commits the current transaction, once it has committed. Nothing runs if it rolls back.
+     * The callback holds up the request, so it should only hand work off, like {@link #executeAfterCommit(Runnable)} does.
+     * @param callback the callback
+     * @return false if there is no current transaction to wait for (e.g. in tests), and nothing will run
+     */
+    public boolean afterCommit(Runnable callback) {
+        if (!ManagedSessionContext.hasBind(sessionFactory)) {
+            return false;
+        }
+        final AtomicBoolean completed = new AtomicBoolean(false);
+        sessionFactory.getCurrentSession().addEventListeners(new BaseSessionEventListener() {
+            @Override
+            public void transactionCompletion(boolean successful) {
+                // the session may run more transactions, only the one that was current matters
+                if (!completed.getAndSet(true) && successful) {
+                    callback.run();
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Runs the work in a transaction of a new session, which is the current session while the work runs, so that DAOs can be used
+     * @param work the work
+     * @param <T> the result type
+     * @return the result of the work, once it has committed
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        try (Session session = sessionFactory.openSession()) {
+            final Session previous = ManagedSessionContext.bind(session);
+            final Transaction transaction = session.beginTransaction();
+            try {
+                final T result = work.get();
+                transaction.commit();
+                return result;
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            } finally {
+                ManagedSessionContext.unbind(sessionFactory);
+                if (previous != null) {
+                    ManagedSessionContext.bind(previous);
+                }
+            }
+        }
+    }
+}
@@ -16,24 +16,14 @@
 
 package io.dockstore.webservice.helpers;
 
-import java.io.IOException;
 import java.net.MalformedURLException;
-import java.net.ProxySelector;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.URL;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
-import javax.ws.rs.core.UriBuilder;
+import java.util.concurrent.CompletableFuture;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
@@ -49,45 +39,6 @@ public final class CheckUrlHelper {
     }
 
 
-    private static Optional<Boolean> checkUrl(String url, String baseURL) {
-        HttpRequest request;
-        URI uri;
-        try {
-            uri = UriBuilder.fromUri(new URI(baseURL)).queryParam("url", url).build();
-        } catch (URISyntaxException e) {
-            return Optional.empty();
-        }
-        request = HttpRequest.newBuilder().uri(uri).GET().build();
-        try {
-            String s = HttpClient.newBuilder().proxy(ProxySelector.getDefault()).build().send(request,
-                HttpResponse.BodyHandlers.ofString()).body();
-            if ("{\"message\":true}".equals(s)) {
-                return Optional.of(true);
-            }
-            if ("{\"message\":false}".equals(s)) {
-                return Optional.of(false);
-            }
-            return Optional.empty();
-        } catch (IOException e) {
-            return Optional.empty();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return Optional.empty();
-        }
-    }
-
-    private static Optional<Boolean> checkUrls(Set<String> urls, String baseURL) {
-        List<Optional<Boolean>> objectStream = urls.parallelStream().map(url -> checkUrl(url, baseURL))
-            .collect(Collectors.toCollection(ArrayList::new));
-        if (objectStream.stream().anyMatch(urlStatus -> urlStatus.isPresent() && urlStatus.get().equals(false))) {
-            return Optional.of(false);
-        }
-        if (objectStream.stream().anyMatch(Optional::isEmpty)) {
-            return Optional.empty();
-        }
-        return Optional.of(true);
-    }
-
     /**
      * Get all the URLs from a JSON file.
      *
@@ -160,6 +111,17 @@ public final class CheckUrlHelper {
      * @return Whether the URLs of the JSON are publicly accessible
      */
     public static Optional<Boolean> checkTestParameterFile(String content, String baseURL, TestFileType fileType) {
+        return CheckUrlService.join(checkTestParameterFileAsync(content, baseURL, fileType));
+    }
+
+    /**
+     * Same as {@link #checkTestParameterFile(String, String, TestFileType)} without waiting for the CheckURL lambda
+     *
+     * @param content Contents of the test parameter file
+     * @param baseURL Base URL of the CheckURL lambda
+     * @return Whether the URLs of the JSON are publicly accessible
+     */
+    public static CompletableFuture<Optional<Boolean>> checkTestParameterFileAsync(String content, String baseURL, TestFileType fileType) {
         try {
             Set<String> urls;
             if (fileType == TestFileType.YAML) {
@@ -167,10 +129,10 @@ public final class CheckUrlHelper {
             } else {
                 urls = getUrlsFromJSON(content);
             }
-            return checkUrls(urls, baseURL);
+            return CheckUrlService.checkUrls(urls, baseURL);
         } catch (Exception e) {
             LOGGER.error("Could not parse test parameter file", e);
-            return Optional.empty();
+            return CompletableFuture.completedFuture(Optional.empty());
         }
     }
 
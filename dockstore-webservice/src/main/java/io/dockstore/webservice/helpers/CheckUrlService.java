@@ -0,0 +1,232 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.dockstore.common.DescriptorLanguage;
+import io.dockstore.webservice.core.SourceFile;
+import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.helpers.CheckUrlHelper.TestFileType;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import javax.ws.rs.core.UriBuilder;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks whether the URLs in test parameter files are publicly accessible by asking the CheckUrl lambda.
+ *
+ * <p>All checks share one asynchronous HTTP client that runs on a dedicated bounded executor, so checks never block request threads
+ * or the common fork join pool. The same public test data URLs show up in thousands of versions, so definite answers are cached per
+ * URL for a configurable time; "don't know" answers are not cached.
+ *
+ * <p>Until {@link #init(ExecutorService, SessionFactory, Duration)} is called (e.g. in tests) the JDK default executor is used and
+ * nothing is cached.
+ */
+public final class CheckUrlService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CheckUrlService.class);
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static HttpClient httpClient = newHttpClient(null);
+    private static AfterCommitExecutor afterCommitExecutor = null;
+    private static AsyncCache<Pair<String, String>, Boolean> urlCache = null;
+
+    private CheckUrlService() {
+        // hide the constructor for utility classes
+    }
+
+    public static void init(ExecutorService executor, SessionFactory factory, Duration cacheTimeToLive) {
+        afterCommitExecutor = new AfterCommitExecutor(executor, factory);
+        httpClient = newHttpClient(executor);
+        urlCache = cacheTimeToLive.isZero() ? null : Caffeine.newBuilder().expireAfterWrite(cacheTimeToLive).executor(executor).buildAsync();
+    }
+
+    private static HttpClient newHttpClient(ExecutorService executor) {
+        HttpClient.Builder builder = HttpClient.newBuilder().proxy(ProxySelector.getDefault()).connectTimeout(REQUEST_TIMEOUT);
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Asks the CheckUrl lambda whether a URL is publicly accessible
+     * @param url the URL to check
+     * @param baseURL base URL of the CheckUrl lambda
+     * @return true or false, null if the lambda could not tell
+     */
+    static CompletableFuture<Boolean> checkUrl(String url, String baseURL) {
+        if (urlCache == null) {
+            return requestCheckUrl(url, baseURL);
+        }
+        // a null result removes the entry so that "don't know" is asked again next time
+        return urlCache.get(ImmutablePair.of(baseURL, url), (key, executor) -> requestCheckUrl(url, baseURL));
+    }
+
+    private static CompletableFuture<Boolean> requestCheckUrl(String url, String baseURL) {
+        URI uri;
+        try {
+            uri = UriBuilder.fromUri(new URI(baseURL)).queryParam("url", url).build();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+        HttpRequest request = HttpRequest.newBuilder().uri(uri).timeout(REQUEST_TIMEOUT).GET().build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).handle((response, throwable) -> {
+            if (throwable != null) {
+                LOG.debug(String.format("Could not check URL: %s", url), throwable);
+                return null;
+            }
+            if ("{\"message\":true}".equals(response.body())) {
+                return true;
+            }
+            if ("{\"message\":false}".equals(response.body())) {
+                return false;
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Determines whether all the URLs are publicly accessible
+     * @param urls URLs to check
+     * @param baseURL base URL of the CheckUrl lambda
+     * @return false if at least one URL is not accessible, empty if at least one URL could not be checked, otherwise true
+     */
+    static CompletableFuture<Optional<Boolean>> checkUrls(Set<String> urls, String baseURL) {
+        List<CompletableFuture<Boolean>> checks = urls.stream().map(url -> checkUrl(url, baseURL)).collect(Collectors.toList());
+        return CompletableFuture.allOf(checks.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<Boolean> results = checks.stream().map(CompletableFuture::join).collect(Collectors.toList());
+            if (results.contains(false)) {
+                return Optional.of(false);
+            }
+            if (results.contains(null)) {
+                return Optional.empty();
+            }
+            return Optional.of(true);
+        });
+    }
+
+    /**
+     * Checks the test parameter files of a version.
+     * If at least one test parameter file is publicly accessible, then the result is true
+     * If there's 1+ test parameter file that is null but there's no false, then the result is null
+     * If there's 1+ test parameter file that is false, then the result is false
+     *
+     * @param sourceFiles files of the version, only test parameter files are checked
+     * @param baseURL base URL of the CheckUrl lambda
+     * @return whether the version has a publicly accessible test parameter file, null if unknown
+     */
+    public static CompletableFuture<Boolean> checkTestParameterFiles(Collection<SourceFile> sourceFiles, String baseURL) {
+        List<CompletableFuture<Optional<Boolean>>> checks = new ArrayList<>();
+        for (SourceFile sourceFile : sourceFiles) {
+            if (!sourceFile.getType().getCategory().equals(DescriptorLanguage.FileTypeCategory.TEST_FILE)) {
+                continue;
+            }
+            if (sourceFile.getAbsolutePath().endsWith(".json")) {
+                checks.add(CheckUrlHelper.checkTestParameterFileAsync(sourceFile.getContent(), baseURL, TestFileType.JSON));
+            } else if (sourceFile.getAbsolutePath().endsWith(".yaml") || sourceFile.getAbsolutePath().endsWith(".yml")) {
+                checks.add(CheckUrlHelper.checkTestParameterFileAsync(sourceFile.getContent(), baseURL, TestFileType.YAML));
+            }
+        }
+        return CompletableFuture.allOf(checks.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            // Do not care about null, it will never override a true/false
+            List<Boolean> results = checks.stream().map(CompletableFuture::join).flatMap(Optional::stream).collect(Collectors.toList());
+            if (results.contains(true)) {
+                return true;
+            }
+            return results.isEmpty() ? null : false;
+        });
+    }
+
+    /**
+     * Waits for a check started by this service
+     * @param check the pending check
+     * @param <T> result type
+     * @return the result of the check
+     */
+    public static <T> T join(CompletableFuture<T> check) {
+        try {
+            return check.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while checking URLs", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Once the current transaction has committed, checks the test parameter files of the version in the background and stores the
+     * result in its version metadata. Nothing is checked if the transaction rolls back.
+     *
+     * @param version Hibernate initialized version that is being saved, which already has its id
+     * @param baseURL base URL of the CheckUrl lambda
+     */
+    public static void updateAfterCommit(WorkflowVersion version, String baseURL) {
+        // copy what is needed now, the version must not be touched outside of its session
+        final long versionId = version.getId();
+        final List<SourceFile> testFiles = version.getSourceFiles().stream()
+            .filter(sourceFile -> sourceFile.getType().getCategory().equals(DescriptorLanguage.FileTypeCategory.TEST_FILE))
+            .map(CheckUrlService::copyOf).collect(Collectors.toList());
+        final boolean scheduled = afterCommitExecutor != null && afterCommitExecutor.executeAfterCommit(() -> checkTestParameterFiles(testFiles, baseURL)
+            .thenAccept(result -> storeResult(versionId, result))
+            .exceptionally(throwable -> {
+                LOG.error("Could not update publicly accessible test parameter file for version " + versionId, throwable);
+                return null;
+            }));
+        if (!scheduled) {
+            // no transaction to wait for, e.g. in tests
+            version.getVersionMetadata().setPublicAccessibleTestParameterFile(join(checkTestParameterFiles(testFiles, baseURL)));
+        }
+    }
+
+    private static SourceFile copyOf(SourceFile sourceFile) {
+        SourceFile copy = new SourceFile();
+        copy.setType(sourceFile.getType());
+        copy.setAbsolutePath(sourceFile.getAbsolutePath());
+        copy.setPath(sourceFile.getPath());
+        copy.setContent(sourceFile.getContent());
+        return copy;
+    }
+
+    private static void storeResult(long versionId, Boolean publicAccessibleTestParameterFile) {
+        afterCommitExecutor.inTransaction(() -> afterCommitExecutor.getSessionFactory().getCurrentSession()
+            .createNamedQuery("io.dockstore.webservice.core.VersionMetadata.updatePublicAccessibleTestParameterFile")
+            .setParameter("publicAccessibleTestParameterFile", publicAccessibleTestParameterFile).setParameter("id", versionId).executeUpdate());
+        LOG.debug("Version {} has publicly accessible test parameter file: {}", versionId, publicAccessibleTestParameterFile);
+    }
+}
@@ -19,6 +19,8 @@ package io.dockstore.webservice.helpers;
 import static io.dockstore.webservice.languages.LanguageHandlerInterface.formatImageInfo;
 import static io.dockstore.webservice.resources.ResourceConstants.JWT_SECURITY_DEFINITION_NAME;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.hash.Hashing;
 import com.google.gson.Gson;
 import io.dockstore.common.Registry;
@@ -35,6 +37,7 @@ import io.dockstore.webservice.languages.LanguageHandlerInterface;
 import java.io.IOException;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -55,6 +58,9 @@ public final class DockerRegistryAPIHelper {
     private static final Logger LOG = LoggerFactory.getLogger(DockerRegistryAPIHelper.class);
     private static final Gson GSON = new Gson();
     private static final OkHttpClient CLIENT = DockstoreWebserviceApplication.getOkHttpClient();
+    private static final int MAX_CACHED_TOKENS = 1000;
+    // anonymous pull tokens last for at least five minutes on the registries we support, reuse them for much less than that
+    private static final Cache<String, String> TOKENS = Caffeine.newBuilder().maximumSize(MAX_CACHED_TOKENS).expireAfterWrite(Duration.ofMinutes(1)).build();
 
     public static final String DOCKER_V2_IMAGE_MANIFEST_MEDIA_TYPE = "application/vnd.docker.distribution.manifest.v2+json";
     public static final String DOCKER_V2_IMAGE_MANIFEST_LIST_MEDIA_TYPE = "application/vnd.docker.distribution.manifest.list.v2+json";
@@ -212,6 +218,11 @@ public final class DockerRegistryAPIHelper {
      * @return token
      */
     public static Optional<String> getDockerToken(String registryDockerPath, String repo) {
+        // tags of the same repository are looked up one after the other, they can share a token
+        return Optional.ofNullable(TOKENS.get(registryDockerPath + ' ' + repo, key -> requestDockerToken(registryDockerPath, repo).orElse(null)));
+    }
+
+    private static Optional<String> requestDockerToken(String registryDockerPath, String repo) {
         String getTokenURL = String.format("https://%s/token?scope=repository:%s:pull&service=%s", registryDockerPath, repo, registryDockerPath);
         Request request = new Request.Builder().url(getTokenURL).build();
 
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.jetty9.InstrumentedQueuedThreadPool;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import io.dropwizard.server.DefaultServerFactory;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * Dropwizard's default server, whose Jetty threads are virtual threads once {@link VirtualThreads} are enabled. This is the server
+ * when the configuration does not give the server's type.
+ *
+ * <p>Jetty 9.4 has no support for virtual threads of its own, so its usual pool starts virtual threads instead of platform threads.
+ * The pool still bounds the threads to server.maxThreads, but idle virtual threads cost little, and a virtual thread blocked on
+ * outbound I/O gives its carrier thread back, so the bound can be far higher than with platform threads.
+ */
+@JsonTypeName("dockstore")
+public class DockstoreServerFactory extends DefaultServerFactory {
+
+    @Override
+    protected ThreadPool createThreadPool(MetricRegistry metricRegistry) {
+        if (!VirtualThreads.isEnabled()) {
+            return super.createThreadPool(metricRegistry);
+        }
+        final BlockingQueue<Runnable> queue = new BlockingArrayQueue<>(getMinThreads(), getMaxThreads(), getMaxQueuedRequests());
+        final VirtualThreadPool threadPool = new VirtualThreadPool(metricRegistry, getMaxThreads(), getMinThreads(),
+            (int)getIdleThreadTimeout().toMilliseconds(), queue);
+        threadPool.setName("dw");
+        return threadPool;
+    }
+
+    /**
+     * An instrumented Jetty pool of virtual threads
+     */
+    public static class VirtualThreadPool extends InstrumentedQueuedThreadPool {
+        private final ThreadFactory threadFactory = VirtualThreads.newThreadFactory("dw-virtual-");
+
+        public VirtualThreadPool(MetricRegistry metricRegistry, int maxThreads, int minThreads, int idleTimeout, BlockingQueue<Runnable> queue) {
+            super(metricRegistry, maxThreads, minThreads, idleTimeout, queue);
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            // virtual threads are always daemon threads, and their priority cannot be changed, so neither is set like Jetty does
+            return threadFactory.newThread(runnable);
+        }
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import static io.dockstore.webservice.helpers.statelisteners.ElasticListener.ALL_INDICES;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.ElasticSearchConfig;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentBufferEntity;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.util.SharedInputBuffer;
+import org.apache.http.nio.util.SimpleInputBuffer;
+import org.apache.http.protocol.HttpContext;
+import org.elasticsearch.client.Cancellable;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends searches to Elasticsearch, reusing the results of searches made before, and limiting how many are sent at once.
+ *
+ * <p>Search bodies are normalized, with the fields of every object sorted, so that the same search built by different clients shares
+ * one result. A result is reused until it expires, or until this webservice updates the index, which starts a new index generation.
+ * Results of searches sent shortly after an update are not kept, since Elasticsearch only shows an update once it refreshes the index.
+ * Searches without a body, like health checks, and results larger than the configured maximum, are never kept.
+ *
+ * <p>Results are streamed to the client as Elasticsearch sends them, only a small buffer of each is held in memory, and they are kept
+ * as a side effect of streaming them. Elasticsearch is only read from as fast as the client reads. Error responses are read in full,
+ * they are small. How many searches are sent to Elasticsearch at once is limited by an {@link AdaptiveConcurrencyLimit}; a search
+ * that hits the limit fails with a 429.
+ */
+public final class ElasticSearchGateway {
+
+    public static final int TOO_MANY_REQUESTS_429 = 429;
+    public static final String UNABLE_TO_USE_ES_MSG = "Could not use Elasticsearch search";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ElasticSearchGateway.class);
+    private static final int DEFAULT_MAX_CONCURRENT_SESSIONS = 15;
+    private static final int STREAM_BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_ERROR_BYTES = 1024 * 1024;
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    private static volatile ElasticSearchConfig config;
+    private static volatile AdaptiveConcurrencyLimit concurrencyLimit;
+    private static volatile Cache<String, byte[]> cache;
+    // searches sent before this System.nanoTime() may not see the latest update of the index
+    private static volatile long cacheableAfterNanos;
+
+    static {
+        init(new ElasticSearchConfig());
+    }
+
+    private ElasticSearchGateway() {
+        // hide the constructor for utility classes
+    }
+
+    public static synchronized void init(ElasticSearchConfig esConfig) {
+        config = esConfig;
+        final int maxConcurrentSessions = esConfig.getMaxConcurrentSessions() == null ? DEFAULT_MAX_CONCURRENT_SESSIONS : esConfig.getMaxConcurrentSessions();
+        concurrencyLimit = new AdaptiveConcurrencyLimit(maxConcurrentSessions, esConfig.getSearchTargetLatencyMillis());
+        cache = esConfig.getSearchCacheTimeToLiveSeconds() <= 0 ? null : Caffeine.newBuilder()
+            .maximumWeight(esConfig.getSearchCacheMaxBytes())
+            .weigher((String key, byte[] value) -> key.length() + value.length)
+            .expireAfterWrite(Duration.ofSeconds(esConfig.getSearchCacheTimeToLiveSeconds()))
+            .build();
+        cacheableAfterNanos = System.nanoTime();
+    }
+
+    /**
+     * Drops the results of every search made so far. Call after the index is updated.
+     */
+    public static void invalidate() {
+        GENERATION.incrementAndGet();
+        cacheableAfterNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getSearchCacheRefreshDelayMillis());
+        final Cache<String, byte[]> currentCache = cache;
+        if (currentCache != null) {
+            currentCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Searches every index
+     * @param query the search body, null to search without one
+     * @param parameters the query parameters of the search
+     * @return the result, as it is read
+     * @throws ResponseException if Elasticsearch rejects the search
+     * @throws IOException if Elasticsearch cannot be reached
+     */
+    public static InputStream search(String query, Map<String, String> parameters) throws IOException {
+        final Cache<String, byte[]> currentCache = cache;
+        final long generation = GENERATION.get();
+        final boolean cacheable = currentCache != null && System.nanoTime() - cacheableAfterNanos >= 0;
+        final String key = currentCache == null ? null : cacheKey(query, parameters, generation);
+        if (key != null) {
+            final byte[] cached = currentCache.getIfPresent(key);
+            if (cached != null) {
+                return new ByteArrayInputStream(cached);
+            }
+        }
+
+        final HttpEntity entity = send(query, parameters);
+        final long maxResponseBytes = config.getSearchCacheMaxResponseBytes();
+        if (key == null || !cacheable || entity.getContentLength() > maxResponseBytes) {
+            return entity.getContent();
+        }
+        return new CachingInputStream(entity.getContent(), maxResponseBytes, bytes -> {
+            // a search sent before an update could finish after it, and must not outlive it
+            if (GENERATION.get() == generation) {
+                currentCache.put(key, bytes);
+            }
+        });
+    }
+
+    public static int getConcurrencyLimit() {
+        return concurrencyLimit.getLimit();
+    }
+
+    private static HttpEntity send(String query, Map<String, String> parameters) throws IOException {
+        final AdaptiveConcurrencyLimit limit = concurrencyLimit;
+        if (!limit.tryAcquire()) {
+            LOG.error(UNABLE_TO_USE_ES_MSG + ": too many concurrent Elasticsearch requests.");
+            throw new CustomWebApplicationException(UNABLE_TO_USE_ES_MSG, TOO_MANY_REQUESTS_429);
+        }
+        // the permit is only held until Elasticsearch answers, not while the answer is streamed to the client
+        final long start = System.nanoTime();
+        boolean overloaded = true;
+        try {
+            // This should be using the high-level Elasticsearch client instead
+            final Request request = new Request("GET", "/" + ALL_INDICES + "/_search");
+            if (query != null) {
+                request.setJsonEntity(query);
+            }
+            request.addParameters(parameters);
+            // performRequest would only return once the whole result has been read into memory
+            final CompletableFuture<HttpResponse> answered = new CompletableFuture<>();
+            final RequestOptions.Builder options = request.getOptions().toBuilder();
+            options.setHttpAsyncResponseConsumerFactory(() -> new StreamingResponseConsumer(answered));
+            request.setOptions(options);
+            final Cancellable cancellable = ElasticSearchHelper.restClient().performRequestAsync(request, new ResponseListener() {
+                @Override
+                public void onSuccess(Response response) {
+                    // the answer was handed over when it started, this is when it has been streamed
+                }
+
+                @Override
+                public void onFailure(Exception exception) {
+                    answered.completeExceptionally(exception);
+                }
+            });
+            final HttpResponse response = await(answered, cancellable);
+            overloaded = false;
+            if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+                response.getEntity().getContent().close();
+                throw new CustomWebApplicationException("Could not search " + ALL_INDICES + "index", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+            }
+            return response.getEntity();
+        } catch (ResponseException e) {
+            final int statusCode = e.getResponse().getStatusLine().getStatusCode();
+            overloaded = statusCode == TOO_MANY_REQUESTS_429 || statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE;
+            throw e;
+        } finally {
+            limit.release(System.nanoTime() - start, overloaded);
+        }
+    }
+
+    private static HttpResponse await(CompletableFuture<HttpResponse> answered, Cancellable cancellable) throws IOException {
+        try {
+            return answered.get();
+        } catch (InterruptedException e) {
+            cancellable.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for Elasticsearch");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the key of a search's result, null if the result should not be kept
+     */
+    static String cacheKey(String query, Map<String, String> parameters, long generation) {
+        if (StringUtils.isBlank(query)) {
+            return null;
+        }
+        final String normalizedQuery;
+        try {
+            normalizedQuery = MAPPER.writeValueAsString(MAPPER.readValue(query, Object.class));
+        } catch (JsonProcessingException e) {
+            // let Elasticsearch report what is wrong with it
+            return null;
+        }
+        return generation + " " + new TreeMap<>(parameters) + " " + normalizedQuery;
+    }
+
+    /**
+     * Hands over a successful response as soon as its headers arrive, with an entity that reads the body as Elasticsearch sends it.
+     * While the buffer is full, Elasticsearch is not read from. Other responses are read in full first, the client turns them into a
+     * {@link ResponseException} once they have been.
+     */
+    private static final class StreamingResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+        private final CompletableFuture<HttpResponse> answered;
+        private HttpResponse response;
+        private SharedInputBuffer stream;
+        private SimpleInputBuffer errorBody;
+        private boolean completed = false;
+
+        StreamingResponseConsumer(CompletableFuture<HttpResponse> answered) {
+            this.answered = answered;
+        }
+
+        private boolean isSuccessful() {
+            final int statusCode = response.getStatusLine().getStatusCode();
+            return statusCode >= HttpStatus.SC_OK && statusCode < HttpStatus.SC_MULTIPLE_CHOICES;
+        }
+
+        @Override
+        protected void onResponseReceived(HttpResponse httpResponse) {
+            response = httpResponse;
+        }
+
+        @Override
+        protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) {
+            if (isSuccessful()) {
+                stream = new SharedInputBuffer(STREAM_BUFFER_BYTES) {
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        // e.g. InputStream.readNBytes ends with an empty read, which must not wait for the rest of the response
+                        return len == 0 ? 0 : super.read(b, off, len);
+                    }
+                };
+                response.setEntity(new ContentBufferEntity(entity, stream));
+                answered.complete(response);
+            } else {
+                errorBody = new SimpleInputBuffer(STREAM_BUFFER_BYTES);
+                response.setEntity(new ContentBufferEntity(entity, errorBody));
+            }
+        }
+
+        @Override
+        protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+            if (stream != null) {
+                stream.consumeContent(decoder, ioControl);
+            } else {
+                errorBody.consumeContent(decoder);
+                if (errorBody.length() > MAX_ERROR_BYTES) {
+                    throw new IOException("Elasticsearch answered with an error of more than " + MAX_ERROR_BYTES + " bytes");
+                }
+            }
+        }
+
+        @Override
+        protected HttpResponse buildResult(HttpContext context) {
+            completed = true;
+            if (isSuccessful()) {
+                // e.g. a response without a body
+                answered.complete(response);
+            }
+            return response;
+        }
+
+        @Override
+        protected void releaseResources() {
+            if (stream != null && !completed) {
+                // the response was cut short, the reader fails instead of waiting for the rest
+                stream.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Keeps a copy of what is read, and hands it over once the end is read, unless it grew too large to keep
+     */
+    private static final class CachingInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private final Consumer<byte[]> onEnd;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        CachingInputStream(InputStream in, long maxBytes, Consumer<byte[]> onEnd) {
+            super(in);
+            this.maxBytes = maxBytes;
+            this.onEnd = onEnd;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b < 0) {
+                end();
+            } else if (copy != null) {
+                copy.write(b);
+                checkSize();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int n = super.read(b, off, len);
+            if (n < 0) {
+                end();
+            } else if (copy != null) {
+                copy.write(b, off, n);
+                checkSize();
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // a partial copy is useless
+            copy = null;
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void checkSize() {
+            if (copy.size() > maxBytes) {
+                copy = null;
+            }
+        }
+
+        private void end() {
+            if (copy != null) {
+                final byte[] bytes = copy.toByteArray();
+                copy = null;
+                LOG.debug("Caching Elasticsearch search result of {} bytes", bytes.length);
+                onEnd.accept(bytes);
+            }
+        }
+    }
+}
@@ -370,29 +370,42 @@ public interface EntryVersionHelper<T extends Entry<T, U>, U extends Version, W
             sourceFiles.removeIf(sourceFile -> sourceFile.getContent() == null);
             // Write each sourcefile
             for (SourceFile sourceFile : sourceFiles) {
-                Path resolve = workingDirectory.resolve(sourceFile.getAbsolutePath());
-                File file = resolve.toFile();
-                String stripStart = removeWorkingDirectory(file.getPath(), file.getName());
-                ZipEntry secondaryZipEntry = new ZipEntry(stripStart);
-
-                // Deal with folders
-                Path filePath = Paths.get(stripStart).normalize();
-                if (filePath.getNameCount() > 1) {
-                    String parentPath = filePath.getParent().toString() + "/";
-                    if (!paths.contains(parentPath)) {
-                        zipOutputStream.putNextEntry(new ZipEntry(parentPath));
-                        zipOutputStream.closeEntry();
-                        paths.add(parentPath);
-                    }
-                }
-                zipOutputStream.putNextEntry(secondaryZipEntry);
-                zipOutputStream.write(sourceFile.getContent().getBytes(Charsets.UTF_8));
+                writeZipEntry(zipOutputStream, paths, workingDirectory, sourceFile.getAbsolutePath(), sourceFile.getContent());
             }
         } catch (IOException ex) {
             throw new CustomWebApplicationException("Could not create ZIP file", HttpStatus.SC_INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * Writes one file to a zip, preceded by an entry for its folder if the folder has not been written yet
+     * @param zipOutputStream zip being written
+     * @param paths folders written so far
+     * @param workingDirectory need a working directory to translate relative paths (which we store) to absolute paths
+     * @param absolutePath absolute path of the file
+     * @param content content of the file
+     */
+    static void writeZipEntry(ZipOutputStream zipOutputStream, List<String> paths, Path workingDirectory, String absolutePath, String content)
+        throws IOException {
+        Path resolve = workingDirectory.resolve(absolutePath);
+        File file = resolve.toFile();
+        String stripStart = removeWorkingDirectory(file.getPath(), file.getName());
+        ZipEntry secondaryZipEntry = new ZipEntry(stripStart);
+
+        // Deal with folders
+        Path filePath = Paths.get(stripStart).normalize();
+        if (filePath.getNameCount() > 1) {
+            String parentPath = filePath.getParent().toString() + "/";
+            if (!paths.contains(parentPath)) {
+                zipOutputStream.putNextEntry(new ZipEntry(parentPath));
+                zipOutputStream.closeEntry();
+                paths.add(parentPath);
+            }
+        }
+        zipOutputStream.putNextEntry(secondaryZipEntry);
+        zipOutputStream.write(content.getBytes(Charsets.UTF_8));
+    }
+
     static String generateZipFileName(String path, String versionName) {
         final String pathName = path.replaceAll("/", "-");
         return pathName + '-' + versionName + ".zip";
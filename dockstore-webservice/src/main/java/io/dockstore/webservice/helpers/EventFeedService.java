@@ -0,0 +1,172 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fans new events out to the feeds (the event_feed table) of the users that starred what the events act on.
+ *
+ * <p>Inserting an event queues its id in event_feed_pending (a database trigger does this, so every way of creating events is covered).
+ * Queued events are fanned out in batches on a single background thread, which is nudged once a transaction that created events
+ * commits and otherwise polls, e.g. for events created by other webservice instances. Batches are claimed with SKIP LOCKED, so several
+ * instances can drain the queue at the same time. Starring and unstarring update the feeds synchronously, also by triggers.
+ *
+ * <p>An event fanned out while a star is being committed is missed by both: the fan-out cannot see the star yet, and the star's trigger
+ * could not see the event. So the trigger also queues the star in event_feed_pending_star, and the star is checked again once it has
+ * committed. Until then, {@link io.dockstore.webservice.jdbi.EventDAO#findFeedEventIds} matches queued events against the stars of the
+ * reader, so feeds include new events right away.
+ *
+ * <p>Until {@link #init(ScheduledExecutorService, SessionFactory, Duration)} is called (e.g. in tests) events are only queued.
+ */
+public final class EventFeedService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventFeedService.class);
+
+    private static final int BATCH_SIZE = 100;
+    private static final String FEED_QUERY_SPACE = "event_feed";
+
+    private static final String CLAIM_BATCH = "delete from event_feed_pending where eventid in "
+        + "(select eventid from event_feed_pending order by eventid limit :limit for update skip locked) returning eventid";
+
+    private static final String FAN_OUT = "insert into event_feed (userid, eventid, starredentry, starredorganization) "
+        + "select userid, eventid, bool_or(starredentry), bool_or(starredorganization) from ("
+        + "select s.userid, e.id as eventid, true as starredentry, false as starredorganization "
+        + "from event e join starred s on s.entryid in (e.toolid, e.workflowid, e.apptoolid) where e.id in (:eventIds) "
+        + "union all "
+        + "select s.userid, e.id, false, true from event e join starred_organizations s on s.organizationid = e.organizationid where e.id in (:eventIds)"
+        + ") fanout group by userid, eventid "
+        + "on conflict (userid, eventid) do update set starredentry = event_feed.starredentry or excluded.starredentry, "
+        + "starredorganization = event_feed.starredorganization or excluded.starredorganization";
+
+    /**
+     * Adds the events of claimed stars that are still starred to the feeds, rows that are already right are not rewritten.
+     * Returns the number of claimed stars.
+     */
+    private static final String RECHECK_STARS = "with claimed as ("
+        + "delete from event_feed_pending_star where id in (select id from event_feed_pending_star order by id limit :limit for update skip locked) "
+        + "returning userid, entryid, organizationid), "
+        + "fanout as (insert into event_feed (userid, eventid, starredentry, starredorganization) "
+        + "select userid, eventid, bool_or(starredentry), bool_or(starredorganization) from ("
+        + "select c.userid, e.id as eventid, true as starredentry, false as starredorganization from claimed c "
+        + "join starred s on s.userid = c.userid and s.entryid = c.entryid join event e on c.entryid in (e.toolid, e.workflowid, e.apptoolid) "
+        + "union all "
+        + "select c.userid, e.id, false, true from claimed c "
+        + "join starred_organizations s on s.userid = c.userid and s.organizationid = c.organizationid join event e on e.organizationid = c.organizationid"
+        + ") recheck group by userid, eventid "
+        + "on conflict (userid, eventid) do update set starredentry = event_feed.starredentry or excluded.starredentry, "
+        + "starredorganization = event_feed.starredorganization or excluded.starredorganization "
+        + "where (excluded.starredentry and not event_feed.starredentry) or (excluded.starredorganization and not event_feed.starredorganization) "
+        + "returning 1) "
+        + "select count(*) from claimed";
+
+    private static final AtomicBoolean DRAIN_REQUESTED = new AtomicBoolean(false);
+
+    private static AfterCommitExecutor afterCommitExecutor = null;
+
+    private EventFeedService() {
+        // hide the constructor for utility classes
+    }
+
+    /**
+     * Starts draining the queue of events that are not in the feeds yet
+     * @param executor single threaded executor that the queue is drained on
+     * @param factory session factory
+     * @param pollInterval how often the queue is drained without being nudged
+     */
+    public static void init(ScheduledExecutorService executor, SessionFactory factory, Duration pollInterval) {
+        afterCommitExecutor = new AfterCommitExecutor(executor, factory);
+        executor.scheduleWithFixedDelay(EventFeedService::drainSafely, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Once the current transaction has committed, fans out the events and checks the stars it created without waiting for the next poll
+     */
+    public static void fanOutAfterCommit() {
+        if (afterCommitExecutor != null) {
+            afterCommitExecutor.afterCommit(EventFeedService::requestDrain);
+        }
+    }
+
+    private static void requestDrain() {
+        // coalesce nudges, a drain that has not started yet picks up everything committed so far
+        if (!DRAIN_REQUESTED.getAndSet(true) && !afterCommitExecutor.execute(EventFeedService::drainSafely)) {
+            // shutting down, whatever is left is drained by the next instance
+            DRAIN_REQUESTED.set(false);
+        }
+    }
+
+    private static void drainSafely() {
+        DRAIN_REQUESTED.set(false);
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            // keep the schedule going, the batch was rolled back and is retried
+            LOG.error("Could not fan out events to feeds", e);
+        }
+    }
+
+    /**
+     * Fans out queued events and checks queued stars until the queues are empty
+     * @return number of events fanned out
+     */
+    private static int drain() {
+        int total = 0;
+        int fannedOut;
+        do {
+            fannedOut = drainBatch();
+            total += fannedOut;
+        } while (fannedOut == BATCH_SIZE);
+        if (total > 0) {
+            LOG.debug("Fanned out {} events to feeds", total);
+        }
+        int checked;
+        do {
+            checked = recheckStars();
+        } while (checked == BATCH_SIZE);
+        return total;
+    }
+
+    private static int drainBatch() {
+        return afterCommitExecutor.inTransaction(() -> {
+            final Session session = afterCommitExecutor.getSessionFactory().getCurrentSession();
+            @SuppressWarnings("unchecked")
+            List<Number> claimed = session.createNativeQuery(CLAIM_BATCH).addSynchronizedQuerySpace(FEED_QUERY_SPACE)
+                .setParameter("limit", BATCH_SIZE).getResultList();
+            if (!claimed.isEmpty()) {
+                List<Long> eventIds = claimed.stream().map(Number::longValue).collect(Collectors.toList());
+                // the query space keeps Hibernate from evicting every second-level cache region after the native update
+                session.createNativeQuery(FAN_OUT).addSynchronizedQuerySpace(FEED_QUERY_SPACE).setParameterList("eventIds", eventIds).executeUpdate();
+            }
+            return claimed.size();
+        });
+    }
+
+    private static int recheckStars() {
+        return afterCommitExecutor.inTransaction(() -> ((Number)afterCommitExecutor.getSessionFactory().getCurrentSession().createNativeQuery(RECHECK_STARS)
+            .addSynchronizedQuerySpace(FEED_QUERY_SPACE).setParameter("limit", BATCH_SIZE).getSingleResult()).intValue());
+    }
+}
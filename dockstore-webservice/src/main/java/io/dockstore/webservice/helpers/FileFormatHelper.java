@@ -26,15 +26,13 @@ public final class FileFormatHelper {
     private FileFormatHelper() { }
 
     /**
-     * Updates the given tool/workflow to show which file formats are associated with its sourcefiles
+     * Updates the file formats of the given versions of a tool/workflow, and then the file formats of the tool/workflow itself.
+     * Frozen versions are skipped.
      * @param entry The tool or workflow to update
-     * @param versions  A tool/workflow's versions (tags/workflowVersions)
+     * @param versions  The tool/workflow's versions (tags/workflowVersions) whose files may have changed, all of them must belong to the entry
      * @param fileFormatDAO  The FileFormatDAO to check the FileFormat table
-     * @param updateAllVersions If updating all versions, then this will clear the entry's input/output formats and reset them. Otherwise it will only add the file formats
      */
-    public static void updateFileFormats(Entry entry, Set<? extends Version> versions, final FileFormatDAO fileFormatDAO, boolean updateAllVersions) {
-        SortedSet<FileFormat> entrysInputFileFormats = new TreeSet<>();
-        SortedSet<FileFormat> entrysOutputFileFormats = new TreeSet<>();
+    public static void updateFileFormats(Entry entry, Set<? extends Version> versions, final FileFormatDAO fileFormatDAO) {
         CWLHandler cwlHandler = new CWLHandler();
         versions.stream().filter(tag -> !((Version)tag).isFrozen()).forEach(tag -> {
             SortedSet<FileFormat> inputFileFormats = new TreeSet<>();
@@ -46,34 +44,29 @@ public final class FileFormatHelper {
                 inputFileFormats.addAll(cwlHandler.getFileFormats(cwlFile.getContent(), "inputs"));
                 outputFileFormats.addAll(cwlHandler.getFileFormats(cwlFile.getContent(), "outputs"));
             });
-            SortedSet<FileFormat> realInputFileFormats = getFileFormatsFromDatabase(fileFormatDAO, inputFileFormats);
-            SortedSet<FileFormat> realOutputFileFormats = getFileFormatsFromDatabase(fileFormatDAO, outputFileFormats);
-            tag.setInputFileFormats(realInputFileFormats);
-            tag.setOutputFileFormats(realOutputFileFormats);
-
-            entrysInputFileFormats.addAll(realInputFileFormats);
-            entrysOutputFileFormats.addAll(realOutputFileFormats);
+            // change the sets in place, so that only added and removed file formats are written
+            replaceFileFormats(tag.getInputFileFormats(), getFileFormatsFromDatabase(fileFormatDAO, inputFileFormats));
+            replaceFileFormats(tag.getOutputFileFormats(), getFileFormatsFromDatabase(fileFormatDAO, outputFileFormats));
         });
+        fileFormatDAO.flush();
+        updateEntryLevelFileFormats(entry, fileFormatDAO);
+    }
 
-        if (updateAllVersions) {
-            entry.getInputFileFormats().clear();
-            entry.getOutputFileFormats().clear();
-        }
-        entry.getInputFileFormats().addAll(entrysInputFileFormats);
-        entry.getOutputFileFormats().addAll(entrysOutputFileFormats);
+    /**
+     * Updates the given tool/workflow to show the file formats of all its versions. Database triggers keep count of how many versions of
+     * each entry have each file format, so this does not walk the versions. Versions that were added, changed or removed must have been
+     * flushed with {@link FileFormatDAO#flush()} first.
+     * @param entry The tool or workflow to update
+     * @param fileFormatDAO The FileFormatDAO to look up the file formats of the versions
+     */
+    public static void updateEntryLevelFileFormats(Entry entry, final FileFormatDAO fileFormatDAO) {
+        replaceFileFormats(entry.getInputFileFormats(), new TreeSet<>(fileFormatDAO.findEntryFileFormats(entry.getId(), false)));
+        replaceFileFormats(entry.getOutputFileFormats(), new TreeSet<>(fileFormatDAO.findEntryFileFormats(entry.getId(), true)));
     }
 
-    public static void updateEntryLevelFileFormats(Entry entry) {
-        SortedSet<FileFormat> entrysInputFileFormats = new TreeSet<>();
-        SortedSet<FileFormat> entrysOutputFileFormats = new TreeSet<>();
-        entry.getWorkflowVersions().stream().forEach(version -> {
-            entrysInputFileFormats.addAll(((Version)version).getInputFileFormats());
-            entrysOutputFileFormats.addAll(((Version)version).getOutputFileFormats());
-        });
-        entry.getInputFileFormats().clear();
-        entry.getInputFileFormats().addAll(entrysInputFileFormats);
-        entry.getOutputFileFormats().clear();
-        entry.getOutputFileFormats().addAll(entrysOutputFileFormats);
+    private static void replaceFileFormats(Set<FileFormat> fileFormats, SortedSet<FileFormat> newFileFormats) {
+        fileFormats.retainAll(newFileFormats);
+        fileFormats.addAll(newFileFormats);
     }
 
     /**
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.core.OrcidPutCode;
+import io.dockstore.webservice.core.Version;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.xml.bind.JAXBException;
+import javax.xml.datatype.DatatypeConfigurationException;
+import org.apache.http.HttpStatus;
+import org.orcid.jaxb.model.record.bulk.BulkElement;
+import org.orcid.jaxb.model.v3.release.error.OrcidError;
+import org.orcid.jaxb.model.v3.release.record.Work;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exports many entries and versions to a user's ORCID record at once. All works are rendered in one pass, works that
+ * are new to ORCID are created with ORCID's bulk endpoint, works that Dockstore already has put codes for are updated,
+ * and works that ORCID already has without Dockstore knowing their put codes are linked with one lookup of the user's works.
+ *
+ * The put codes are set on the entries and versions, so that the caller's transaction records all of them at once.
+ * A failure only affects the works it happened to, the put codes of the others are still recorded.
+ */
+public final class ORCIDBulkExport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ORCIDBulkExport.class);
+
+    private ORCIDBulkExport() {
+    }
+
+    /**
+     * @param orcidId the user's ORCID iD
+     * @param token the user's ORCID token, with the /activities/update scope
+     * @param userId the user's Dockstore id, whose put codes are recorded
+     * @param exports the entries and versions to export, each with a DOI
+     */
+    public static void export(String orcidId, String token, long userId, List<Export> exports) {
+        List<Export> creates = new ArrayList<>();
+        List<Export> updates = new ArrayList<>();
+        exports.forEach(export -> (export.getPutCode(userId) == null ? creates : updates).add(export));
+
+        try {
+            // A work deleted on ORCID keeps its put code in Dockstore, it has to be created again
+            for (Export export : updates) {
+                if (!update(orcidId, token, export, export.getPutCode(userId))) {
+                    LOG.info("Could not find ORCID work based on put code: {}", export.getPutCode(userId));
+                    export.setPutCode(userId, null);
+                    creates.add(export);
+                }
+            }
+
+            List<Export> conflicts = create(orcidId, token, userId, creates);
+
+            // The user already has ORCID works with the same DOIs, link them to Dockstore by their put codes
+            if (!conflicts.isEmpty()) {
+                Map<String, Long> putCodes = ORCIDHelper.getPutCodesByExternalId(orcidId, token);
+                for (Export export : conflicts) {
+                    Long putCode = putCodes.get(export.getDoi());
+                    if (putCode == null) {
+                        export.setError("Unable to find the put code for the existing ORCID work with DOI URL " + export.getDoi());
+                    } else {
+                        export.setPutCode(userId, putCode.toString());
+                        update(orcidId, token, export, putCode.toString());
+                    }
+                }
+            }
+        } catch (IOException | URISyntaxException | JAXBException e) {
+            LOG.error("Could not export to ORCID", e);
+            failRemaining(exports, "Could not export to ORCID: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failRemaining(exports, "Could not export to ORCID: " + e.getMessage());
+        } catch (CustomWebApplicationException e) {
+            failRemaining(exports, e.getErrorMessage());
+        }
+    }
+
+    /**
+     * Creates the works with as few requests as ORCID allows
+     * @return the exports that conflict with existing ORCID works
+     */
+    private static List<Export> create(String orcidId, String token, long userId, List<Export> creates)
+            throws IOException, URISyntaxException, InterruptedException, JAXBException {
+        List<Export> renderable = new ArrayList<>();
+        List<Work> works = new ArrayList<>();
+        for (Export export : creates) {
+            render(export, null).ifPresent(work -> {
+                renderable.add(export);
+                works.add(work);
+            });
+        }
+        List<Export> conflicts = new ArrayList<>();
+        if (works.isEmpty()) {
+            return conflicts;
+        }
+        List<BulkElement> results = ORCIDHelper.postWorks(orcidId, works, token);
+        for (int i = 0; i < results.size(); i++) {
+            Export export = renderable.get(i);
+            BulkElement result = results.get(i);
+            if (result instanceof Work) {
+                export.setPutCode(userId, ((Work) result).getPutCode().toString());
+            } else if (result instanceof OrcidError && ((OrcidError) result).getResponseCode() == HttpStatus.SC_CONFLICT) {
+                conflicts.add(export);
+            } else if (result instanceof OrcidError) {
+                export.setError("Could not export to ORCID: " + ((OrcidError) result).getDeveloperMessage());
+            } else {
+                export.setError("Could not export to ORCID: unexpected result " + result);
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * @return false if ORCID has no work with the put code
+     */
+    private static boolean update(String orcidId, String token, Export export, String putCode)
+            throws IOException, URISyntaxException, InterruptedException, JAXBException {
+        Optional<Work> work = render(export, putCode);
+        if (work.isEmpty()) {
+            // not rendering the work is an error of its own
+            return true;
+        }
+        HttpResponse<String> response = ORCIDHelper.putWorkString(orcidId, ORCIDHelper.transformWork(work.get()), token, putCode);
+        switch (response.statusCode()) {
+        case HttpStatus.SC_OK:
+            export.done = true;
+            return true;
+        case HttpStatus.SC_NOT_FOUND:
+            return false;
+        default:
+            export.setError("Could not export to ORCID: " + response.body());
+            return true;
+        }
+    }
+
+    private static Optional<Work> render(Export export, String putCode) {
+        try {
+            return Optional.of(ORCIDHelper.getOrcidWork(export.getEntry(), export.getVersion(), putCode));
+        } catch (DatatypeConfigurationException e) {
+            export.setError("Could not export to ORCID: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static void failRemaining(List<Export> exports, String error) {
+        exports.stream().filter(export -> !export.isDone()).forEach(export -> export.setError(error));
+    }
+
+    /**
+     * An entry, or a version of it, to export and how its export went
+     */
+    public static final class Export {
+        private final Entry<?, ?> entry;
+        private final Version version;
+        private boolean done;
+        private String error;
+
+        public Export(Entry<?, ?> entry, Version version) {
+            this.entry = entry;
+            this.version = version;
+        }
+
+        public Entry<?, ?> getEntry() {
+            return entry;
+        }
+
+        public Optional<Version> getVersion() {
+            return Optional.ofNullable(version);
+        }
+
+        public String getDoi() {
+            return version == null ? entry.getConceptDoi() : version.getDoiURL();
+        }
+
+        public String getPutCode(long userId) {
+            Map<Long, OrcidPutCode> putCodes = version == null ? entry.getUserIdToOrcidPutCode() : version.getVersionMetadata().getUserIdToOrcidPutCode();
+            OrcidPutCode putCode = putCodes.get(userId);
+            return putCode == null ? null : putCode.orcidPutCode;
+        }
+
+        void setPutCode(long userId, String putCode) {
+            OrcidPutCode orcidPutCode = new OrcidPutCode(putCode);
+            if (version == null) {
+                entry.getUserIdToOrcidPutCode().put(userId, orcidPutCode);
+            } else {
+                version.getVersionMetadata().getUserIdToOrcidPutCode().put(userId, orcidPutCode);
+            }
+            done = putCode != null;
+        }
+
+        /**
+         * @return why the entry or version could not be exported, null if it was
+         */
+        public String getError() {
+            return error;
+        }
+
+        void setError(String error) {
+            this.error = error;
+            done = true;
+        }
+
+        boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public String toString() {
+            return getVersion().map(v -> entry.getEntryPath() + ":" + v.getName()).orElse(entry.getEntryPath());
+        }
+    }
+}
@@ -22,9 +22,11 @@ import java.net.URL;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -41,17 +43,20 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
 import org.orcid.jaxb.model.common.Relationship;
 import org.orcid.jaxb.model.common.WorkType;
+import org.orcid.jaxb.model.record.bulk.BulkElement;
 import org.orcid.jaxb.model.v3.release.common.CreatedDate;
 import org.orcid.jaxb.model.v3.release.common.LastModifiedDate;
 import org.orcid.jaxb.model.v3.release.common.Title;
 import org.orcid.jaxb.model.v3.release.common.Url;
 import org.orcid.jaxb.model.v3.release.common.Visibility;
+import org.orcid.jaxb.model.v3.release.error.OrcidError;
 import org.orcid.jaxb.model.v3.release.record.Email;
 import org.orcid.jaxb.model.v3.release.record.ExternalID;
 import org.orcid.jaxb.model.v3.release.record.ExternalIDs;
 import org.orcid.jaxb.model.v3.release.record.Name;
 import org.orcid.jaxb.model.v3.release.record.Record;
 import org.orcid.jaxb.model.v3.release.record.Work;
+import org.orcid.jaxb.model.v3.release.record.WorkBulk;
 import org.orcid.jaxb.model.v3.release.record.WorkTitle;
 import org.orcid.jaxb.model.v3.release.record.summary.AffiliationGroup;
 import org.orcid.jaxb.model.v3.release.record.summary.EmploymentSummary;
@@ -69,6 +74,17 @@ public final class ORCIDHelper {
     private static final String ORCID_XML_CONTENT_TYPE = "application/vnd.orcid+xml";
     private static final ObjectMapper MAPPER = Jackson.newObjectMapper();
     private static final Pattern ORCID_ID_PATTERN = Pattern.compile("\\d{4}-\\d{4}-\\d{4}-\\d{4}"); // ex: 1234-1234-1234-1234
+    /**
+     * The most works ORCID accepts in one bulk request
+     */
+    public static final int MAX_BULK_WORKS = 100;
+    // One client for every ORCID call, so that connections to ORCID are pooled instead of opened for each request
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder().proxy(ProxySelector.getDefault()).build();
+    // Creating a JAXBContext is expensive, they are thread-safe so make them once
+    private static final JAXBContext WORK_CONTEXT = newJAXBContext(Work.class);
+    private static final JAXBContext WORK_BULK_CONTEXT = newJAXBContext(WorkBulk.class);
+    private static final JAXBContext WORKS_CONTEXT = newJAXBContext(Works.class);
+    private static final JAXBContext RECORD_CONTEXT = newJAXBContext(Record.class);
 
     private static String baseApiUrl; // baseApiUrl should result in something like "https://api.sandbox.orcid.org/v3.0/" or "https://api.orcid.org/v3.0/"
     private static String baseUrl; // baseUrl should be something like "https://sandbox.orcid.org/" or "https://orcid.org/"
@@ -99,6 +115,21 @@ public final class ORCIDHelper {
         return baseApiUrl;
     }
 
+    /**
+     * For tests, which talk to a local ORCID instead of the one in the configuration
+     */
+    static void setOrcidBaseApiUrl(String orcidBaseApiUrl) {
+        baseApiUrl = orcidBaseApiUrl;
+    }
+
+    private static JAXBContext newJAXBContext(Class<?> type) {
+        try {
+            return JAXBContext.newInstance(type);
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Could not create a JAXB context for " + type.getSimpleName(), e);
+        }
+    }
+
     /**
      * Get a read-public access token for reading public information.
      * https://info.orcid.org/documentation/api-tutorials/api-tutorial-read-data-on-a-record/#Get_an_access_token
@@ -112,7 +143,7 @@ public final class ORCIDHelper {
                 HttpRequest request = HttpRequest.newBuilder().uri(new URI(baseUrl + "oauth/token"))
                         .header(HttpHeaders.ACCEPT, "application/json").headers(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded").POST(ofString(requestData)).build();
 
-                HttpResponse<String> response = HttpClient.newBuilder().proxy(ProxySelector.getDefault()).build().send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> response = HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
                 if (response.statusCode() != HttpStatus.SC_OK) {
                     if (LOG.isErrorEnabled()) {
                         LOG.error("Could not get ORCID access token: {}", response.body());
@@ -149,6 +180,13 @@ public final class ORCIDHelper {
      * @throws DatatypeConfigurationException
      */
     public static String getOrcidWorkString(Entry e, Optional<Version> optionalVersion, String putCode) throws JAXBException, DatatypeConfigurationException {
+        return transformWork(getOrcidWork(e, optionalVersion, putCode));
+    }
+
+    /**
+     * Construct an ORCID work for an entry or a version of it, see {@link #getOrcidWorkString(Entry, Optional, String)}
+     */
+    public static Work getOrcidWork(Entry e, Optional<Version> optionalVersion, String putCode) throws DatatypeConfigurationException {
         // Length of the work description to send to ORCID. Arbitrarily set to 4x tweet length.
         final int descriptionLength = 4 * 280;
         Work work = new Work();
@@ -193,7 +231,7 @@ public final class ORCIDHelper {
         LastModifiedDate lastModifiedDate = new LastModifiedDate();
         lastModifiedDate.setValue(calendar);
         work.setLastModifiedDate(lastModifiedDate);
-        return transformWork(work);
+        return work;
     }
 
     public static String doiToUrl(String doi) {
@@ -211,7 +249,7 @@ public final class ORCIDHelper {
     public static HttpResponse<String> postWorkString(String id, String workString, String token)
             throws IOException, URISyntaxException, InterruptedException {
         HttpRequest request = HttpRequest.newBuilder().uri(new URI(baseApiUrl + id + "/work")).header(HttpHeaders.CONTENT_TYPE, ORCID_XML_CONTENT_TYPE).header(HttpHeaders.AUTHORIZATION, JWT_SECURITY_DEFINITION_NAME + " " + token).POST(ofString(workString)).build();
-        return HttpClient.newBuilder().proxy(ProxySelector.getDefault()).build().send(request,
+        return HTTP_CLIENT.send(request,
                 HttpResponse.BodyHandlers.ofString());
     }
 
@@ -222,7 +260,7 @@ public final class ORCIDHelper {
     public static HttpResponse<String> putWorkString(String id, String workString, String token, String putCode)
             throws IOException, URISyntaxException, InterruptedException {
         HttpRequest request = HttpRequest.newBuilder().uri(new URI(baseApiUrl + id + "/work/" + putCode)).header(HttpHeaders.CONTENT_TYPE, ORCID_XML_CONTENT_TYPE).header(HttpHeaders.AUTHORIZATION, JWT_SECURITY_DEFINITION_NAME + " " + token).PUT(ofString(workString)).build();
-        return HttpClient.newBuilder().proxy(ProxySelector.getDefault()).build().send(request,
+        return HTTP_CLIENT.send(request,
                 HttpResponse.BodyHandlers.ofString());
     }
 
@@ -248,10 +286,44 @@ public final class ORCIDHelper {
         return path.substring(path.lastIndexOf('/') + 1);
     }
 
-    private static String transformWork(Work work) throws JAXBException {
-        JAXBContext context = JAXBContext.newInstance(Work.class);
+    /**
+     * Creates works with ORCID's bulk endpoint, which takes up to {@link #MAX_BULK_WORKS} works per request.
+     * ORCID creates the works it can and reports an error for each of the others, such as a 409 for a work with the
+     * same external identifier as an existing work.
+     *
+     * @param id ORCID iD
+     * @param works works without put codes
+     * @param token ORCID token
+     * @return for each work, in the same order, either the created work with its put code or the {@link OrcidError} that prevented it
+     */
+    public static List<BulkElement> postWorks(String id, List<Work> works, String token)
+            throws IOException, URISyntaxException, InterruptedException, JAXBException {
+        List<BulkElement> results = new ArrayList<>(works.size());
+        for (int start = 0; start < works.size(); start += MAX_BULK_WORKS) {
+            WorkBulk workBulk = new WorkBulk();
+            workBulk.setBulk(new ArrayList<>(works.subList(start, Math.min(start + MAX_BULK_WORKS, works.size()))));
+            StringWriter writer = new StringWriter();
+            WORK_BULK_CONTEXT.createMarshaller().marshal(workBulk, writer);
+            HttpRequest request = HttpRequest.newBuilder().uri(new URI(baseApiUrl + id + "/works")).header(HttpHeaders.CONTENT_TYPE, ORCID_XML_CONTENT_TYPE)
+                    .header(HttpHeaders.ACCEPT, ORCID_XML_CONTENT_TYPE).header(HttpHeaders.AUTHORIZATION, JWT_SECURITY_DEFINITION_NAME + " " + token)
+                    .POST(ofString(writer.toString())).build();
+            HttpResponse<String> response = HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != HttpStatus.SC_OK) {
+                throw new CustomWebApplicationException("Could not export to ORCID: " + response.body(), response.statusCode());
+            }
+            List<BulkElement> bulk = ((WorkBulk) WORK_BULK_CONTEXT.createUnmarshaller().unmarshal(new StringReader(response.body()))).getBulk();
+            if (bulk.size() != workBulk.getBulk().size()) {
+                throw new CustomWebApplicationException("Could not export to ORCID: expected " + workBulk.getBulk().size() + " results but got " + bulk.size(),
+                        HttpStatus.SC_INTERNAL_SERVER_ERROR);
+            }
+            results.addAll(bulk);
+        }
+        return results;
+    }
+
+    static String transformWork(Work work) throws JAXBException {
         StringWriter writer = new StringWriter();
-        Marshaller marshaller = context.createMarshaller();
+        Marshaller marshaller = WORK_CONTEXT.createMarshaller();
         marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
         marshaller.marshal(work, writer);
         return writer.getBuffer().toString();
@@ -259,21 +331,26 @@ public final class ORCIDHelper {
 
     public static Optional<Long> searchForPutCodeByDoiUrl(String id, List<Token> orcidTokens, String doiUrl)
             throws IOException, URISyntaxException, InterruptedException, JAXBException {
+        return Optional.ofNullable(getPutCodesByExternalId(id, orcidTokens.get(0).getToken()).get(doiUrl));
+    }
+
+    /**
+     * Gets the put codes of all of a user's ORCID works with one request
+     * @return the put code of each work, keyed by the value of each of its external identifiers, e.g. a DOI
+     */
+    public static Map<String, Long> getPutCodesByExternalId(String id, String token)
+            throws IOException, URISyntaxException, InterruptedException, JAXBException {
         // Get user's ORCID works
-        HttpResponse<String> response = getAllWorks(id, orcidTokens.get(0).getToken());
+        HttpResponse<String> response = getAllWorks(id, token);
 
         if (response.statusCode() == HttpStatus.SC_OK) {
             Works works = transformXmlToWorks(response.body());
-            // Find the ORCID work with the DOI URL and get its put code
+            Map<String, Long> putCodes = new HashMap<>();
             for (WorkGroup work : works.getWorkGroup()) {
-                // There should only be one external ID that matches the DOI url
-                Optional<ExternalID> doiExternalId = work.getIdentifiers().getExternalIdentifier().stream().filter(externalID -> externalID.getValue().equals(doiUrl)).findFirst();
-                if (doiExternalId.isPresent()) {
-                    WorkSummary workSummary = work.getWorkSummary().get(0);
-                    return Optional.of(workSummary.getPutCode());
-                }
+                WorkSummary workSummary = work.getWorkSummary().get(0);
+                work.getIdentifiers().getExternalIdentifier().forEach(externalID -> putCodes.putIfAbsent(externalID.getValue(), workSummary.getPutCode()));
             }
-            return Optional.empty();
+            return putCodes;
         } else {
             throw new CustomWebApplicationException("Could not get all ORCID works to find put code for the existing ORCID work: " + response.body(), response.statusCode());
         }
@@ -284,7 +361,7 @@ public final class ORCIDHelper {
      */
     public static HttpResponse<String> getAllWorks(String id, String token) throws IOException, URISyntaxException, InterruptedException {
         HttpRequest request = HttpRequest.newBuilder().uri(new URI(baseApiUrl + id + "/works")).header(HttpHeaders.CONTENT_TYPE, ORCID_XML_CONTENT_TYPE).header(HttpHeaders.AUTHORIZATION, JWT_SECURITY_DEFINITION_NAME + " " + token).GET().build();
-        return HttpClient.newBuilder().proxy(ProxySelector.getDefault()).build().send(request,
+        return HTTP_CLIENT.send(request,
                 HttpResponse.BodyHandlers.ofString());
     }
 
@@ -292,8 +369,7 @@ public final class ORCIDHelper {
      * Transforms the ORCID XML response from a get all works call to a Works object. Assumes that the XML from Orcid is safe.
      */
     private static Works transformXmlToWorks(String worksXml) throws JAXBException {
-        JAXBContext context = JAXBContext.newInstance(Works.class);
-        Unmarshaller unmarshaller = context.createUnmarshaller();
+        Unmarshaller unmarshaller = WORKS_CONTEXT.createUnmarshaller();
         return (Works) unmarshaller.unmarshal(new StringReader(worksXml));
     }
 
@@ -376,7 +452,7 @@ public final class ORCIDHelper {
         HttpRequest request = HttpRequest.newBuilder().uri(new URI(baseApiUrl + id))
                 .header(HttpHeaders.CONTENT_TYPE, ORCID_XML_CONTENT_TYPE)
                 .header(HttpHeaders.AUTHORIZATION, JWT_SECURITY_DEFINITION_NAME + " " + token).GET().build();
-        return HttpClient.newBuilder().proxy(ProxySelector.getDefault()).build().send(request,
+        return HTTP_CLIENT.send(request,
                 HttpResponse.BodyHandlers.ofString());
     }
 
@@ -386,8 +462,7 @@ public final class ORCIDHelper {
      * @return Record Object
      */
     public static Record transformXmlToRecord(String recordXml) throws JAXBException {
-        JAXBContext context = JAXBContext.newInstance(Record.class);
-        Unmarshaller unmarshaller = context.createUnmarshaller();
+        Unmarshaller unmarshaller = RECORD_CONTEXT.createUnmarshaller();
         return (Record) unmarshaller.unmarshal(new StringReader(recordXml));
     }
 
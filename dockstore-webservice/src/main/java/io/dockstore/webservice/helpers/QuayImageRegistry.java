@@ -72,6 +72,7 @@ import org.slf4j.LoggerFactory;
 public class QuayImageRegistry extends AbstractImageRegistry {
 
     private static final Logger LOG = LoggerFactory.getLogger(QuayImageRegistry.class);
+    private static final Gson GSON = new Gson();
 
     private final Token quayToken;
     private final BuildApi buildApi;
@@ -97,6 +98,7 @@ public class QuayImageRegistry extends AbstractImageRegistry {
         // Completely arbitrary maxPageSize in the weird event that Quay.io's pagination results in an infinite loop or something
         final int maxPageSize = 100;
         for (int page = 1; page < Integer.MAX_VALUE; page++) {
+            RegistryRefreshExecutor.acquire(Registry.QUAY_IO);
             InlineResponse2002 inlineResponse2002 = tagApi.listRepoTags(repository, page, maxPageSize, null, true);
             List<QuayTag> quayTags = inlineResponse2002.getTags();
             allQuayTags.addAll(quayTags);
@@ -126,12 +128,11 @@ public class QuayImageRegistry extends AbstractImageRegistry {
             // Search through the Quay tags for ones that are classified as a manifest list and then use its digest to get the repo's manifest.
             List<QuayTag> cleanedQuayTagList = new ArrayList<>(quayTags);
             Map<QuayTag, List<Image>> multiImageQuayTags = new HashMap<>();
-            Gson g = new Gson();
             quayTags.stream().forEach(quayTag -> {
                 if (Boolean.TRUE.equals(quayTag.isIsManifestList())) {
                     try {
                         // Store the collected Image(s) into a map that consists of <Original Manifest List Quay Tag, List<Images>>.
-                        List<Image> images = handleMultiArchQuayTags(tool, quayTag, g, cleanedQuayTagList);
+                        List<Image> images = handleMultiArchQuayTags(tool, quayTag, GSON, cleanedQuayTagList);
                         multiImageQuayTags.put(quayTag, images);
                     } catch (ApiException ex) {
                         LOG.info("Unable to handle manifest list for Quay Tag " + quayTag.getName() + " in repo " + repo, ex);
@@ -172,6 +173,7 @@ public class QuayImageRegistry extends AbstractImageRegistry {
         QuayRepoManifest quayRepoManifest;
         DockerManifestList manifestList;
         List<Image> images = new ArrayList<>();
+        RegistryRefreshExecutor.acquire(Registry.QUAY_IO);
         quayRepoManifest = manifestApi.getRepoManifest(quayTag.getManifestDigest(), tool.getNamespace() + '/' + tool.getName());
         try {
             manifestList = g.fromJson(quayRepoManifest.getManifestData(), DockerManifestList.class);
@@ -245,6 +247,7 @@ public class QuayImageRegistry extends AbstractImageRegistry {
         final String repo = tool.getNamespace() + '/' + tool.getName();
 
         try {
+            RegistryRefreshExecutor.acquire(Registry.QUAY_IO);
             final QuayRepo quayRepo = repositoryApi.getRepo(repo, false);
             return Optional.of(quayRepo);
         } catch (ApiException e) {
@@ -269,6 +272,7 @@ public class QuayImageRegistry extends AbstractImageRegistry {
         List<String> namespaces = new ArrayList<>();
 
         try {
+            RegistryRefreshExecutor.acquire(Registry.QUAY_IO);
             final UserView loggedInUser = userApi.getLoggedInUser();
             final List<QuayOrganization> organizations = loggedInUser.getOrganizations();
             namespaces = organizations.stream().map(QuayOrganization::getName).collect(Collectors.toList());
@@ -282,6 +286,7 @@ public class QuayImageRegistry extends AbstractImageRegistry {
 
     public List<String> getRepositoryNamesFromNamespace(String namespace) {
         try {
+            RegistryRefreshExecutor.acquire(Registry.QUAY_IO);
             List<QuayRepo> repositories = repositoryApi.listRepos(null, null, null, null, null, null, namespace).getRepositories();
             return repositories.stream().map(QuayRepo::getName).collect(Collectors.toList());
         } catch (ApiException e) {
@@ -297,6 +302,7 @@ public class QuayImageRegistry extends AbstractImageRegistry {
 
         for (String namespace : namespaces) {
             try {
+                RegistryRefreshExecutor.acquire(Registry.QUAY_IO);
                 final List<QuayRepo> quayRepos = repositoryApi.listRepos(null, null, null, null, null, null, namespace).getRepositories();
                 List<Tool> tools = Lists.newArrayList();
                 for (QuayRepo repo : quayRepos) {
@@ -324,6 +330,7 @@ public class QuayImageRegistry extends AbstractImageRegistry {
     public Tool getToolFromNamespaceAndRepo(String namespace, String repository) {
         try {
             String name = namespace + "/" + repository;
+            RegistryRefreshExecutor.acquire(Registry.QUAY_IO);
             QuayRepo repo = repositoryApi.getRepo(name, true);
 
             Tool tool = new Tool();
@@ -358,6 +365,7 @@ public class QuayImageRegistry extends AbstractImageRegistry {
                 // Initialize giturl
                 String gitUrl = null;
 
+                RegistryRefreshExecutor.acquire(Registry.QUAY_IO);
                 final List<QuayBuild> builds = buildApi.getRepoBuilds(repo, null, 1).getBuilds();
                 // Check result of API call
                 if (builds != null && !builds.isEmpty()) {
@@ -381,7 +389,7 @@ public class QuayImageRegistry extends AbstractImageRegistry {
                                     String trimmed = splitLine[1].trim();
                                     // strip the brackets
                                     String substring = trimmed.substring(1, trimmed.length() - 1);
-                                    Map<String, String> map = new Gson().fromJson(substring, new TypeToken<Map<String, String>>() {
+                                    Map<String, String> map = GSON.fromJson(substring, new TypeToken<Map<String, String>>() {
                                     }.getType());
                                     gitUrl = "git@github.com:" + map.get("namespace") + "/" + map.get("repo") + ".git";
                                 }
@@ -419,6 +427,7 @@ public class QuayImageRegistry extends AbstractImageRegistry {
         // Grab build information for given repository
         // List of builds for a tool
         try {
+            RegistryRefreshExecutor.acquire(Registry.QUAY_IO);
             final List<QuayBuild> builds = buildApi.getRepoBuilds(repository, null, Integer.MAX_VALUE).getBuilds();
 
             // Set up tags with build information
@@ -486,6 +495,7 @@ public class QuayImageRegistry extends AbstractImageRegistry {
         final String repo = tool.getNamespace() + '/' + tool.getName();
         // Grab build information for given repository
         try {
+            RegistryRefreshExecutor.acquire(Registry.QUAY_IO);
             final List<QuayBuild> builds = buildApi.getRepoBuilds(repo, null, Integer.MAX_VALUE).getBuilds();
             if (!builds.isEmpty()) {
                 for (QuayBuild build : builds) {
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.util.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+/**
+ * The primary database, plus optional read replicas that serve read-only units of work, see {@link ReadReplicaRoutingDataSource}.
+ * Without replicas this is the same as a plain {@link DataSourceFactory}.
+ */
+public class ReadReplicaDataSourceFactory extends DataSourceFactory {
+
+    private static final long DEFAULT_MAX_REPLICATION_LAG_SECONDS = 10;
+    private static final long DEFAULT_REPLICATION_LAG_CHECK_INTERVAL_SECONDS = 5;
+
+    @Valid
+    @NotNull
+    private List<DataSourceFactory> readReplicas = new ArrayList<>();
+
+    @NotNull
+    private Duration maxReplicationLag = Duration.seconds(DEFAULT_MAX_REPLICATION_LAG_SECONDS);
+
+    @NotNull
+    private Duration replicationLagCheckInterval = Duration.seconds(DEFAULT_REPLICATION_LAG_CHECK_INTERVAL_SECONDS);
+
+    @JsonProperty
+    public List<DataSourceFactory> getReadReplicas() {
+        return readReplicas;
+    }
+
+    @JsonProperty
+    public void setReadReplicas(List<DataSourceFactory> readReplicas) {
+        this.readReplicas = readReplicas;
+    }
+
+    @JsonProperty
+    public Duration getMaxReplicationLag() {
+        return maxReplicationLag;
+    }
+
+    @JsonProperty
+    public void setMaxReplicationLag(Duration maxReplicationLag) {
+        this.maxReplicationLag = maxReplicationLag;
+    }
+
+    @JsonProperty
+    public Duration getReplicationLagCheckInterval() {
+        return replicationLagCheckInterval;
+    }
+
+    @JsonProperty
+    public void setReplicationLagCheckInterval(Duration replicationLagCheckInterval) {
+        this.replicationLagCheckInterval = replicationLagCheckInterval;
+    }
+
+    @Override
+    public ManagedDataSource build(MetricRegistry metricRegistry, String name) {
+        final ManagedDataSource primary = super.build(metricRegistry, name);
+        if (readReplicas.isEmpty()) {
+            return primary;
+        }
+        final List<ManagedDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < readReplicas.size(); i++) {
+            replicas.add(readReplicas.get(i).build(metricRegistry, name + "-replica-" + i));
+        }
+        final ReadReplicaRoutingDataSource dataSource = new ReadReplicaRoutingDataSource(primary, replicas,
+            java.time.Duration.ofMillis(maxReplicationLag.toMilliseconds()), java.time.Duration.ofMillis(replicationLagCheckInterval.toMilliseconds()));
+        for (int i = 0; i < replicas.size(); i++) {
+            final int replica = i;
+            metricRegistry.register(MetricRegistry.name(ReadReplicaRoutingDataSource.class, name, "replica-" + i, "lag"),
+                (Gauge<Double>)() -> dataSource.getReplicationLags().get(replica));
+        }
+        return dataSource;
+    }
+}
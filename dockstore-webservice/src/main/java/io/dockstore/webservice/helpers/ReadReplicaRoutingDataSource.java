@@ -0,0 +1,284 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dropwizard.db.ManagedDataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends the connections of read-only units of work (<code>@UnitOfWork(readOnly = true)</code>) to read replicas and everything else to the primary.
+ *
+ * <p>The replication lag of every replica is checked periodically. Replicas that lag more than the tolerated amount, whose lag is unknown
+ * or that cannot be reached are skipped until a later check finds them caught up. Without a usable replica, read-only units of work use the
+ * primary. Until {@link #routeReadOnlyUnitsOfWork(SessionFactory)} is called (e.g. while the session factory is being built or when running
+ * migrations) everything uses the primary.
+ *
+ * <p>A replica may still return rows that a transaction on the primary has changed, and whose cache entries it has evicted. Sessions that
+ * read from a replica therefore only get from the second-level cache and never put into it, so that only the primary fills the cache.
+ */
+public class ReadReplicaRoutingDataSource implements ManagedDataSource {
+
+    /**
+     * Whether the database is a replica, whether its WAL receiver is streaming from the primary, whether it has replayed everything it
+     * received, and the seconds since the last transaction it replayed committed (null when it has not replayed anything yet). The status
+     * of the WAL receiver is only visible to members of pg_read_all_stats, replicas are never used if the database user is not one.
+     */
+    static final String REPLICATION_LAG_QUERY = "select pg_is_in_recovery() as in_recovery, "
+        + "exists (select 1 from pg_stat_wal_receiver where status = 'streaming') as streaming, "
+        + "pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() as replayed_all, "
+        + "extract(epoch from now() - pg_last_xact_replay_timestamp()) as lag_seconds";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReadReplicaRoutingDataSource.class);
+
+    private static volatile SessionFactory sessionFactory = null;
+
+    private final ManagedDataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Duration maxReplicationLag;
+    private final Duration replicationLagCheckInterval;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private ScheduledExecutorService lagChecker;
+
+    public ReadReplicaRoutingDataSource(ManagedDataSource primary, List<ManagedDataSource> replicaDataSources, Duration maxReplicationLag,
+        Duration replicationLagCheckInterval) {
+        this.primary = primary;
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            replicas.add(new Replica(i, replicaDataSources.get(i)));
+        }
+        this.maxReplicationLag = maxReplicationLag;
+        this.replicationLagCheckInterval = replicationLagCheckInterval;
+    }
+
+    /**
+     * Starts routing the units of work of a session factory
+     * @param factory session factory whose read-only units of work may use replicas
+     */
+    public static void routeReadOnlyUnitsOfWork(SessionFactory factory) {
+        sessionFactory = factory;
+    }
+
+    /**
+     * Dropwizard binds the session of a unit of work and marks it read-only before the transaction acquires a connection
+     * @return the session of the read-only unit of work the current thread is in, if any
+     */
+    private static Optional<Session> readOnlyUnitOfWorkSession() {
+        final SessionFactory factory = sessionFactory;
+        if (factory == null || !ManagedSessionContext.hasBind(factory)) {
+            return Optional.empty();
+        }
+        final Session session = factory.getCurrentSession();
+        return session.isDefaultReadOnly() ? Optional.of(session) : Optional.empty();
+    }
+
+    /**
+     * @return the seconds each replica lagged behind at the last check, null if it could not be determined
+     */
+    public List<Double> getReplicationLags() {
+        final List<Double> lags = new ArrayList<>();
+        replicas.forEach(replica -> lags.add(replica.lagSeconds));
+        return lags;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        final Optional<Session> session = readOnlyUnitOfWorkSession();
+        if (session.isPresent()) {
+            Optional<Replica> replica = nextUsableReplica();
+            if (replica.isPresent()) {
+                try {
+                    final Connection connection = replica.get().dataSource.getConnection();
+                    // Dropwizard has already set the cache mode of the unit of work, and no query has run yet
+                    session.get().setCacheMode(CacheMode.GET);
+                    return connection;
+                } catch (SQLException e) {
+                    replica.get().update(null, e);
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    private Optional<Replica> nextUsableReplica() {
+        final int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(replicas.size(), 1));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.usable) {
+                return Optional.of(replica);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Checks how far each replica is behind the primary
+     */
+    void checkReplicationLag() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(REPLICATION_LAG_QUERY)) {
+                resultSet.next();
+                replica.update(replicationLag(resultSet), null);
+            } catch (SQLException e) {
+                replica.update(null, e);
+            }
+        }
+    }
+
+    /**
+     * A replica that has replayed everything it received is only caught up if it is still receiving, one whose WAL receiver has stopped
+     * or lost its connection to the primary would otherwise report no lag forever
+     * @param resultSet result of the {@link #REPLICATION_LAG_QUERY}
+     * @return seconds the replica is behind the primary, null if unknown
+     */
+    private static Double replicationLag(ResultSet resultSet) throws SQLException {
+        if (!resultSet.getBoolean("in_recovery")) {
+            return 0.0;
+        }
+        if (!resultSet.getBoolean("streaming")) {
+            return null;
+        }
+        if (resultSet.getBoolean("replayed_all")) {
+            return 0.0;
+        }
+        final double lagSeconds = resultSet.getDouble("lag_seconds");
+        return resultSet.wasNull() ? null : lagSeconds;
+    }
+
+    private void checkReplicationLagSafely() {
+        try {
+            checkReplicationLag();
+        } catch (RuntimeException e) {
+            // keep the schedule going
+            LOG.error("Could not check the replication lag of read replicas", e);
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+        primary.start();
+        for (Replica replica : replicas) {
+            replica.dataSource.start();
+        }
+        if (!replicas.isEmpty()) {
+            lagChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "read-replica-lag");
+                thread.setDaemon(true);
+                return thread;
+            });
+            lagChecker.scheduleWithFixedDelay(this::checkReplicationLagSafely, 0, replicationLagCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (lagChecker != null) {
+            lagChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            replica.dataSource.stop();
+        }
+        primary.stop();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return primary.isWrapperFor(iface);
+    }
+
+    private final class Replica {
+        private final int index;
+        private final ManagedDataSource dataSource;
+        // unusable until the first check has shown that the replica is caught up
+        private volatile boolean usable = false;
+        private volatile Double lagSeconds = null;
+
+        private Replica(int index, ManagedDataSource dataSource) {
+            this.index = index;
+            this.dataSource = dataSource;
+        }
+
+        private void update(Double newLagSeconds, SQLException exception) {
+            final boolean wasUsable = usable;
+            lagSeconds = newLagSeconds;
+            usable = newLagSeconds != null && newLagSeconds * TimeUnit.SECONDS.toMillis(1) <= maxReplicationLag.toMillis();
+            if (wasUsable && !usable) {
+                if (exception != null) {
+                    LOG.warn("Not using read replica {} until it can be reached", index, exception);
+                } else {
+                    LOG.warn("Not using read replica {} until it catches up, it lags {} seconds behind", index, newLagSeconds);
+                }
+            } else if (!wasUsable && usable) {
+                LOG.info("Using read replica {}", index);
+            }
+        }
+    }
+}
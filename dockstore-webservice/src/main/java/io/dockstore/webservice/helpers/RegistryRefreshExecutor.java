@@ -0,0 +1,152 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.google.common.util.concurrent.RateLimiter;
+import io.dockstore.common.Registry;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.RegistryRefreshConfig;
+import io.dockstore.webservice.core.Tag;
+import io.dockstore.webservice.core.Tool;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fetches the tags of many tools from image registries at once, and limits how fast each registry is called.
+ *
+ * <p>Only the calls to image registries run on the worker pool. The tags are still saved, and their files loaded from source control,
+ * on the calling thread, in the calling thread's Hibernate session. Every call to a registry waits for a permit from that registry's
+ * rate limiter, whichever thread it is made from. Tag listings are fetched with the shared OkHttp client, whose cache turns repeated
+ * listings into conditional requests that a registry can answer with a 304 if nothing changed.
+ *
+ * <p>Until {@link #init(ExecutorService, RegistryRefreshConfig, OkHttpClient)} is called (e.g. in unit tests) tags are fetched on the
+ * calling thread, and tag listings are not cached.
+ */
+public final class RegistryRefreshExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RegistryRefreshExecutor.class);
+
+    private static final Map<Registry, RateLimiter> RATE_LIMITERS = new ConcurrentHashMap<>();
+    // a cached listing is never fresh enough to use without asking the registry, but asking can be conditional on it
+    private static final CacheControl REVALIDATE = new CacheControl.Builder().maxAge(0, TimeUnit.SECONDS).build();
+
+    private static ExecutorService executorService = null;
+    private static RegistryRefreshConfig config = new RegistryRefreshConfig();
+    private static OkHttpClient client = null;
+
+    private RegistryRefreshExecutor() {
+        // hide the constructor for utility classes
+    }
+
+    /**
+     * @param executor runs the calls to registries
+     * @param refreshConfig bounds on the calls
+     * @param httpClient fetches tag listings, with a cache for them to be revalidated
+     */
+    public static void init(ExecutorService executor, RegistryRefreshConfig refreshConfig, OkHttpClient httpClient) {
+        executorService = executor;
+        config = refreshConfig;
+        client = httpClient;
+        RATE_LIMITERS.clear();
+    }
+
+    /**
+     * Starts fetching the tags of each tool
+     * @param tools the tools
+     * @param getTags fetches the tags of one tool from its registry
+     * @return the tags of each tool, in the order of the tools, completed exceptionally for tools whose tags could not be fetched
+     */
+    public static List<CompletableFuture<List<Tag>>> getTags(List<Tool> tools, Function<Tool, List<Tag>> getTags) {
+        return tools.stream().map(tool -> {
+            if (executorService == null) {
+                try {
+                    return CompletableFuture.completedFuture(getTags.apply(tool));
+                } catch (RuntimeException e) {
+                    return CompletableFuture.<List<Tag>>failedFuture(e);
+                }
+            }
+            return CompletableFuture.supplyAsync(() -> getTags.apply(tool), executorService);
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * Waits until another call can be made to a registry
+     * @param registry the registry about to be called
+     */
+    public static void acquire(Registry registry) {
+        getRateLimiter(registry).ifPresent(RateLimiter::acquire);
+    }
+
+    /**
+     * @param registry a registry
+     * @return the rate limiter of calls to the registry, empty if calls are not limited
+     */
+    static Optional<RateLimiter> getRateLimiter(Registry registry) {
+        if (config.getRequestsPerSecond() <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(RATE_LIMITERS.computeIfAbsent(registry, r -> RateLimiter.create(config.getRequestsPerSecond())));
+    }
+
+    /**
+     * Gets a tag listing, or another document, from a registry's API. A listing fetched before is revalidated with a
+     * conditional request instead of being fetched again in full.
+     * @param registry the registry called
+     * @param url the URL of the listing
+     * @return the listing, empty if it could not be fetched
+     */
+    public static Optional<String> getListing(Registry registry, String url) {
+        acquire(registry);
+        final Request request = new Request.Builder().url(url).cacheControl(REVALIDATE).build();
+        try (Response response = getClient().newCall(request).execute()) {
+            final ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                LOG.info("Unable to get {} response for {}: {}", registry.getFriendlyName(), url, response.code());
+                return Optional.empty();
+            }
+            if (response.networkResponse() != null && response.networkResponse().code() == HttpStatus.SC_NOT_MODIFIED) {
+                LOG.debug("{} listing unchanged: {}", registry.getFriendlyName(), url);
+            }
+            return Optional.of(body.string());
+        } catch (IOException | IllegalArgumentException ex) {
+            LOG.info("Unable to get {} response for {}", registry.getFriendlyName(), url, ex);
+            return Optional.empty();
+        }
+    }
+
+    private static synchronized OkHttpClient getClient() {
+        if (client == null) {
+            client = new OkHttpClient();
+        }
+        return client;
+    }
+}
@@ -0,0 +1,535 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.lifecycle.Managed;
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.cache.internal.TimestampsCacheEnabledImpl;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.TimestampsCacheFactory;
+import org.hibernate.cache.spi.TimestampsRegion;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the Hibernate second-level cache of every webservice replica consistent.
+ *
+ * <p>The cache regions are local to each replica (see application.conf for their sizes and expiry). Whenever a transaction changes a
+ * cached entity or collection, or a table that cached queries read from, the affected cache keys are sent with Postgres NOTIFY as part
+ * of that transaction. Notifications are only delivered if the transaction commits. Every replica LISTENs on the same channel and
+ * evicts the keys that other replicas changed; if the listening connection is lost, everything is evicted once it is re-established.
+ *
+ * <p>Entity and collection events name the rows that changed. Bulk HQL and native statements fire no events, Hibernate only tells the
+ * timestamps cache which tables they changed, so the cached regions that read from those tables are evicted on every replica.
+ */
+public final class SecondLevelCacheManager implements Managed {
+
+    static final String CHANNEL = "dockstore_second_level_cache";
+
+    private static final Logger LOG = LoggerFactory.getLogger(SecondLevelCacheManager.class);
+
+    /**
+     * Postgres limits a notification payload to 8000 bytes
+     */
+    private static final int MAX_PAYLOAD_LENGTH = 7000;
+    private static final int POLL_MILLIS = 1000;
+    private static final long RECONNECT_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private static final String ENTITY = "e";
+    private static final String ENTITY_REGION = "r";
+    private static final String COLLECTION = "c";
+    private static final String COLLECTION_REGION = "cr";
+    private static final String QUERY_SPACE = "q";
+    private static final String SEPARATOR = "|";
+    private static final int KEY_PARTS = 3;
+
+    private static volatile SecondLevelCacheManager instance = null;
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final DataSourceFactory dataSourceFactory;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<SharedSessionContractImplementor, PendingChanges> pendingChanges = new ConcurrentHashMap<>();
+
+    private volatile boolean running = false;
+    private Thread listener;
+    private Set<String> cachedQuerySpaces = Collections.emptySet();
+    private Map<String, List<String>> cachedRegionsBySpace = Collections.emptyMap();
+
+    public SecondLevelCacheManager(SessionFactory sessionFactory, DataSourceFactory dataSourceFactory) {
+        this.sessionFactory = sessionFactory.unwrap(SessionFactoryImplementor.class);
+        this.dataSourceFactory = dataSourceFactory;
+    }
+
+    /**
+     * Turns on the second-level and query cache unless the database properties of the configuration say otherwise
+     *
+     * @param configuration Hibernate configuration of the webservice
+     */
+    public static void configure(Configuration configuration) {
+        configuration.getProperties().putIfAbsent(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true");
+        configuration.getProperties().putIfAbsent(AvailableSettings.USE_QUERY_CACHE, "true");
+        configuration.getProperties().putIfAbsent(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+        configuration.getProperties().putIfAbsent("hibernate.javax.cache.provider", "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider");
+        configuration.getProperties().putIfAbsent(AvailableSettings.QUERY_CACHE_FACTORY, ReplicatedTimestampsCacheFactory.class.getName());
+    }
+
+    /**
+     * Exposes the hit ratio of each cache region, e.g. hibernate.cache.label.hit-ratio. The ratios come from the statistics that Caffeine
+     * records for each region (monitoring.native-statistics in application.conf), so Hibernate statistics can stay off.
+     *
+     * @param sessionFactory webservice session factory
+     * @param metricRegistry registry of the webservice
+     */
+    public static void registerMetrics(SessionFactory sessionFactory, MetricRegistry metricRegistry) {
+        final CacheImplementor cache = sessionFactory.unwrap(SessionFactoryImplementor.class).getCache();
+        if (!(cache.getRegionFactory() instanceof JCacheRegionFactory)) {
+            LOG.info("The second-level cache is not a JCache, its hit ratios are not available");
+            return;
+        }
+        final CacheManager cacheManager = ((JCacheRegionFactory)cache.getRegionFactory()).getCacheManager();
+        final TimestampsRegion timestampsRegion = cache.getTimestampsCache().getRegion();
+        for (String region : cache.getCacheRegionNames()) {
+            if (timestampsRegion != null && region.equals(timestampsRegion.getName())) {
+                continue;
+            }
+            final Cache<Object, Object> regionCache = cacheManager.getCache(region);
+            if (regionCache == null) {
+                continue;
+            }
+            final com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache = regionCache.unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+            metricRegistry.register(MetricRegistry.name("hibernate", "cache", region, "hit-ratio"), new RatioGauge() {
+                @Override
+                protected Ratio getRatio() {
+                    CacheStats stats = caffeineCache.stats();
+                    return Ratio.of(stats.hitCount(), stats.requestCount());
+                }
+            });
+        }
+    }
+
+    /**
+     * Evicts a whole entity region on every replica once the current transaction commits. Bulk HQL and native statements are
+     * broadcast by the timestamps cache of the query cache; DAOs running those against cached entities must still call this, so that
+     * replicas stay consistent when the query cache is disabled.
+     *
+     * @param session current session
+     * @param entityClass cached entity
+     */
+    public static void evictEverywhere(Session session, Class<?> entityClass) {
+        SecondLevelCacheManager manager = instance;
+        if (manager != null) {
+            EntityPersister persister = manager.sessionFactory.getMetamodel().entityPersister(entityClass);
+            if (persister.hasCache()) {
+                manager.pending(session.unwrap(SessionImplementor.class)).keys.add(ENTITY_REGION + SEPARATOR + persister.getEntityName());
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled() || !dataSourceFactory.getUrl().startsWith("jdbc:postgresql:")) {
+            LOG.info("Second-level cache invalidation between replicas is disabled");
+            return;
+        }
+        findCachedTables();
+        InvalidationListener invalidationListener = new InvalidationListener(this);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, invalidationListener);
+        registry.appendListeners(EventType.POST_UPDATE, invalidationListener);
+        registry.appendListeners(EventType.POST_DELETE, invalidationListener);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, invalidationListener);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, invalidationListener);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, invalidationListener);
+        instance = this;
+
+        running = true;
+        listener = new Thread(this::listen, "second-level-cache-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        instance = null;
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener.join(2 * POLL_MILLIS);
+        }
+    }
+
+    void findCachedTables() {
+        cachedQuerySpaces = findCachedQuerySpaces();
+        cachedRegionsBySpace = findCachedRegionsBySpace();
+    }
+
+    /**
+     * Finds the tables read by named queries that are marked as cacheable
+     */
+    private Set<String> findCachedQuerySpaces() {
+        Set<String> spaces = new HashSet<>();
+        if (!sessionFactory.getSessionFactoryOptions().isQueryCacheEnabled()) {
+            return spaces;
+        }
+        for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+            List<NamedQuery> namedQueries = new ArrayList<>();
+            Class<?> mappedClass = persister.getMappedClass();
+            if (mappedClass.isAnnotationPresent(NamedQuery.class)) {
+                namedQueries.add(mappedClass.getAnnotation(NamedQuery.class));
+            }
+            if (mappedClass.isAnnotationPresent(NamedQueries.class)) {
+                namedQueries.addAll(Arrays.asList(mappedClass.getAnnotation(NamedQueries.class).value()));
+            }
+            for (NamedQuery namedQuery : namedQueries) {
+                if (Arrays.stream(namedQuery.hints()).anyMatch(hint -> QueryHints.CACHEABLE.equals(hint.name()) && Boolean.parseBoolean(hint.value()))) {
+                    for (Object space : sessionFactory.getQueryPlanCache().getHQLQueryPlan(namedQuery.query(), false, Collections.emptyMap()).getQuerySpaces()) {
+                        spaces.add(space.toString());
+                    }
+                }
+            }
+        }
+        LOG.info("Cached queries read from {}", spaces);
+        return spaces;
+    }
+
+    /**
+     * Finds the cached entity and collection regions that read from each table
+     */
+    private Map<String, List<String>> findCachedRegionsBySpace() {
+        Map<String, List<String>> regions = new HashMap<>();
+        for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+            if (persister.hasCache()) {
+                for (Serializable space : persister.getQuerySpaces()) {
+                    regions.computeIfAbsent(space.toString(), key -> new ArrayList<>()).add(ENTITY_REGION + SEPARATOR + persister.getEntityName());
+                }
+            }
+        }
+        for (CollectionPersister persister : sessionFactory.getMetamodel().collectionPersisters().values()) {
+            if (persister.hasCache()) {
+                for (Serializable space : persister.getCollectionSpaces()) {
+                    regions.computeIfAbsent(space.toString(), key -> new ArrayList<>()).add(COLLECTION_REGION + SEPARATOR + persister.getRole());
+                }
+            }
+        }
+        return regions;
+    }
+
+    void onEntityChange(EventSource session, EntityPersister persister, Serializable id) {
+        if (persister.hasCache() && id != null) {
+            PendingChanges changes = pending(session);
+            changes.keys.add(id instanceof Long ? ENTITY + SEPARATOR + persister.getEntityName() + SEPARATOR + id : ENTITY_REGION + SEPARATOR + persister.getEntityName());
+            changes.cover(persister.getQuerySpaces());
+        }
+    }
+
+    void onCollectionChange(AbstractCollectionEvent event) {
+        CollectionPersister persister = sessionFactory.getMetamodel().collectionPersister(event.getCollection().getRole());
+        if (persister.hasCache() && event.getAffectedOwnerIdOrNull() instanceof Long) {
+            PendingChanges changes = pending(event.getSession());
+            changes.keys.add(COLLECTION + SEPARATOR + persister.getRole() + SEPARATOR + event.getAffectedOwnerIdOrNull());
+            changes.cover(persister.getCollectionSpaces());
+        }
+    }
+
+    /**
+     * Called with the tables changed by each flush and by each bulk HQL or native statement, after the events of the flush fired
+     */
+    void onTablesChanged(SharedSessionContractImplementor session, String[] spaces) {
+        PendingChanges changes = pendingChanges.get(session);
+        Set<String> covered = changes == null ? Collections.emptySet() : changes.coveredSpaces;
+        List<String> keys = new ArrayList<>();
+        for (String space : spaces) {
+            if (cachedQuerySpaces.contains(space)) {
+                keys.add(QUERY_SPACE + SEPARATOR + space);
+            }
+            // no event said which rows of the table changed
+            if (!covered.contains(space)) {
+                keys.addAll(cachedRegionsBySpace.getOrDefault(space, Collections.emptyList()));
+            }
+        }
+        if (changes != null) {
+            changes.coveredSpaces.clear();
+        }
+        if (!keys.isEmpty()) {
+            if (session instanceof SessionImplementor) {
+                pending((SessionImplementor)session).keys.addAll(keys);
+            } else {
+                LOG.warn("Changes to {} made by a stateless session are not sent to other replicas", keys);
+            }
+        }
+    }
+
+    /**
+     * Collects the changes of a transaction, they are sent just before it commits
+     */
+    private PendingChanges pending(SessionImplementor session) {
+        PendingChanges changes = pendingChanges.get(session);
+        if (changes == null) {
+            changes = new PendingChanges();
+            pendingChanges.put(session, changes);
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) this::publish);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completedSession) -> pendingChanges.remove(completedSession));
+        }
+        return changes;
+    }
+
+    Set<String> getPendingKeys(SharedSessionContractImplementor session) {
+        PendingChanges changes = pendingChanges.get(session);
+        return changes == null ? Collections.emptySet() : changes.keys;
+    }
+
+    private void publish(SessionImplementor session) {
+        PendingChanges changes = pendingChanges.remove(session);
+        if (changes == null || changes.keys.isEmpty()) {
+            return;
+        }
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+                for (String payload : toPayloads(nodeId, changes.keys)) {
+                    statement.setString(1, CHANNEL);
+                    statement.setString(2, payload);
+                    statement.execute();
+                }
+            }
+        });
+    }
+
+    /**
+     * Splits keys into notification payloads, each starts with the id of the sending replica
+     */
+    static List<String> toPayloads(String sender, Set<String> keys) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(sender);
+        for (String key : keys) {
+            if (payload.length() + key.length() + 1 > MAX_PAYLOAD_LENGTH && payload.length() > sender.length()) {
+                payloads.add(payload.toString());
+                payload = new StringBuilder(sender);
+            }
+            payload.append('\n').append(key);
+        }
+        payloads.add(payload.toString());
+        return payloads;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceFactory.getUrl(), dataSourceFactory.getUser(), dataSourceFactory.getPassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // changes made while not listening were missed
+                sessionFactory.getCache().evictAllRegions();
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            evict(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (running) {
+                    LOG.error("Lost the second-level cache invalidation connection, reconnecting", e);
+                    try {
+                        Thread.sleep(RECONNECT_DELAY_MILLIS);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts the keys changed by another replica
+     */
+    void evict(String payload) {
+        String[] lines = payload.split("\n");
+        if (lines.length == 0 || nodeId.equals(lines[0])) {
+            return;
+        }
+        List<String> spaces = new ArrayList<>();
+        for (int i = 1; i < lines.length; i++) {
+            String[] parts = lines[i].split("\\" + SEPARATOR, KEY_PARTS);
+            switch (parts[0]) {
+            case ENTITY:
+                sessionFactory.getCache().evictEntityData(parts[1], Long.valueOf(parts[2]));
+                break;
+            case ENTITY_REGION:
+                sessionFactory.getCache().evictEntityData(parts[1]);
+                break;
+            case COLLECTION:
+                sessionFactory.getCache().evictCollectionData(parts[1], Long.valueOf(parts[2]));
+                break;
+            case COLLECTION_REGION:
+                sessionFactory.getCache().evictCollectionData(parts[1]);
+                break;
+            case QUERY_SPACE:
+                spaces.add(parts[1]);
+                break;
+            default:
+                LOG.warn("Unknown second-level cache key {}", lines[i]);
+            }
+        }
+        if (!spaces.isEmpty()) {
+            // as if the tables had been written to locally, so that cached query results that read them are stale
+            try (Session session = sessionFactory.openSession()) {
+                sessionFactory.getCache().getTimestampsCache().invalidate(spaces.toArray(new String[0]), session.unwrap(SharedSessionContractImplementor.class));
+            }
+        }
+    }
+
+    /**
+     * Keys changed by a transaction, and the tables whose changes were named row by row since the last flush
+     */
+    private static final class PendingChanges {
+        private final Set<String> keys = new LinkedHashSet<>();
+        private final Set<String> coveredSpaces = new HashSet<>();
+
+        private void cover(Serializable[] spaces) {
+            for (Serializable space : spaces) {
+                coveredSpaces.add(space.toString());
+            }
+        }
+    }
+
+    /**
+     * Builds the timestamps cache of the query cache, which forwards the tables changed by each transaction to the manager
+     */
+    public static final class ReplicatedTimestampsCacheFactory implements TimestampsCacheFactory {
+        @Override
+        public TimestampsCache buildTimestampsCache(CacheImplementor cacheImplementor, TimestampsRegion timestampsRegion) {
+            return new TimestampsCacheEnabledImpl(timestampsRegion) {
+                @Override
+                public void preInvalidate(String[] spaces, SharedSessionContractImplementor session) {
+                    super.preInvalidate(spaces, session);
+                    SecondLevelCacheManager manager = instance;
+                    if (manager != null) {
+                        manager.onTablesChanged(session, spaces);
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Hibernate event listener that forwards changes to the manager
+     */
+    private static final class InvalidationListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+        private final transient SecondLevelCacheManager manager;
+
+        private InvalidationListener(SecondLevelCacheManager manager) {
+            this.manager = manager;
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            manager.onEntityChange(event.getSession(), event.getPersister(), event.getId());
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            manager.onEntityChange(event.getSession(), event.getPersister(), event.getId());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            manager.onEntityChange(event.getSession(), event.getPersister(), event.getId());
+        }
+
+        @Override
+        public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+            manager.onCollectionChange(event);
+        }
+
+        @Override
+        public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+            manager.onCollectionChange(event);
+        }
+
+        @Override
+        public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+            manager.onCollectionChange(event);
+        }
+
+        @Override
+        public boolean requiresPostCommitHanding(EntityPersister persister) {
+            return false;
+        }
+    }
+}
@@ -41,6 +41,7 @@ import io.dockstore.webservice.core.WorkflowMode;
 import io.dockstore.webservice.core.WorkflowVersion;
 import io.dockstore.webservice.languages.LanguageHandlerFactory;
 import io.dockstore.webservice.languages.LanguageHandlerInterface;
+import io.dockstore.webservice.languages.LanguageValidationEngine;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Collections;
@@ -699,13 +700,17 @@ public abstract class SourceCodeRepoInterface {
         Optional<SourceFile> mainDescriptor = sourceFiles.stream().filter((sourceFile -> Objects
                 .equals(sourceFile.getPath(), mainDescriptorPath))).findFirst();
 
+        LanguageHandlerInterface languageHandler = LanguageHandlerFactory.getInterface(identifiedType);
+
         // Validate descriptor set
         if (mainDescriptor.isPresent()) {
             VersionTypeValidation validDescriptorSet;
             if (entry.getEntryType() == EntryType.APPTOOL) {
-                validDescriptorSet = LanguageHandlerFactory.getInterface(identifiedType).validateToolSet(sourceFiles, mainDescriptorPath);
+                validDescriptorSet = LanguageValidationEngine.timed(identifiedType, LanguageValidationEngine.TOOL_SET,
+                    () -> languageHandler.validateToolSet(sourceFiles, mainDescriptorPath));
             } else {
-                validDescriptorSet = LanguageHandlerFactory.getInterface(identifiedType).validateWorkflowSet(sourceFiles, mainDescriptorPath);
+                validDescriptorSet = LanguageValidationEngine.timed(identifiedType, LanguageValidationEngine.WORKFLOW_SET,
+                    () -> languageHandler.validateWorkflowSet(sourceFiles, mainDescriptorPath));
             }
             Validation descriptorValidation = new Validation(identifiedType, validDescriptorSet);
             version.addOrUpdateValidation(descriptorValidation);
@@ -717,9 +722,8 @@ public abstract class SourceCodeRepoInterface {
             version.addOrUpdateValidation(noPrimaryDescriptorValidation);
         }
 
-        // Validate test parameter set
-        VersionTypeValidation validTestParameterSet = LanguageHandlerFactory.getInterface(identifiedType)
-            .validateTestParameterSet(sourceFiles);
+        // Validate test parameter set, from this thread so that the files are parsed concurrently on the validation pool
+        VersionTypeValidation validTestParameterSet = languageHandler.validateTestParameterSet(sourceFiles);
         Validation testParameterValidation = new Validation(entry.getTestParameterType(), validTestParameterSet);
         version.addOrUpdateValidation(testParameterValidation);
 
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.VirtualThreadConfig;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates virtual threads, which block on I/O without holding an OS thread, when the JVM has them (Java 21 or later).
+ *
+ * <p>The webservice is built for Java 11, so virtual threads are created through reflection. Until {@link #init(VirtualThreadConfig)}
+ * enables them, or if the JVM does not have them, everything runs on platform threads as before.
+ *
+ * <p>A virtual thread that blocks inside a {@code synchronized} block or method is pinned to its carrier thread, and holds an OS
+ * thread like a platform thread would. Code that can block while holding a lock, like running Nextflow, uses a
+ * {@link java.util.concurrent.locks.ReentrantLock} instead. So does the PostgreSQL driver from version 42.6, older versions
+ * synchronize every query, which would pin each request and background task for as long as the database takes to answer.
+ */
+public final class VirtualThreads {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreads.class);
+    private static final String TRACE_PINNED_THREADS_PROPERTY = "jdk.tracePinnedThreads";
+    private static final boolean SUPPORTED = probe();
+
+    private static volatile boolean enabled = false;
+
+    private VirtualThreads() {
+        // hide the constructor for utility classes
+    }
+
+    /**
+     * @param config whether to use virtual threads
+     * @return true if virtual threads are used
+     */
+    public static boolean init(VirtualThreadConfig config) {
+        if (config.isEnabled() && !SUPPORTED) {
+            LOG.warn("Virtual threads need Java 21 or later, running Java {} on platform threads", System.getProperty("java.specification.version"));
+        }
+        enabled = config.isEnabled() && SUPPORTED;
+        if (enabled && config.isTracePinnedThreads() && System.getProperty(TRACE_PINNED_THREADS_PROPERTY) == null) {
+            // only read when the first virtual thread is created
+            System.setProperty(TRACE_PINNED_THREADS_PROPERTY, "short");
+        }
+        return enabled;
+    }
+
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param prefix the name of the threads, followed by a counter
+     * @return a factory of unstarted virtual threads
+     */
+    public static ThreadFactory newThreadFactory(String prefix) {
+        try {
+            // Thread.ofVirtual().name(prefix, 0).factory()
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Object namedBuilder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(namedBuilder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("Virtual threads are not available", e);
+        }
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread for every task, and runs at most {@code maxConcurrency} tasks at once. The other
+     * tasks wait for their turn on their own, parked, virtual threads, like tasks queued for a fixed size pool would.
+     * @param prefix the name of the threads, followed by a counter
+     * @param maxConcurrency the most tasks run at once
+     * @return the executor
+     */
+    public static ExecutorService newExecutor(String prefix, int maxConcurrency) {
+        return new BoundedThreadPerTaskExecutor(newThreadFactory(prefix), maxConcurrency);
+    }
+
+    private static boolean probe() {
+        try {
+            newThreadFactory("probe-");
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts a thread per task, and lets a bounded number of them run at once
+     */
+    static final class BoundedThreadPerTaskExecutor extends AbstractExecutorService {
+        private final ThreadFactory threadFactory;
+        private final Semaphore permits;
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        private volatile boolean shutdown = false;
+
+        BoundedThreadPerTaskExecutor(ThreadFactory threadFactory, int maxConcurrency) {
+            this.threadFactory = threadFactory;
+            this.permits = new Semaphore(Math.max(1, maxConcurrency));
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Executor is shut down");
+            }
+            final Thread thread = threadFactory.newThread(() -> {
+                try {
+                    permits.acquire();
+                    try {
+                        command.run();
+                    } finally {
+                        permits.release();
+                    }
+                } catch (InterruptedException e) {
+                    // shut down before the task could run
+                    Thread.currentThread().interrupt();
+                } finally {
+                    threads.remove(Thread.currentThread());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            threads.forEach(Thread::interrupt);
+            // tasks waiting for a permit are dropped when interrupted, and cannot be handed back
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && threads.isEmpty();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (Thread thread : threads) {
+                final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    break;
+                }
+                thread.join(remainingMillis);
+            }
+            return isTerminated();
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.core.Alias;
+import io.dockstore.webservice.core.Token;
+import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.core.Version;
+import io.dockstore.webservice.core.Workflow;
+import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.core.ZenodoDoiRequest;
+import io.dockstore.webservice.core.ZenodoDoiRequest.State;
+import io.dockstore.webservice.jdbi.FileDAO;
+import io.dockstore.webservice.jdbi.TokenDAO;
+import io.dockstore.webservice.jdbi.UserDAO;
+import io.dockstore.webservice.jdbi.WorkflowDAO;
+import io.dockstore.webservice.jdbi.WorkflowVersionDAO;
+import io.dockstore.webservice.jdbi.ZenodoDoiRequestDAO;
+import io.dockstore.webservice.resources.AliasableResourceInterface;
+import io.swagger.zenodo.client.ApiClient;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.ZipOutputStream;
+import org.apache.http.HttpStatus;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers requested DOIs on Zenodo in the background, see {@link ZenodoDoiRequest}.
+ *
+ * <p>Each step reads what it needs in a short transaction, calls Zenodo with no transaction open, and records its result
+ * and the step it reached in a second short transaction, if the request is still at the step it was at. The request row is
+ * only locked while those transactions run, and the calls to Zenodo can be repeated, so that a step that is run twice at the
+ * same time, e.g. by a webservice that resumes a request another one is working on, does no harm. The zip of the source
+ * files is streamed from the database to a temporary file.
+ *
+ * <p>A step that fails records the error and stops the request; requesting the DOI again resumes it at that step. The id of
+ * the draft deposition is recorded as soon as Zenodo returns it, before its DOI is reserved, so that a request that was
+ * interrupted carries on with that draft instead of creating another one.
+ * Requests that a webservice was working on when it stopped are resumed by {@link #init(ExecutorService, SessionFactory, String, String, String)}.
+ */
+public final class ZenodoDoiService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ZenodoDoiService.class);
+
+    private static AfterCommitExecutor afterCommitExecutor = null;
+    private static SessionFactory sessionFactory = null;
+    private static String zenodoUrl = null;
+    private static String dockstoreUrl = null;
+    private static String dockstoreGA4GHBaseUrl = null;
+
+    private ZenodoDoiService() {
+        // hide the constructor for utility classes
+    }
+
+    /**
+     * Starts resuming the requests that were interrupted
+     * @param executor executor that the steps run on
+     * @param factory session factory
+     * @param zenodoBaseUrl URL for Zenodo (e.g. https://zenodo.org)
+     * @param dockstoreBaseUrl URL for Dockstore (e.g. https://dockstore.org)
+     * @param ga4ghBaseUrl The baseURL for GA4GH tools endpoint (e.g. "http://localhost:8080/api/api/ga4gh/v2/tools/")
+     */
+    public static void init(ExecutorService executor, SessionFactory factory, String zenodoBaseUrl, String dockstoreBaseUrl, String ga4ghBaseUrl) {
+        afterCommitExecutor = new AfterCommitExecutor(executor, factory);
+        sessionFactory = factory;
+        zenodoUrl = zenodoBaseUrl;
+        dockstoreUrl = dockstoreBaseUrl;
+        dockstoreGA4GHBaseUrl = ga4ghBaseUrl;
+        executor.execute(() -> {
+            try {
+                inTransaction(() -> new ZenodoDoiRequestDAO(sessionFactory).findInterruptedIds()).forEach(ZenodoDoiService::submit);
+            } catch (RuntimeException e) {
+                LOG.error("Could not resume interrupted DOI requests", e);
+            }
+        });
+    }
+
+    /**
+     * Once the current transaction has committed, works on the request in the background until it is done or a step fails
+     * @param request request that was created or reset in the current transaction
+     */
+    public static void advanceAfterCommit(ZenodoDoiRequest request) {
+        if (afterCommitExecutor != null) {
+            afterCommitExecutor.afterCommit(() -> submit(request.getId()));
+        }
+    }
+
+    private static void submit(long requestId) {
+        // if shutting down, the request is resumed when the webservice starts again
+        afterCommitExecutor.execute(() -> advance(requestId));
+    }
+
+    private static void advance(long requestId) {
+        try {
+            State state;
+            do {
+                state = step(requestId);
+            } while (state != null && state != State.ALIASED);
+        } catch (RuntimeException e) {
+            LOG.error("Could not register DOI for request " + requestId, e);
+            recordError(requestId, e instanceof CustomWebApplicationException ? ((CustomWebApplicationException)e).getErrorMessage() : e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the step after the one the request has reached
+     * @return the step the request has reached now, or null if there is nothing to do here
+     */
+    private static State step(long requestId) {
+        final AtomicReference<ZenodoCall> pendingCall = new AtomicReference<>();
+        final State state = inTransaction(() -> {
+            final ZenodoDoiRequest request = new ZenodoDoiRequestDAO(sessionFactory).findByIdForUpdate(requestId);
+            if (request == null || request.getError() != null) {
+                // another webservice has it, or it stopped
+                return null;
+            }
+            final Workflow workflow = new WorkflowDAO(sessionFactory).findById(request.getWorkflowId());
+            final WorkflowVersion workflowVersion = new WorkflowVersionDAO(sessionFactory).findById(request.getWorkflowVersionId());
+            switch (request.getState()) {
+            case REQUESTED:
+                request.setState(State.DRAFTING);
+                break;
+            case DRAFTING:
+                pendingCall.set(draft(request, workflow, workflowVersion));
+                break;
+            case DRAFTED:
+                pendingCall.set(upload(request, workflow, workflowVersion));
+                break;
+            case FILES_UPLOADED:
+                pendingCall.set(publish(request, workflow, workflowVersion));
+                break;
+            case PUBLISHED:
+                addDoiToVersion(request, workflow, workflowVersion);
+                request.setState(State.ALIASED);
+                break;
+            default:
+                break;
+            }
+            return request.getState();
+        });
+        final ZenodoCall zenodoCall = pendingCall.get();
+        if (zenodoCall == null) {
+            return state;
+        }
+        final Consumer<ZenodoDoiRequest> result = zenodoCall.call();
+        return inTransaction(() -> {
+            final ZenodoDoiRequest request = new ZenodoDoiRequestDAO(sessionFactory).findByIdWaitingForLock(requestId);
+            if (request == null || request.getError() != null || request.getState() != state) {
+                return null;
+            }
+            result.accept(request);
+            return request.getState();
+        });
+    }
+
+    /**
+     * The deposition id is recorded as soon as Zenodo returns it, and the DOI is reserved on that deposition in a call of its own,
+     * so that an interrupted request reserves the DOI of the deposition it made
+     */
+    private static ZenodoCall draft(ZenodoDoiRequest request, Workflow workflow, WorkflowVersion workflowVersion) {
+        final ApiClient zenodoClient = createZenodoClient(request);
+        final Integer depositionId = request.getDepositionId();
+        final ZenodoHelper.ZenodoVersion zenodoVersion = describeVersion(workflow, workflowVersion);
+        if (depositionId == null) {
+            ZenodoHelper.checkForExistingDOIForWorkflowVersion(workflowVersion);
+            return () -> {
+                final int createdId = ZenodoHelper.createDeposition(zenodoClient, zenodoVersion);
+                return drafting -> {
+                    if (drafting.getDepositionId() == null) {
+                        drafting.setDepositionId(createdId);
+                    } else if (drafting.getDepositionId() != createdId) {
+                        LOG.warn("DOI request " + drafting.getId() + " already has deposition " + drafting.getDepositionId() + ", deposition " + createdId
+                            + " is left as an empty draft on Zenodo");
+                    }
+                };
+            };
+        }
+        return () -> {
+            final ZenodoHelper.ZenodoDraft draft = ZenodoHelper.reserveDoi(zenodoClient, depositionId, zenodoVersion);
+            return drafting -> {
+                drafting.setDoiAlias(draft.getDoiAlias());
+                drafting.setState(State.DRAFTED);
+            };
+        };
+    }
+
+    /**
+     * The zip of the source files is streamed from the database to a temporary file, and uploaded once the transaction is over
+     */
+    private static ZenodoCall upload(ZenodoDoiRequest request, Workflow workflow, WorkflowVersion workflowVersion) {
+        final ApiClient zenodoClient = createZenodoClient(request);
+        final int depositionId = request.getDepositionId();
+        final String fileName = ZenodoHelper.createZipFileName(workflow, workflowVersion);
+        final Path zipFile = zipSourceFiles(workflowVersion);
+        return () -> {
+            try {
+                ZenodoHelper.replaceFiles(zenodoClient, depositionId, zipFile.toFile(), fileName);
+            } finally {
+                deleteQuietly(zipFile);
+            }
+            return uploaded -> uploaded.setState(State.FILES_UPLOADED);
+        };
+    }
+
+    private static ZenodoCall publish(ZenodoDoiRequest request, Workflow workflow, WorkflowVersion workflowVersion) {
+        final ApiClient zenodoClient = createZenodoClient(request);
+        final ZenodoHelper.ZenodoDraft draft = new ZenodoHelper.ZenodoDraft(request.getDepositionId(), request.getDoiAlias());
+        final ZenodoHelper.ZenodoVersion zenodoVersion = describeVersion(workflow, workflowVersion);
+        return () -> {
+            final ZenodoHelper.ZenodoDoiResult doiResult = ZenodoHelper.publishDeposit(zenodoClient, draft, zenodoVersion, dockstoreUrl);
+            return published -> {
+                published.setDoiUrl(doiResult.getDoiUrl());
+                published.setConceptDoi(doiResult.getConceptDoi());
+                published.setState(State.PUBLISHED);
+            };
+        };
+    }
+
+    private static ZenodoHelper.ZenodoVersion describeVersion(Workflow workflow, WorkflowVersion workflowVersion) {
+        return ZenodoHelper.describeVersion(workflow, workflowVersion, MetadataResourceHelper.createWorkflowURL(workflow), dockstoreGA4GHBaseUrl);
+    }
+
+    private static ApiClient createZenodoClient(ZenodoDoiRequest request) {
+        final List<Token> tokens = new TokenDAO(sessionFactory).findZenodoByUserId(request.getUserId());
+        if (tokens.isEmpty()) {
+            throw new CustomWebApplicationException("Could not register DOI, the user who requested it has no Zenodo token", HttpStatus.SC_BAD_REQUEST);
+        }
+        final ApiClient zenodoClient = new ApiClient();
+        // for testing, either 'https://sandbox.zenodo.org/api' or 'https://zenodo.org/api' is the first parameter
+        zenodoClient.setBasePath(zenodoUrl + "/api");
+        zenodoClient.setApiKey(tokens.get(0).getContent());
+        return zenodoClient;
+    }
+
+    /**
+     * Writes the source files of a version to a temporary zip, reading them from the database one at a time
+     * @return the zip, which the caller deletes
+     */
+    private static Path zipSourceFiles(WorkflowVersion workflowVersion) {
+        final Path zipFile;
+        try {
+            zipFile = Files.createTempFile("doi", ".zip");
+        } catch (IOException e) {
+            LOG.error("Could not create Zenodo upload temp file." + " Error is " + e.getMessage(), e);
+            throw new CustomWebApplicationException("Internal server error creating Zenodo upload temp file", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+        final AtomicInteger count = new AtomicInteger();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+            final List<String> paths = new ArrayList<>();
+            new FileDAO(sessionFactory).forEachSourceFileOfVersion(workflowVersion.getId(), (absolutePath, content) -> {
+                try {
+                    EntryVersionHelper.writeZipEntry(zipOutputStream, paths, zipFile, absolutePath, content);
+                    count.incrementAndGet();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            deleteQuietly(zipFile);
+            LOG.error("Could not create DOI zip file " + zipFile + " for upload to Zenodo." + " Error is " + e.getMessage(), e);
+            throw new CustomWebApplicationException("Internal server error creating Zenodo upload zip file", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+        if (count.get() == 0) {
+            deleteQuietly(zipFile);
+            LOG.warn("No source files found to zip when creating DOI");
+            throw new CustomWebApplicationException("No source files found to"
+                + " upload when creating DOI. Zenodo requires at lease one file"
+                + " to be uploaded in order to create a DOI.", HttpStatus.SC_BAD_REQUEST);
+        }
+        return zipFile;
+    }
+
+    /**
+     * Only add the alias to the workflow version after publishing the DOI succeeds.
+     * Otherwise if the publish call fails we will have added an alias that will not be used and cannot be deleted.
+     */
+    private static void addDoiToVersion(ZenodoDoiRequest request, Workflow workflow, WorkflowVersion workflowVersion) {
+        final User user = new UserDAO(sessionFactory).findById(request.getUserId());
+        workflowVersion.setDoiURL(request.getDoiUrl());
+        workflowVersion.setDoiStatus(Version.DOIStatus.CREATED);
+        workflow.setConceptDoi(request.getConceptDoi());
+        // This checks that the alias does not start with an invalid prefix
+        // If it does, this will generate an exception, the alias will not be added
+        // to the workflow version, but there may be an invalid Related Identifier URL on the Zenodo entry
+        AliasableResourceInterface.checkAliases(Set.of(request.getDoiAlias()), user, false);
+        workflowVersion.getAliases().putIfAbsent(request.getDoiAlias(), new Alias());
+        PublicStateManager.getInstance().handleIndexUpdate(workflow, StateManagerMode.UPDATE);
+    }
+
+    private static void recordError(long requestId, String error) {
+        try {
+            inTransaction(() -> {
+                final ZenodoDoiRequest request = new ZenodoDoiRequestDAO(sessionFactory).findById(requestId);
+                if (request != null) {
+                    request.setError(error == null ? "Unknown error" : error);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // not recorded, so the request is resumed when the webservice starts again
+            LOG.error("Could not record the error of DOI request " + requestId, e);
+        }
+    }
+
+    private static <T> T inTransaction(Supplier<T> work) {
+        return afterCommitExecutor.inTransaction(work);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.warn("Could not delete " + file, e);
+        }
+    }
+
+    /**
+     * A call to Zenodo, made with no transaction open
+     */
+    @FunctionalInterface
+    private interface ZenodoCall {
+        /**
+         * @return records the result on the request, if it is still at the step it was at before the call
+         */
+        Consumer<ZenodoDoiRequest> call();
+    }
+}
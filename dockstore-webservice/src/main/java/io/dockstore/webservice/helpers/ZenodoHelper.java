@@ -4,7 +4,6 @@ import static io.swagger.api.impl.ToolsImplCommon.WORKFLOW_PREFIX;
 
 import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.core.Label;
-import io.dockstore.webservice.core.SourceFile;
 import io.dockstore.webservice.core.Version;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowVersion;
@@ -22,13 +21,9 @@ import io.swagger.zenodo.client.model.DepositMetadata;
 import io.swagger.zenodo.client.model.NestedDepositMetadata;
 import io.swagger.zenodo.client.model.RelatedIdentifier;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.ZonedDateTime;
@@ -37,9 +32,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.stream.Collectors;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
 import org.slf4j.Logger;
@@ -52,115 +45,165 @@ public final class ZenodoHelper {
     }
 
     /**
-     * Register a Zenodo DOI for the workflow version
-     * @param zenodoClient Client for interacting with Zenodo server
+     * Read what Zenodo is told about a workflow version, so that Zenodo can be called once the transaction is over.
      * @param workflow    workflow for which DOI is registered
      * @param workflowVersion workflow version for which DOI is registered
      * @param workflowUrl Dockstore workflow URL (e.g. https://dockstore.org/workflows/github.com/DataBiosphere/topmed-workflows/UM_variant_caller_wdl)
      * @param dockstoreGA4GHBaseUrl The baseURL for GA4GH tools endpoint (e.g. "http://localhost:8080/api/api/ga4gh/v2/tools/")
-     * @param dockstoreUrl URL for Dockstore (e.g. https://dockstore.org)
-     * @param entryVersionHelper provides interface for retrieving the files of versions
+     * @return the workflow version, as Zenodo sees it
      */
-    public static ZenodoDoiResult registerZenodoDOI(ApiClient zenodoClient, Workflow workflow,
-            WorkflowVersion workflowVersion, String workflowUrl, String dockstoreGA4GHBaseUrl,
-            String dockstoreUrl, EntryVersionHelper entryVersionHelper) {
-        DepositsApi depositApi = new DepositsApi(zenodoClient);
-        ActionsApi actionsApi = new ActionsApi(zenodoClient);
-        Deposit deposit = new Deposit();
-        Deposit returnDeposit;
-        checkForExistingDOIForWorkflowVersion(workflowVersion);
-        Optional<String> existingWorkflowVersionDOIURL = getAnExistingDOIForWorkflow(workflow);
-
-        int depositionID;
-        DepositMetadata depositMetadata;
-        String doiAlias;
-        if (existingWorkflowVersionDOIURL.isEmpty()) {
+    public static ZenodoVersion describeVersion(Workflow workflow, WorkflowVersion workflowVersion, String workflowUrl, String dockstoreGA4GHBaseUrl) {
+        DepositMetadata depositMetadata = new DepositMetadata();
+        fillInMetadata(depositMetadata, workflow, workflowVersion);
+        Integer previousDepositionId = getAnExistingDOIForWorkflow(workflow)
+                .map(doiUrl -> Integer.valueOf(doiUrl.substring(doiUrl.lastIndexOf(".") + 1).trim()))
+                .orElse(null);
+        return new ZenodoVersion(depositMetadata, previousDepositionId, workflow.getConceptDoi(), workflowVersion.getName(),
+                workflowUrl + ":" + workflowVersion.getName(), createWorkflowTrsUrl(workflow, workflowVersion, dockstoreGA4GHBaseUrl));
+    }
+
+    /**
+     * Create the deposition for a workflow version on Zenodo, a new version of the deposition of a previous version of the workflow if there is one.
+     * This is the first step of registering a Zenodo DOI, see {@link ZenodoDoiService}, which records the id before the DOI is reserved
+     * with {@link #reserveDoi(ApiClient, int, ZenodoVersion)}.
+     * @param zenodoClient Client for interacting with Zenodo server
+     * @param version the workflow version, see {@link #describeVersion(Workflow, WorkflowVersion, String, String)}
+     * @return Zenodo's ID for the deposition
+     */
+    public static int createDeposition(ApiClient zenodoClient, ZenodoVersion version) {
+        if (version.getPreviousDepositionId() == null) {
             try {
                 // No DOI has been assigned to any version of the workflow yet
                 // So create a new deposit which will enable creation of a new
                 // concept DOI and new version DOI
-                returnDeposit = depositApi.createDeposit(deposit);
-                depositionID = returnDeposit.getId();
-                depositMetadata = returnDeposit.getMetadata();
-                // Set the attribute that will reserve a DOI before publishing
-                fillInMetadata(depositMetadata, workflow, workflowVersion);
-                depositMetadata.prereserveDoi(true);
-                // Put the deposit on Zenodo; the returned deposit will contain
-                // the reserved DOI which we can use to create a workflow alias
-                // Later on we will update the Zenodo deposit (put the deposit on
-                // Zenodo again  in the call to putDepositionOnZenodo) so it contains the workflow version alias
-                // constructed with the DOI
-                Deposit newDeposit = putDepositionOnZenodo(depositApi, depositMetadata, depositionID);
-                depositMetadata.prereserveDoi(false);
-                // Retrieve the DOI so we can use it to create a Dockstore alias
-                // to the workflow; we will add that alias as a Zenodo related identifier
-                Map<String, String> doiMap = (Map<String, String>)newDeposit.getMetadata().getPrereserveDoi();
-                Map.Entry<String, String> doiEntry = doiMap.entrySet().iterator().next();
-                String doi = doiEntry.getValue();
-                doiAlias = createAliasUsingDoi(doi);
-                setMetadataRelatedIdentifiers(depositMetadata, dockstoreGA4GHBaseUrl,
-                        dockstoreUrl, workflowUrl, workflow, workflowVersion, doiAlias);
+                return new DepositsApi(zenodoClient).createDeposit(new Deposit()).getId();
             } catch (ApiException e) {
                 LOG.error("Could not create deposition on Zenodo. Error is " + e.getMessage(), e);
                 throw new CustomWebApplicationException("Could not create deposition on Zenodo. "
                         + "Error is " + e.getMessage(), HttpStatus.SC_BAD_REQUEST);
             }
-        } else {
-            String depositIdStr = existingWorkflowVersionDOIURL.get()
-                    .substring(existingWorkflowVersionDOIURL.get().lastIndexOf(".") + 1).trim();
-            int depositId = Integer.parseInt(depositIdStr);
-            try {
-                // A DOI was previously assigned to a workflow version so we will
-                // use the ID associated with the workflow version DOI
-                // to create a new workflow version DOI
-                returnDeposit = actionsApi.newDepositVersion(depositId);
-                // The response body of this action is NOT the new version deposit,
-                // but the original resource. The new version deposition can be
-                // accessed through the "latest_draft" under "links" in the response body.
-                String depositURL = returnDeposit.getLinks().get("latest_draft");
-                String depositionIDStr = depositURL.substring(depositURL.lastIndexOf("/") + 1).trim();
-                // Get the deposit object for the new workflow version DOI
-                depositionID = Integer.parseInt(depositionIDStr);
-                returnDeposit = depositApi.getDeposit(depositionID);
-                depositMetadata = returnDeposit.getMetadata();
-                // Retrieve the DOI so we can use it to create a Dockstore alias
-                // to the workflow; we will add that alias as a Zenodo related identifier
-                String doi = depositMetadata.getDoi();
-                doiAlias = createAliasUsingDoi(doi);
-                setMetadataRelatedIdentifiers(depositMetadata,  dockstoreGA4GHBaseUrl,
-                        dockstoreUrl, workflowUrl, workflow, workflowVersion, doiAlias);
-                fillInMetadata(depositMetadata, workflow, workflowVersion);
-            } catch (ApiException e) {
-                LOG.error("Could not create new deposition version on Zenodo. Error is " + e.getMessage(), e);
-                if (e.getCode() == HttpStatus.SC_FORBIDDEN) {
-                    // Another user in the same organization already requested a DOI for a workflow version and created the workflow concept DOI.
-                    // We are unable to create a new deposition version using the current user's Zenodo credentials because they don't have permission to create a deposition version for the original concept DOI.
-                    // The workaround is for the user who created the concept DOI to request DOI's for other versions whenever it's needed by users from the same organization.
-                    // This will hopefully be revisited later when Zenodo implements a feature where a deposit can be shared among users.
-                    String errorMessage = String.format(
-                            "Could not create new deposition version on Zenodo because you do not have permission to create a deposition version for DOI %s. "
-                                    + "Please ask the person who created DOI %s to request a DOI for workflow version %s on Dockstore.",
-                            workflow.getConceptDoi(), workflow.getConceptDoi(), workflowVersion.getName());
-                    throw new CustomWebApplicationException(errorMessage, HttpStatus.SC_BAD_REQUEST);
-                } else {
-                    throw new CustomWebApplicationException("Could not create new deposition version on Zenodo."
-                        + " Error is " + e.getMessage(), HttpStatus.SC_BAD_REQUEST);
-                }
+        }
+        try {
+            // A DOI was previously assigned to a workflow version so we will
+            // use the ID associated with the workflow version DOI
+            // to create a new workflow version DOI
+            Deposit returnDeposit = new ActionsApi(zenodoClient).newDepositVersion(version.getPreviousDepositionId());
+            // The response body of this action is NOT the new version deposit,
+            // but the original resource. The new version deposition can be
+            // accessed through the "latest_draft" under "links" in the response body.
+            // Zenodo returns the same draft if it has already made one, e.g. for an interrupted request.
+            String depositURL = returnDeposit.getLinks().get("latest_draft");
+            return Integer.parseInt(depositURL.substring(depositURL.lastIndexOf("/") + 1).trim());
+        } catch (ApiException e) {
+            LOG.error("Could not create new deposition version on Zenodo. Error is " + e.getMessage(), e);
+            if (e.getCode() == HttpStatus.SC_FORBIDDEN) {
+                // Another user in the same organization already requested a DOI for a workflow version and created the workflow concept DOI.
+                // We are unable to create a new deposition version using the current user's Zenodo credentials because they don't have permission to create a deposition version for the original concept DOI.
+                // The workaround is for the user who created the concept DOI to request DOI's for other versions whenever it's needed by users from the same organization.
+                // This will hopefully be revisited later when Zenodo implements a feature where a deposit can be shared among users.
+                String errorMessage = String.format(
+                        "Could not create new deposition version on Zenodo because you do not have permission to create a deposition version for DOI %s. "
+                                + "Please ask the person who created DOI %s to request a DOI for workflow version %s on Dockstore.",
+                        version.getConceptDoi(), version.getConceptDoi(), version.getVersionName());
+                throw new CustomWebApplicationException(errorMessage, HttpStatus.SC_BAD_REQUEST);
+            } else {
+                throw new CustomWebApplicationException("Could not create new deposition version on Zenodo."
+                    + " Error is " + e.getMessage(), HttpStatus.SC_BAD_REQUEST);
             }
         }
+    }
 
-        provisionWorkflowVersionUploadFiles(zenodoClient, returnDeposit, depositionID,
-                workflow, workflowVersion, entryVersionHelper);
+    /**
+     * Reserve the DOI of a deposition made by {@link #createDeposition(ApiClient, ZenodoVersion)}. This can be repeated, Zenodo
+     * keeps the DOI it reserved.
+     * @param zenodoClient Client for interacting with Zenodo server
+     * @param depositionId Zenodo's ID for the deposition
+     * @param version the workflow version, see {@link #describeVersion(Workflow, WorkflowVersion, String, String)}
+     * @return the draft deposition
+     */
+    public static ZenodoDraft reserveDoi(ApiClient zenodoClient, int depositionId, ZenodoVersion version) {
+        DepositsApi depositApi = new DepositsApi(zenodoClient);
+        String doi;
+        if (version.getPreviousDepositionId() == null) {
+            DepositMetadata depositMetadata = new DepositMetadata();
+            copyMetadata(version.getMetadata(), depositMetadata);
+            // Set the attribute that will reserve a DOI before publishing
+            depositMetadata.prereserveDoi(true);
+            // Put the deposit on Zenodo; the returned deposit will contain
+            // the reserved DOI which we can use to create a workflow alias
+            // Later on we will update the Zenodo deposit (put the deposit on
+            // Zenodo again in publishDeposit) so it contains the workflow version alias
+            // constructed with the DOI
+            Deposit newDeposit = putDepositionOnZenodo(depositApi, depositMetadata, depositionId);
+            Map<String, String> doiMap = (Map<String, String>)newDeposit.getMetadata().getPrereserveDoi();
+            doi = doiMap.get("doi");
+        } else {
+            // A new version of a deposition has its DOI already
+            doi = getDepositOnZenodo(depositApi, depositionId).getMetadata().getDoi();
+        }
+        // Retrieve the DOI so we can use it to create a Dockstore alias
+        // to the workflow; we will add that alias as a Zenodo related identifier
+        return new ZenodoDraft(depositionId, createAliasUsingDoi(doi));
+    }
 
-        putDepositionOnZenodo(depositApi, depositMetadata, depositionID);
+    /**
+     * Replace the files of a draft deposition with a zip of the source files of the workflow version.
+     * Creating a new version copies the files of the previous version, and a previous attempt may have uploaded the zip
+     * already, so whatever files the draft has are deleted first.
+     * @param zenodoClient Client for interacting with Zenodo server
+     * @param depositionID ID of Zenodo deposit to which files will be attached
+     * @param zipFile zip of the source files of the workflow version
+     * @param fileName name of the zip on Zenodo, see {@link #createZipFileName(Workflow, WorkflowVersion)}
+     */
+    public static void replaceFiles(ApiClient zenodoClient, int depositionID, File zipFile, String fileName) {
+        FilesApi filesApi = new FilesApi(zenodoClient);
+        Deposit deposit = getDepositOnZenodo(new DepositsApi(zenodoClient), depositionID);
+        try {
+            deposit.getFiles().forEach(file -> filesApi.deleteFile(depositionID, file.getId()));
+            filesApi.createFile(depositionID, zipFile, fileName);
+        } catch (ApiException e) {
+            LOG.error("Could not create files for new version on Zenodo. Error is " + e.getMessage(), e);
+            throw new CustomWebApplicationException("Could not create files for new version on Zenodo."
+                    + " Error is " + e.getMessage(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
 
-        Deposit publishedDeposit = publishDepositOnZenodo(actionsApi, depositionID);
+    /**
+     * @param workflow    workflow for which DOI is registered
+     * @param workflowVersion workflow version for which DOI is registered
+     * @return name of the zip of the source files of the workflow version on Zenodo
+     */
+    public static String createZipFileName(Workflow workflow, WorkflowVersion workflowVersion) {
+        // Replace forward slashes so we can use the version in a file name
+        String versionOfWorkflow = workflowVersion.getName().replaceAll("/", "-");
+        // Replace forward slashes so we can use the workflow path in a file name
+        return workflow.getWorkflowPath().replaceAll("/", "-") + "_" + versionOfWorkflow + ".zip";
+    }
+
+    /**
+     * Fill in the metadata of a draft deposition and publish it, which registers the DOI.
+     * A deposition that was published by a previous attempt is not published again.
+     * @param zenodoClient Client for interacting with Zenodo server
+     * @param draft the draft deposition
+     * @param version the workflow version, see {@link #describeVersion(Workflow, WorkflowVersion, String, String)}
+     * @param dockstoreUrl URL for Dockstore (e.g. https://dockstore.org)
+     */
+    public static ZenodoDoiResult publishDeposit(ApiClient zenodoClient, ZenodoDraft draft, ZenodoVersion version, String dockstoreUrl) {
+        DepositsApi depositApi = new DepositsApi(zenodoClient);
+        Deposit publishedDeposit = getDepositOnZenodo(depositApi, draft.getDepositionId());
+        if (!Boolean.TRUE.equals(publishedDeposit.getSubmitted())) {
+            DepositMetadata depositMetadata = publishedDeposit.getMetadata();
+            copyMetadata(version.getMetadata(), depositMetadata);
+            setMetadataRelatedIdentifiers(depositMetadata, dockstoreUrl, version, draft.getDoiAlias());
+            putDepositionOnZenodo(depositApi, depositMetadata, draft.getDepositionId());
+            publishedDeposit = publishDepositOnZenodo(new ActionsApi(zenodoClient), draft.getDepositionId());
+        }
 
         String conceptDoiUrl = publishedDeposit.getLinks().get("conceptdoi");
 
         String conceptDoi = extractDoiFromDoiUrl(conceptDoiUrl);
 
-        return new ZenodoDoiResult(doiAlias, publishedDeposit.getMetadata().getDoi(), conceptDoi);
+        return new ZenodoDoiResult(draft.getDoiAlias(), publishedDeposit.getMetadata().getDoi(), conceptDoi);
     }
 
     /**
@@ -257,16 +300,11 @@ public final class ZenodoHelper {
     /**
      * Add the workflow aliases as related identifiers to the deposition metadata
      * @param depositMetadata Metadata for the workflow version
-     * @param dockstoreGA4GHBaseUrl The baseURL for GA4GH tools endpoint (e.g. "http://localhost:8080/api/api/ga4gh/v2/tools/")
      * @param dockstoreUrl URL for Dockstore (e.g. https://dockstore.org)
-     * @param workflowUrl Dockstore workflow URL (e.g. https://dockstore.org/workflows/github.com/DataBiosphere/topmed-workflows/UM_variant_caller_wdl)
-     * @param workflow workflow for which DOI is registered
-     * @param workflowVersion workflow version for which DOI is registered
+     * @param version the workflow version, see {@link #describeVersion(Workflow, WorkflowVersion, String, String)}
      * @param doiAlias workflow alias constructed using a DOI
      */
-    private static void setMetadataRelatedIdentifiers(DepositMetadata depositMetadata,
-            String dockstoreGA4GHBaseUrl, String dockstoreUrl, String workflowUrl,
-            Workflow workflow, WorkflowVersion workflowVersion, String doiAlias) {
+    private static void setMetadataRelatedIdentifiers(DepositMetadata depositMetadata, String dockstoreUrl, ZenodoVersion version, String doiAlias) {
 
         List<RelatedIdentifier> relatedIdentifierList = new ArrayList<>();
 
@@ -277,15 +315,12 @@ public final class ZenodoHelper {
 
         // Add the UI2 link to the workflow to Zenodo as a related identifier
         // E.g https://dockstore.org/workflows/github.com/DataBiosphere/topmed-workflows/UM_variant_caller_wdl:1.32.0
-        final String versionOfWorkflow = workflowVersion.getName();
-        final String workflowVersionURL = workflowUrl + ":" + versionOfWorkflow;
-        addUriToRelatedIdentifierList(relatedIdentifierList, workflowVersionURL);
+        addUriToRelatedIdentifierList(relatedIdentifierList, version.getWorkflowVersionUrl());
 
         // Add the workflow Task Registry Service (TRS) URL to Zenodo as a related identifier
         // E.g. https://dockstore.org/api/api/ga4gh/v2/tools/%23workflow%2Fgithub.com%2FDataBiosphere
         // %2Ftopmed-workflows%2FUM_variant_caller_wdl/versions/1.32.0/PLAIN-WDL/descriptor/topmed_freeze3_calling.wdl
-        final String workflowVersionTrsUrl = createWorkflowTrsUrl(workflow, workflowVersion, dockstoreGA4GHBaseUrl);
-        addUriToRelatedIdentifierList(relatedIdentifierList, workflowVersionTrsUrl);
+        addUriToRelatedIdentifierList(relatedIdentifierList, version.getWorkflowVersionTrsUrl());
 
         depositMetadata.setRelatedIdentifiers(relatedIdentifierList);
     }
@@ -355,88 +390,27 @@ public final class ZenodoHelper {
     }
 
     /**
-     * Provision files to upload to Zenodo
-     * @param zendoClient Zenodo api client
-     * @param returnDeposit Deposit object for the new version
-     * @param depositionID ID of Zendo deposit to which files will be attached
-     * @param workflow    workflow for which DOI is registered
-     * @param workflowVersion workflow version for which DOI is registered
-     * @param entryVersionHelper code for interacting with the files of versions, we use zip file creation methods
+     * Copy the workflow version information from {@link #fillInMetadata(DepositMetadata, Workflow, WorkflowVersion)} to the
+     * metadata of a deposition, keeping what Zenodo put there
+     * @param from Metadata for the workflow version
+     * @param depositMetadata Metadata of the deposition
      */
-    private static void provisionWorkflowVersionUploadFiles(ApiClient zendoClient, Deposit returnDeposit,
-            int depositionID, Workflow workflow, WorkflowVersion workflowVersion, EntryVersionHelper entryVersionHelper) {
-        // Creating a new version copies the files from the previous version
-        // We want to delete these since we will upload a new set of files
-        // if creating a completely new deposit this should not cause a problem
-        FilesApi filesApi = new FilesApi(zendoClient);
-
-        returnDeposit.getFiles().forEach(file -> {
-            String fileIdStr = file.getId();
-            filesApi.deleteFile(depositionID, fileIdStr);
-        });
-
-
-
-        // Add workflow version source files as a zip to the DOI upload deposit
-        Set<SourceFile> sourceFiles = workflowVersion.getSourceFiles();
-        if (sourceFiles == null || sourceFiles.size() == 0) {
-            LOG.warn("No source files found to zip when creating DOI");
-            throw new CustomWebApplicationException("No source files found to"
-                    + " upload when creating DOI. Zenodo requires at lease one file"
-                    + " to be uploaded in order to create a DOI.", HttpStatus.SC_BAD_REQUEST);
-        } else {
-            // Replace forward slashes so we can use the version in a file name
-            String versionOfWorkflow = workflowVersion.getName().replaceAll("/", "-");
-            // Replace forward slashes so we can use the workflow path in a file name
-            String fileNameBase = workflow.getWorkflowPath().replaceAll("/", "-")
-                    + "_" + versionOfWorkflow;
-            String fileSuffix = ".zip";
-            String fileName = fileNameBase + fileSuffix;
-            Path tempDirPath;
-            try {
-                tempDirPath = Files.createTempDirectory(null);
-            } catch (IOException e) {
-                LOG.error("Could not create Zenodo temp upload directory." + " Error is " + e.getMessage(), e);
-                throw new CustomWebApplicationException("Internal server error creating Zenodo upload temp directory", HttpStatus.SC_INTERNAL_SERVER_ERROR);
-            }
-
-            String zipFilePathName = tempDirPath.toString() + "/" + fileName;
-
-            try (OutputStream outputStream = new FileOutputStream(zipFilePathName)) {
-                entryVersionHelper.writeStreamAsZip(sourceFiles, outputStream, Paths.get(zipFilePathName));
-            } catch (IOException fne) {
-                // Delete the temporary directory
-                FileUtils.deleteQuietly(tempDirPath.toFile());
-                LOG.error(
-                    "Could not create file " + zipFilePathName + " outputstream for DOI zip file for upload to Zenodo." + " Error is " + fne
-                        .getMessage(), fne);
-                throw new CustomWebApplicationException("Internal server error creating Zenodo upload temp directory",
-                    HttpStatus.SC_INTERNAL_SERVER_ERROR);
-            }
-
-            File zipFile = new File(zipFilePathName);
-
-            try {
-                filesApi.createFile(depositionID, zipFile, fileName);
-            } catch (ApiException e) {
-                LOG.error("Could not create files for new version on Zenodo. Error is " + e.getMessage(), e);
-                throw new CustomWebApplicationException("Could not create files for new version on Zenodo."
-                        + " Error is " + e.getMessage(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
-            } finally {
-                // Delete the zip file in the temporary directory
-                FileUtils.deleteQuietly(zipFile);
-                // Delete the temporary directory
-                FileUtils.deleteQuietly(tempDirPath.toFile());
-            }
-        }
+    private static void copyMetadata(DepositMetadata from, DepositMetadata depositMetadata) {
+        depositMetadata.setTitle(from.getTitle());
+        depositMetadata.setUploadType(from.getUploadType());
+        depositMetadata.setDescription(from.getDescription());
+        depositMetadata.setPublicationDate(from.getPublicationDate());
+        depositMetadata.setVersion(from.getVersion());
+        depositMetadata.setKeywords(from.getKeywords());
+        depositMetadata.setCreators(from.getCreators());
+        setMetadataCommunities(depositMetadata);
     }
 
-
     /**
      * Check if a Zenodo DOI already exists for the workflow version
      * @param workflowVersion workflow version
      */
-    private static void checkForExistingDOIForWorkflowVersion(WorkflowVersion workflowVersion) {
+    public static void checkForExistingDOIForWorkflowVersion(WorkflowVersion workflowVersion) {
         String workflowVersionDoiURL = workflowVersion.getDoiURL();
         if (workflowVersionDoiURL != null && !workflowVersionDoiURL.isEmpty()) {
             LOG.error("Workflow version " + workflowVersion.getName() + " already has DOI " + workflowVersionDoiURL
@@ -488,6 +462,22 @@ public final class ZenodoHelper {
         return deposit;
     }
 
+    /**
+     * Get the deposit from Zenodo
+     * @param depositApi Zenodo API for working with depositions
+     * @param depositionID Zenodo's ID for the deposition
+     * @return the deposit
+     */
+    private static Deposit getDepositOnZenodo(DepositsApi depositApi, int depositionID) {
+        try {
+            return depositApi.getDeposit(depositionID);
+        } catch (ApiException e) {
+            LOG.error("Could not get deposition from Zenodo. Error is " + e.getMessage(), e);
+            throw new CustomWebApplicationException("Could not get deposition from Zenodo."
+                    + " Error is " + e.getMessage(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * Publish the deposit on Zenodo
      * @param actionsApi Zenodo API for publishing deposits
@@ -506,6 +496,73 @@ public final class ZenodoHelper {
         return publishedDeposit;
     }
 
+    /**
+     * What Zenodo is told about a workflow version, read from the database before Zenodo is called
+     */
+    public static final class ZenodoVersion {
+        private final DepositMetadata metadata;
+        private final Integer previousDepositionId;
+        private final String conceptDoi;
+        private final String versionName;
+        private final String workflowVersionUrl;
+        private final String workflowVersionTrsUrl;
+
+        private ZenodoVersion(DepositMetadata metadata, Integer previousDepositionId, String conceptDoi, String versionName,
+                String workflowVersionUrl, String workflowVersionTrsUrl) {
+            this.metadata = metadata;
+            this.previousDepositionId = previousDepositionId;
+            this.conceptDoi = conceptDoi;
+            this.versionName = versionName;
+            this.workflowVersionUrl = workflowVersionUrl;
+            this.workflowVersionTrsUrl = workflowVersionTrsUrl;
+        }
+
+        public DepositMetadata getMetadata() {
+            return metadata;
+        }
+
+        /**
+         * @return the deposition of a version of the workflow that already has a DOI, null if there is none
+         */
+        public Integer getPreviousDepositionId() {
+            return previousDepositionId;
+        }
+
+        public String getConceptDoi() {
+            return conceptDoi;
+        }
+
+        public String getVersionName() {
+            return versionName;
+        }
+
+        public String getWorkflowVersionUrl() {
+            return workflowVersionUrl;
+        }
+
+        public String getWorkflowVersionTrsUrl() {
+            return workflowVersionTrsUrl;
+        }
+    }
+
+    public static final class ZenodoDraft {
+        private final int depositionId;
+        private final String doiAlias;
+
+        public ZenodoDraft(int depositionId, String doiAlias) {
+            this.depositionId = depositionId;
+            this.doiAlias = doiAlias;
+        }
+
+        public int getDepositionId() {
+            return depositionId;
+        }
+
+        public String getDoiAlias() {
+            return doiAlias;
+        }
+    }
+
     public static final class ZenodoDoiResult {
         private final String doiAlias;
         private final String doiUrl;
@@ -1,22 +1,28 @@
 package io.dockstore.webservice.helpers;
 
 import com.google.common.io.ByteStreams;
-import com.google.common.io.Files;
+import com.google.common.io.CountingInputStream;
 import io.dockstore.common.DescriptorLanguage;
 import io.dockstore.common.yaml.DockstoreYaml10;
 import io.dockstore.common.yaml.DockstoreYamlHelper;
 import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
 import io.dockstore.webservice.core.SourceFile;
-import java.io.File;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import org.apache.commons.io.FileUtils;
+import java.util.zip.ZipInputStream;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpStatus;
 import org.slf4j.Logger;
@@ -26,27 +32,37 @@ import org.slf4j.LoggerFactory;
  * Converts the contents of a zip file into a <code>SourceFiles</code> object, ensuring that
  * no zip exploits (e.g., zip bomb, path traversal) can execute.
  *
- * It writes out the input stream to a local file. Unfortunately we can't get the compressed
- * sizes from the request body without saving it to a file first:
- * https://stackoverflow.com/questions/36045421/java-zipentry-getsize-returns-1
+ * A posted zip is read in a single pass, straight from the request body into memory, without saving it to disk. The
+ * sizes in the zip's headers can't be trusted, or may be missing when the zip is streamed
+ * (https://stackoverflow.com/questions/36045421/java-zipentry-getsize-returns-1), so the bytes are counted as they are read.
  *
- * For protection,
+ * For protection, with the bounds of {@link DockstoreWebserviceConfiguration.LimitConfig},
  * <ol>
- *     <li>Only write up to ZIP_SIZE_LIMIT of bytes to disk.</li>
- *     <li>Look at the the compressed sizes and also only allow up to ZIP_SIZE_LIMIT of bytes</li>
- *     <li>Also ensure that there are no more than ZIP_ENTRIES_LIMIT number of entries, e.g., so</li>
+ *     <li>Only read up to the zip size limit of bytes from the request</li>
+ *     <li>Only inflate up to the uncompressed size limit of bytes, and stop as soon as the files inflate to more times the
+ *     bytes read than the compression ratio limit, e.g., so that a zip bomb is rejected after reading a little of it</li>
+ *     <li>Also ensure that there are no more entries than the entries limit, and no entries outside of the zip's root</li>
  * </ol>
  *
  */
 public final class ZipSourceFileHelper {
 
-    private static final int ZIP_SIZE_LIMIT = 100_000;
-    private static final int ZIP_ENTRIES_LIMIT = 100;
+    private static final int BUFFER_SIZE = 8192;
+    private static final String DOCKSTORE_YML = ".dockstore.yml";
     private static final Logger LOG = LoggerFactory.getLogger(ZipSourceFileHelper.class);
 
     private ZipSourceFileHelper() {
     }
 
+    /**
+     * Reads an input stream and converts it to a SourceFiles object, with the default limits.
+     *
+     * @see #sourceFilesFromInputStream(InputStream, DescriptorLanguage.FileType, DockstoreWebserviceConfiguration.LimitConfig)
+     */
+    public static SourceFiles sourceFilesFromInputStream(InputStream payload, DescriptorLanguage.FileType fileType) {
+        return sourceFilesFromInputStream(payload, fileType, new DockstoreWebserviceConfiguration.LimitConfig());
+    }
+
     /**
      * Reads an input stream and converts it to a SourceFiles object. The input stream is expected to have the following
      * characteristics and the method will throw an exception if any of these conditions is not met.
@@ -55,48 +71,82 @@ public final class ZipSourceFileHelper {
      * <li>The input stream is zipped content</li>
      * <li>The zip content contains a .dockstore.yml (TBD define valid)</li>
      * <li>A valid .dockstore.yml in the root of the zip</li>
-     * <li>The zip content, both compressed and uncompressed, does not exceed ZIP_SIZE_LIMIT.</li>
-     * <li>The number of entries in the zip does not exceed ZIP_ENTRIES_LIMIT</li>
+     * <li>The zip content does not exceed the zip size limit, and uncompressed, the uncompressed size limit</li>
+     * <li>The zip content does not inflate to more than the compression ratio limit times its size</li>
+     * <li>The number of entries in the zip does not exceed the entries limit</li>
      * </ul>
      *
      * @param payload
      * @param fileType
+     * @param limitConfig the limits to enforce
      * @return a SourceFiles object
-     * @throws CustomWebApplicationException if the size of the zip is greater than ZIP_SIZE_LIMIT
-     * @throws CustomWebApplicationException if the zip has more than ZIP_ENTRIES_LIMIT files in it
-     * @throws CustomWebApplicationException if the uncompressed size of the zip is greater than ZIP_SIZE_LIMIT
+     * @throws CustomWebApplicationException if the size of the zip is greater than the zip size limit
+     * @throws CustomWebApplicationException if the zip has more entries than the entries limit, or an entry outside of its root
+     * @throws CustomWebApplicationException if the uncompressed size of the zip is greater than the uncompressed size limit,
+     *     or the ratio of its uncompressed size to its size is greater than the compression ratio limit
      * @throws CustomWebApplicationException if there is an error reading the zip, e.g., if the content is not a valid zip
      * @throws CustomWebApplicationException there is no valid .dockstore.yml in the zip
      */
-    public static SourceFiles sourceFilesFromInputStream(InputStream payload, DescriptorLanguage.FileType fileType) {
-        File tempDir = null;
-        try {
-            tempDir = Files.createTempDir();
-            File tempZip = new File(tempDir, "workflow.zip");
-            // ByteStreams.limit limits the amount of bytes that can be read from the input stream. No matter how large the input
-            // stream, only a max ZIP_SIZE_LIMIT + 1 bytes will be read, and only a max of ZIP_SIZE_LIMIT + 1 bytes will be written to disk.
-            try (InputStream limitStream = ByteStreams.limit(payload, ZIP_SIZE_LIMIT + 1)) {
-                FileUtils.copyToFile(limitStream, tempZip);
-                if (tempZip.length() > ZIP_SIZE_LIMIT) {
-                    throw new CustomWebApplicationException("Request body is too large", HttpStatus.SC_REQUEST_TOO_LONG);
+    public static SourceFiles sourceFilesFromInputStream(InputStream payload, DescriptorLanguage.FileType fileType,
+            DockstoreWebserviceConfiguration.LimitConfig limitConfig) {
+        // ByteStreams.limit limits the amount of bytes that can be read from the input stream. No matter how large the input
+        // stream, only a max of the zip size limit + 1 bytes will be read.
+        final CountingInputStream compressed = new CountingInputStream(ByteStreams.limit(payload, limitConfig.getZipSizeLimit() + 1));
+        final Map<String, String> contents = new LinkedHashMap<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(compressed, StandardCharsets.UTF_8)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            long uncompressed = 0;
+            int entries = 0;
+            for (ZipEntry zipEntry = zipInputStream.getNextEntry(); zipEntry != null; zipEntry = zipInputStream.getNextEntry()) {
+                if (++entries > limitConfig.getZipEntriesLimit()) {
+                    throw new CustomWebApplicationException("Too many entries in the zip", HttpStatus.SC_BAD_REQUEST);
                 }
-            }
-            try (ZipFile zipFile = new ZipFile(tempZip)) {
-                validateZip(zipFile, ZIP_ENTRIES_LIMIT, ZIP_SIZE_LIMIT);
-                return sourceFilesFromZip(zipFile, fileType);
-            }
-        } catch (Exception e) {
-            throw new CustomWebApplicationException("Error reading request", HttpStatus.SC_BAD_REQUEST);
-        } finally {
-            try {
-                if (tempDir != null) {
-                    FileUtils.deleteDirectory(tempDir);
+                checkEntryName(zipEntry.getName());
+                if (zipEntry.isDirectory()) {
+                    continue;
+                }
+                final ByteArrayOutputStream content = new ByteArrayOutputStream();
+                for (int read = zipInputStream.read(buffer); read != -1; read = zipInputStream.read(buffer)) {
+                    uncompressed += read;
+                    checkSizes(compressed.getCount(), uncompressed, limitConfig);
+                    content.write(buffer, 0, read);
+                }
+                if (contents.put(zipEntry.getName(), content.toString(StandardCharsets.UTF_8)) != null) {
+                    throw new CustomWebApplicationException("Duplicate entry in the zip: " + zipEntry.getName(), HttpStatus.SC_BAD_REQUEST);
                 }
-            } catch (IOException e) {
-                LOG.error("Error deleting temp zip", e);
             }
+            // drain what follows the last entry, e.g., the central directory, so that it counts towards the zip size too
+            ByteStreams.exhaust(compressed);
+            checkSizes(compressed.getCount(), uncompressed, limitConfig);
+        } catch (IOException | IllegalArgumentException e) {
+            // IllegalArgumentException is thrown for entry names that are not UTF-8
+            LOG.error("Error reading zip", e);
+            throw new CustomWebApplicationException("Error reading request", HttpStatus.SC_BAD_REQUEST);
+        }
+        if (contents.isEmpty()) {
+            throw new CustomWebApplicationException("Error reading request", HttpStatus.SC_BAD_REQUEST);
         }
+        return sourceFilesFromContents(contents, fileType);
+    }
 
+    private static void checkEntryName(String name) {
+        final Path path = Paths.get(name).normalize();
+        if (path.isAbsolute() || path.startsWith("..") || name.contains("\\")) {
+            throw new CustomWebApplicationException("Invalid entry in the zip: " + name, HttpStatus.SC_BAD_REQUEST);
+        }
+    }
+
+    private static void checkSizes(long compressed, long uncompressed, DockstoreWebserviceConfiguration.LimitConfig limitConfig) {
+        if (compressed > limitConfig.getZipSizeLimit()) {
+            throw new CustomWebApplicationException("Request body is too large", HttpStatus.SC_REQUEST_TOO_LONG);
+        }
+        if (uncompressed > limitConfig.getZipUncompressedSizeLimit()) {
+            throw new CustomWebApplicationException("Zip contents too large", HttpStatus.SC_BAD_REQUEST);
+        }
+        // the bytes read so far include what the zip stream buffers ahead, so the ratio errs on the side of accepting
+        if (uncompressed > (double) limitConfig.getZipCompressionRatioLimit() * Math.max(compressed, 1)) {
+            throw new CustomWebApplicationException("Zip contents too compressed", HttpStatus.SC_BAD_REQUEST);
+        }
     }
 
     protected static void validateZip(ZipFile zipFile, int maxEntries, long maxSize) {
@@ -119,30 +169,44 @@ public final class ZipSourceFileHelper {
      * @return
      */
     protected static SourceFiles sourceFilesFromZip(ZipFile zipFile, DescriptorLanguage.FileType workflowFileType) {
-        DockstoreYaml10 dockstoreYml = readAndPrevalidateDockstoreYml(zipFile);
+        final Map<String, String> contents = new LinkedHashMap<>();
+        zipFile.stream()
+                .filter(zipEntry -> !zipEntry.isDirectory())
+                .forEach(zipEntry -> contents.put(zipEntry.getName(), getContent(zipFile, zipEntry)));
+        return sourceFilesFromContents(contents, workflowFileType);
+    }
+
+    /**
+     * Converts the files of a zip into a SourceFiles object
+     *
+     * @param contents the content of each file in the zip, by path, in the order of the zip
+     * @param workflowFileType
+     * @return
+     */
+    private static SourceFiles sourceFilesFromContents(Map<String, String> contents, DescriptorLanguage.FileType workflowFileType) {
+        DockstoreYaml10 dockstoreYml = readAndPrevalidateDockstoreYml(contents);
         final String primaryDescriptor = dockstoreYml.primaryDescriptor;
         List<String> testParameterFiles = dockstoreYml.testParameterFiles;
         if (primaryDescriptor != null) {
             checkWorkflowType(workflowFileType, primaryDescriptor);
-            zipFile.stream()
-                    .filter(zipEntry -> primaryDescriptor.equals(zipEntry.getName()))
-                    .findFirst()
-                    .orElseThrow(() -> new CustomWebApplicationException("Primary descriptor missing: " + primaryDescriptor, HttpStatus.SC_BAD_REQUEST));
-            final List<SourceFile> sourceFiles = zipFile
+            if (!contents.containsKey(primaryDescriptor)) {
+                throw new CustomWebApplicationException("Primary descriptor missing: " + primaryDescriptor, HttpStatus.SC_BAD_REQUEST);
+            }
+            final List<SourceFile> sourceFiles = contents.entrySet()
                     .stream()
-                    .filter(zipEntry -> !zipEntry.isDirectory())
-                    .map(zipEntry -> {
+                    .map(pathAndContent -> {
+                        final String path = pathAndContent.getKey();
                         SourceFile sourceFile = new SourceFile();
-                        if (testParameterFiles != null && testParameterFiles.contains(zipEntry.getName())) {
+                        if (testParameterFiles != null && testParameterFiles.contains(path)) {
                             sourceFile.setType(paramFileType(workflowFileType));
-                        } else if (".dockstore.yml".equals(zipEntry.getName())) {
+                        } else if (DOCKSTORE_YML.equals(path)) {
                             sourceFile.setType(DescriptorLanguage.FileType.DOCKSTORE_YML);
                         } else {
                             sourceFile.setType(workflowFileType);
                         }
-                        sourceFile.setPath(zipEntry.getName());
-                        sourceFile.setAbsolutePath(addLeadingSlashIfNecessary(zipEntry.getName()));
-                        sourceFile.setContent(getContent(zipFile, zipEntry));
+                        sourceFile.setPath(path);
+                        sourceFile.setAbsolutePath(addLeadingSlashIfNecessary(path));
+                        sourceFile.setContent(pathAndContent.getValue());
                         return sourceFile;
                     }).collect(Collectors.toList());
             return new SourceFiles(
@@ -207,15 +271,12 @@ public final class ZipSourceFileHelper {
         }
     }
 
-    private static DockstoreYaml10 readAndPrevalidateDockstoreYml(final ZipFile zipFile) {
-        ZipEntry dockstoreYml = zipFile.stream().filter(zipEntry -> ".dockstore.yml".equals(zipEntry.getName())).findFirst()
-                .orElseThrow(() -> new CustomWebApplicationException("Missing .dockstore.yml", HttpStatus.SC_BAD_REQUEST));
-        try {
-            return readAndPrevalidateDockstoreYml(zipFile.getInputStream(dockstoreYml));
-        } catch (IOException e) {
-            LOG.error("Error reading .dockstore.yml", e);
-            throw new CustomWebApplicationException("Invalid syntax in .dockstore.yml", HttpStatus.SC_BAD_REQUEST);
+    private static DockstoreYaml10 readAndPrevalidateDockstoreYml(final Map<String, String> contents) {
+        final String dockstoreYml = contents.get(DOCKSTORE_YML);
+        if (dockstoreYml == null) {
+            throw new CustomWebApplicationException("Missing .dockstore.yml", HttpStatus.SC_BAD_REQUEST);
         }
+        return readAndPrevalidateDockstoreYml(new ByteArrayInputStream(dockstoreYml.getBytes(StandardCharsets.UTF_8)));
     }
 
     // Should move this out of here when other components use dockstore.yml
@@ -32,6 +32,7 @@ import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.core.Version;
 import io.dockstore.webservice.core.Workflow;
+import io.dockstore.webservice.helpers.ElasticSearchGateway;
 import io.dockstore.webservice.helpers.ElasticSearchHelper;
 import io.dockstore.webservice.helpers.StateManagerMode;
 import io.dropwizard.jackson.Jackson;
@@ -143,6 +144,8 @@ public class ElasticListener implements StateListenerInterface {
             }
         } catch (Exception e) {
             LOGGER.error("Could not submit index to elastic search. " + e.getMessage());
+        } finally {
+            ElasticSearchGateway.invalidate();
         }
     }
 
@@ -267,6 +270,9 @@ public class ElasticListener implements StateListenerInterface {
         } catch (Exception e) {
             LOGGER.error("Could not submit " + index + " index to elastic search. " + e.getMessage(), e);
             throw new CustomWebApplicationException("Could not submit " + index + " index to elastic search", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        } finally {
+            // even a failed bulk update may have indexed some of the entries
+            ElasticSearchGateway.invalidate();
         }
     }
 
@@ -1,10 +1,12 @@
 package io.dockstore.webservice.jdbi;
 
 import io.dockstore.webservice.core.Collection;
+import io.dockstore.webservice.helpers.SecondLevelCacheManager;
 import io.dropwizard.hibernate.AbstractDAO;
 import java.util.List;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
 import org.hibernate.query.Query;
 
 public class CollectionDAO extends AbstractDAO<Collection> {
@@ -58,11 +60,14 @@ public class CollectionDAO extends AbstractDAO<Collection> {
         Query query = namedQuery("io.dockstore.webservice.core.Collection.deleteByOrgId")
                 .setParameter("organizationId", organizationId);
         query.executeUpdate();
+        SecondLevelCacheManager.evictEverywhere(currentSession(), Collection.class);
     }
 
     public void deleteEntryVersionByCollectionId(long collectionId) {
-        Query query = namedQuery("io.dockstore.webservice.core.Collection.deleteEntryVersionsByCollectionId").setParameter("collectionId", collectionId);
-        query.executeUpdate();
+        // without its table, Hibernate assumes a native statement changed every table and evicts every cached region
+        NativeQuery query = namedQuery("io.dockstore.webservice.core.Collection.deleteEntryVersionsByCollectionId").unwrap(NativeQuery.class)
+            .addSynchronizedQuerySpace("collection_entry_version");
+        query.setParameter("collectionId", collectionId).executeUpdate();
     }
 
     public Collection getByAlias(String alias) {
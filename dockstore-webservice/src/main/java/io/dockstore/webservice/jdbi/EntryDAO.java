@@ -28,14 +28,13 @@ import io.dockstore.webservice.core.SourceControlConverter;
 import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.Version;
 import io.dockstore.webservice.core.Workflow;
-import io.dockstore.webservice.core.database.EntryLite;
 import java.lang.reflect.ParameterizedType;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -205,9 +204,6 @@ public abstract class EntryDAO<T extends Entry> extends AbstractDockstoreDAO<T>
                 this.currentSession().getNamedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".findPublishedById").setParameter("id", id));
     }
 
-    public List<EntryLite> findEntryVersions(long userId) {
-        return list(this.currentSession().getNamedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".getEntryLiteByUserId").setParameter("userId", userId));
-    }
     public List<T> findMyEntries(long userId) {
         return list(this.currentSession().getNamedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".getEntriesByUserId").setParameter("userId", userId));
     }
@@ -330,41 +326,37 @@ public abstract class EntryDAO<T extends Entry> extends AbstractDockstoreDAO<T>
             String repoName = toolMode ? "name" : "repository";
             String orgName = toolMode ? "namespace" : "organization";
 
+            final String pattern = wildcardLike(filter.toLowerCase(Locale.ROOT));
             predicates.add(cb.and(// get published workflows
                 cb.isTrue(entry.get("isPublished")),
-                // ensure we deal with null values and then do like queries on those non-null values
-                cb.or(cb.and(cb.isNotNull(entry.get(nameName)), cb.like(cb.upper(entry.get(nameName)), "%" + filter.toUpperCase() + "%")), //
-                    cb.and(cb.isNotNull(entry.get("author")), cb.like(cb.upper(entry.get("author")), "%" + filter.toUpperCase() + "%")), //
-                    cb.and(cb.isNotNull(entry.get(repoName)), cb.like(cb.upper(entry.get(repoName)), "%" + filter.toUpperCase() + "%")), //
-                    cb.and(cb.isNotNull(entry.get(orgName)), cb.like(cb.upper(entry.get(orgName)), "%" + filter.toUpperCase() + "%")))));
+                // null values never match, each lower(column) LIKE is served by a trigram index on published tools and workflows
+                cb.or(cb.like(cb.lower(entry.get(nameName)), pattern), //
+                    cb.like(cb.lower(entry.get("author")), pattern), //
+                    cb.like(cb.lower(entry.get(repoName)), pattern), //
+                    cb.like(cb.lower(entry.get(orgName)), pattern))));
 
         } else {
             predicates.add(cb.isTrue(entry.get("isPublished")));
         }
         if (!Strings.isNullOrEmpty(sortCol)) {
-            // sorting by stars is a special case since it needs a join
-            if ("stars".equalsIgnoreCase(sortCol)) {
-                if ("desc".equalsIgnoreCase(sortOrder)) {
-                    query.orderBy(cb.desc(cb.size(entry.<Collection>get("starredUsers"))), cb.desc(entry.get("id")));
-                } else {
-                    query.orderBy(cb.asc(cb.size(entry.<Collection>get("starredUsers"))), cb.desc(entry.get("id")));
-                }
+            // stars are counted into a column by a trigger, see Entry.starCount
+            Path<Object> sortPath = entry.get("stars".equalsIgnoreCase(sortCol) ? "starCount" : sortCol);
+            predicates.add(sortPath.isNotNull());
+            if ("desc".equalsIgnoreCase(sortOrder)) {
+                query.orderBy(cb.desc(sortPath), cb.desc(entry.get("id")));
             } else {
-                Path<Object> sortPath = entry.get(sortCol);
-                if (!Strings.isNullOrEmpty(sortOrder) && "desc".equalsIgnoreCase(sortOrder)) {
-                    query.orderBy(cb.desc(sortPath), cb.desc(entry.get("id")));
-                    predicates.add(sortPath.isNotNull());
-                } else {
-                    query.orderBy(cb.asc(sortPath), cb.desc(entry.get("id")));
-                    predicates.add(sortPath.isNotNull());
-                }
+                query.orderBy(cb.asc(sortPath), cb.desc(entry.get("id")));
             }
         }
         query.where(predicates.toArray(new Predicate[]{}));
     }
 
+    /**
+     * Adds a case-sensitive substring match on a column.
+     * The redundant match on lower(column) lets the database narrow down candidates with a trigram index first, where there is one.
+     */
     protected Predicate andLike(CriteriaBuilder cb, Predicate existingPredicate, Path<String> column, Optional<String> value) {
-        return value.map(val -> cb.and(existingPredicate, cb.like(column, wildcardLike(val))))
+        return value.map(val -> cb.and(existingPredicate, cb.like(cb.lower(column), wildcardLike(val.toLowerCase(Locale.ROOT))), cb.like(column, wildcardLike(val))))
             .orElse(existingPredicate);
     }
 
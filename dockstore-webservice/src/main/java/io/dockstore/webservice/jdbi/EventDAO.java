@@ -1,24 +1,22 @@
 package io.dockstore.webservice.jdbi;
 
-import com.google.common.base.MoreObjects;
 import io.dockstore.webservice.core.Entry;
 import io.dockstore.webservice.core.Event;
 import io.dockstore.webservice.core.Event.Builder;
 import io.dockstore.webservice.core.Event.EventType;
+import io.dockstore.webservice.core.EventSummary;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.core.Version;
+import io.dockstore.webservice.helpers.EventFeedService;
 import io.dropwizard.hibernate.AbstractDAO;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import javax.persistence.TypedQuery;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Predicate;
-import javax.persistence.criteria.Root;
+import java.util.stream.Collectors;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.query.NativeQuery;
 import org.hibernate.query.Query;
 
 public class EventDAO extends AbstractDAO<Event> {
@@ -34,7 +32,9 @@ public class EventDAO extends AbstractDAO<Event> {
     }
 
     public long create(Event event) {
-        return persist(event).getId();
+        final long id = persist(event).getId();
+        EventFeedService.fanOutAfterCommit();
+        return id;
     }
 
     public long update(Event event) {
@@ -45,7 +45,8 @@ public class EventDAO extends AbstractDAO<Event> {
         Query<Event> query = namedTypedQuery("io.dockstore.webservice.core.Event.findAllForOrganization")
                 .setParameter("organizationId", organizationId)
                 .setFirstResult(offset)
-                .setMaxResults(limit);
+                .setMaxResults(limit)
+                .setHint(QueryHints.HINT_LOADGRAPH, currentSession().getEntityGraph(Event.ORGANIZATION_EVENTS_GRAPH));
         return list(query);
     }
 
@@ -53,7 +54,8 @@ public class EventDAO extends AbstractDAO<Event> {
         Query<Event> query = namedTypedQuery("io.dockstore.webservice.core.Event.findAllByInitiatorUserId")
             .setParameter("initiatorUser", initiatorUser)
             .setFirstResult(offset)
-            .setMaxResults(limit);
+            .setMaxResults(limit)
+            .setHint(QueryHints.HINT_LOADGRAPH, currentSession().getEntityGraph(Event.ALL_ASSOCIATIONS_GRAPH));
         return list(query);
     }
 
@@ -63,52 +65,83 @@ public class EventDAO extends AbstractDAO<Event> {
         return ((Long)query.getSingleResult()).longValue();
     }
 
-    public List<Event> findEventsByEntryIDs(Set<Long> entryIds, Integer offset, int limit) {
-        int newLimit = Math.min(MAX_LIMIT, limit);
-        if (entryIds.isEmpty()) {
+    /**
+     * Gets the ids of events in the feed of a user, newest first, with a range scan of one of the event_feed indexes.
+     * Events that EventFeedService has not fanned out yet are matched against the user's stars here, so that they show up right away.
+     * @param userId the user
+     * @param starredEntries include events of starred entries
+     * @param starredOrganizations include events of starred organizations
+     * @param before only events with smaller ids, null for the newest events
+     * @param offset number of events to skip
+     * @param limit maximum number of events
+     * @return event ids
+     */
+    public List<Long> findFeedEventIds(long userId, boolean starredEntries, boolean starredOrganizations, Long before, int offset, int limit) {
+        if (!starredEntries && !starredOrganizations) {
             return Collections.emptyList();
         }
-        Query<Event> query = namedTypedQuery("io.dockstore.webservice.core.Event.findAllByEntryIds");
-        query.setParameterList("entryIDs", entryIds).setFirstResult(offset).setMaxResults(newLimit);
-        return list(query);
+        // each condition matches a partial index, both together the primary key
+        final String feed = starredEntries && starredOrganizations ? "" : (starredEntries ? " and starredentry" : " and starredorganization");
+        final String cursor = before == null ? "" : " and eventid < :before";
+        final String pendingCursor = before == null ? "" : " and p.eventid < :before";
+        final List<String> pendingStars = new ArrayList<>();
+        if (starredEntries) {
+            pendingStars.add("exists (select 1 from starred s where s.userid = :userId and s.entryid in (e.toolid, e.workflowid, e.apptoolid))");
+        }
+        if (starredOrganizations) {
+            pendingStars.add("exists (select 1 from starred_organizations s where s.userid = :userId and s.organizationid = e.organizationid)");
+        }
+        // the fanned out events are limited first, so that the index range scan stops early
+        final int pageLimit = Math.min(MAX_LIMIT, limit);
+        NativeQuery<?> query = currentSession().createNativeQuery("select eventid from ("
+            + "(select eventid from event_feed where userid = :userId" + feed + cursor + " order by eventid desc limit :feedLimit) "
+            + "union select p.eventid from event_feed_pending p join event e on e.id = p.eventid where (" + String.join(" or ", pendingStars) + ")" + pendingCursor
+            + ") feed order by eventid desc offset :offset limit :limit").setParameter("userId", userId).setParameter("offset", offset)
+            .setParameter("limit", pageLimit).setParameter("feedLimit", offset + pageLimit);
+        if (before != null) {
+            query.setParameter("before", before);
+        }
+        return query.getResultList().stream().map(id -> ((Number)id).longValue()).collect(Collectors.toList());
     }
 
-    public List<Event> findAllByOrganizationIds(Set<Long> organizationIds, Integer offset, int limit) {
-        int newLimit = Math.min(MAX_LIMIT, limit);
-        if (organizationIds.isEmpty()) {
+    /**
+     * Gets events with everything they are serialized with
+     * @param ids event ids
+     * @return the events, newest first
+     */
+    public List<Event> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
             return Collections.emptyList();
         }
-        Query<Event> query = namedTypedQuery("io.dockstore.webservice.core.Event.findAllByOrganizationIds");
-        query.setParameterList("organizationIDs", organizationIds).setFirstResult(offset).setMaxResults(newLimit);
+        Query<Event> query = namedTypedQuery("io.dockstore.webservice.core.Event.findByIds").setParameterList("ids", ids)
+            .setHint(QueryHints.HINT_LOADGRAPH, currentSession().getEntityGraph(Event.ALL_ASSOCIATIONS_GRAPH));
         return list(query);
     }
 
-    public List<Event> findAllByOrganizationIdsOrEntryIds(Set<Long> organizationIds, Set<Long> entryIds, Integer offset, int limit) {
-        int newLimit = Math.min(MAX_LIMIT, limit);
-
-        CriteriaBuilder cb = currentSession().getCriteriaBuilder();
-        CriteriaQuery<Event> query = criteriaQuery();
-        Root<Event> event = query.from(Event.class);
-
-        if (organizationIds.isEmpty() && entryIds.isEmpty()) {
+    /**
+     * Gets compact events, without loading the entities they act on
+     * @param ids event ids
+     * @return the events, newest first
+     */
+    public List<EventSummary> findSummariesByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
             return Collections.emptyList();
         }
-        List<Predicate> list = new ArrayList<>();
-        if (!organizationIds.isEmpty()) {
-            list.add(event.get("organization").in(organizationIds));
-        }
-        if (!entryIds.isEmpty()) {
-            list.add(event.get("tool").in(entryIds));
-            list.add(event.get("workflow").in(entryIds));
-            list.add(event.get("apptool").in(entryIds));
-        }
-        query.where(cb.or(list.toArray(new Predicate[0])));
-        query.orderBy(cb.desc(event.get("id")));
-        query.select(event);
+        return currentSession().createNamedQuery("io.dockstore.webservice.core.Event.findSummariesByIds", EventSummary.class)
+            .setParameterList("ids", ids).getResultList();
+    }
 
-        int primitiveOffset = MoreObjects.firstNonNull(offset, 0);
-        TypedQuery<Event> typedQuery = currentSession().createQuery(query).setFirstResult(primitiveOffset).setMaxResults(newLimit);
-        return typedQuery.getResultList();
+    /**
+     * Gets the ids of events initiated by a user, newest first
+     * @param initiatorUser the user
+     * @param before only events with smaller ids, null for the newest events
+     * @param limit maximum number of events
+     * @return event ids
+     */
+    public List<Long> findEventIdsForInitiatorUser(long initiatorUser, Long before, int limit) {
+        return currentSession().createNamedQuery("io.dockstore.webservice.core.Event.findIdsByInitiatorUserId", Long.class)
+            .setParameter("initiatorUser", initiatorUser).setParameter("before", before == null ? Long.MAX_VALUE : before)
+            .setMaxResults(Math.min(MAX_LIMIT, limit)).getResultList();
     }
 
     public void delete(Event event) {
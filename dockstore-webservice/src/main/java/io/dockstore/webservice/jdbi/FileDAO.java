@@ -19,12 +19,17 @@ package io.dockstore.webservice.jdbi;
 import io.dockstore.webservice.core.SourceFile;
 import io.dropwizard.hibernate.AbstractDAO;
 import java.util.List;
+import java.util.function.BiConsumer;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.SessionFactory;
 
 /**
  * @author xliu
  */
 public class FileDAO extends AbstractDAO<SourceFile> {
+    private static final int STREAM_FETCH_SIZE = 10;
+
     public FileDAO(SessionFactory sessionFactory) {
         super(sessionFactory);
     }
@@ -40,4 +45,19 @@ public class FileDAO extends AbstractDAO<SourceFile> {
     public List<SourceFile> findSourceFilesByVersion(Long versionId) {
         return list(namedTypedQuery("io.dockstore.webservice.core.SourceFile.findSourceFilesForVersion").setParameter("versionId", versionId));
     }
+
+    /**
+     * Hands the files of a version with content to a consumer one at a time, ordered by path, without loading them all
+     * into the session (or memory) first.
+     * @param versionId version id
+     * @param absolutePathAndContent consumer of the absolute path and content of each file
+     */
+    public void forEachSourceFileOfVersion(long versionId, BiConsumer<String, String> absolutePathAndContent) {
+        try (ScrollableResults results = currentSession().createNamedQuery("io.dockstore.webservice.core.SourceFile.findPathsAndContentsForVersion")
+            .setParameter("versionId", versionId).setReadOnly(true).setFetchSize(STREAM_FETCH_SIZE).scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                absolutePathAndContent.accept((String)results.get(0), (String)results.get(1));
+            }
+        }
+    }
 }
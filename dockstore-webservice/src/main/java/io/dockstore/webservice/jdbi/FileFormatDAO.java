@@ -2,6 +2,7 @@ package io.dockstore.webservice.jdbi;
 
 import io.dockstore.webservice.core.FileFormat;
 import io.dropwizard.hibernate.AbstractDAO;
+import java.util.List;
 import org.hibernate.SessionFactory;
 
 /**
@@ -22,6 +23,26 @@ public class FileFormatDAO extends AbstractDAO<FileFormat> {
         return uniqueResult(namedTypedQuery("io.dockstore.webservice.core.FileFormat.findByFileFormatValue").setParameter("fileformatValue", fileFormatValue));
     }
 
+    /**
+     * Database triggers count the versions of each entry that have each file format as the versions are written, so changes to the
+     * versions must have been flushed for them to be counted
+     * @param entryId id of a tool or workflow
+     * @param output whether to find output rather than input file formats
+     * @return the file formats of at least one version of the entry
+     */
+    public List<FileFormat> findEntryFileFormats(long entryId, boolean output) {
+        return currentSession().createNativeQuery("select f.* from fileformat f join entry_fileformat_count c on c.fileformatid = f.id "
+                + "where c.entryid = :entryId and c.output = :output", FileFormat.class)
+            .setParameter("entryId", entryId).setParameter("output", output).getResultList();
+    }
+
+    /**
+     * Writes the changes to versions and their file formats, so that the database triggers count them
+     */
+    public void flush() {
+        currentSession().flush();
+    }
+
     public String create(FileFormat fileFormat) {
         String id = persist(fileFormat).getValue();
         currentSession().flush();
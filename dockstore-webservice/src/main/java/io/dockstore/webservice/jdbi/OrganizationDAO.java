@@ -3,8 +3,10 @@ package io.dockstore.webservice.jdbi;
 import io.dockstore.webservice.core.Organization;
 import io.dropwizard.hibernate.AbstractDAO;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.jpa.QueryHints;
 import org.hibernate.query.Query;
 
 public class OrganizationDAO extends AbstractDAO<Organization> {
@@ -49,6 +51,35 @@ public class OrganizationDAO extends AbstractDAO<Organization> {
         return list(namedTypedQuery("io.dockstore.webservice.core.Organization.findAll"));
     }
 
+    public List<Organization> findAllWithUsers() {
+        return listWithUsers("io.dockstore.webservice.core.Organization.findAll");
+    }
+
+    public List<Organization> findAllApprovedWithUsers() {
+        return listWithUsers("io.dockstore.webservice.core.Organization.findAllApproved");
+    }
+
+    public List<Organization> findAllPendingWithUsers() {
+        return listWithUsers("io.dockstore.webservice.core.Organization.findAllPending");
+    }
+
+    public List<Organization> findAllRejectedWithUsers() {
+        return listWithUsers("io.dockstore.webservice.core.Organization.findAllRejected");
+    }
+
+    /**
+     * Runs an organization query with the members fetched in the same statement
+     * @param queryName name of a query that selects organizations
+     * @return the organizations, each listed once
+     */
+    private List<Organization> listWithUsers(String queryName) {
+        Query<Organization> query = namedTypedQuery(queryName)
+            .setHint(QueryHints.HINT_LOADGRAPH, currentSession().getEntityGraph(Organization.WITH_USERS_GRAPH))
+            .setCacheable(false);
+        // the collection fetch repeats an organization for each of its members
+        return list(query).stream().distinct().collect(Collectors.toList());
+    }
+
 
     public Organization findByName(String name) {
         Query<Organization> query = namedTypedQuery("io.dockstore.webservice.core.Organization.findByName").setParameter("name", name);
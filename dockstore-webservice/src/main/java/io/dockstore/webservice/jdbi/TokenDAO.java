@@ -86,7 +86,8 @@ public class TokenDAO extends AbstractDAO<Token> {
     }
 
     public Token findByContent(String content) {
-        return uniqueResult(namedTypedQuery("io.dockstore.webservice.core.Token.findByContent").setParameter("content", content));
+        return uniqueResult(namedTypedQuery("io.dockstore.webservice.core.Token.findByContent").setParameter("sha256", Token.sha256(content))
+            .setParameter("content", content));
     }
 
     public Token findTokenByGitHubUsername(String githubUsername) {
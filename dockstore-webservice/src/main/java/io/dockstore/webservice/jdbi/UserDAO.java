@@ -16,10 +16,19 @@
 
 package io.dockstore.webservice.jdbi;
 
+import io.dockstore.common.EntryType;
 import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.core.database.DashboardEntry;
 import io.dockstore.webservice.core.database.UserInfo;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
 import org.hibernate.query.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -106,6 +115,63 @@ public class UserDAO extends AbstractDockstoreDAO<User> {
         return true;
     }
 
+    /**
+     * Gets entries of a user for dashboards in one statement, newest first. The paths are built and filtered by the database,
+     * so only a page of entries is read.
+     * @param userId the user
+     * @param entryTypes types of entries to include
+     * @param filter only include entries with paths that contain this text, ignoring case, null to include all
+     * @param cursor only include entries after this one, null to start with the newest
+     * @param limit maximum number of entries
+     * @return the entries, most recently updated first
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    public List<DashboardEntry> findDashboardEntries(long userId, Set<EntryType> entryTypes, String filter, DashboardEntry.Cursor cursor, int limit) {
+        final List<String> selects = new ArrayList<>();
+        if (entryTypes.contains(EntryType.TOOL)) {
+            selects.add(dashboardSelect(EntryType.TOOL, "tool", "tag", "e.registry || '/' || e.namespace || '/' || e.name || coalesce('/' || nullif(e.toolname, ''), '')"));
+        }
+        final String workflowPath = "e.sourcecontrol || '/' || e.organization || '/' || e.repository || coalesce('/' || nullif(e.workflowname, ''), '')";
+        if (entryTypes.contains(EntryType.WORKFLOW)) {
+            selects.add(dashboardSelect(EntryType.WORKFLOW, "workflow", "workflowversion", workflowPath));
+        }
+        if (entryTypes.contains(EntryType.SERVICE)) {
+            selects.add(dashboardSelect(EntryType.SERVICE, "service", "workflowversion", workflowPath));
+        }
+        if (entryTypes.contains(EntryType.APPTOOL)) {
+            selects.add(dashboardSelect(EntryType.APPTOOL, "apptool", "workflowversion", workflowPath));
+        }
+        if (selects.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final boolean filtered = filter != null && !filter.isBlank();
+        final String sql = "select id, entrytype, path, ispublished, lastupdated from (" + String.join(" union all ", selects) + ") entries where true"
+            + (filtered ? " and lower(path) like :pattern" : "")
+            + (cursor != null ? " and (lastupdated, id) < (:lastUpdated, :id)" : "")
+            + " order by lastupdated desc, id desc limit :limit";
+        final NativeQuery<?> query = currentSession().createNativeQuery(sql).setParameter("userId", userId).setParameter("limit", limit);
+        if (filtered) {
+            query.setParameter("pattern", '%' + filter.toLowerCase(Locale.ROOT).replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + '%');
+        }
+        if (cursor != null) {
+            query.setParameter("lastUpdated", cursor.getLastUpdated()).setParameter("id", cursor.getId());
+        }
+        return query.getResultList().stream().map(row -> {
+            final Object[] columns = (Object[])row;
+            return new DashboardEntry(((Number)columns[0]).longValue(), EntryType.valueOf((String)columns[1]), (String)columns[2], (Boolean)columns[3],
+                (Timestamp)columns[4]);
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * Selects the entries of one table, last updated when the entry or its most recently updated version was
+     */
+    private static String dashboardSelect(EntryType entryType, String table, String versionTable, String path) {
+        return "select e.id, '" + entryType.name() + "' as entrytype, " + path + " as path, e.ispublished, "
+            + "greatest(coalesce(e.dbupdatedate, timestamp 'epoch'), (select max(v.dbupdatedate) from " + versionTable + " v where v.parentid = e.id)) as lastupdated "
+            + "from user_entry ue join " + table + " e on e.id = ue.entryid where ue.userid = :userId";
+    }
+
     public List<UserInfo> findAllGitHubUserInfo() {
         return list(this.currentSession().getNamedQuery("io.dockstore.webservice.core.database.UserInfo.findAllGitHubUserInfo"));
     }
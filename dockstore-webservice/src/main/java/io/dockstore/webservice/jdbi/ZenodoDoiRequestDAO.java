@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.jdbi;
+
+import io.dockstore.webservice.core.ZenodoDoiRequest;
+import io.dropwizard.hibernate.AbstractDAO;
+import java.util.List;
+import org.hibernate.LockMode;
+import org.hibernate.SessionFactory;
+
+public class ZenodoDoiRequestDAO extends AbstractDAO<ZenodoDoiRequest> {
+    public ZenodoDoiRequestDAO(SessionFactory sessionFactory) {
+        super(sessionFactory);
+    }
+
+    public ZenodoDoiRequest findById(Long id) {
+        return get(id);
+    }
+
+    /**
+     * Locks the request for the rest of the transaction
+     * @param id request id
+     * @return the request, or null if another transaction has it locked
+     */
+    public ZenodoDoiRequest findByIdForUpdate(long id) {
+        return currentSession().get(ZenodoDoiRequest.class, id, LockMode.UPGRADE_SKIPLOCKED);
+    }
+
+    /**
+     * Locks the request for the rest of the transaction, waiting for another transaction that has it locked
+     * @param id request id
+     * @return the request
+     */
+    public ZenodoDoiRequest findByIdWaitingForLock(long id) {
+        return currentSession().get(ZenodoDoiRequest.class, id, LockMode.PESSIMISTIC_WRITE);
+    }
+
+    public long create(ZenodoDoiRequest request) {
+        return persist(request).getId();
+    }
+
+    public ZenodoDoiRequest findByWorkflowVersionId(long workflowVersionId) {
+        return uniqueResult(namedTypedQuery("io.dockstore.webservice.core.ZenodoDoiRequest.findByWorkflowVersionId").setParameter("workflowVersionId", workflowVersionId));
+    }
+
+    /**
+     * @return ids of the requests that were being worked on when a webservice stopped
+     */
+    public List<Long> findInterruptedIds() {
+        return currentSession().createNamedQuery("io.dockstore.webservice.core.ZenodoDoiRequest.findInterrupted", Long.class)
+            .setParameter("done", ZenodoDoiRequest.State.ALIASED).getResultList();
+    }
+}
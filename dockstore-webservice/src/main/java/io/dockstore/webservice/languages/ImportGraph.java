@@ -0,0 +1,221 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.dockstore.webservice.languages;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The graph of local imports of a version, starting at its primary descriptor. Nodes are absolute paths of files and edges point from a
+ * file to the files it imports, in the order they are imported.
+ *
+ * <p>The graph is language-agnostic: each language handler supplies how to find the local imports of a file. Every file is read and
+ * scanned once no matter how many files import it, and {@link #getCycles()} finds every import cycle in one linear pass using Tarjan's
+ * strongly connected components algorithm.
+ */
+public final class ImportGraph {
+
+    private final String root;
+    private final Map<String, List<String>> imports;
+    private final Set<String> missing;
+    private final Map<String, Integer> discoveryOrder = new HashMap<>();
+
+    private List<List<String>> cycles;
+
+    private ImportGraph(String root, Map<String, List<String>> imports, Set<String> missing) {
+        this.root = root;
+        this.imports = imports;
+        this.missing = missing;
+        imports.keySet().forEach(node -> discoveryOrder.put(node, discoveryOrder.size()));
+    }
+
+    /**
+     * Builds the graph of files reachable from the primary descriptor
+     *
+     * @param rootPath    absolute path of the primary descriptor
+     * @param rootContent content of the primary descriptor
+     * @param content     looks up the content of a file by absolute path, empty if the file is not part of the version
+     * @param localImports given the absolute path and content of a file, returns the absolute paths of the local files it imports
+     * @return the import graph
+     */
+    public static ImportGraph build(String rootPath, String rootContent, Function<String, Optional<String>> content,
+        BiFunction<String, String, List<String>> localImports) {
+        // Depth-first so that nodes are discovered in the same order a recursive walk of the imports would find them
+        Map<String, List<String>> imports = new LinkedHashMap<>();
+        Set<String> missing = new HashSet<>();
+        Deque<String> stack = new ArrayDeque<>();
+        stack.push(rootPath);
+        while (!stack.isEmpty()) {
+            String node = stack.pop();
+            if (imports.containsKey(node)) {
+                continue;
+            }
+            Optional<String> nodeContent = node.equals(rootPath) ? Optional.ofNullable(rootContent) : content.apply(node);
+            if (nodeContent.isEmpty()) {
+                missing.add(node);
+                imports.put(node, Collections.emptyList());
+                continue;
+            }
+            List<String> nodeImports = List.copyOf(localImports.apply(node, nodeContent.get()));
+            imports.put(node, nodeImports);
+            for (int i = nodeImports.size() - 1; i >= 0; i--) {
+                if (!imports.containsKey(nodeImports.get(i))) {
+                    stack.push(nodeImports.get(i));
+                }
+            }
+        }
+        return new ImportGraph(rootPath, Collections.unmodifiableMap(imports), Collections.unmodifiableSet(missing));
+    }
+
+    /**
+     * @return absolute path of the primary descriptor
+     */
+    public String getRoot() {
+        return root;
+    }
+
+    /**
+     * @return absolute paths of all files reachable from the primary descriptor (including imports that could not be found), in the
+     *     order they were discovered
+     */
+    public Set<String> getFiles() {
+        return imports.keySet();
+    }
+
+    /**
+     * @param absolutePath absolute path of a file in the graph
+     * @return absolute paths of the files directly imported by the file
+     */
+    public List<String> getImports(String absolutePath) {
+        return imports.getOrDefault(absolutePath, Collections.emptyList());
+    }
+
+    /**
+     * @return absolute paths of imported files that are not part of the version
+     */
+    public Set<String> getMissingImports() {
+        return missing;
+    }
+
+    /**
+     * Finds every import cycle, e.g. a file that imports itself or two files that import each other.
+     *
+     * @return the files of each cycle in the order they were discovered, cycles ordered by their first discovered file
+     */
+    public synchronized List<List<String>> getCycles() {
+        if (cycles == null) {
+            List<List<String>> found = new ArrayList<>();
+            for (List<String> component : findStronglyConnectedComponents()) {
+                if (component.size() > 1 || getImports(component.get(0)).contains(component.get(0))) {
+                    component.sort(Comparator.comparing(discoveryOrder::get));
+                    found.add(Collections.unmodifiableList(component));
+                }
+            }
+            found.sort(Comparator.comparing(component -> discoveryOrder.get(component.get(0))));
+            cycles = Collections.unmodifiableList(found);
+        }
+        return cycles;
+    }
+
+    /**
+     * Names each cycle by the first file of the cycle found by following imports from the primary descriptor, skipping the primary
+     * descriptor itself unless it only imports itself.
+     *
+     * @return one file per cycle, empty if there are no cycles
+     */
+    public List<String> getRecursiveImports() {
+        List<String> recursiveImports = new ArrayList<>();
+        for (List<String> cycle : getCycles()) {
+            recursiveImports.add(cycle.size() > 1 && cycle.get(0).equals(root) ? cycle.get(1) : cycle.get(0));
+        }
+        return recursiveImports;
+    }
+
+    /**
+     * Tarjan's algorithm, iterative so that deep import chains cannot overflow the stack
+     *
+     * @return strongly connected components
+     */
+    private List<List<String>> findStronglyConnectedComponents() {
+        Map<String, Integer> index = new HashMap<>();
+        Map<String, Integer> lowLink = new HashMap<>();
+        Deque<String> componentStack = new ArrayDeque<>();
+        Set<String> onComponentStack = new HashSet<>();
+        List<List<String>> components = new ArrayList<>();
+
+        for (String start : imports.keySet()) {
+            if (index.containsKey(start)) {
+                continue;
+            }
+            // each frame is a node and the position of the next import of that node to look at
+            Deque<Map.Entry<String, Integer>> callStack = new ArrayDeque<>();
+            callStack.push(new AbstractMap.SimpleEntry<>(start, 0));
+            index.put(start, index.size());
+            lowLink.put(start, index.get(start));
+            componentStack.push(start);
+            onComponentStack.add(start);
+
+            while (!callStack.isEmpty()) {
+                Map.Entry<String, Integer> frame = callStack.peek();
+                String node = frame.getKey();
+                List<String> nodeImports = getImports(node);
+                if (frame.getValue() < nodeImports.size()) {
+                    String next = nodeImports.get(frame.getValue());
+                    frame.setValue(frame.getValue() + 1);
+                    if (!index.containsKey(next)) {
+                        index.put(next, index.size());
+                        lowLink.put(next, index.get(next));
+                        componentStack.push(next);
+                        onComponentStack.add(next);
+                        callStack.push(new AbstractMap.SimpleEntry<>(next, 0));
+                    } else if (onComponentStack.contains(next)) {
+                        lowLink.put(node, Math.min(lowLink.get(node), index.get(next)));
+                    }
+                    continue;
+                }
+                callStack.pop();
+                if (!callStack.isEmpty()) {
+                    String parent = callStack.peek().getKey();
+                    lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(node)));
+                }
+                if (lowLink.get(node).equals(index.get(node))) {
+                    List<String> component = new ArrayList<>();
+                    String member;
+                    do {
+                        member = componentStack.pop();
+                        onComponentStack.remove(member);
+                        component.add(member);
+                    } while (!member.equals(node));
+                    components.add(component);
+                }
+            }
+        }
+        return components;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.dockstore.webservice.languages;
+
+import io.dockstore.common.DescriptorLanguage.FileType;
+import io.dockstore.language.MinimalLanguageInterface.GenericFileType;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.core.SourceFile;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A read-only view of source files in the indexed form that language plugins expect (absolute path to content and generic file type).
+ * Content is never copied, each pair is created on access from the underlying {@link SourceFile}.
+ * File types are checked when the view is created so that bad input fails on the calling thread rather than inside a plugin.
+ */
+final class IndexedSourceFiles extends AbstractMap<String, Pair<String, GenericFileType>> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexedSourceFiles.class);
+
+    private final Map<String, SourceFile> byAbsolutePath;
+    private final long totalContentLength;
+
+    IndexedSourceFiles(Collection<SourceFile> sourceFiles) {
+        this.byAbsolutePath = new HashMap<>(sourceFiles.size());
+        long contentLength = 0;
+        for (SourceFile file : sourceFiles) {
+            toGenericFileType(file);
+            byAbsolutePath.put(file.getAbsolutePath(), file);
+            contentLength += file.getContent() == null ? 0 : file.getContent().length();
+        }
+        this.totalContentLength = contentLength;
+    }
+
+    /**
+     * @return total number of characters of content in the view, used to enforce plugin input budgets
+     */
+    long getTotalContentLength() {
+        return totalContentLength;
+    }
+
+    @Override
+    public Pair<String, GenericFileType> get(Object key) {
+        SourceFile file = byAbsolutePath.get(key);
+        return file == null ? null : toPair(file);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return byAbsolutePath.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return byAbsolutePath.size();
+    }
+
+    @Override
+    public Set<Entry<String, Pair<String, GenericFileType>>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Pair<String, GenericFileType>>> iterator() {
+                Iterator<Entry<String, SourceFile>> iterator = byAbsolutePath.entrySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Pair<String, GenericFileType>> next() {
+                        Entry<String, SourceFile> next = iterator.next();
+                        return new SimpleImmutableEntry<>(next.getKey(), toPair(next.getValue()));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return byAbsolutePath.size();
+            }
+        };
+    }
+
+    private static Pair<String, GenericFileType> toPair(SourceFile file) {
+        return new ImmutablePair<>(file.getContent(), toGenericFileType(file));
+    }
+
+    private static GenericFileType toGenericFileType(SourceFile file) {
+        FileType fileType = file.getType();
+        if (fileType == null) {
+            LOG.error("File type for source file {} is null", file.getPath());
+            throw new CustomWebApplicationException("File type for source file "
+                + file.getPath() + " is null", HttpStatus.SC_METHOD_FAILURE);
+        }
+        switch (fileType.getCategory()) {
+        case GENERIC_DESCRIPTOR:
+        case PRIMARY_DESCRIPTOR:
+        case SECONDARY_DESCRIPTOR:
+        case OTHER:
+            return GenericFileType.IMPORTED_DESCRIPTOR;
+        case TEST_FILE:
+            return GenericFileType.TEST_PARAMETER_FILE;
+        case CONTAINERFILE:
+            return GenericFileType.CONTAINERFILE;
+        default:
+            LOG.error("Could not determine file type category for source file {}", file.getPath());
+            throw new CustomWebApplicationException("Could not determine file type category for source file "
+                + file.getPath(), HttpStatus.SC_METHOD_FAILURE);
+        }
+    }
+}
@@ -161,26 +161,24 @@ public interface LanguageHandlerInterface {
     /**
      * Checks that the test parameter files are valid JSON or YAML
      * Note: If even one is invalid, return invalid. Also merges all validation messages into one.
+     * Files are parsed concurrently by the {@link LanguageValidationEngine}.
      * @param sourcefiles Set of sourcefiles
      * @param fileType Test parameter file type
      * @return Pair of isValid and validationMessage
      */
     default VersionTypeValidation checkValidJsonAndYamlFiles(Set<SourceFile> sourcefiles, DescriptorLanguage.FileType fileType) {
-        boolean isValid = true;
-        Map<String, String> validationMessageObject = new HashMap<>();
-        for (SourceFile sourcefile : sourcefiles) {
-            if (Objects.equals(sourcefile.getType(), fileType)) {
-                Yaml yaml = new Yaml(new SafeConstructor());
-                try {
-                    yaml.load(sourcefile.getContent());
-                } catch (YAMLException e) {
-                    LOG.error("There was an exception validating sourcefile", e);
-                    validationMessageObject.put(sourcefile.getPath(), e.getMessage());
-                    isValid = false;
-                }
+        List<SourceFile> testParameterFiles = sourcefiles.stream().filter(sourcefile -> Objects.equals(sourcefile.getType(), fileType))
+            .collect(Collectors.toList());
+        return LanguageValidationEngine.validateFiles(fileType, LanguageValidationEngine.TEST_PARAMETER_SET, testParameterFiles, sourcefile -> {
+            Yaml yaml = new Yaml(new SafeConstructor());
+            try {
+                yaml.load(sourcefile.getContent());
+                return Optional.empty();
+            } catch (YAMLException e) {
+                LOG.error("There was an exception validating sourcefile", e);
+                return Optional.of(String.valueOf(e.getMessage()));
             }
-        }
-        return new VersionTypeValidation(isValid, validationMessageObject);
+        });
     }
 
     default String getCleanDAG(String mainDescriptorPath, String mainDescriptor, Set<SourceFile> secondarySourceFiles, Type type, ToolDAO dao) {
@@ -0,0 +1,200 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.dockstore.webservice.languages;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.LanguagePluginConfig;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs calls into language plugins on a dedicated worker pool so that a slow or pathological plugin cannot tie up request threads.
+ *
+ * <p>Each call is limited by a timeout, by a per-plugin cap on concurrent calls, and by a budget on how much source file content may be
+ * handed to a plugin in one call. The JVM cannot bound the heap of a single thread, so the content budget stands in for a memory budget.
+ * Call latencies are recorded per plugin and operation, e.g. <code>...LanguagePluginExecutor.GalaxyWorkflowPlugin.validateWorkflowSet</code>.
+ *
+ * <p>A timed out call is interrupted, but a plugin busy computing may ignore that and keep its worker. Such a call is counted as stuck,
+ * and keeps its plugin's permit and its worker until it really ends. A plugin whose calls are all stuck is reported as busy, and once
+ * every worker is stuck no plugin calls are accepted, rather than queueing them behind workers that may never come back.
+ *
+ * <p>Until {@link #init(ExecutorService, MetricRegistry, LanguagePluginConfig)} is called (e.g. in unit tests) calls run on the calling thread.
+ */
+public final class LanguagePluginExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LanguagePluginExecutor.class);
+
+    private static final Map<String, Semaphore> PLUGIN_PERMITS = new ConcurrentHashMap<>();
+    private static final AtomicInteger STUCK_CALLS = new AtomicInteger();
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int TIMED_OUT = 2;
+    private static final int DONE = 3;
+
+    private static ExecutorService executorService = null;
+    private static MetricRegistry metricRegistry = new MetricRegistry();
+    private static LanguagePluginConfig config = new LanguagePluginConfig();
+
+    private LanguagePluginExecutor() {
+        // hide the constructor for utility classes
+    }
+
+    public static void init(ExecutorService executor, MetricRegistry registry, LanguagePluginConfig pluginConfig) {
+        executorService = executor;
+        metricRegistry = registry;
+        config = pluginConfig;
+        PLUGIN_PERMITS.clear();
+        metricRegistry.gauge(MetricRegistry.name(LanguagePluginExecutor.class, "stuck"), () -> STUCK_CALLS::get);
+    }
+
+    /**
+     * @return the number of timed out calls whose plugins have not returned yet
+     */
+    static int getStuckCalls() {
+        return STUCK_CALLS.get();
+    }
+
+    /**
+     * Checks that the content handed to a plugin fits in the configured budget
+     * @param pluginName name of the plugin
+     * @param indexedFiles files that will be handed to the plugin
+     * @return the same files
+     */
+    static IndexedSourceFiles checkBudget(String pluginName, IndexedSourceFiles indexedFiles) {
+        if (config.getMaxInputCharacters() > 0 && indexedFiles.getTotalContentLength() > config.getMaxInputCharacters()) {
+            throw new CustomWebApplicationException(String.format("The files of this version are too large (%d characters) to be processed by %s",
+                indexedFiles.getTotalContentLength(), pluginName), HttpStatus.SC_REQUEST_TOO_LONG);
+        }
+        return indexedFiles;
+    }
+
+    /**
+     * Runs a call into a plugin
+     * @param pluginName name of the plugin, used for concurrency limits and metrics
+     * @param operation name of the plugin method, used for metrics
+     * @param call the call into the plugin
+     * @param <T> return type of the call
+     * @return the result of the call
+     */
+    static <T> T call(String pluginName, String operation, Callable<T> call) {
+        if (executorService != null && STUCK_CALLS.get() >= config.getThreads()) {
+            metricRegistry.meter(MetricRegistry.name(LanguagePluginExecutor.class, pluginName, "rejected")).mark();
+            throw new CustomWebApplicationException("Language plugins are busy, please try again later", HttpStatus.SC_SERVICE_UNAVAILABLE);
+        }
+        Semaphore permits = PLUGIN_PERMITS.computeIfAbsent(pluginName, name -> new Semaphore(config.getMaxConcurrentCallsPerPlugin()));
+        if (!permits.tryAcquire()) {
+            metricRegistry.meter(MetricRegistry.name(LanguagePluginExecutor.class, pluginName, "rejected")).mark();
+            throw new CustomWebApplicationException(pluginName + " is busy, please try again later", HttpStatus.SC_SERVICE_UNAVAILABLE);
+        }
+        try (Timer.Context ignored = metricRegistry.timer(MetricRegistry.name(LanguagePluginExecutor.class, pluginName, operation)).time()) {
+            if (executorService == null) {
+                try {
+                    return call.call();
+                } finally {
+                    permits.release();
+                }
+            }
+            return callInPool(pluginName, operation, call, permits);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Runs the call on the pool. The permit is released when the call really ends, or if it is dropped before it starts.
+     */
+    private static <T> T callInPool(String pluginName, String operation, Callable<T> call, Semaphore permits) {
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+        final Future<T> future;
+        try {
+            future = executorService.submit(() -> {
+                if (!state.compareAndSet(QUEUED, RUNNING)) {
+                    // dropped before it started
+                    return null;
+                }
+                try {
+                    return call.call();
+                } finally {
+                    if (state.getAndSet(DONE) == TIMED_OUT) {
+                        STUCK_CALLS.decrementAndGet();
+                        LOG.info("{} returned from {} after timing out", pluginName, operation);
+                    }
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw new CustomWebApplicationException("Language plugins are busy, please try again later", HttpStatus.SC_SERVICE_UNAVAILABLE);
+        }
+        try {
+            return future.get(config.getTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            abandon(future, state, permits);
+            metricRegistry.meter(MetricRegistry.name(LanguagePluginExecutor.class, pluginName, "timeouts")).mark();
+            LOG.error("{} timed out in {} after {} seconds", pluginName, operation, config.getTimeoutSeconds());
+            throw new CustomWebApplicationException(String.format("%s took longer than %d seconds to process this version", pluginName,
+                config.getTimeoutSeconds()), HttpStatus.SC_UNPROCESSABLE_ENTITY);
+        } catch (InterruptedException e) {
+            abandon(future, state, permits);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + pluginName, e);
+        } catch (ExecutionException e) {
+            // rethrow what the plugin threw so that callers see the same exceptions as a direct call
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error)e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Gives up on a call. A call that has not started is dropped, a running call is interrupted and counted as stuck until it ends.
+     */
+    private static void abandon(Future<?> future, AtomicInteger state, Semaphore permits) {
+        if (state.compareAndSet(QUEUED, DONE)) {
+            future.cancel(false);
+            permits.release();
+            return;
+        }
+        STUCK_CALLS.incrementAndGet();
+        if (state.compareAndSet(RUNNING, TIMED_OUT)) {
+            future.cancel(true);
+        } else {
+            // it ended just now
+            STUCK_CALLS.decrementAndGet();
+        }
+    }
+}
@@ -40,7 +40,6 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.http.HttpStatus;
 import org.slf4j.Logger;
@@ -50,11 +49,13 @@ public class LanguagePluginHandler implements LanguageHandlerInterface {
 
     public static final Logger LOG = LoggerFactory.getLogger(LanguagePluginHandler.class);
     private final MinimalLanguageInterface minimalLanguageInterface;
+    private final String pluginName;
     private final Gson gson = new Gson();
 
     LanguagePluginHandler(Class<? extends MinimalLanguageInterface> workflowLanguagePluginClass) {
         try {
             this.minimalLanguageInterface = workflowLanguagePluginClass.getDeclaredConstructor().newInstance();
+            this.pluginName = workflowLanguagePluginClass.getSimpleName();
         } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
             LOG.error("could not construct language plugin", e);
             throw new UnsupportedOperationException();
@@ -63,8 +64,8 @@ public class LanguagePluginHandler implements LanguageHandlerInterface {
 
     @Override
     public Version parseWorkflowContent(String filepath, String content, Set<SourceFile> sourceFiles, Version version) {
-        final MinimalLanguageInterface.WorkflowMetadata workflowMetadata =
-            minimalLanguageInterface.parseWorkflowForMetadata(filepath, content, new HashMap<>());
+        final MinimalLanguageInterface.WorkflowMetadata workflowMetadata = LanguagePluginExecutor.call(pluginName, "parseWorkflowForMetadata",
+            () -> minimalLanguageInterface.parseWorkflowForMetadata(filepath, content, new HashMap<>()));
         // Add authors from descriptor if there are no .dockstore.yml authors
         if (workflowMetadata.getAuthor() != null && version.getAuthors().isEmpty()) {
             Author author = new Author(workflowMetadata.getAuthor());
@@ -90,9 +91,14 @@ public class LanguagePluginHandler implements LanguageHandlerInterface {
                 return new VersionTypeValidation(false, validationMessage);
             }
 
+            final String primaryDescriptorContent = content;
             try {
-                return ((RecommendedLanguageInterface)minimalLanguageInterface)
-                    .validateWorkflowSet(primaryDescriptorFilePath, content, sourcefilesToIndexedFiles(sourcefiles));
+                final IndexedSourceFiles indexedFiles = sourcefilesToIndexedFiles(sourcefiles);
+                return LanguagePluginExecutor.call(pluginName, "validateWorkflowSet", () -> ((RecommendedLanguageInterface)minimalLanguageInterface)
+                    .validateWorkflowSet(primaryDescriptorFilePath, primaryDescriptorContent, indexedFiles));
+            } catch (CustomWebApplicationException e) {
+                // e.g. the plugin is busy or timed out, which is not a problem with the files
+                throw e;
             } catch (Exception e) {
                 throw new CustomWebApplicationException(e.getMessage(), HttpStatus.SC_UNPROCESSABLE_ENTITY);
             }
@@ -102,46 +108,12 @@ public class LanguagePluginHandler implements LanguageHandlerInterface {
     }
 
     /**
-     * Converts a set of sourcesfiles into the generic indexed files
+     * Converts a set of sourcesfiles into a view of the generic indexed files, checked against the plugin input budget
      * @param sourceFiles set of sourcefiles
      * @return Generic indexed files mapping
      */
-    private Map<String, Pair<String, MinimalLanguageInterface.GenericFileType>> sourcefilesToIndexedFiles(Set<SourceFile> sourceFiles) {
-        Map<String, Pair<String, MinimalLanguageInterface.GenericFileType>> indexedFiles = new HashMap<>();
-
-        for (SourceFile file : sourceFiles) {
-            String content = file.getContent();
-            String absolutePath = file.getAbsolutePath();
-
-            FileType fileType = file.getType();
-            if (fileType == null) {
-                LOG.error("File type for source file {} is null", file.getPath());
-                throw new CustomWebApplicationException("File type for source file "
-                    + file.getPath() + " is null", HttpStatus.SC_METHOD_FAILURE);
-            }
-            MinimalLanguageInterface.GenericFileType genericFileType;
-            switch (fileType.getCategory()) {
-            case GENERIC_DESCRIPTOR:
-            case PRIMARY_DESCRIPTOR:
-            case SECONDARY_DESCRIPTOR:
-            case OTHER:
-                genericFileType = MinimalLanguageInterface.GenericFileType.IMPORTED_DESCRIPTOR;
-                break;
-            case TEST_FILE:
-                genericFileType = MinimalLanguageInterface.GenericFileType.TEST_PARAMETER_FILE;
-                break;
-            case CONTAINERFILE:
-                genericFileType = MinimalLanguageInterface.GenericFileType.CONTAINERFILE;
-                break;
-            default:
-                LOG.error("Could not determine file type category for source file {}", file.getPath());
-                throw new CustomWebApplicationException("Could not determine file type category for source file "
-                    + file.getPath(), HttpStatus.SC_METHOD_FAILURE);
-            }
-            Pair<String, MinimalLanguageInterface.GenericFileType> indexedFile = new ImmutablePair<>(content, genericFileType);
-            indexedFiles.put(absolutePath, indexedFile);
-        }
-        return indexedFiles;
+    private IndexedSourceFiles sourcefilesToIndexedFiles(Set<SourceFile> sourceFiles) {
+        return LanguagePluginExecutor.checkBudget(pluginName, new IndexedSourceFiles(sourceFiles));
     }
 
     @Override
@@ -171,8 +143,8 @@ public class LanguagePluginHandler implements LanguageHandlerInterface {
             }
         };
 
-        final Map<String, Pair<String, MinimalLanguageInterface.GenericFileType>> stringPairMap = minimalLanguageInterface
-            .indexWorkflowFiles(filepath, content, reader);
+        final Map<String, Pair<String, MinimalLanguageInterface.GenericFileType>> stringPairMap = LanguagePluginExecutor
+            .call(pluginName, "indexWorkflowFiles", () -> minimalLanguageInterface.indexWorkflowFiles(filepath, content, reader));
         Map<String, SourceFile> results = new HashMap<>();
         for (Map.Entry<String, Pair<String, MinimalLanguageInterface.GenericFileType>> entry : stringPairMap.entrySet()) {
             final SourceFile sourceFile = new SourceFile();
@@ -211,15 +183,17 @@ public class LanguagePluginHandler implements LanguageHandlerInterface {
         ToolDAO dao) {
 
         if (type == Type.DAG && minimalLanguageInterface instanceof CompleteLanguageInterface) {
-            final Map<String, Object> maps = ((CompleteLanguageInterface)minimalLanguageInterface)
-                .loadCytoscapeElements(mainDescriptorPath, mainDescriptor, sourcefilesToIndexedFiles(secondarySourceFiles));
+            final IndexedSourceFiles indexedFiles = sourcefilesToIndexedFiles(secondarySourceFiles);
+            final Map<String, Object> maps = LanguagePluginExecutor.call(pluginName, "loadCytoscapeElements",
+                () -> ((CompleteLanguageInterface)minimalLanguageInterface).loadCytoscapeElements(mainDescriptorPath, mainDescriptor, indexedFiles));
             return Optional.of(gson.toJson(maps));
         } else if (type == Type.TOOLS && minimalLanguageInterface instanceof CompleteLanguageInterface) {
             // TODO: hook up tools here for Galaxy
             List<CompleteLanguageInterface.RowData> rowData = new ArrayList<>();
             try {
-                rowData = ((CompleteLanguageInterface)minimalLanguageInterface)
-                        .generateToolsTable(mainDescriptorPath, mainDescriptor, sourcefilesToIndexedFiles(secondarySourceFiles));
+                final IndexedSourceFiles indexedFiles = sourcefilesToIndexedFiles(secondarySourceFiles);
+                rowData = LanguagePluginExecutor.call(pluginName, "generateToolsTable",
+                    () -> ((CompleteLanguageInterface)minimalLanguageInterface).generateToolsTable(mainDescriptorPath, mainDescriptor, indexedFiles));
             } catch (NullPointerException e) {
                 LOG.error("could not parse tools from workflow", e);
                 return Optional.empty();
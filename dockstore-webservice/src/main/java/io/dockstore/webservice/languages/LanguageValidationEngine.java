@@ -0,0 +1,193 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.dockstore.webservice.languages;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dockstore.common.VersionTypeValidation;
+import io.dockstore.webservice.core.SourceFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Validates the independent source files of a version concurrently on a bounded pool. The calling thread waits for the files'
+ * checks, which run on the pool.
+ *
+ * <p>Results are always merged into a map sorted by file path so that the stored {@link VersionTypeValidation} does not depend
+ * on which file finished first. A check that throws is treated as fatal: the remaining checks are cancelled and only the fatal
+ * message is reported. Every validation is timed per language and phase, e.g. <code>...LanguageValidationEngine.CWL.workflowSet</code>.
+ *
+ * <p>Until {@link #init(ExecutorService, MetricRegistry)} is called (e.g. in unit tests) everything runs on the calling thread.
+ */
+public final class LanguageValidationEngine {
+
+    public static final String WORKFLOW_SET = "workflowSet";
+    public static final String TOOL_SET = "toolSet";
+    public static final String TEST_PARAMETER_SET = "testParameterSet";
+
+    private static final Logger LOG = LoggerFactory.getLogger(LanguageValidationEngine.class);
+
+    /**
+     * Marks pool threads so that nested validations run inline rather than waiting on the pool they occupy. Validations that should
+     * parse their files concurrently must therefore be started from a thread outside the pool
+     */
+    private static final ThreadLocal<Boolean> IN_POOL = ThreadLocal.withInitial(() -> false);
+
+    private static ExecutorService executorService = null;
+    private static MetricRegistry metricRegistry = new MetricRegistry();
+
+    private LanguageValidationEngine() {
+        // hide the constructor for utility classes
+    }
+
+    public static void init(ExecutorService executor, MetricRegistry registry) {
+        executorService = executor;
+        metricRegistry = registry;
+    }
+
+    public static MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Times a validation of a whole descriptor or test parameter set for a language
+     * @param language language (or file type) that the validation is for
+     * @param phase one of {@link #WORKFLOW_SET}, {@link #TOOL_SET}, {@link #TEST_PARAMETER_SET}
+     * @param validation the validation to run
+     * @return the result of the validation
+     */
+    public static VersionTypeValidation timed(Object language, String phase, Supplier<VersionTypeValidation> validation) {
+        try (Timer.Context ignored = metricRegistry.timer(MetricRegistry.name(LanguageValidationEngine.class, String.valueOf(language), phase)).time()) {
+            return validation.get();
+        }
+    }
+
+    /**
+     * Runs a check against each source file concurrently and aggregates the messages.
+     * @param language language (or file type) that the validation is for, used for metrics
+     * @param phase phase of validation, used for metrics
+     * @param sourceFiles files to check
+     * @param check returns an error message for an invalid file, empty for a valid file. Throwing is treated as a fatal error.
+     * @return valid if no file had an error, with messages keyed and sorted by file path
+     */
+    public static VersionTypeValidation validateFiles(Object language, String phase, Collection<SourceFile> sourceFiles,
+        Function<SourceFile, Optional<String>> check) {
+        return timed(language, phase, () -> {
+            List<SourceFile> sorted = sourceFiles.stream().sorted(Comparator.comparing(SourceFile::getPath)).collect(Collectors.toList());
+            Map<String, String> messages = new TreeMap<>();
+            if (!usePool() || sorted.size() <= 1) {
+                for (SourceFile sourceFile : sorted) {
+                    try {
+                        check.apply(sourceFile).ifPresent(message -> messages.put(sourceFile.getPath(), message));
+                    } catch (RuntimeException e) {
+                        return fatal(sourceFile, e);
+                    }
+                }
+            } else {
+                validateFilesInPool(sorted, check, messages);
+            }
+            return new VersionTypeValidation(messages.isEmpty(), messages);
+        });
+    }
+
+    private static void validateFilesInPool(List<SourceFile> sourceFiles, Function<SourceFile, Optional<String>> check, Map<String, String> messages) {
+        CompletionService<FileResult> completionService = new ExecutorCompletionService<>(executorService);
+        List<Future<FileResult>> futures = new ArrayList<>();
+        for (SourceFile sourceFile : sourceFiles) {
+            futures.add(completionService.submit(runInPool(sourceFile, check)));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                FileResult result = completionService.take().get();
+                if (result.fatal) {
+                    futures.forEach(future -> future.cancel(true));
+                    messages.clear();
+                    messages.put(result.path, result.message);
+                    return;
+                }
+                if (result.message != null) {
+                    messages.put(result.path, result.message);
+                }
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Callable<FileResult> runInPool(SourceFile sourceFile, Function<SourceFile, Optional<String>> check) {
+        return () -> runInPool(() -> {
+            try {
+                return new FileResult(sourceFile.getPath(), check.apply(sourceFile).orElse(null), false);
+            } catch (RuntimeException e) {
+                LOG.error("Fatal error validating " + sourceFile.getPath(), e);
+                return new FileResult(sourceFile.getPath(), String.valueOf(e.getMessage()), true);
+            }
+        });
+    }
+
+    private static <T> T runInPool(Supplier<T> supplier) {
+        IN_POOL.set(true);
+        try {
+            return supplier.get();
+        } finally {
+            IN_POOL.set(false);
+        }
+    }
+
+    private static VersionTypeValidation fatal(SourceFile sourceFile, RuntimeException e) {
+        LOG.error("Fatal error validating " + sourceFile.getPath(), e);
+        Map<String, String> messages = new TreeMap<>();
+        messages.put(sourceFile.getPath(), String.valueOf(e.getMessage()));
+        return new VersionTypeValidation(false, messages);
+    }
+
+    private static boolean usePool() {
+        return executorService != null && !IN_POOL.get();
+    }
+
+    private static final class FileResult {
+        private final String path;
+        private final String message;
+        private final boolean fatal;
+
+        private FileResult(String path, String message, boolean fatal) {
+            this.path = path;
+            this.message = message;
+            this.fatal = fatal;
+        }
+    }
+}
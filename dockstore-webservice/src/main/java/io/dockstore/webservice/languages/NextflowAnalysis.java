@@ -0,0 +1,371 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.dockstore.webservice.languages;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.common.hash.Hashing;
+import groovyjarjarantlr.RecognitionException;
+import groovyjarjarantlr.TokenStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import org.apache.commons.io.IOUtils;
+import org.codehaus.groovy.antlr.GroovySourceAST;
+import org.codehaus.groovy.antlr.parser.GroovyLexer;
+import org.codehaus.groovy.antlr.parser.GroovyRecognizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of what {@link NextflowHandler} needs from a Nextflow script (processes with their input channels, output channels and
+ * containers, includes and the nf-core help message), built by parsing the script once.
+ *
+ * <p>Scripts such as <code>main.nf</code> and modules rarely change between versions of a workflow, so analyses are cached by the
+ * SHA-256 hash of the script content. An analysis is immutable once built and may be shared between threads.
+ */
+final class NextflowAnalysis {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NextflowAnalysis.class);
+
+    private static final int MAX_CACHED_ANALYSES = 1000;
+
+    private static final Cache<String, NextflowAnalysis> ANALYSES = Caffeine.newBuilder().maximumSize(MAX_CACHED_ANALYSES).recordStats().build();
+
+    private static final NextflowAnalysis UNPARSEABLE = new NextflowAnalysis(Collections.emptyMap(), Collections.emptyList(), null);
+
+    /**
+     * Not sure why groovy puts text under a type of 88, cannot find a constant for this
+     */
+    private static final int GROOVY_TEXT_TYPE = 88;
+
+    private final Map<String, ProcessInfo> processes;
+    private final List<String> includeLines;
+    private final String helpMessage;
+
+    private NextflowAnalysis(Map<String, ProcessInfo> processes, List<String> includeLines, String helpMessage) {
+        this.processes = processes;
+        this.includeLines = includeLines;
+        this.helpMessage = helpMessage;
+    }
+
+    /**
+     * Returns the analysis of a script, parsing it only if a script with the same content has not been analyzed before
+     *
+     * @param content content of a Nextflow script
+     * @return the analysis, null if there is no content
+     */
+    static NextflowAnalysis of(String content) {
+        if (content == null) {
+            return null;
+        }
+        return ANALYSES.get(Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString(), hash -> analyze(content));
+    }
+
+    static CacheStats getCacheStats() {
+        return ANALYSES.stats();
+    }
+
+    static void clearCache() {
+        ANALYSES.invalidateAll();
+    }
+
+    /**
+     * @return processes keyed by name, in the order they are declared
+     */
+    Map<String, ProcessInfo> getProcesses() {
+        return processes;
+    }
+
+    /**
+     * @return lines that include other scripts (ex. "include { RNASEQ } from './modules/rnaseq'")
+     */
+    List<String> getIncludeLines() {
+        return includeLines;
+    }
+
+    /**
+     * @return the aggregated help message of nf-core workflows, null if the script could not be parsed
+     */
+    String getHelpMessage() {
+        return helpMessage;
+    }
+
+    /**
+     * Returns map from names of processes to their dependencies (processes that write to a channel that the process reads)
+     *
+     * @return map of process name to dependent process names
+     */
+    Map<String, List<String>> getCallsToDependencies() {
+        //TODO: create proper dependency arrays, for now just list processes sequentially
+        Map<String, List<String>> map = new LinkedHashMap<>();
+        processes.forEach((processName, process) -> {
+            List<String> dependencies = new ArrayList<>();
+            process.getInputChannels().forEach(channelRead -> processes.forEach((dependentProcessName, dependentProcess) -> {
+                if (dependentProcess.getOutputChannels().stream().anyMatch(channelWrite -> Objects.equals(channelRead, channelWrite))) {
+                    dependencies.add(dependentProcessName);
+                }
+            }));
+            map.put(processName, dependencies);
+        });
+        return map;
+    }
+
+    private static NextflowAnalysis analyze(String content) {
+        List<String> includeLines = new ArrayList<>();
+        Matcher matcher = NextflowHandler.IMPORT_PATTERN.matcher(content);
+        while (matcher.find()) {
+            includeLines.add(matcher.group());
+        }
+
+        GroovySourceAST ast;
+        try (InputStream stream = IOUtils.toInputStream(content, StandardCharsets.UTF_8)) {
+            GroovyRecognizer make = GroovyRecognizer.make(new GroovyLexer(stream));
+            make.compilationUnit();
+            ast = (GroovySourceAST)make.getAST();
+        } catch (IOException | TokenStreamException | RecognitionException e) {
+            LOG.warn("could not parse", e);
+            return includeLines.isEmpty() ? UNPARSEABLE : new NextflowAnalysis(Collections.emptyMap(), Collections.unmodifiableList(includeLines), null);
+        }
+
+        // Collect everything that is read from the tree before looking at inputs and outputs, which cut the tree as they go
+        final List<GroovySourceAST> helpMessageList = getSubtreesOfKeyword(ast, "helpMessage");
+        final List<GroovySourceAST> processList = getSubtreesOfKeyword(ast, "process");
+
+        StringBuilder builder = new StringBuilder();
+        helpMessageList.forEach(helpAST -> appendHelpMessage(helpAST, builder, new HashSet<>()));
+
+        Map<String, String> processNameToContainer = new LinkedHashMap<>();
+        for (GroovySourceAST processAST : processList) {
+            String processName = getProcessValue(processAST);
+            if (processName != null) {
+                GroovySourceAST containerAST = getFirstAstWithKeyword(processAST, "container", false);
+                processNameToContainer.put(processName, containerAST == null ? null : containerAST.getNextSibling().getFirstChild().getText());
+            }
+        }
+
+        Map<String, ProcessInfo> processes = new LinkedHashMap<>();
+        for (GroovySourceAST processAST : processList) {
+            String processName = getProcessValue(processAST);
+            if (processName != null) {
+                // Get a list of all channels that the process depends on and all channels that the process writes to
+                List<String> inputs = getDependencyList(processAST, "input");
+                List<String> outputs = getDependencyList(processAST, "output");
+                processes.put(processName, new ProcessInfo(inputs, outputs, processNameToContainer.get(processName)));
+            }
+        }
+        return new NextflowAnalysis(Collections.unmodifiableMap(processes), Collections.unmodifiableList(includeLines), builder.toString());
+    }
+
+    /**
+     * Returns the first AST found with some keyword as text
+     *
+     * @param ast          An AST
+     * @param keyword      Text to search node for (exact match)
+     * @param compareChild If true will check first child for keyword, if false will check current node
+     * @return AST with some keyword as text
+     */
+    private static GroovySourceAST getFirstAstWithKeyword(GroovySourceAST ast, String keyword, boolean compareChild) {
+        return getFirstAstWithKeyword(ast, keyword, compareChild, new HashSet<>());
+    }
+
+    private static GroovySourceAST getFirstAstWithKeyword(GroovySourceAST ast, String keyword, boolean compareChild, Set<GroovySourceAST> seen) {
+        if (ast == null || !seen.add(ast)) {
+            return null;
+        }
+
+        if (compareChild) {
+            if (ast.getFirstChild() != null && Objects.equals(ast.getFirstChild().getText(), keyword)) {
+                return ast;
+            }
+        } else if (Objects.equals(ast.getText(), keyword)) {
+            return ast;
+        }
+
+        GroovySourceAST subtree = null;
+        for (int i = 0; i < ast.getNumberOfChildren() && subtree == null; i++) {
+            subtree = getFirstAstWithKeyword(ast.childAt(i), keyword, compareChild, seen);
+        }
+
+        if (subtree == null && ast.getNextSibling() != null) {
+            subtree = getFirstAstWithKeyword((GroovySourceAST)ast.getNextSibling(), keyword, compareChild, seen);
+        }
+        return subtree;
+    }
+
+    /**
+     * Gets a list of all subtrees with text keyword
+     *
+     * @param ast     Some AST
+     * @param keyword A keyword of an existing node in an AST
+     * @return List of AST with some keyword
+     */
+    private static List<GroovySourceAST> getSubtreesOfKeyword(GroovySourceAST ast, String keyword) {
+        List<GroovySourceAST> subtrees = new ArrayList<>();
+        getSubtreesOfKeyword(ast, keyword, new HashSet<>(), subtrees);
+        return subtrees;
+    }
+
+    private static void getSubtreesOfKeyword(GroovySourceAST ast, String keyword, Set<GroovySourceAST> seen, List<GroovySourceAST> subtrees) {
+        if (ast == null || !seen.add(ast)) {
+            return;
+        }
+
+        if (Objects.equals(ast.getText(), keyword)) {
+            subtrees.add(ast);
+            return;
+        }
+
+        for (int i = 0; i < ast.getNumberOfChildren(); i++) {
+            getSubtreesOfKeyword(ast.childAt(i), keyword, seen, subtrees);
+        }
+
+        if (ast.getNextSibling() != null) {
+            getSubtreesOfKeyword((GroovySourceAST)ast.getNextSibling(), keyword, seen, subtrees);
+        }
+    }
+
+    /**
+     * Given an AST for a process, returns the name of the process
+     *
+     * @param processAST AST of a process
+     * @return Process name or null if there isn't one
+     */
+    private static String getProcessValue(GroovySourceAST processAST) {
+        try {
+            return processAST.getNextSibling().getFirstChild().getFirstChild().getText();
+        } catch (NullPointerException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a list of the channels in the input or output section of a process
+     *
+     * @param processAST AST of a process
+     * @param section    "input" or "output"
+     * @return List of channels for the section, empty if there is no such section
+     */
+    private static List<String> getDependencyList(GroovySourceAST processAST, String section) {
+        GroovySourceAST sectionAST = getFirstAstWithKeyword(processAST, section, true);
+        if (sectionAST != null) {
+            // Stops from parsing outside the section AST
+            sectionAST.setNextSibling(null);
+            return getListOfIO(sectionAST);
+        } else {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Get a list of all channel names for either inputs or outputs of an EXPR
+     *
+     * @param processAST AST of a process
+     * @return List of channels for inputs or outputs of a process
+     */
+    private static List<String> getListOfIO(GroovySourceAST processAST) {
+        List<String> inputs = new ArrayList<>();
+        GroovySourceAST firstEXPR = getFirstAstWithKeyword(processAST, "EXPR", false);
+        inputs.add(getInputChannelNameForEXPR(firstEXPR));
+
+        // Only look at next sibling under certain conditions
+        if (!(processAST != null && processAST.getNextSibling() != null && processAST.getNextSibling().getFirstChild() != null && Objects
+            .equals(processAST.getNextSibling().getFirstChild().getText(), "output"))) {
+            if (processAST != null && processAST.getNextSibling() != null) {
+                inputs.addAll(getListOfIO((GroovySourceAST)processAST.getNextSibling()));
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * Given an AST for an EXPR will return the text name
+     *
+     * @param exprAST AST of an EXPR
+     * @return Input channel name
+     */
+    private static String getInputChannelNameForEXPR(GroovySourceAST exprAST) {
+        try {
+            return exprAST.getFirstChild().getFirstChild().getNextSibling().getFirstChild().getText();
+        } catch (NullPointerException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Aggregates the help message from what looks like log comments
+     *
+     * @param definition the ast
+     * @param builder    aggregates text
+     * @param set        the set of AST seen before (to avoid looping)
+     */
+    private static void appendHelpMessage(GroovySourceAST definition, StringBuilder builder, Set<GroovySourceAST> set) {
+        if (!set.add(definition)) {
+            return;
+        }
+        if (definition.getType() == GROOVY_TEXT_TYPE) {
+            builder.append(definition.getText());
+        }
+        for (int i = 0; i < definition.getNumberOfChildren(); i++) {
+            appendHelpMessage(definition.childAt(i), builder, set);
+        }
+        GroovySourceAST nextSibling = (GroovySourceAST)definition.getNextSibling();
+        while (nextSibling != null) {
+            appendHelpMessage(nextSibling, builder, set);
+            nextSibling = (GroovySourceAST)nextSibling.getNextSibling();
+        }
+    }
+
+    /**
+     * What was found about one process of a script
+     */
+    static final class ProcessInfo {
+        private final List<String> inputChannels;
+        private final List<String> outputChannels;
+        private final String container;
+
+        private ProcessInfo(List<String> inputChannels, List<String> outputChannels, String container) {
+            this.inputChannels = Collections.unmodifiableList(inputChannels);
+            this.outputChannels = Collections.unmodifiableList(outputChannels);
+            this.container = container;
+        }
+
+        List<String> getInputChannels() {
+            return inputChannels;
+        }
+
+        List<String> getOutputChannels() {
+            return outputChannels;
+        }
+
+        /**
+         * @return the container declared in the process, null if the process does not declare one
+         */
+        String getContainer() {
+            return container;
+        }
+    }
+}
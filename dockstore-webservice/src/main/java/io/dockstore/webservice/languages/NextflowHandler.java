@@ -16,8 +16,6 @@
 package io.dockstore.webservice.languages;
 
 import com.google.common.base.CharMatcher;
-import groovyjarjarantlr.RecognitionException;
-import groovyjarjarantlr.TokenStreamException;
 import io.dockstore.common.DescriptorLanguage;
 import io.dockstore.common.DockerImageReference;
 import io.dockstore.common.DockerParameter;
@@ -31,10 +29,6 @@ import io.dockstore.webservice.core.Validation;
 import io.dockstore.webservice.core.Version;
 import io.dockstore.webservice.helpers.SourceCodeRepoInterface;
 import io.dockstore.webservice.jdbi.ToolDAO;
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -49,12 +43,8 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
-import org.codehaus.groovy.antlr.GroovySourceAST;
-import org.codehaus.groovy.antlr.parser.GroovyLexer;
-import org.codehaus.groovy.antlr.parser.GroovyRecognizer;
 
 /**
  * This class will eventually handle support for Nextflow
@@ -173,9 +163,8 @@ public class NextflowHandler extends AbstractLanguageHandler implements Language
     private Map<String, SourceFile> processOtherImports(String repositoryId, String content, Version version,
             SourceCodeRepoInterface sourceCodeRepoInterface, String workingDirectoryForFile) {
         Map<String, SourceFile> imports = new HashMap<>();
-        Matcher m = IMPORT_PATTERN.matcher(content);
-        while (m.find()) {
-            String path = getRelativeImportPathFromLine(m.group(), workingDirectoryForFile);
+        for (String includeLine : NextflowAnalysis.of(content).getIncludeLines()) {
+            String path = getRelativeImportPathFromLine(includeLine, workingDirectoryForFile);
             String absoluteImportPath = unsafeConvertRelativePathToAbsolutePath(workingDirectoryForFile, path);
             handleImport(repositoryId, version, imports, path, sourceCodeRepoInterface, absoluteImportPath);
         }
@@ -225,180 +214,6 @@ public class NextflowHandler extends AbstractLanguageHandler implements Language
         }
     }
 
-    private GroovySourceAST getFirstAstWithKeyword(GroovySourceAST ast, String keyword, boolean compareChild) {
-        return getFirstAstWithKeyword(ast, keyword, compareChild, new HashSet<>());
-    }
-
-    /**
-     * Returns the first AST found with some keyword as text
-     *
-     * @param ast          An AST
-     * @param keyword      Text to search node for (exact match)
-     * @param compareChild If true will check first child for keyword, if false will check current node
-     * @return AST with some keyword as text
-     */
-    private GroovySourceAST getFirstAstWithKeyword(GroovySourceAST ast, String keyword, boolean compareChild, Set<GroovySourceAST> seen) {
-        if (ast == null) {
-            return null;
-        }
-
-        if (seen.contains(ast)) {
-            return null;
-        }
-        seen.add(ast);
-
-        if (compareChild) {
-            if (ast.getFirstChild() != null && Objects.equals(ast.getFirstChild().getText(), keyword)) {
-                return ast;
-            }
-        } else {
-            if (Objects.equals(ast.getText(), keyword)) {
-                return ast;
-            }
-        }
-
-        int numChildren = ast.getNumberOfChildren();
-        GroovySourceAST subtree = null;
-
-        for (int i = 0; i < numChildren; i++) {
-            GroovySourceAST groovySourceAST = ast.childAt(i);
-            subtree = getFirstAstWithKeyword(groovySourceAST, keyword, compareChild, seen);
-            if (subtree != null) {
-                break;
-            }
-        }
-
-        if (subtree == null && ast.getNextSibling() != null) {
-            subtree = getFirstAstWithKeyword((GroovySourceAST)ast.getNextSibling(), keyword, compareChild, seen);
-        }
-        return subtree;
-    }
-
-    /**
-     * Given an AST for an EXPR will return the text name
-     *
-     * @param exprAST AST of an EXPR
-     * @return Input channel name
-     */
-    private String getInputChannelNameForEXPR(GroovySourceAST exprAST) {
-        try {
-            return exprAST.getFirstChild().getFirstChild().getNextSibling().getFirstChild().getText();
-        } catch (NullPointerException e) {
-            return null;
-        }
-    }
-
-    /**
-     * Given an AST for a process, returns the name of the process
-     *
-     * @param processAST AST of a process
-     * @return Process name or null if there isn't one
-     */
-    private String getProcessValue(GroovySourceAST processAST) {
-        try {
-            return processAST.getNextSibling().getFirstChild().getFirstChild().getText();
-        } catch (NullPointerException e) {
-            return null;
-        }
-    }
-
-    /**
-     * Get a list of all channel names for either inputs or outputs of an EXPR
-     *
-     * @param processAST AST of a process
-     * @return List of channels for inputs or outputs of a process
-     */
-    private List<String> getListOfIO(GroovySourceAST processAST) {
-        List<String> inputs = new ArrayList<>();
-        GroovySourceAST firstEXPR = getFirstAstWithKeyword(processAST, "EXPR", false);
-        inputs.add(getInputChannelNameForEXPR(firstEXPR));
-
-        // Only look at next sibling under certain conditions
-        if (!(processAST != null && processAST.getNextSibling() != null && processAST.getNextSibling().getFirstChild() != null && Objects
-            .equals(processAST.getNextSibling().getFirstChild().getText(), "output"))) {
-            if (processAST != null && processAST.getNextSibling() != null) {
-                inputs.addAll(getListOfIO((GroovySourceAST)processAST.getNextSibling()));
-            }
-        }
-        return inputs;
-    }
-
-    private List<GroovySourceAST> getSubtreesOfKeyword(GroovySourceAST ast, String keyword) {
-        return getSubtreesOfKeyword(ast, keyword, new HashSet<>());
-    }
-
-    /**
-     * Gets a list of all subtrees with text keyword
-     *
-     * @param ast     Some AST
-     * @param keyword A keyword of an existing node in an AST
-     * @return List of AST with some keyword
-     */
-    private List<GroovySourceAST> getSubtreesOfKeyword(GroovySourceAST ast, String keyword, Set<GroovySourceAST> seen) {
-
-        List<GroovySourceAST> subtrees = new ArrayList<>();
-        if (seen.contains(ast)) {
-            return subtrees;
-        }
-        seen.add(ast);
-
-        if (ast == null) {
-            return null;
-        }
-
-        if (Objects.equals(ast.getText(), keyword)) {
-            subtrees.add(ast);
-            return subtrees;
-        }
-
-        int numChildren = ast.getNumberOfChildren();
-
-        for (int i = 0; i < numChildren; i++) {
-            GroovySourceAST childAST = ast.childAt(i);
-            subtrees.addAll(getSubtreesOfKeyword(childAST, keyword, seen));
-        }
-
-        if (ast.getNextSibling() != null) {
-            subtrees.addAll(getSubtreesOfKeyword((GroovySourceAST)ast.getNextSibling(), keyword, seen));
-        }
-
-        return subtrees;
-    }
-
-    /**
-     * Returns a list of input channels the process AST depends on
-     *
-     * @param processAST AST of a process
-     * @return List of input channels for a process
-     */
-    private List<String> getInputDependencyList(GroovySourceAST processAST) {
-        GroovySourceAST inputAST = getFirstAstWithKeyword(processAST, "input", true);
-        if (inputAST != null) {
-            // Stops from parsing outside the input AST
-            inputAST.setNextSibling(null);
-            return getListOfIO(inputAST);
-        } else {
-            return new ArrayList<>();
-        }
-    }
-
-    /**
-     * Returns a list of all channels written to by the given process AST
-     *
-     * @param processAST AST of a process
-     * @return List of output channels for a process
-     */
-    private List<String> getOutputDependencyList(GroovySourceAST processAST) {
-        GroovySourceAST outputAst = getFirstAstWithKeyword(processAST, "output", true);
-        if (outputAst != null) {
-            // Stops from parsing outside the output AST
-            outputAst.setNextSibling(null);
-            return getListOfIO(outputAst);
-        } else {
-            return new ArrayList<>();
-        }
-    }
-
     @Override
     public Optional<String> getContent(String mainDescName, String mainDescriptor, Set<SourceFile> secondarySourceFiles, Type type, ToolDAO dao) {
         String callType = "call"; // This may change later (ex. tool, workflow)
@@ -463,69 +278,8 @@ public class NextflowHandler extends AbstractLanguageHandler implements Language
      * @return the aggregated help message
      */
     private String getHelpMessage(String mainDescriptor) {
-        try {
-            StringBuilder builder = new StringBuilder();
-            final List<GroovySourceAST> process = getGroovySourceASTList(mainDescriptor, "helpMessage");
-            if (process == null) {
-                return null;
-            }
-            process.forEach(ast -> getHelpMessage(ast, builder, new HashSet<GroovySourceAST>()));
-            return builder.toString();
-        } catch (IOException | TokenStreamException | RecognitionException e) {
-            LOG.warn("could not parse", e);
-        }
-        return null;
-    }
-
-    /**
-     * Aggregates the help message from what looks like log comments
-     *
-     * @param definition the ast
-     * @param builder    aggregates text
-     * @param set        the set of AST seen before (to avoid looping)
-     */
-    private void getHelpMessage(GroovySourceAST definition, StringBuilder builder, Set<GroovySourceAST> set) {
-        if (set.contains(definition)) {
-            return;
-        }
-        set.add(definition);
-        // not sure why groovy puts text under a type of 88, cannot find a constant for this
-        final int groovyTextType = 88;
-        if (definition.getType() == groovyTextType) {
-            builder.append(definition.getText());
-        }
-        for (int i = 0; i < definition.getNumberOfChildren(); i++) {
-            final GroovySourceAST groovySourceAST = definition.childAt(i);
-            getHelpMessage(groovySourceAST, builder, set);
-        }
-        GroovySourceAST nextSibling = (GroovySourceAST)definition.getNextSibling();
-        while (nextSibling != null) {
-            getHelpMessage(nextSibling, builder, set);
-            nextSibling = (GroovySourceAST)nextSibling.getNextSibling();
-        }
-    }
-
-    /**
-     * Given string content, look for a keyword inside the AST representation of it
-     *
-     * @param mainDescriptor content
-     * @param keyword        keyword to lookup
-     * @return nodes with the suspectec content
-     * @throws RecognitionException
-     * @throws TokenStreamException
-     * @throws IOException
-     */
-    private List<GroovySourceAST> getGroovySourceASTList(String mainDescriptor, String keyword)
-        throws RecognitionException, TokenStreamException, IOException {
-        if (mainDescriptor == null) {
-            return null;
-        }
-        try (InputStream stream = IOUtils.toInputStream(mainDescriptor, StandardCharsets.UTF_8)) {
-            GroovyRecognizer make = GroovyRecognizer.make(new GroovyLexer(stream));
-            make.compilationUnit();
-            GroovySourceAST ast = (GroovySourceAST)make.getAST();
-            return getSubtreesOfKeyword(ast, keyword);
-        }
+        NextflowAnalysis analysis = NextflowAnalysis.of(mainDescriptor);
+        return analysis == null ? null : analysis.getHelpMessage();
     }
 
     /**
@@ -535,82 +289,27 @@ public class NextflowHandler extends AbstractLanguageHandler implements Language
      * @return
      */
     private Map<String, List<String>> getCallsToDependencies(String mainDescriptor) {
-        //TODO: create proper dependency arrays, for now just list processes sequentially
-        Map<String, List<String>> map = new HashMap<>();
-        try {
-            List<GroovySourceAST> processList = getGroovySourceASTList(mainDescriptor, "process");
-            if (processList == null) {
-                return map;
-            }
-            Map<String, List<String>> processNameToInputChannels = new HashMap<>();
-            Map<String, List<String>> processNameToOutputChannels = new HashMap<>();
-
-            processList.forEach((GroovySourceAST processAST) -> {
-                String processName = getProcessValue(processAST);
-                if (processName != null) {
-                    // Get a list of all channels that the process depends on
-                    List<String> inputs = getInputDependencyList(processAST);
-                    processNameToInputChannels.put(processName, inputs);
-
-                    // Get a list of all channels that the process writes to
-                    List<String> outputs = getOutputDependencyList(processAST);
-                    processNameToOutputChannels.put(processName, outputs);
-                }
-            });
-
-            // Create a map of process name to dependent processes
-            processNameToInputChannels.keySet().forEach((String processName) -> {
-                List<String> dependencies = new ArrayList<>();
-                processNameToInputChannels.get(processName).forEach((String channelRead) -> {
-                    processNameToOutputChannels.keySet().forEach((String dependentProcessName) -> {
-                        Optional<String> temp = processNameToOutputChannels.get(dependentProcessName).stream().filter(channelWrite -> Objects.equals(channelRead, channelWrite)).findFirst();
-
-                        if (temp.isPresent()) {
-                            dependencies.add(dependentProcessName);
-                        }
-                    });
-                });
-                map.put(processName, dependencies);
-            });
-        } catch (IOException | TokenStreamException | RecognitionException e) {
-            LOG.warn("could not parse", e);
-        }
-        return map;
+        NextflowAnalysis analysis = NextflowAnalysis.of(mainDescriptor);
+        return analysis == null ? new HashMap<>() : analysis.getCallsToDependencies();
     }
 
     protected Map<String, DockerParameter> getCallsToDockerMap(String mainDescriptor, String defaultContainer) {
         Map<String, DockerParameter> map = new HashMap<>();
-        try {
-            List<GroovySourceAST> processList = getGroovySourceASTList(mainDescriptor, "process");
-            if (processList == null) {
-                return map;
-            }
-
-            for (GroovySourceAST processAST : processList) {
-                String processName = getProcessValue(processAST);
-                if (processName == null) {
-                    continue;
-                }
-                GroovySourceAST containerAST = getFirstAstWithKeyword(processAST, "container", false);
-                String containerName;
-                if (containerAST != null) {
-                    containerName = containerAST.getNextSibling().getFirstChild().getText();
+        NextflowAnalysis analysis = NextflowAnalysis.of(mainDescriptor);
+        if (analysis == null) {
+            return map;
+        }
+        analysis.getProcesses().forEach((processName, process) -> {
+            String containerName = process.getContainer() != null ? process.getContainer() : defaultContainer;
+            if (containerName != null) {
+                if (containerName.startsWith("$")) { // Parameterized container name
+                    map.put(processName, new DockerParameter(containerName, DockerImageReference.DYNAMIC));
                 } else {
-                    containerName = defaultContainer;
-                }
-
-                if (containerName != null) {
-                    if (containerName.startsWith("$")) { // Parameterized container name
-                        map.put(processName, new DockerParameter(containerName, DockerImageReference.DYNAMIC));
-                    } else {
-                        map.put(processName, new DockerParameter(containerName, DockerImageReference.LITERAL));
-                    }
-                    LOG.debug("found container: " + containerName + " in process " + processName);
+                    map.put(processName, new DockerParameter(containerName, DockerImageReference.LITERAL));
                 }
+                LOG.debug("found container: " + containerName + " in process " + processName);
             }
-        } catch (IOException | TokenStreamException | RecognitionException e) {
-            LOG.warn("could not parse", e);
-        }
+        });
         return map;
     }
 
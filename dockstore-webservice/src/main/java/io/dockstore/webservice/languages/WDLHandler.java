@@ -15,10 +15,15 @@
  */
 package io.dockstore.webservice.languages;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.github.zafarkhaja.semver.UnexpectedCharacterException;
 import com.github.zafarkhaja.semver.expr.LexerException;
 import com.github.zafarkhaja.semver.expr.UnexpectedTokenException;
 import com.google.common.base.Strings;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
 import io.dockstore.common.DescriptorLanguage;
 import io.dockstore.common.DockerImageReference;
@@ -54,6 +59,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -78,8 +84,64 @@ public class WDLHandler implements LanguageHandlerInterface {
 
     private static final String LATEST_SUPPORTED_WDL_VERSION = "1.0";
 
-    public static void checkForRecursiveLocalImports(String content, Set<SourceFile> sourceFiles, Set<String> absolutePaths, String parent)
-            throws ParseException {
+    private static final int MAX_CACHED_IMPORT_GRAPHS = 1000;
+
+    /**
+     * Validation, parsing and the DAG and tools tabs of a version all check its imports, keyed by a hash of the files the graph is built from
+     */
+    private static final Cache<String, ImportGraph> IMPORT_GRAPHS = Caffeine.newBuilder().maximumSize(MAX_CACHED_IMPORT_GRAPHS).recordStats().build();
+
+    /**
+     * Builds the graph of local imports of a WDL workflow
+     * @param primaryDescriptorPath absolute path of the primary descriptor
+     * @param content content of the primary descriptor
+     * @param sourceFiles files of the version, looked up by absolute path
+     * @return the import graph
+     */
+    public static ImportGraph buildImportGraph(String primaryDescriptorPath, String content, Set<SourceFile> sourceFiles) {
+        // sorted so that the same files hash the same however they are ordered; the primary descriptor is read from content
+        Map<String, String> contentByAbsolutePath = new TreeMap<>();
+        sourceFiles.stream().filter(sourceFile -> sourceFile.getAbsolutePath() != null)
+            .forEach(sourceFile -> contentByAbsolutePath.putIfAbsent(sourceFile.getAbsolutePath(), sourceFile.getContent()));
+        contentByAbsolutePath.remove(primaryDescriptorPath);
+        Hasher hasher = Hashing.sha256().newHasher();
+        putNullable(hasher, primaryDescriptorPath);
+        putNullable(hasher, content);
+        contentByAbsolutePath.forEach((path, fileContent) -> {
+            putNullable(hasher, path);
+            putNullable(hasher, fileContent);
+        });
+        return IMPORT_GRAPHS.get(hasher.hash().toString(), hash -> ImportGraph.build(primaryDescriptorPath, content,
+            path -> Optional.ofNullable(contentByAbsolutePath.get(path)), WDLHandler::getLocalImports));
+    }
+
+    /**
+     * Length-prefixed, so that different files cannot hash the same by moving text from one to the next
+     */
+    private static void putNullable(Hasher hasher, String value) {
+        if (value == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+        }
+    }
+
+    static CacheStats getImportGraphCacheStats() {
+        return IMPORT_GRAPHS.stats();
+    }
+
+    static void clearImportGraphCache() {
+        IMPORT_GRAPHS.invalidateAll();
+    }
+
+    /**
+     * Finds the local imports of a WDL file
+     * @param absolutePath absolute path of the file
+     * @param content content of the file
+     * @return absolute paths of the local files imported, URLs are not included
+     */
+    private static List<String> getLocalImports(String absolutePath, String content) {
+        List<String> localImports = new ArrayList<>();
         // Use matcher to get imports
         String[] lines = StringUtils.split(content, '\n');
         for (String line : lines) {
@@ -89,25 +151,32 @@ public class WDLHandler implements LanguageHandlerInterface {
                 String match = m.group(1);
                 if (!match.startsWith("http://") && !match.startsWith("https://")) { // Don't resolve URLs
                     String localRelativePath = match.replaceFirst("file://", "");
-                    String absolutePath = LanguageHandlerHelper.unsafeConvertRelativePathToAbsolutePath(parent, localRelativePath);
-                    if (absolutePaths.contains(absolutePath)) {
-                        throw new ParseException(ERROR_PARSING_WORKFLOW_RECURSIVE_LOCAL_IMPORT + absolutePath, 0);
-                    }
-                    // Creating a new set to avoid false positive caused by multiple "branches" that have the same import
-                    Set<String> newAbsolutePaths = new HashSet<>();
-                    newAbsolutePaths.addAll(absolutePaths);
-                    newAbsolutePaths.add(absolutePath);
-                    Optional<SourceFile> sourcefile = sourceFiles.stream()
-                            .filter(sourceFile -> sourceFile.getAbsolutePath().equals(absolutePath)).findFirst();
-                    if (sourcefile.isPresent()) {
-                        File file = new File(absolutePath);
-                        String newParent = file.getParent();
-                        checkForRecursiveLocalImports(sourcefile.get().getContent(), sourceFiles, newAbsolutePaths, newParent);
-                    }
+                    localImports.add(LanguageHandlerHelper.unsafeConvertRelativePathToAbsolutePath(absolutePath, localRelativePath));
                 }
             }
         }
+        return localImports;
+    }
 
+    /**
+     * Checks for local import cycles
+     * @param primaryDescriptorPath absolute path of the primary descriptor
+     * @param content content of the primary descriptor
+     * @param sourceFiles files of the version
+     * @throws ParseException naming one file of every cycle found
+     */
+    public static void checkForRecursiveLocalImports(String primaryDescriptorPath, String content, Set<SourceFile> sourceFiles) throws ParseException {
+        List<String> recursiveImports = buildImportGraph(primaryDescriptorPath, content, sourceFiles).getRecursiveImports();
+        if (!recursiveImports.isEmpty()) {
+            throw new ParseException(ERROR_PARSING_WORKFLOW_RECURSIVE_LOCAL_IMPORT + String.join(", ", recursiveImports), 0);
+        }
+    }
+
+    /**
+     * Relative primary descriptor paths are resolved from the root of the repository
+     */
+    private static String toAbsolutePrimaryDescriptorPath(String primaryDescriptorFilePath) {
+        return primaryDescriptorFilePath.startsWith("/") ? primaryDescriptorFilePath : "/" + new File(primaryDescriptorFilePath).getName();
     }
 
     @Override
@@ -207,7 +276,7 @@ public class WDLHandler implements LanguageHandlerInterface {
 
 
     /**
-     * A common helper method for checking for local recursive imports
+     * A common helper method for checking for local recursive imports, every cycle is reported
      * @param primaryDescriptorContent content of primary descriptor
      * @param sourcefiles Set of sourcefiles to validate
      * @param primaryDescriptorFilePath Path of primary descriptor
@@ -216,8 +285,7 @@ public class WDLHandler implements LanguageHandlerInterface {
     public Optional<String>  reportValidationForLocalRecursiveImports(String primaryDescriptorContent, Set<SourceFile> sourcefiles,
             String primaryDescriptorFilePath) {
         try {
-            String parent = primaryDescriptorFilePath.startsWith("/") ? new File(primaryDescriptorFilePath).getParent() : "/";
-            checkForRecursiveLocalImports(primaryDescriptorContent, sourcefiles, new HashSet<>(), parent);
+            checkForRecursiveLocalImports(toAbsolutePrimaryDescriptorPath(primaryDescriptorFilePath), primaryDescriptorContent, sourcefiles);
         } catch (ParseException e) {
             LOG.error("Recursive local imports found: ", e);
             return Optional.of(e.getMessage());
@@ -447,6 +515,11 @@ public class WDLHandler implements LanguageHandlerInterface {
         Map<String, ToolInfo> toolInfoMap;
         Map<String, String> namespaceToPath;
         File tempMainDescriptor = null;
+        // Fail fast rather than letting the parser chase a local import cycle
+        Optional<String> recursiveImports = reportValidationForLocalRecursiveImports(mainDescriptor, secondarySourceFiles, mainDescName);
+        if (recursiveImports.isPresent()) {
+            throw new CustomWebApplicationException(recursiveImports.get(), HttpStatus.SC_UNPROCESSABLE_ENTITY);
+        }
         // Write main descriptor to file
         // The use of temporary files is not needed here and might cause new problems
         try {
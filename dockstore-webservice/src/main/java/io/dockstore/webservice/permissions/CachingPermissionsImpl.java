@@ -0,0 +1,169 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.permissions;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.core.Workflow;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link PermissionsInterface} that remembers the roles of each user on all workflows for a short time, and answers
+ * every permission check from them, so that checking workflows, e.g. for every version of a workflow or every page of a
+ * listing, asks the permissions service once per user rather than once per workflow.
+ *
+ * <p>The roles come from {@link PermissionsInterface#workflowsSharedWithUser(User)}, which must list every workflow the user
+ * has a role on, as SAM does. They are forgotten as soon as permissions are changed through this webservice. Changes
+ * made directly in the permissions service, or by another instance of the webservice, are seen once they expire.</p>
+ */
+public class CachingPermissionsImpl implements PermissionsInterface {
+
+    private static final long MAXIMUM_USERS = 10_000;
+
+    private final PermissionsInterface underlying;
+    private final Cache<Long, SharedWorkflows> sharedWorkflows;
+
+    /**
+     * @param permissionsInterface lists the roles that are not cached
+     * @param timeToLive how long roles are reused
+     */
+    public CachingPermissionsImpl(PermissionsInterface permissionsInterface, Duration timeToLive) {
+        this(permissionsInterface, timeToLive, Ticker.systemTicker());
+    }
+
+    CachingPermissionsImpl(PermissionsInterface permissionsInterface, Duration timeToLive, Ticker ticker) {
+        this.underlying = permissionsInterface;
+        this.sharedWorkflows = Caffeine.newBuilder().maximumSize(MAXIMUM_USERS).expireAfterWrite(timeToLive).ticker(ticker).build();
+    }
+
+    /**
+     * A failure to list the roles is thrown, and not cached
+     */
+    private SharedWorkflows sharedWorkflows(User user) {
+        return sharedWorkflows.get(user.getId(), userId -> new SharedWorkflows(underlying.workflowsSharedWithUser(user)));
+    }
+
+    @Override
+    public List<Permission> setPermission(User requester, Workflow workflow, Permission permission) {
+        try {
+            return underlying.setPermission(requester, workflow, permission);
+        } finally {
+            invalidate(workflow);
+        }
+    }
+
+    @Override
+    public Map<Role, List<String>> workflowsSharedWithUser(User user) {
+        return sharedWorkflows(user).workflowsByRole;
+    }
+
+    @Override
+    public List<Permission> getPermissionsForWorkflow(User user, Workflow workflow) {
+        return underlying.getPermissionsForWorkflow(user, workflow);
+    }
+
+    @Override
+    public List<Role.Action> getActionsForWorkflow(User user, Workflow workflow) {
+        if (workflow.getUsers().contains(user)) {
+            return Arrays.asList(Role.Action.values());
+        }
+        final Set<Role.Action> allowed = canDoActions(user, List.of(workflow), EnumSet.allOf(Role.Action.class)).get(workflow.getWorkflowPath());
+        return new ArrayList<>(allowed);
+    }
+
+    @Override
+    public void removePermission(User user, Workflow workflow, String email, Role role) {
+        try {
+            underlying.removePermission(user, workflow, email, role);
+        } finally {
+            invalidate(workflow);
+        }
+    }
+
+    @Override
+    public boolean canDoAction(User user, Workflow workflow, Role.Action action) {
+        final Role role = sharedWorkflows(user).roles.get(workflow.getWorkflowPath());
+        return role != null && role.hasAction(action);
+    }
+
+    @Override
+    public Map<String, Set<Role.Action>> canDoActions(User user, Collection<Workflow> workflows, Set<Role.Action> actions) {
+        final Map<String, Set<Role.Action>> allowedActions = new HashMap<>();
+        final Map<String, Role> roles = workflows.isEmpty() ? Map.of() : sharedWorkflows(user).roles;
+        for (Workflow workflow : workflows) {
+            final Set<Role.Action> allowed = EnumSet.noneOf(Role.Action.class);
+            final Role role = roles.get(workflow.getWorkflowPath());
+            if (role != null) {
+                actions.stream().filter(role::hasAction).forEach(allowed::add);
+            }
+            allowedActions.put(workflow.getWorkflowPath(), allowed);
+        }
+        return allowedActions;
+    }
+
+    @Override
+    public void selfDestruct(User user) {
+        try {
+            underlying.selfDestruct(user);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public boolean isSharing(User user) {
+        return underlying.isSharing(user);
+    }
+
+    /**
+     * Forgets the roles of every user, because a workflow's permissions have changed
+     * @param workflow workflow whose permissions have changed
+     */
+    public void invalidate(Workflow workflow) {
+        // policies are changed by email, which cannot be mapped to the cached users
+        sharedWorkflows.invalidateAll();
+    }
+
+    public void invalidateAll() {
+        sharedWorkflows.invalidateAll();
+    }
+
+    /**
+     * The workflows a user has a role on, by role as the permissions service lists them, and by workflow path
+     */
+    private static final class SharedWorkflows {
+        private final Map<Role, List<String>> workflowsByRole;
+        private final Map<String, Role> roles = new HashMap<>();
+
+        private SharedWorkflows(Map<Role, List<String>> workflowsByRole) {
+            this.workflowsByRole = Collections.unmodifiableMap(workflowsByRole);
+            // a workflow listed under more than one role gets the most privileged one, which is declared first
+            workflowsByRole.forEach((role, paths) -> paths.forEach(path -> roles.merge(path, role, (one, other) -> one.compareTo(other) <= 0 ? one : other)));
+        }
+    }
+}
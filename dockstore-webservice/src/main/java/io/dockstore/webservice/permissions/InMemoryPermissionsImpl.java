@@ -212,8 +212,7 @@ public class InMemoryPermissionsImpl implements PermissionsInterface {
         if (userPermissionsMap == null) {
             return Optional.empty();
         }
-        final Role role = userPermissionsMap.get(userKey(requester));
-        return Optional.of(role);
+        return Optional.ofNullable(userPermissionsMap.get(userKey(requester)));
     }
 
     private String userKey(User user) {
@@ -3,6 +3,7 @@ package io.dockstore.webservice.permissions;
 import io.dockstore.webservice.DockstoreWebserviceConfiguration;
 import io.dockstore.webservice.jdbi.TokenDAO;
 import io.dockstore.webservice.permissions.sam.SamPermissionsImpl;
+import java.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,7 +18,9 @@ public final class PermissionsFactory {
         String authorizerType = configuration.getAuthorizerType();
         if ("sam".equalsIgnoreCase(authorizerType)) {
             LOG.info("Using SAM for sharing");
-            return new SamPermissionsImpl(tokenDAO, configuration);
+            final PermissionsInterface samPermissions = new SamPermissionsImpl(tokenDAO, configuration);
+            final long timeToLiveSeconds = configuration.getSamConfiguration().getDecisionCacheTimeToLiveSeconds();
+            return timeToLiveSeconds > 0 ? new CachingPermissionsImpl(samPermissions, Duration.ofSeconds(timeToLiveSeconds)) : samPermissions;
         } else if ("inmemory".equalsIgnoreCase(authorizerType)) {
             LOG.info("Using InMemoryPermissionsImpl for sharing");
             return new InMemoryPermissionsImpl();
@@ -21,6 +21,9 @@ import io.dockstore.webservice.core.TokenType;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.core.Workflow;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -122,6 +125,42 @@ public interface PermissionsInterface {
      */
     boolean canDoAction(User user, Workflow workflow, Role.Action action);
 
+    /**
+     * Indicates which of the <code>actions</code> the <code>user</code> can perform on each of the
+     * <code>workflows</code>. Implementations backed by a remote service should answer with as few calls
+     * as they can, this default makes one {@link #canDoAction(User, Workflow, Role.Action)} call per workflow and action.
+     *
+     * @param user
+     * @param workflows
+     * @param actions
+     * @return a map of workflow paths to the actions the user can perform on the workflow, possibly empty
+     * @throws CustomWebApplicationException if the permissions service could not decide, which must not be taken as a denial
+     */
+    default Map<String, Set<Role.Action>> canDoActions(User user, Collection<Workflow> workflows, Set<Role.Action> actions) {
+        final Map<String, Set<Role.Action>> allowedActions = new HashMap<>();
+        for (Workflow workflow : workflows) {
+            final Set<Role.Action> allowed = EnumSet.noneOf(Role.Action.class);
+            actions.stream().filter(action -> canDoAction(user, workflow, action)).forEach(allowed::add);
+            allowedActions.put(workflow.getWorkflowPath(), allowed);
+        }
+        return allowedActions;
+    }
+
+    /**
+     * Indicates whether the <code>user</code> can perform the <code>action</code> on the <code>workflow</code>, like
+     * {@link #canDoAction(User, Workflow, Role.Action)}, but through {@link #canDoActions(User, Collection, Set)}, so that a
+     * permissions service that could not decide is reported as an error rather than as a denial.
+     *
+     * @param user
+     * @param workflow
+     * @param action
+     * @return whether the action is allowed
+     */
+    default boolean isAllowed(User user, Workflow workflow, Role.Action action) {
+        final Set<Role.Action> allowed = canDoActions(user, List.of(workflow), EnumSet.of(action)).get(workflow.getWorkflowPath());
+        return allowed != null && allowed.contains(action);
+    }
+
     /**
      * Deletes all sharing artifacts that the user is an owner of. This method will fail with a {@link CustomWebApplicationException}
      * if the user is sharing anything.
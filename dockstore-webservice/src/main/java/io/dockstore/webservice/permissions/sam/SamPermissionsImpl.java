@@ -27,10 +27,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.http.HttpStatus;
 import org.glassfish.jersey.client.ClientConfig;
@@ -163,13 +165,8 @@ public class SamPermissionsImpl implements PermissionsInterface {
             List<ResourceAndAccessPolicy> resourceAndAccessPolicies = resourcesApi.listResourcesAndPolicies(SamConstants.RESOURCE_TYPE);
             return weedOutDuplicateResourceIds(resourceAndAccessPolicies).stream()
                     .collect(Collectors.groupingBy(ResourceAndAccessPolicy::getAccessPolicyName)).entrySet().stream()
-                    .collect(Collectors.toMap(e -> samPolicyNameToRole(e.getKey()), e -> e.getValue().stream().map(r -> {
-                        try {
-                            return URLDecoder.decode(r.getResourceId().substring(SamConstants.ENCODED_WORKFLOW_PREFIX.length()), "UTF-8");
-                        } catch (UnsupportedEncodingException e1) {
-                            return null;
-                        }
-                    }).collect(Collectors.toList())));
+                    .collect(Collectors.toMap(e -> samPolicyNameToRole(e.getKey()), e -> e.getValue().stream()
+                            .map(r -> decodeWorkflowPath(r.getResourceId())).collect(Collectors.toList())));
         } catch (ApiException e) {
             LOG.error("Error getting shared workflows", e);
             if (e.getCode() == HttpStatus.SC_UNAUTHORIZED) {
@@ -180,6 +177,14 @@ public class SamPermissionsImpl implements PermissionsInterface {
         }
     }
 
+    private static String decodeWorkflowPath(String resourceId) {
+        try {
+            return URLDecoder.decode(resourceId.substring(SamConstants.ENCODED_WORKFLOW_PREFIX.length()), "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return null;
+        }
+    }
+
     /**
      * Weeds out duplicate resource ids from <code>resourceAndAccessPolicies</code>, giving priority to the more
      * privileged role when there are duplicates.
@@ -330,6 +335,66 @@ public class SamPermissionsImpl implements PermissionsInterface {
         }
     }
 
+    /**
+     * Answers from the policies of the user on all resources, which takes one call to SAM however many workflows and
+     * actions are checked. That list can be long, so one workflow is checked with one call to SAM per action instead.
+     */
+    @Override
+    public Map<String, Set<Role.Action>> canDoActions(User user, Collection<Workflow> workflows, Set<Role.Action> actions) {
+        final Map<String, Set<Role.Action>> allowedActions = new HashMap<>();
+        workflows.forEach(workflow -> allowedActions.put(workflow.getWorkflowPath(), EnumSet.noneOf(Role.Action.class)));
+        if (workflows.isEmpty() || !hasGoogleToken(user)) {
+            return allowedActions;
+        }
+        ResourcesApi resourcesApi = getResourcesApi(user);
+        if (workflows.size() == 1) {
+            final Workflow workflow = workflows.iterator().next();
+            final String encodedPath = encodedWorkflowResource(workflow, resourcesApi.getApiClient());
+            for (Role.Action action : actions) {
+                if (resourceAction(resourcesApi, encodedPath, action)) {
+                    allowedActions.get(workflow.getWorkflowPath()).add(action);
+                }
+            }
+            return allowedActions;
+        }
+        final Map<String, Role> roles = new HashMap<>();
+        try {
+            weedOutDuplicateResourceIds(resourcesApi.listResourcesAndPolicies(SamConstants.RESOURCE_TYPE))
+                    .forEach(policy -> roles.put(decodeWorkflowPath(policy.getResourceId()), samPolicyNameToRole(policy.getAccessPolicyName())));
+        } catch (ApiException e) {
+            // the user is not registered in SAM, so has no policies
+            if (e.getCode() == HttpStatus.SC_UNAUTHORIZED) {
+                return allowedActions;
+            }
+            // not a decision, which must not be cached as one
+            LOG.error("Error getting the user's resource policies", e);
+            throw new CustomWebApplicationException("Error checking permissions", HttpStatus.SC_BAD_GATEWAY);
+        }
+        for (Workflow workflow : workflows) {
+            final Role role = roles.get(workflow.getWorkflowPath());
+            if (role != null) {
+                actions.stream().filter(role::hasAction).forEach(allowedActions.get(workflow.getWorkflowPath())::add);
+            }
+        }
+        return allowedActions;
+    }
+
+    /**
+     * Like {@link #canDoAction(User, Workflow, Role.Action)}, but an error that is not a decision is thrown
+     */
+    private static boolean resourceAction(ResourcesApi resourcesApi, String encodedPath, Role.Action action) {
+        try {
+            return resourcesApi.resourceAction(SamConstants.RESOURCE_TYPE, encodedPath, SamConstants.toSamAction(action));
+        } catch (ApiException e) {
+            // the user is not registered in SAM, or the workflow has no SAM resource, so there are no policies
+            if (e.getCode() == HttpStatus.SC_UNAUTHORIZED || e.getCode() == HttpStatus.SC_NOT_FOUND) {
+                return false;
+            }
+            LOG.error("Error checking the user's permission on " + encodedPath, e);
+            throw new CustomWebApplicationException("Error checking permissions", HttpStatus.SC_BAD_GATEWAY);
+        }
+    }
+
     @Override
     public void selfDestruct(User user) {
         if (hasGoogleToken(user)) {
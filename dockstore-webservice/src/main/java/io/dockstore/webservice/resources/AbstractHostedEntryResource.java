@@ -161,7 +161,7 @@ public abstract class AbstractHostedEntryResource<T extends Entry<T, U>, U exten
             checkUserOwnsEntry(user, entry);
         } catch (CustomWebApplicationException ex) {
             if (entry instanceof Workflow) {
-                if (!permissionsInterface.canDoAction(user, (Workflow)entry, Role.Action.WRITE)) {
+                if (!permissionsInterface.isAllowed(user, (Workflow)entry, Role.Action.WRITE)) {
                     throw ex;
                 }
             } else {
@@ -254,7 +254,7 @@ public abstract class AbstractHostedEntryResource<T extends Entry<T, U>, U exten
         // TODO: handle when latest version is removed
         entry.setActualDefaultVersion(validatedVersion);
         entry.syncMetadataWithDefault();
-        FileFormatHelper.updateFileFormats(entry, entry.getWorkflowVersions(), fileFormatDAO, true);
+        FileFormatHelper.updateFileFormats(entry, Set.of(validatedVersion), fileFormatDAO);
 
         // TODO: Not setting lastModified for hosted tools now because we plan to get rid of the lastmodified column in Tool table in the future.
         if (validatedVersion instanceof WorkflowVersion) {
@@ -404,7 +404,8 @@ public abstract class AbstractHostedEntryResource<T extends Entry<T, U>, U exten
         }
         entry.getWorkflowVersions().removeIf(v -> Objects.equals(v.getName(), version));
         // Deleting a version could completely remove a input/output file format
-        FileFormatHelper.updateEntryLevelFileFormats(entry);
+        fileFormatDAO.flush();
+        FileFormatHelper.updateEntryLevelFileFormats(entry, fileFormatDAO);
         PublicStateManager.getInstance().handleIndexUpdate(entry, StateManagerMode.UPDATE);
         return entry;
     }
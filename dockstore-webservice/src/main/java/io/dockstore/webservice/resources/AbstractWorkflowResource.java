@@ -33,8 +33,7 @@ import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowMode;
 import io.dockstore.webservice.core.WorkflowVersion;
 import io.dockstore.webservice.helpers.CacheConfigManager;
-import io.dockstore.webservice.helpers.CheckUrlHelper;
-import io.dockstore.webservice.helpers.CheckUrlHelper.TestFileType;
+import io.dockstore.webservice.helpers.CheckUrlService;
 import io.dockstore.webservice.helpers.FileFormatHelper;
 import io.dockstore.webservice.helpers.GitHelper;
 import io.dockstore.webservice.helpers.GitHubHelper;
@@ -67,7 +66,6 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -246,9 +244,9 @@ public abstract class AbstractWorkflowResource<T extends Workflow> implements So
             existingVersion.addOrUpdateValidation(versionValidation);
         }
 
-        // Setup CheckUrl
+        // Setup CheckUrl, filled in once the transaction commits
         if (checkUrlLambdaUrl != null) {
-            publicAccessibleUrls(existingVersion, checkUrlLambdaUrl);
+            CheckUrlService.updateAfterCommit(existingVersion, checkUrlLambdaUrl);
         }
 
         return existingVersion;
@@ -264,29 +262,7 @@ public abstract class AbstractWorkflowResource<T extends Workflow> implements So
      * @param checkUrlLambdaUrl URL of the checkUrl lambda
      */
     public static void publicAccessibleUrls(WorkflowVersion existingVersion, String checkUrlLambdaUrl) {
-        Boolean publicAccessibleTestParameterFile = null;
-        Iterator<SourceFile> sourceFileIterator = existingVersion.getSourceFiles().stream().filter(sourceFile -> sourceFile.getType().getCategory().equals(DescriptorLanguage.FileTypeCategory.TEST_FILE)).iterator();
-        while (sourceFileIterator.hasNext()) {
-            SourceFile sourceFile = sourceFileIterator.next();
-            Optional<Boolean> publicAccessibleUrls = Optional.empty();
-            if (sourceFile.getAbsolutePath().endsWith(".json")) {
-                publicAccessibleUrls =
-                    CheckUrlHelper.checkTestParameterFile(sourceFile.getContent(), checkUrlLambdaUrl, TestFileType.JSON);
-            } else {
-                if (sourceFile.getAbsolutePath().endsWith(".yaml") || sourceFile.getAbsolutePath().endsWith(".yml")) {
-                    publicAccessibleUrls = CheckUrlHelper.checkTestParameterFile(sourceFile.getContent(), checkUrlLambdaUrl,
-                        TestFileType.YAML);
-                }
-            }
-            // Do not care about null, it will never override a true/false
-            if (publicAccessibleUrls.isPresent()) {
-                publicAccessibleTestParameterFile = publicAccessibleUrls.get();
-                if (Boolean.TRUE.equals(publicAccessibleUrls.get())) {
-                    // If the current test parameter file is publicly accessible, then all previous and future ones don't matter
-                    break;
-                }
-            }
-        }
+        Boolean publicAccessibleTestParameterFile = CheckUrlService.join(CheckUrlService.checkTestParameterFiles(existingVersion.getSourceFiles(), checkUrlLambdaUrl));
         existingVersion.getVersionMetadata().setPublicAccessibleTestParameterFile(publicAccessibleTestParameterFile);
     }
 
@@ -329,7 +305,8 @@ public abstract class AbstractWorkflowResource<T extends Workflow> implements So
         // Delete all non-frozen versions that have the same git reference name and then update the file formats of the entry.
         workflows.forEach(workflow -> {
             workflow.getWorkflowVersions().removeIf(workflowVersion -> Objects.equals(workflowVersion.getName(), gitReferenceName.get()) && !workflowVersion.isFrozen());
-            FileFormatHelper.updateEntryLevelFileFormats(workflow);
+            fileFormatDAO.flush();
+            FileFormatHelper.updateEntryLevelFileFormats(workflow, fileFormatDAO);
         });
         LambdaEvent lambdaEvent = createBasicEvent(repository, gitReference, username, LambdaEvent.LambdaEventType.DELETE);
         lambdaEventDAO.create(lambdaEvent);
@@ -723,10 +700,12 @@ public abstract class AbstractWorkflowResource<T extends Workflow> implements So
                 updateDBVersionSourceFilesWithRemoteVersionSourceFiles(existingWorkflowVersion, remoteWorkflowVersion);
                 updatedWorkflowVersion = existingWorkflowVersion;
             } else {
+                workflow.addWorkflowVersion(remoteWorkflowVersion);
+                // saved now, so that CheckUrl knows which version to update
+                workflowVersionDAO.create(remoteWorkflowVersion);
                 if (checkUrlLambdaUrl != null) {
-                    publicAccessibleUrls(remoteWorkflowVersion, checkUrlLambdaUrl);
+                    CheckUrlService.updateAfterCommit(remoteWorkflowVersion, checkUrlLambdaUrl);
                 }
-                workflow.addWorkflowVersion(remoteWorkflowVersion);
                 updatedWorkflowVersion = remoteWorkflowVersion;
             }
             gitHubSourceCodeRepo.updateVersionMetadata(updatedWorkflowVersion.getWorkflowPath(), updatedWorkflowVersion, workflow.getDescriptorType(), repository);
@@ -742,7 +721,7 @@ public abstract class AbstractWorkflowResource<T extends Workflow> implements So
             // TODO: We were not adding file formats to .dockstore.yml versions before, so this only handles new/updated versions. Need to add a way to update all .dockstore.yml versions in a workflow
             Set<WorkflowVersion> workflowVersions = new HashSet<>();
             workflowVersions.add(updatedWorkflowVersion);
-            FileFormatHelper.updateFileFormats(workflow, workflowVersions, fileFormatDAO, false);
+            FileFormatHelper.updateFileFormats(workflow, workflowVersions, fileFormatDAO);
             boolean addedVersionIsNewer = workflow.getActualDefaultVersion() == null || workflow.getActualDefaultVersion().getLastModified()
                             .before(updatedWorkflowVersion.getLastModified());
             if (latestTagAsDefault && Version.ReferenceType.TAG.equals(updatedWorkflowVersion.getReferenceType()) && addedVersionIsNewer) {
@@ -28,6 +28,7 @@ import io.dockstore.webservice.core.Category;
 import io.dockstore.webservice.core.CollectionOrganization;
 import io.dockstore.webservice.core.DescriptionMetrics;
 import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.core.OrcidExport;
 import io.dockstore.webservice.core.OrcidPutCode;
 import io.dockstore.webservice.core.Service;
 import io.dockstore.webservice.core.SourceFile;
@@ -39,6 +40,7 @@ import io.dockstore.webservice.core.Version;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.database.VersionVerifiedPlatform;
 import io.dockstore.webservice.helpers.GitHubSourceCodeRepo;
+import io.dockstore.webservice.helpers.ORCIDBulkExport;
 import io.dockstore.webservice.helpers.ORCIDHelper;
 import io.dockstore.webservice.helpers.PublicStateManager;
 import io.dockstore.webservice.helpers.SourceCodeRepoFactory;
@@ -66,6 +68,7 @@ import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.security.SecurityScheme;
@@ -76,12 +79,14 @@ import java.net.HttpURLConnection;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.http.HttpResponse;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -112,6 +117,7 @@ public class EntryResource implements AuthenticatedResourceInterface, AliasableR
     public static final String VERSION_NOT_BELONG_TO_ENTRY_ERROR_MESSAGE = "Version does not belong to entry";
     public static final String ENTRY_NO_DOI_ERROR_MESSAGE = "Entry does not have a concept DOI associated with it";
     public static final String VERSION_NO_DOI_ERROR_MESSAGE = "Version does not have a DOI url associated with it";
+    public static final int MAX_ORCID_EXPORTS = 500;
     private static final Logger LOG = LoggerFactory.getLogger(EntryResource.class);
 
     private final TokenDAO tokenDAO;
@@ -280,35 +286,9 @@ public class EntryResource implements AuthenticatedResourceInterface, AliasableR
         Entry<? extends Entry, ? extends Version> entry = toolDAO.getGenericEntryById(entryId);
         checkEntry(entry);
         checkEntryPermissions(Optional.of(user), entry);
-        List<Token> orcidByUserId = tokenDAO.findOrcidByUserId(user.getId());
         String putCode;
-        User nonCachedUser = this.userDAO.findById(user.getId());
-        Optional<Version> optionalVersion = Optional.empty();
-
-        if (versionId != null) {
-            Version version = versionDAO.findVersionInEntry(entry.getId(), versionId);
-            if (version == null) {
-                throw new CustomWebApplicationException(VERSION_NOT_BELONG_TO_ENTRY_ERROR_MESSAGE, HttpStatus.SC_BAD_REQUEST);
-            }
-            if (version.getDoiURL() == null) {
-                throw new CustomWebApplicationException(VERSION_NO_DOI_ERROR_MESSAGE, HttpStatus.SC_BAD_REQUEST);
-            }
-            optionalVersion = Optional.ofNullable(version);
-        } else {
-            if (entry.getConceptDoi() == null) {
-                throw new CustomWebApplicationException(ENTRY_NO_DOI_ERROR_MESSAGE, HttpStatus.SC_BAD_REQUEST);
-            }
-        }
-        if (orcidByUserId.isEmpty()) {
-            throw new CustomWebApplicationException("ORCID account is not linked to user account", HttpStatus.SC_BAD_REQUEST);
-        }
-        if (!orcidByUserId.get(0).getScope().equals(TokenScope.ACTIVITIES_UPDATE)) {
-            throw new CustomWebApplicationException("Please relink your ORCID ID in the accounts page.", HttpStatus.SC_UNAUTHORIZED);
-        }
-        if (ORCIDHelper.getOrcidBaseApiUrl() == null) {
-            LOG.error("ORCID auth URL is likely incorrect");
-            throw new CustomWebApplicationException("Could not export to ORCID: Dockstore ORCID integration is not set up correctly.", HttpStatus.SC_INTERNAL_SERVER_ERROR);
-        }
+        Optional<Version> optionalVersion = Optional.ofNullable(getVersionToExport(entry, versionId));
+        List<Token> orcidByUserId = getOrcidTokensToExport(user);
 
 
         OrcidPutCode userPutCode;
@@ -321,10 +301,7 @@ public class EntryResource implements AuthenticatedResourceInterface, AliasableR
 
         String orcidWorkString;
         boolean updateSuccess;
-        String orcidId = nonCachedUser.getOrcid();
-        if (orcidId == null) {
-            throw new CustomWebApplicationException("Dockstore could not get your ORCID ID", HttpStatus.SC_INTERNAL_SERVER_ERROR);
-        }
+        String orcidId = getOrcidIdToExport(user);
         try {
             orcidWorkString = ORCIDHelper.getOrcidWorkString(entry, optionalVersion, putCode);
             if (putCode == null) {
@@ -369,6 +346,91 @@ public class EntryResource implements AuthenticatedResourceInterface, AliasableR
         return entry;
     }
 
+    @POST
+    @Path("/exportToOrcid")
+    @Timed
+    @UnitOfWork
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Operation(description = "Export many entries and versions to ORCID at once. DOIs are required", security = @SecurityRequirement(name = JWT_SECURITY_DEFINITION_NAME))
+    @ApiResponse(responseCode = HttpStatus.SC_OK + "", description = "Exported what could be exported to ORCID, see the error of each export for the rest", content = @Content(mediaType = MediaType.APPLICATION_JSON, array = @ArraySchema(schema = @Schema(implementation = OrcidExport.class))))
+    @ApiResponse(responseCode = HttpStatus.SC_INTERNAL_SERVER_ERROR + "", description = "Internal Server Error")
+    @ApiResponse(responseCode = HttpStatus.SC_NOT_FOUND + "", description = "Not Found")
+    @ApiResponse(responseCode = HttpStatus.SC_BAD_REQUEST + "", description = "Bad Request")
+    @ApiOperation(value = "hidden", hidden = true)
+    public List<OrcidExport> exportToORCIDInBulk(@Parameter(hidden = true, name = "user") @Auth User user,
+        @RequestBody(description = "The entries and versions to export", required = true, content = @Content(array = @ArraySchema(schema = @Schema(implementation = OrcidExport.class))))
+        List<OrcidExport> orcidExports) {
+        // Exporting the same entry or version twice would create two works with the same DOI
+        List<OrcidExport> distinctExports = orcidExports.stream().distinct().collect(Collectors.toList());
+        if (distinctExports.isEmpty() || distinctExports.size() > MAX_ORCID_EXPORTS) {
+            throw new CustomWebApplicationException("Between 1 and " + MAX_ORCID_EXPORTS + " entries and versions can be exported at once", HttpStatus.SC_BAD_REQUEST);
+        }
+        // Check everything before exporting anything
+        List<ORCIDBulkExport.Export> exports = new ArrayList<>();
+        for (OrcidExport orcidExport : distinctExports) {
+            Entry<? extends Entry, ? extends Version> entry = orcidExport.getEntryId() == null ? null : toolDAO.getGenericEntryById(orcidExport.getEntryId());
+            checkEntry(entry);
+            checkEntryPermissions(Optional.of(user), entry);
+            exports.add(new ORCIDBulkExport.Export(entry, getVersionToExport(entry, orcidExport.getVersionId())));
+        }
+        List<Token> orcidTokens = getOrcidTokensToExport(user);
+        String orcidId = getOrcidIdToExport(user);
+
+        // The put codes are recorded when this unit of work commits
+        ORCIDBulkExport.export(orcidId, orcidTokens.get(0).getToken(), user.getId(), exports);
+
+        for (int i = 0; i < exports.size(); i++) {
+            distinctExports.get(i).setPutCode(exports.get(i).getPutCode(user.getId()));
+            distinctExports.get(i).setError(exports.get(i).getError());
+        }
+        return distinctExports;
+    }
+
+    /**
+     * @return the version to export, null to export the entry itself
+     */
+    private Version getVersionToExport(Entry<? extends Entry, ? extends Version> entry, Long versionId) {
+        if (versionId != null) {
+            Version version = versionDAO.findVersionInEntry(entry.getId(), versionId);
+            if (version == null) {
+                throw new CustomWebApplicationException(VERSION_NOT_BELONG_TO_ENTRY_ERROR_MESSAGE, HttpStatus.SC_BAD_REQUEST);
+            }
+            if (version.getDoiURL() == null) {
+                throw new CustomWebApplicationException(VERSION_NO_DOI_ERROR_MESSAGE, HttpStatus.SC_BAD_REQUEST);
+            }
+            return version;
+        } else {
+            if (entry.getConceptDoi() == null) {
+                throw new CustomWebApplicationException(ENTRY_NO_DOI_ERROR_MESSAGE, HttpStatus.SC_BAD_REQUEST);
+            }
+            return null;
+        }
+    }
+
+    private List<Token> getOrcidTokensToExport(User user) {
+        List<Token> orcidByUserId = tokenDAO.findOrcidByUserId(user.getId());
+        if (orcidByUserId.isEmpty()) {
+            throw new CustomWebApplicationException("ORCID account is not linked to user account", HttpStatus.SC_BAD_REQUEST);
+        }
+        if (!orcidByUserId.get(0).getScope().equals(TokenScope.ACTIVITIES_UPDATE)) {
+            throw new CustomWebApplicationException("Please relink your ORCID ID in the accounts page.", HttpStatus.SC_UNAUTHORIZED);
+        }
+        if (ORCIDHelper.getOrcidBaseApiUrl() == null) {
+            LOG.error("ORCID auth URL is likely incorrect");
+            throw new CustomWebApplicationException("Could not export to ORCID: Dockstore ORCID integration is not set up correctly.", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+        return orcidByUserId;
+    }
+
+    private String getOrcidIdToExport(User user) {
+        User nonCachedUser = this.userDAO.findById(user.getId());
+        String orcidId = nonCachedUser.getOrcid();
+        if (orcidId == null) {
+            throw new CustomWebApplicationException("Dockstore could not get your ORCID ID", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+        return orcidId;
+    }
+
     private void setPutCode(Optional<Version> optionalVersion, Entry entry, String putCode, long userId) {
         OrcidPutCode orcidPutCode = new OrcidPutCode(putCode);
         if (optionalVersion.isPresent()) {
@@ -564,7 +626,7 @@ public class EntryResource implements AuthenticatedResourceInterface, AliasableR
      */
     public static void checkCanReadAcrossEntryTypes(User user, Entry<?, ?> workflow, PermissionsInterface permissionsInterface, CustomWebApplicationException ex) {
         if (workflow instanceof Workflow) {
-            if (!permissionsInterface.canDoAction(user, (Workflow) workflow, Role.Action.READ)) {
+            if (!permissionsInterface.isAllowed(user, (Workflow) workflow, Role.Action.READ)) {
                 throw ex;
             }
         } else {
@@ -20,10 +20,10 @@ import static io.dockstore.webservice.jdbi.EventDAO.PAGINATION_RANGE;
 import static io.dockstore.webservice.resources.ResourceConstants.JWT_SECURITY_DEFINITION_NAME;
 
 import com.codahale.metrics.annotation.Timed;
+import com.google.common.base.MoreObjects;
 import io.dockstore.webservice.CustomWebApplicationException;
-import io.dockstore.webservice.core.Entry;
 import io.dockstore.webservice.core.Event;
-import io.dockstore.webservice.core.Organization;
+import io.dockstore.webservice.core.EventSummary;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.jdbi.EventDAO;
 import io.dockstore.webservice.jdbi.UserDAO;
@@ -43,8 +43,6 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
@@ -56,7 +54,6 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import org.apache.http.HttpStatus;
-import org.hibernate.Hibernate;
 
 /**
  * Avoid adding Swagger annotations to this, only use OpenAPI 3.0 annotations when possible.
@@ -98,8 +95,8 @@ public class EventResource {
         @NotNull @QueryParam("eventSearchType") EventSearchType eventSearchType,
         @Min(1) @Max(MAX_LIMIT) @DefaultValue(PAGINATION_DEFAULT_STRING) @ApiParam(defaultValue = PAGINATION_DEFAULT_STRING, allowableValues = PAGINATION_RANGE) @Parameter(schema = @Schema(maximum = "100", minimum = "1")) @QueryParam("limit") Integer limit,
         @QueryParam("offset") @DefaultValue("0") Integer offset) {
-        User userWithSession = this.userDAO.findById(user.getId());
-        return getEventsForUser(userWithSession, eventSearchType, limit, offset);
+        // only the id is needed, the feed is read from event_feed
+        return getEventsForUser(user, eventSearchType, limit, offset);
     }
 
     @GET
@@ -119,6 +116,25 @@ public class EventResource {
         return getEventsForUser(user, eventSearchType, limit, offset);
     }
 
+    @GET
+    @Timed
+    @UnitOfWork(readOnly = true)
+    @Path("/feed")
+    @Operation(operationId = "getEventFeed", description = "Pages backwards through events with a cursor. Each event only has the names and paths of what it acts on.",
+        summary = "Get compact events based on filters.", security = @SecurityRequirement(name = JWT_SECURITY_DEFINITION_NAME))
+    @ApiOperation(value = "Get compact events based on filters.", authorizations = {
+        @Authorization(value = JWT_SECURITY_DEFINITION_NAME)}, notes = "Pages backwards through events with a cursor.", responseContainer = "List", response = EventSummary.class)
+    @ApiResponse(responseCode = HttpStatus.SC_OK + "", description = "A list of events, newest first", content = @Content(mediaType = MediaType.APPLICATION_JSON, array = @ArraySchema(schema = @Schema(implementation = EventSummary.class))))
+    public List<EventSummary> getEventFeed(@Parameter(hidden = true) @ApiParam(hidden = true) @Auth User user,
+        @NotNull @QueryParam("eventSearchType") EventSearchType eventSearchType,
+        @ApiParam("Only return events older than this one, i.e. the id of the last event of the previous page") @Parameter(description = "Only return events older than this one, i.e. the id of the last event of the previous page") @QueryParam("before") Long before,
+        @Min(1) @Max(MAX_LIMIT) @DefaultValue(PAGINATION_DEFAULT_STRING) @ApiParam(defaultValue = PAGINATION_DEFAULT_STRING, allowableValues = PAGINATION_RANGE) @Parameter(schema = @Schema(maximum = "100", minimum = "1")) @QueryParam("limit") Integer limit) {
+        final List<Long> eventIds = eventSearchType == EventSearchType.PROFILE
+            ? this.eventDAO.findEventIdsForInitiatorUser(user.getId(), before, limit)
+            : findFeedEventIds(user.getId(), eventSearchType, before, 0, limit);
+        return this.eventDAO.findSummariesByIds(eventIds);
+    }
+
     /**
      * Returns events for the provided user
      * @param user The user we are getting events for
@@ -128,44 +144,22 @@ public class EventResource {
      * @return A list of events
      */
     private List<Event> getEventsForUser(User user, EventSearchType eventSearchType, int limit, Integer offset) {
+        if (eventSearchType == EventSearchType.PROFILE) {
+            return this.eventDAO.findEventsForInitiatorUser(user.getId(), offset, limit);
+        }
+        return this.eventDAO.findByIds(findFeedEventIds(user.getId(), eventSearchType, null, MoreObjects.firstNonNull(offset, 0), limit));
+    }
+
+    private List<Long> findFeedEventIds(long userId, EventSearchType eventSearchType, Long before, int offset, int limit) {
         switch (eventSearchType) {
         case STARRED_ENTRIES:
-            Set<Long> entryIDs = user.getStarredEntries().stream().map(Entry::getId).collect(Collectors.toSet());
-            List<Event> eventsByEntryIDs = this.eventDAO.findEventsByEntryIDs(entryIDs, offset, limit);
-            eagerLoadEventEntries(eventsByEntryIDs);
-            return eventsByEntryIDs;
+            return this.eventDAO.findFeedEventIds(userId, true, false, before, offset, limit);
         case STARRED_ORGANIZATION:
-            Set<Long> organizationIDs = user.getStarredOrganizations().stream().map(Organization::getId).collect(Collectors.toSet());
-            List<Event> allByOrganizationIds = this.eventDAO.findAllByOrganizationIds(organizationIDs, offset, limit);
-            eagerLoadEventEntries(allByOrganizationIds);
-            return allByOrganizationIds;
+            return this.eventDAO.findFeedEventIds(userId, false, true, before, offset, limit);
         case ALL_STARRED:
-            Set<Long> organizationIDs2 = user.getStarredOrganizations().stream().map(Organization::getId).collect(Collectors.toSet());
-            Set<Long> entryIDs2 = user.getStarredEntries().stream().map(Entry::getId).collect(Collectors.toSet());
-            List<Event> allByOrganizationIdsOrEntryIds = this.eventDAO
-                .findAllByOrganizationIdsOrEntryIds(organizationIDs2, entryIDs2, offset, limit);
-            eagerLoadEventEntries(allByOrganizationIdsOrEntryIds);
-            return allByOrganizationIdsOrEntryIds;
-        case PROFILE:
-            List<Event> eventsByUserID = this.eventDAO.findEventsForInitiatorUser(user.getId(), offset, limit);
-            eagerLoadEventEntries(eventsByUserID);
-            return eventsByUserID;
+            return this.eventDAO.findFeedEventIds(userId, true, true, before, offset, limit);
         default:
             return Collections.emptyList();
         }
     }
-
-    private void eagerLoadEventEntries(List<Event> events) {
-        events.forEach(event -> {
-            Hibernate.initialize(event.getUser());
-            Hibernate.initialize(event.getOrganization());
-            Hibernate.initialize(event.getTool());
-            Hibernate.initialize(event.getWorkflow());
-            Hibernate.initialize(event.getCollection());
-            Hibernate.initialize(event.getInitiatorUser());
-            Hibernate.initialize(event.getApptool());
-        });
-    }
 }
-
-
@@ -90,6 +90,7 @@ public class HostedWorkflowResource extends AbstractHostedEntryResource<Workflow
     private final WorkflowVersionDAO workflowVersionDAO;
     private final PermissionsInterface permissionsInterface;
     private final SessionFactory sessionFactory;
+    private final DockstoreWebserviceConfiguration.LimitConfig limitConfig;
 
     public HostedWorkflowResource(SessionFactory sessionFactory, PermissionsInterface permissionsInterface, DockstoreWebserviceConfiguration.LimitConfig limitConfig) {
         super(sessionFactory, permissionsInterface, limitConfig);
@@ -97,6 +98,7 @@ public class HostedWorkflowResource extends AbstractHostedEntryResource<Workflow
         this.workflowDAO = new WorkflowDAO(sessionFactory);
         this.permissionsInterface = permissionsInterface;
         this.sessionFactory = sessionFactory;
+        this.limitConfig = limitConfig;
     }
 
     public WorkflowDAO getDAO() {
@@ -153,7 +155,7 @@ public class HostedWorkflowResource extends AbstractHostedEntryResource<Workflow
         try {
             checkUserOwnsEntry(user, entry); // Checks if owner, which has all permissions.
         } catch (CustomWebApplicationException ex) {
-            if (!(entry instanceof Workflow) || !permissionsInterface.canDoAction(user, (Workflow)entry, action)) {
+            if (!(entry instanceof Workflow) || !permissionsInterface.isAllowed(user, (Workflow)entry, action)) {
                 throw ex;
             }
         }
@@ -214,7 +216,7 @@ public class HostedWorkflowResource extends AbstractHostedEntryResource<Workflow
         checkHosted(workflow);
         checkUserCanUpdate(user, workflow);
         checkVersionLimit(user, workflow);
-        final ZipSourceFileHelper.SourceFiles sourceFiles = ZipSourceFileHelper.sourceFilesFromInputStream(payload, workflow.getFileType());
+        final ZipSourceFileHelper.SourceFiles sourceFiles = ZipSourceFileHelper.sourceFilesFromInputStream(payload, workflow.getFileType(), limitConfig);
         final WorkflowVersion version = getVersion(workflow);
         this.persistSourceFiles(version, sourceFiles.getAllDescriptors());
         version.setWorkflowPath(sourceFiles.getPrimaryDescriptor().getPath());
@@ -11,6 +11,7 @@ import io.dockstore.webservice.core.Event;
 import io.dockstore.webservice.core.Organization;
 import io.dockstore.webservice.core.OrganizationUser;
 import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.helpers.EventFeedService;
 import io.dockstore.webservice.helpers.PublicStateManager;
 import io.dockstore.webservice.jdbi.CollectionDAO;
 import io.dockstore.webservice.jdbi.EventDAO;
@@ -342,12 +343,7 @@ public class OrganizationResource implements AuthenticatedResourceInterface, Ali
         getOrganizationByIdOptionalAuth(user, id);
         response.addHeader("X-total-count", String.valueOf(eventDAO.countAllEventsForOrganization(id)));
         response.addHeader("Access-Control-Expose-Headers", "X-total-count");
-        List<Event> eventsForOrganization = eventDAO.findEventsForOrganization(id, offset, limit);
-        for (Event event : eventsForOrganization) {
-            Hibernate.initialize(event.getInitiatorUser());
-            Hibernate.initialize(event.getCollection());
-        }
-        return eventsForOrganization;
+        return eventDAO.findEventsForOrganization(id, offset, limit);
     }
 
     @PUT
@@ -375,6 +371,8 @@ public class OrganizationResource implements AuthenticatedResourceInterface, Ali
     private void starOrganizationHelper(Organization organization, Set<User> starredUsers, User user) {
         if (!starredUsers.contains(user)) {
             organization.addStarredUser(user);
+            // events created while the star commits are only added to the feed by a check after the commit
+            EventFeedService.fanOutAfterCommit();
         } else {
             throw new CustomWebApplicationException(
                 "You cannot star the organization " + organization.getName() + " because you have already starred it.", HttpStatus.SC_BAD_REQUEST);
@@ -481,21 +479,19 @@ public class OrganizationResource implements AuthenticatedResourceInterface, Ali
 
         switch (type) {
         case "pending":
-            organizations = organizationDAO.findAllPending();
+            organizations = organizationDAO.findAllPendingWithUsers();
             break;
         case "rejected":
-            organizations = organizationDAO.findAllRejected();
+            organizations = organizationDAO.findAllRejectedWithUsers();
             break;
         case "approved":
-            organizations = organizationDAO.findAllApproved();
+            organizations = organizationDAO.findAllApprovedWithUsers();
             break;
         case "all":
         default:
-            organizations = organizationDAO.findAll();
+            organizations = organizationDAO.findAllWithUsers();
             break;
         }
-
-        organizations.forEach(organization -> Hibernate.initialize(organization.getUsers()));
         return organizations;
     }
 
@@ -18,6 +18,7 @@ package io.dockstore.webservice.resources;
 import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.core.Entry;
 import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.helpers.EventFeedService;
 import java.util.Set;
 import org.apache.http.HttpStatus;
 
@@ -41,6 +42,8 @@ public interface StarrableResourceInterface extends AuthenticatedResourceInterfa
         Set<User> starredUsers = entry.getStarredUsers();
         if (!starredUsers.contains(user)) {
             entry.addStarredUser(user);
+            // events created while the star commits are only added to the feed by a check after the commit
+            EventFeedService.fanOutAfterCommit();
         } else {
             throw new CustomWebApplicationException(
                 "You cannot star the " + entryType + " " + entryPath + " because you have already starred it.", HttpStatus.SC_BAD_REQUEST);
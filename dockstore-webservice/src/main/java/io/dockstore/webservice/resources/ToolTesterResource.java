@@ -18,6 +18,11 @@
 
 package io.dockstore.webservice.resources;
 
+import static com.google.common.net.HttpHeaders.ACCEPT_RANGES;
+import static com.google.common.net.HttpHeaders.CONTENT_LENGTH;
+import static com.google.common.net.HttpHeaders.CONTENT_RANGE;
+import static com.google.common.net.HttpHeaders.RANGE;
+
 import com.codahale.metrics.annotation.Timed;
 import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.DockstoreWebserviceConfiguration;
@@ -25,21 +30,31 @@ import io.dockstore.webservice.core.tooltester.ToolTesterLog;
 import io.dockstore.webservice.core.tooltester.ToolTesterLogType;
 import io.dockstore.webservice.core.tooltester.ToolTesterS3Client;
 import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.List;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import org.apache.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 
 /**
  * @author gluu
@@ -52,38 +67,60 @@ import software.amazon.awssdk.awscore.exception.AwsServiceException;
 public class ToolTesterResource {
     private static final Logger LOG = LoggerFactory.getLogger(ToolTesterResource.class);
     private final String bucketName;
+    // Shared by all requests, so that S3 connections and the index of logs are reused
+    private final ToolTesterS3Client toolTesterS3Client;
 
     public ToolTesterResource(DockstoreWebserviceConfiguration configuration) {
         bucketName = configuration.getToolTesterBucket();
+        toolTesterS3Client = bucketName == null ? null : new ToolTesterS3Client(bucketName);
     }
 
     @GET
     @Timed
     @Path("logs")
     @Operation(summary = "Get ToolTester log file")
+    @ApiOperation(value = "Get ToolTester log file", response = String.class)
+    @ApiResponse(description = "default response", content = @Content(mediaType = MediaType.TEXT_PLAIN, schema = @Schema(implementation = String.class)))
+    @ApiResponse(responseCode = HttpStatus.SC_PARTIAL_CONTENT + "", description = "The requested range of the log file", content = @Content(mediaType = MediaType.TEXT_PLAIN, schema = @Schema(implementation = String.class)))
     @Produces(MediaType.TEXT_PLAIN)
-    public String getToolTesterLog(
+    public Response getToolTesterLog(
             @QueryParam("tool_id") @Parameter(description = "TRS Tool Id", example = "#workflow/github.com/dockstore/hello_world", required = true) String toolId,
             @QueryParam("tool_version_name") @Parameter(example = "v1.0.0", required = true) String toolVersionName,
             @QueryParam("test_filename") @Parameter(example = "hello_world.cwl.json", required = true) String testFilename,
             @QueryParam("runner") @Parameter(example = "cwltool", required = true) String runner,
             @QueryParam("log_type") @Parameter(required = true) ToolTesterLogType logType,
-            @QueryParam("filename") @Parameter(example = "1554477737092.log", required = true) String filename) {
+            @QueryParam("filename") @Parameter(example = "1554477737092.log", required = true) String filename,
+            @HeaderParam(RANGE) @ApiParam(value = "Optional range of bytes of the log file") @Parameter(description = "Optional range of bytes of the log file", example = "bytes=0-1023") String range) {
         if (this.bucketName == null) {
             throw new CustomWebApplicationException("Dockstore Logging integration is currently not set up",
                     HttpStatus.SC_SERVICE_UNAVAILABLE);
         }
-        ToolTesterS3Client toolTesterS3Client = new ToolTesterS3Client(this.bucketName);
+        final ResponseInputStream<GetObjectResponse> log;
         try {
-            return toolTesterS3Client.getToolTesterLog(toolId, toolVersionName, testFilename, runner, filename);
+            log = toolTesterS3Client.getToolTesterLogStream(toolId, toolVersionName, testFilename, runner, filename, range);
+        } catch (NoSuchKeyException e) {
+            throw new CustomWebApplicationException("Log file not found", HttpStatus.SC_NOT_FOUND);
         } catch (AwsServiceException e) {
+            if (e.statusCode() == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                throw new CustomWebApplicationException("The range is not within the log file", HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            }
             LOG.error(e.getMessage(), e);
             throw new CustomWebApplicationException("Dockstore Logging integration is currently not set up",
                     HttpStatus.SC_SERVICE_UNAVAILABLE);
-        } catch (IOException e) {
+        } catch (UnsupportedEncodingException e) {
             LOG.error(e.getMessage(), e);
-            throw new CustomWebApplicationException("Could not fetch log file contents", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+            throw new CustomWebApplicationException("Could not find log file location", HttpStatus.SC_INTERNAL_SERVER_ERROR);
         }
+        // Stream the log instead of reading it into memory, logs can be large
+        StreamingOutput streamingOutput = output -> {
+            try (log) {
+                log.transferTo(output);
+            }
+        };
+        GetObjectResponse response = log.response();
+        Response.ResponseBuilder builder = response.contentRange() == null ? Response.ok(streamingOutput)
+                : Response.status(HttpStatus.SC_PARTIAL_CONTENT).entity(streamingOutput).header(CONTENT_RANGE, response.contentRange());
+        return builder.header(CONTENT_LENGTH, response.contentLength()).header(ACCEPT_RANGES, "bytes").build();
     }
 
     @GET
@@ -98,7 +135,6 @@ public class ToolTesterResource {
                     HttpStatus.SC_SERVICE_UNAVAILABLE);
         }
         try {
-            ToolTesterS3Client toolTesterS3Client = new ToolTesterS3Client(this.bucketName);
             return toolTesterS3Client.getToolTesterLogs(toolId, toolVersionName);
         } catch (AwsServiceException e) {
             LOG.error(e.getMessage(), e);
@@ -26,11 +26,13 @@ import static io.dockstore.webservice.resources.ResourceConstants.PAGINATION_OFF
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.annotation.JsonView;
 import com.google.common.collect.Lists;
+import io.dockstore.common.EntryType;
 import io.dockstore.common.HttpStatusMessageConstants;
 import io.dockstore.common.Registry;
 import io.dockstore.common.Repository;
 import io.dockstore.common.SourceControl;
 import io.dockstore.common.Utilities;
+import io.dockstore.webservice.CachingTokenAuthenticator;
 import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.DockstoreWebserviceConfiguration;
 import io.dockstore.webservice.api.Limits;
@@ -56,7 +58,7 @@ import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowMode;
-import io.dockstore.webservice.core.database.EntryLite;
+import io.dockstore.webservice.core.database.DashboardEntry;
 import io.dockstore.webservice.core.database.MyWorkflows;
 import io.dockstore.webservice.core.database.UserInfo;
 import io.dockstore.webservice.helpers.DeletedUserHelper;
@@ -78,7 +80,6 @@ import io.dockstore.webservice.jdbi.UserDAO;
 import io.dockstore.webservice.jdbi.WorkflowDAO;
 import io.dockstore.webservice.permissions.PermissionsInterface;
 import io.dropwizard.auth.Auth;
-import io.dropwizard.auth.CachingAuthenticator;
 import io.dropwizard.hibernate.UnitOfWork;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -100,6 +101,7 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -112,6 +114,9 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.annotation.security.RolesAllowed;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -123,6 +128,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
@@ -145,6 +151,9 @@ public class UserResource implements AuthenticatedResourceInterface, SourceContr
     private static final Pattern VALID_USERNAME_PATTERN = Pattern.compile("^[a-zA-Z]+[.a-zA-Z0-9-_]*$");
     private static final String CLOUD_INSTANCE_ID_DESCRIPTION = "ID of cloud instance to update/delete";
     private static final String USER_NOT_FOUND_DESCRIPTION = "User not found";
+    private static final int DASHBOARD_MAX_LIMIT = 100;
+    private static final String DASHBOARD_DEFAULT_LIMIT = "20";
+    private static final String NEXT_CURSOR_HEADER = "X-next-cursor";
     private static final String USER_PROFILES = "userProfiles";
     private static final String USER_INCLUDE = USER_PROFILES + ", ...";
     private static final String USER_INCLUDE_MESSAGE = "Comma-delimited list of fields to include: " + USER_INCLUDE;
@@ -162,7 +171,7 @@ public class UserResource implements AuthenticatedResourceInterface, SourceContr
     private final LambdaEventDAO lambdaEventDAO;
     private final DeletedUsernameDAO deletedUsernameDAO;
     private final PermissionsInterface authorizer;
-    private final CachingAuthenticator<String, User> cachingAuthenticator;
+    private final CachingTokenAuthenticator cachingAuthenticator;
     private final HttpClient client;
 
     private final String bitbucketClientSecret;
@@ -170,7 +179,7 @@ public class UserResource implements AuthenticatedResourceInterface, SourceContr
 
     @SuppressWarnings("checkstyle:ParameterNumber")
     public UserResource(HttpClient client, SessionFactory sessionFactory, WorkflowResource workflowResource,
-        DockerRepoResource dockerRepoResource, CachingAuthenticator<String, User> cachingAuthenticator, PermissionsInterface authorizer, DockstoreWebserviceConfiguration configuration) {
+        DockerRepoResource dockerRepoResource, CachingTokenAuthenticator cachingAuthenticator, PermissionsInterface authorizer, DockstoreWebserviceConfiguration configuration) {
         this.eventDAO = new EventDAO(sessionFactory);
         this.userDAO = new UserDAO(sessionFactory);
         this.tokenDAO = new TokenDAO(sessionFactory);
@@ -335,8 +344,8 @@ public class UserResource implements AuthenticatedResourceInterface, SourceContr
 
         if (dockstoreToken.isPresent()) {
             dockstoreToken.get().setUsername(username);
-            cachingAuthenticator.invalidate(dockstoreToken.get().getContent());
         }
+        cachingAuthenticator.invalidateUser(user.getId());
         return userDAO.findById(user.getId());
     }
 
@@ -397,6 +406,8 @@ public class UserResource implements AuthenticatedResourceInterface, SourceContr
             // invalidate tokens from caching authenticator
             cachingAuthenticator.invalidate(token.getContent());
         }
+        // also forget Google tokens that are not stored
+        cachingAuthenticator.invalidateUser(user.getId());
     }
 
     private void deleteSelfFromEntries(User user) {
@@ -777,21 +788,41 @@ public class UserResource implements AuthenticatedResourceInterface, SourceContr
     public List<EntryUpdateTime> getUserEntries(@ApiParam(hidden = true) @Parameter(hidden = true, name = "user")@Auth User authUser,
                                                 @Parameter(name = "count", description = "Maximum number of entries to return", in = ParameterIn.QUERY) @QueryParam("count") Integer count,
                                                 @Parameter(name = "filter", description = "Filter paths with matching text", in = ParameterIn.QUERY) @QueryParam("filter") String filter) {
-        //get entries with only minimal columns from database
-        final List<EntryLite> entriesLite = new ArrayList<>();
-        final long userId = authUser.getId();
-        entriesLite.addAll(toolDAO.findEntryVersions(userId));
-        entriesLite.addAll(bioWorkflowDAO.findEntryVersions(userId));
-        entriesLite.addAll(serviceDAO.findEntryVersions(userId));
-
-        //cleanup fields for UI: filter(if applicable), sort, and limit by count(if applicable)
-        List<EntryUpdateTime> filteredEntries = entriesLite
-                .stream().map(e -> new EntryUpdateTime(e.getEntryPath(), e.getPrettyPath(), e.getEntryType(), new Timestamp(e.getLastUpdated().getTime())))
-                .filter((EntryUpdateTime entryUpdateTime) -> filter == null || filter.isBlank() || entryUpdateTime.getPath().toLowerCase().contains(filter.toLowerCase()))
-                .sorted(Comparator.comparing(EntryUpdateTime::getLastUpdateDate, Comparator.nullsLast(Comparator.reverseOrder())))
-                .limit(count != null ? count : Integer.MAX_VALUE)
+        // tools, workflows and services (not apps tools), filtered, sorted and limited by the database
+        return userDAO.findDashboardEntries(authUser.getId(), EnumSet.of(EntryType.TOOL, EntryType.WORKFLOW, EntryType.SERVICE), filter, null,
+                count != null ? count : Integer.MAX_VALUE).stream()
+                .map(entry -> new EntryUpdateTime(entry.getPath(), entry.getPrettyPath(), entry.getEntryType(), new Timestamp(entry.getLastUpdated().getTime())))
                 .collect(Collectors.toList());
-        return filteredEntries;
+    }
+
+    @GET
+    @Path("/{userId}/dashboard/entries")
+    @Timed
+    @UnitOfWork(readOnly = true)
+    @Operation(operationId = "getUserDashboardEntries", description = "Get a page of the entries of a user with only what dashboards show, sorted by most recently updated. "
+            + "If there are more entries, the X-next-cursor header has the cursor for the next page.", security = @SecurityRequirement(name = JWT_SECURITY_DEFINITION_NAME))
+    @ApiResponse(responseCode = HttpStatus.SC_OK
+            + "", description = "A page of the entries of the user", content = @Content(array = @ArraySchema(schema = @Schema(implementation = DashboardEntry.class))))
+    @ApiResponse(responseCode = HttpStatus.SC_BAD_REQUEST + "", description = "Invalid cursor")
+    @ApiResponse(responseCode = HttpStatus.SC_FORBIDDEN + "", description = HttpStatusMessageConstants.FORBIDDEN)
+    @ApiResponse(responseCode = HttpStatus.SC_NOT_FOUND + "", description = USER_NOT_FOUND_DESCRIPTION)
+    @ApiOperation(value = "See OpenApi for details")
+    public List<DashboardEntry> getUserDashboardEntries(@ApiParam(hidden = true) @Parameter(hidden = true, name = "user")@Auth User user,
+            @Parameter(name = "userId", description = "User ID", required = true, in = ParameterIn.PATH) @ApiParam(value = "User ID", required = true) @PathParam("userId") Long userId,
+            @Parameter(name = "entryType", description = "Only return entries of this type, all types if absent", in = ParameterIn.QUERY) @QueryParam("entryType") EntryType entryType,
+            @Parameter(name = "filter", description = "Filter paths with matching text", in = ParameterIn.QUERY) @QueryParam("filter") String filter,
+            @Parameter(name = "cursor", description = "Cursor from the X-next-cursor header of the previous page, the first page if absent", in = ParameterIn.QUERY) @QueryParam("cursor") String cursor,
+            @Parameter(name = "limit", description = "Maximum number of entries to return", in = ParameterIn.QUERY, schema = @Schema(maximum = "100", minimum = "1")) @Min(1) @Max(DASHBOARD_MAX_LIMIT) @DefaultValue(DASHBOARD_DEFAULT_LIMIT) @QueryParam("limit") Integer limit,
+            @Context HttpServletResponse response) {
+        checkUser(user, userId);
+        checkUserExists(userDAO.findById(userId));
+        final Set<EntryType> entryTypes = entryType == null ? EnumSet.allOf(EntryType.class) : EnumSet.of(entryType);
+        final List<DashboardEntry> entries = userDAO.findDashboardEntries(userId, entryTypes, filter, cursor == null ? null : DashboardEntry.Cursor.parse(cursor), limit);
+        if (entries.size() == limit) {
+            response.addHeader(NEXT_CURSOR_HEADER, entries.get(entries.size() - 1).cursor());
+            response.addHeader("Access-Control-Expose-Headers", NEXT_CURSOR_HEADER);
+        }
+        return entries;
     }
 
     @GET
@@ -958,7 +989,7 @@ public class UserResource implements AuthenticatedResourceInterface, SourceContr
         user.setHostedEntryCountLimit(limits.getHostedEntryCountLimit());
         user.setHostedEntryVersionsLimit(limits.getHostedEntryVersionLimit());
         // User could be cached by Dockstore or Google token -- invalidate all
-        tokenDAO.findByUserId(user.getId()).stream().forEach(token -> this.cachingAuthenticator.invalidate(token.getContent()));
+        this.cachingAuthenticator.invalidateUser(user.getId());
         return limits;
     }
 
@@ -1072,7 +1103,7 @@ public class UserResource implements AuthenticatedResourceInterface, SourceContr
         targetUser.setCurator(privilegeRequest.isCurator());
 
         // Invalidate any tokens corresponding to the target user.
-        tokenDAO.findByUserId(targetUser.getId()).stream().forEach(token -> this.cachingAuthenticator.invalidate(token.getContent()));
+        this.cachingAuthenticator.invalidateUser(targetUser.getId());
 
         return targetUser;
     }
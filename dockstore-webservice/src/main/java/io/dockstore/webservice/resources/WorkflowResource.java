@@ -19,6 +19,7 @@ package io.dockstore.webservice.resources;
 import static io.dockstore.common.DescriptorLanguage.CWL;
 import static io.dockstore.common.DescriptorLanguage.WDL;
 import static io.dockstore.webservice.Constants.OPTIONAL_AUTH_MESSAGE;
+import static io.dockstore.webservice.Constants.SKIP_COMMIT_ID;
 import static io.dockstore.webservice.core.WorkflowMode.DOCKSTORE_YML;
 import static io.dockstore.webservice.resources.ResourceConstants.JWT_SECURITY_DEFINITION_NAME;
 import static io.dockstore.webservice.resources.ResourceConstants.VERSION_PAGINATION_LIMIT;
@@ -53,19 +54,18 @@ import io.dockstore.webservice.core.Version;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowMode;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.core.ZenodoDoiRequest;
 import io.dockstore.webservice.core.languageparsing.LanguageParsingRequest;
 import io.dockstore.webservice.core.languageparsing.LanguageParsingResponse;
-import io.dockstore.webservice.helpers.AliasHelper;
 import io.dockstore.webservice.helpers.EntryVersionHelper;
 import io.dockstore.webservice.helpers.FileFormatHelper;
-import io.dockstore.webservice.helpers.MetadataResourceHelper;
 import io.dockstore.webservice.helpers.ORCIDHelper;
 import io.dockstore.webservice.helpers.PublicStateManager;
 import io.dockstore.webservice.helpers.SourceCodeRepoFactory;
 import io.dockstore.webservice.helpers.SourceCodeRepoInterface;
 import io.dockstore.webservice.helpers.StateManagerMode;
 import io.dockstore.webservice.helpers.StringInputValidationHelper;
-import io.dockstore.webservice.helpers.URIHelper;
+import io.dockstore.webservice.helpers.ZenodoDoiService;
 import io.dockstore.webservice.helpers.ZenodoHelper;
 import io.dockstore.webservice.jdbi.BioWorkflowDAO;
 import io.dockstore.webservice.jdbi.EntryDAO;
@@ -75,6 +75,7 @@ import io.dockstore.webservice.jdbi.ServiceEntryDAO;
 import io.dockstore.webservice.jdbi.ToolDAO;
 import io.dockstore.webservice.jdbi.VersionDAO;
 import io.dockstore.webservice.jdbi.WorkflowDAO;
+import io.dockstore.webservice.jdbi.ZenodoDoiRequestDAO;
 import io.dockstore.webservice.languages.LanguageHandlerFactory;
 import io.dockstore.webservice.languages.LanguageHandlerInterface;
 import io.dockstore.webservice.permissions.Permission;
@@ -86,7 +87,6 @@ import io.dropwizard.hibernate.UnitOfWork;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.Authorization;
-import io.swagger.api.impl.ToolsImplCommon;
 import io.swagger.jaxrs.PATCH;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -98,8 +98,6 @@ import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import io.swagger.zenodo.client.ApiClient;
-import java.net.URISyntaxException;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -179,6 +177,7 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
     private final ServiceEntryDAO serviceEntryDAO;
     private final BioWorkflowDAO bioWorkflowDAO;
     private final VersionDAO versionDAO;
+    private final ZenodoDoiRequestDAO zenodoDoiRequestDAO;
 
     private final PermissionsInterface permissionsInterface;
     private final String zenodoUrl;
@@ -186,8 +185,6 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
     private final String zenodoClientSecret;
     private final String dashboardPrefix;
 
-    private final String dockstoreUrl;
-    private final String dockstoreGA4GHBaseUrl;
 
     public WorkflowResource(HttpClient client, SessionFactory sessionFactory, PermissionsInterface permissionsInterface,
         EntryResource entryResource, DockstoreWebserviceConfiguration configuration) {
@@ -198,6 +195,7 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
         this.bioWorkflowDAO = new BioWorkflowDAO(sessionFactory);
         this.fileFormatDAO = new FileFormatDAO(sessionFactory);
         this.versionDAO = new VersionDAO(sessionFactory);
+        this.zenodoDoiRequestDAO = new ZenodoDoiRequestDAO(sessionFactory);
 
         this.permissionsInterface = permissionsInterface;
 
@@ -205,17 +203,6 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
         zenodoClientID = configuration.getZenodoClientID();
         zenodoClientSecret = configuration.getZenodoClientSecret();
         dashboardPrefix = configuration.getDashboard();
-
-        dockstoreUrl = URIHelper.createBaseUrl(configuration.getExternalConfig().getScheme(),
-            configuration.getExternalConfig().getHostname(), configuration.getExternalConfig().getUiPort());
-
-        try {
-            dockstoreGA4GHBaseUrl = ToolsImplCommon.baseURL(configuration);
-        } catch (URISyntaxException e) {
-            LOG.error("Could create Dockstore base URL. Error is " + e.getMessage(), e);
-            throw new CustomWebApplicationException("Could create Dockstore base URL. "
-                + "Error is " + e.getMessage(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
-        }
     }
 
     /**
@@ -375,8 +362,12 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
 
         // Use new workflow to update existing workflow
         updateDBWorkflowWithSourceControlWorkflow(existingWorkflow, newWorkflow, user, version);
-        // Update file formats in each version and then the entry
-        FileFormatHelper.updateFileFormats(existingWorkflow, newWorkflow.getWorkflowVersions(), fileFormatDAO, true);
+        // Update file formats in each refreshed version and then the entry
+        final Set<String> refreshedVersionNames = newWorkflow.getWorkflowVersions().stream()
+            .filter(workflowVersion -> !Objects.equals(SKIP_COMMIT_ID, workflowVersion.getCommitID())).map(Version::getName).collect(Collectors.toSet());
+        final Set<WorkflowVersion> refreshedVersions = existingWorkflow.getWorkflowVersions().stream()
+            .filter(workflowVersion -> refreshedVersionNames.contains(workflowVersion.getName())).collect(Collectors.toSet());
+        FileFormatHelper.updateFileFormats(existingWorkflow, refreshedVersions, fileFormatDAO);
 
         // Keep this code that updates the existing workflow BEFORE refreshing its checker workflow below. Refreshing the checker workflow will eventually call
         // EntryVersionHelper.removeSourceFilesFromEntry() which performs a session.flush and commits to the db. It's important the parent workflow is updated completely before committing to the db..
@@ -621,55 +612,31 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
             LOG.error(NO_ZENDO_USER_TOKEN + " " + user.getUsername());
             throw new CustomWebApplicationException(NO_ZENDO_USER_TOKEN + " " + user.getUsername(), HttpStatus.SC_BAD_REQUEST);
         }
-        final String zenodoAccessToken = zenodoToken.getContent();
-
-        //TODO: Determine whether workflow DOIStatus is needed; we don't use it
-        //E.g. Version.DOIStatus.CREATED
-
-        ApiClient zenodoClient = new ApiClient();
-        // for testing, either 'https://sandbox.zenodo.org/api' or 'https://zenodo.org/api' is the first parameter
-        String zenodoUrlApi = zenodoUrl + "/api";
-        zenodoClient.setBasePath(zenodoUrlApi);
-        zenodoClient.setApiKey(zenodoAccessToken);
-
-        registerZenodoDOIForWorkflow(zenodoClient, workflow, workflowVersion, user);
-
-        Workflow result = workflowDAO.findById(workflowId);
-        checkEntry(result);
-        PublicStateManager.getInstance().handleIndexUpdate(result, StateManagerMode.UPDATE);
-        return result.getWorkflowVersions();
-
-    }
 
-    /**
-     * Register a Zenodo DOI for the workflow and workflow version
-     *
-     * @param zenodoClient    Client for interacting with Zenodo server
-     * @param workflow        workflow for which DOI is registered
-     * @param workflowVersion workflow version for which DOI is registered
-     * @param user            user authenticated to issue a DOI for the workflow
-     */
-    private void registerZenodoDOIForWorkflow(ApiClient zenodoClient, Workflow workflow, WorkflowVersion workflowVersion, User user) {
+        ZenodoHelper.checkForExistingDOIForWorkflowVersion(workflowVersion);
 
-        // Create Dockstore workflow URL (e.g. https://dockstore.org/workflows/github.com/DataBiosphere/topmed-workflows/UM_variant_caller_wdl)
-        String workflowUrl = MetadataResourceHelper.createWorkflowURL(workflow);
-
-        ZenodoHelper.ZenodoDoiResult zenodoDoiResult = ZenodoHelper.registerZenodoDOI(zenodoClient, workflow,
-            workflowVersion, workflowUrl, dockstoreGA4GHBaseUrl, dockstoreUrl, this);
-
-        workflowVersion.setDoiURL(zenodoDoiResult.getDoiUrl());
-        workflow.setConceptDoi(zenodoDoiResult.getConceptDoi());
-        // Only add the alias to the workflow version after publishing the DOI succeeds
-        // Otherwise if the publish call fails we will have added an alias
-        // that will not be used and cannot be deleted
-        // This code also checks that the alias does not start with an invalid prefix
-        // If it does, this will generate an exception, the alias will not be added
-        // to the workflow version, but there may be an invalid Related Identifier URL on the Zenodo entry
-        AliasHelper.addWorkflowVersionAliasesAndCheck(this, workflowDAO, workflowVersionDAO, user,
-            workflowVersion.getId(), zenodoDoiResult.getDoiAlias(), false);
+        // The DOI is registered in the background, see ZenodoDoiService
+        ZenodoDoiRequest doiRequest = zenodoDoiRequestDAO.findByWorkflowVersionId(workflowVersionId);
+        if (doiRequest == null) {
+            doiRequest = new ZenodoDoiRequest(workflowId, workflowVersionId, user.getId());
+            zenodoDoiRequestDAO.create(doiRequest);
+        } else if (doiRequest.getState() == ZenodoDoiRequest.State.ALIASED) {
+            // the DOI that was registered has been removed from the version since
+            doiRequest.restart(user.getId());
+        } else if (doiRequest.getError() == null) {
+            // already being registered
+            return workflow.getWorkflowVersions();
+        } else {
+            // resume the request at the step that failed, with the Zenodo account of whoever asked again
+            LOG.info(user.getUsername() + ": resuming DOI request for " + workflowNameAndVersion + " that stopped with: " + doiRequest.getError());
+            doiRequest.setError(null);
+            doiRequest.setUserId(user.getId());
+        }
+        workflowVersion.setDoiStatus(Version.DOIStatus.REQUESTED);
+        ZenodoDoiService.advanceAfterCommit(doiRequest);
+        return workflow.getWorkflowVersions();
     }
 
-
     private String workflowNameAndVersion(Workflow workflow, WorkflowVersion workflowVersion) {
         return workflow.getWorkflowPath() + ":" + workflowVersion.getName();
     }
@@ -903,7 +870,7 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
         try {
             checkUser(user, workflow);
         } catch (CustomWebApplicationException ex) {
-            if (!permissionsInterface.canDoAction(user, (Workflow) workflow, Role.Action.READ)) {
+            if (!permissionsInterface.isAllowed(user, (Workflow) workflow, Role.Action.READ)) {
                 throw ex;
             }
         }
@@ -919,7 +886,7 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
         try {
             checkUserOwnsEntry(user, workflow);
         } catch (CustomWebApplicationException ex) {
-            if (!permissionsInterface.canDoAction(user, workflow, Role.Action.WRITE)) {
+            if (!permissionsInterface.isAllowed(user, workflow, Role.Action.WRITE)) {
                 throw ex;
             }
         }
@@ -935,7 +902,7 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
         try {
             checkUser(user, workflow);
         } catch (CustomWebApplicationException ex) {
-            if (!permissionsInterface.canDoAction(user, workflow, Role.Action.SHARE)) {
+            if (!permissionsInterface.isAllowed(user, workflow, Role.Action.SHARE)) {
                 throw ex;
             }
         }
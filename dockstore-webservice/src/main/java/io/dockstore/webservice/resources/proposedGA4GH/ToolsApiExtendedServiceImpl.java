@@ -28,6 +28,7 @@ import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.Version;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.helpers.ElasticSearchGateway;
 import io.dockstore.webservice.helpers.ElasticSearchHelper;
 import io.dockstore.webservice.helpers.PublicStateManager;
 import io.dockstore.webservice.helpers.statelisteners.ElasticListener;
@@ -48,7 +49,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
@@ -56,10 +56,8 @@ import javax.ws.rs.core.SecurityContext;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.http.HttpStatus;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
-import org.elasticsearch.client.Request;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.ResponseException;
-import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.client.indices.CreateIndexRequest;
 import org.elasticsearch.common.xcontent.XContentType;
@@ -80,17 +78,13 @@ public class ToolsApiExtendedServiceImpl extends ToolsExtendedApiService {
 
     private static final String TOOLS_INDEX = ElasticListener.TOOLS_INDEX;
     private static final String WORKFLOWS_INDEX = ElasticListener.WORKFLOWS_INDEX;
-    private static final String ALL_INDICES = ElasticListener.ALL_INDICES;
     private static final int SEARCH_TERM_LIMIT = 256;
-    private static final int TOO_MANY_REQUESTS_429 = 429;
-    private static final int ELASTICSEARCH_DEFAULT_LIMIT = 15;
 
     private static ToolDAO toolDAO = null;
     private static WorkflowDAO workflowDAO = null;
     private static AppToolDAO appToolDAO = null;
     private static DockstoreWebserviceConfiguration config = null;
     private static PublicStateManager publicStateManager = null;
-    private static Semaphore elasticSearchConcurrencyLimit = null;
 
     public static void setStateManager(PublicStateManager manager) {
         ToolsApiExtendedServiceImpl.publicStateManager = manager;
@@ -110,11 +104,7 @@ public class ToolsApiExtendedServiceImpl extends ToolsExtendedApiService {
 
     public static void setConfig(DockstoreWebserviceConfiguration config) {
         ToolsApiExtendedServiceImpl.config = config;
-        if (config.getEsConfiguration().getMaxConcurrentSessions() == null) {
-            ToolsApiExtendedServiceImpl.elasticSearchConcurrencyLimit = new Semaphore(ELASTICSEARCH_DEFAULT_LIMIT);
-        } else {
-            ToolsApiExtendedServiceImpl.elasticSearchConcurrencyLimit = new Semaphore(config.getEsConfiguration().getMaxConcurrentSessions());
-        }
+        ElasticSearchGateway.init(config.getEsConfiguration());
     }
 
     /**
@@ -189,6 +179,7 @@ public class ToolsApiExtendedServiceImpl extends ToolsExtendedApiService {
                 // Delete previous indices
                 deleteIndex(client, TOOLS_INDEX);
                 deleteIndex(client, WORKFLOWS_INDEX);
+                ElasticSearchGateway.invalidate();
 
                 // Get mapping for tools index
                 URL urlTools = Resources.getResource("queries/mapping_tool.json");
@@ -221,56 +212,35 @@ public class ToolsApiExtendedServiceImpl extends ToolsExtendedApiService {
 
     @Override
     public Response toolsIndexSearch(String query, MultivaluedMap<String, String> queryParameters, SecurityContext securityContext) {
-        String unableToUseESMsg = "Could not use Elasticsearch search";
-        if (!elasticSearchConcurrencyLimit.tryAcquire(1)) {
-            LOG.error(unableToUseESMsg + ": too many concurrent Elasticsearch requests.");
-            throw new CustomWebApplicationException(unableToUseESMsg, TOO_MANY_REQUESTS_429);
-        }
-        try {
-            if (!config.getEsConfiguration().getHostname().isEmpty()) {
-                checkSearchTermLimit(query);
-                try {
-                    RestClient restClient = ElasticSearchHelper.restClient();
-                    Map<String, String> parameters = new HashMap<>();
-                    // TODO: note that this is lossy if there are repeated parameters
-                    // but it looks like the elastic search http client classes don't handle it
-                    if (queryParameters != null) {
-                        queryParameters.forEach((key, value) -> parameters.put(key, value.get(0)));
-                    }
-                    // This should be using the high-level Elasticsearch client instead
-                    Request request = new Request("GET", "/" + ALL_INDICES + "/_search");
-                    if (query != null) {
-                        request.setJsonEntity(query);
-                    }
-                    request.addParameters(parameters);
-                    org.elasticsearch.client.Response get = restClient.performRequest(request);
-                    if (get.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
-                        throw new CustomWebApplicationException("Could not search " + ALL_INDICES + "index",
-                            HttpStatus.SC_INTERNAL_SERVER_ERROR);
-                    }
-                    return Response.ok().entity(get.getEntity().getContent()).build();
-                } catch (ResponseException e) {
-                    // Only surface these codes to the user, everything else is not entirely obvious so returning 500 instead.
-                    int[] codesToResurface = {HttpStatus.SC_BAD_REQUEST};
-                    int statusCode = e.getResponse().getStatusLine().getStatusCode();
-                    LOG.error(unableToUseESMsg, e);
-                    // Provide a minimal amount of error information in the browser console as outlined by
-                    // https://ucsc-cgl.atlassian.net/browse/SEAB-2128
-                    String reasonPhrase = e.getResponse().getStatusLine().getReasonPhrase();
-                    if (ArrayUtils.contains(codesToResurface, statusCode)) {
-                        throw new CustomWebApplicationException(reasonPhrase, statusCode);
-                    } else {
-                        throw new CustomWebApplicationException(reasonPhrase, HttpStatus.SC_INTERNAL_SERVER_ERROR);
-                    }
-                } catch (IOException e2) {
-                    LOG.error(unableToUseESMsg, e2);
-                    throw new CustomWebApplicationException("Search failed", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        if (!config.getEsConfiguration().getHostname().isEmpty()) {
+            checkSearchTermLimit(query);
+            try {
+                Map<String, String> parameters = new HashMap<>();
+                // TODO: note that this is lossy if there are repeated parameters
+                // but it looks like the elastic search http client classes don't handle it
+                if (queryParameters != null) {
+                    queryParameters.forEach((key, value) -> parameters.put(key, value.get(0)));
                 }
+                return Response.ok().entity(ElasticSearchGateway.search(query, parameters)).build();
+            } catch (ResponseException e) {
+                // Only surface these codes to the user, everything else is not entirely obvious so returning 500 instead.
+                int[] codesToResurface = {HttpStatus.SC_BAD_REQUEST};
+                int statusCode = e.getResponse().getStatusLine().getStatusCode();
+                LOG.error(ElasticSearchGateway.UNABLE_TO_USE_ES_MSG, e);
+                // Provide a minimal amount of error information in the browser console as outlined by
+                // https://ucsc-cgl.atlassian.net/browse/SEAB-2128
+                String reasonPhrase = e.getResponse().getStatusLine().getReasonPhrase();
+                if (ArrayUtils.contains(codesToResurface, statusCode)) {
+                    throw new CustomWebApplicationException(reasonPhrase, statusCode);
+                } else {
+                    throw new CustomWebApplicationException(reasonPhrase, HttpStatus.SC_INTERNAL_SERVER_ERROR);
+                }
+            } catch (IOException e2) {
+                LOG.error(ElasticSearchGateway.UNABLE_TO_USE_ES_MSG, e2);
+                throw new CustomWebApplicationException("Search failed", HttpStatus.SC_INTERNAL_SERVER_ERROR);
             }
-            return Response.ok().entity(0).build();
-        } finally {
-            elasticSearchConcurrencyLimit.release(1);
         }
+        return Response.ok().entity(0).build();
     }
 
     /**
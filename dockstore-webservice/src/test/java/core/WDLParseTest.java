@@ -101,7 +101,7 @@ public class WDLParseTest {
     @Test
     public void testRecursiveImportsMetadata() {
         try {
-            WDLHandler.checkForRecursiveLocalImports(getSourceFile1().getContent(), getSourceFiles(), new HashSet<>(), "/");
+            WDLHandler.checkForRecursiveLocalImports(getSourceFile1().getAbsolutePath(), getSourceFile1().getContent(), getSourceFiles());
             Assert.fail("Should have detected recursive local import");
         } catch (ParseException e) {
             Assert.assertEquals("Recursive local import detected: /first-import.wdl", e.getMessage());
@@ -0,0 +1,90 @@
+package io.dockstore.webservice;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import io.dockstore.webservice.core.User;
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.auth.Authenticator;
+import java.time.Duration;
+import java.util.Optional;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachingTokenAuthenticatorTest {
+
+    private static final long USER_ID = 1L;
+    private static final String CREDENTIALS = "asdfafds";
+    private static final String BAD_CREDENTIALS = "fdsafdsa";
+    private static final CaffeineSpec CACHE_POLICY = CaffeineSpec.parse("maximumSize=100, expireAfterAccess=10m");
+
+    private final User user = mock(User.class);
+    private Authenticator<String, User> authenticator;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws AuthenticationException {
+        authenticator = mock(Authenticator.class);
+        when(user.getId()).thenReturn(USER_ID);
+        when(authenticator.authenticate(CREDENTIALS)).thenReturn(Optional.of(user));
+        when(authenticator.authenticate(BAD_CREDENTIALS)).thenReturn(Optional.empty());
+    }
+
+    private CachingTokenAuthenticator cachingAuthenticator(Duration negativeTimeToLive) {
+        return new CachingTokenAuthenticator(new MetricRegistry(), authenticator, CACHE_POLICY, negativeTimeToLive);
+    }
+
+    @Test
+    public void authenticateCachesUsers() throws AuthenticationException {
+        CachingTokenAuthenticator cachingAuthenticator = cachingAuthenticator(Duration.ofMinutes(1));
+        Assert.assertSame(user, cachingAuthenticator.authenticate(CREDENTIALS).get());
+        Assert.assertSame(user, cachingAuthenticator.authenticate(CREDENTIALS).get());
+        verify(authenticator, times(1)).authenticate(CREDENTIALS);
+    }
+
+    @Test
+    public void authenticateCachesRejectedCredentials() throws AuthenticationException {
+        CachingTokenAuthenticator cachingAuthenticator = cachingAuthenticator(Duration.ofMinutes(1));
+        Assert.assertFalse(cachingAuthenticator.authenticate(BAD_CREDENTIALS).isPresent());
+        Assert.assertFalse(cachingAuthenticator.authenticate(BAD_CREDENTIALS).isPresent());
+        verify(authenticator, times(1)).authenticate(BAD_CREDENTIALS);
+    }
+
+    @Test
+    public void authenticateWithoutNegativeCaching() throws AuthenticationException {
+        CachingTokenAuthenticator cachingAuthenticator = cachingAuthenticator(Duration.ZERO);
+        Assert.assertFalse(cachingAuthenticator.authenticate(BAD_CREDENTIALS).isPresent());
+        Assert.assertFalse(cachingAuthenticator.authenticate(BAD_CREDENTIALS).isPresent());
+        verify(authenticator, times(2)).authenticate(BAD_CREDENTIALS);
+    }
+
+    @Test
+    public void invalidate() throws AuthenticationException {
+        CachingTokenAuthenticator cachingAuthenticator = cachingAuthenticator(Duration.ofMinutes(1));
+        cachingAuthenticator.authenticate(CREDENTIALS);
+        cachingAuthenticator.authenticate(BAD_CREDENTIALS);
+        cachingAuthenticator.invalidate(CREDENTIALS);
+        cachingAuthenticator.invalidate(BAD_CREDENTIALS);
+        cachingAuthenticator.authenticate(CREDENTIALS);
+        cachingAuthenticator.authenticate(BAD_CREDENTIALS);
+        verify(authenticator, times(2)).authenticate(CREDENTIALS);
+        verify(authenticator, times(2)).authenticate(BAD_CREDENTIALS);
+    }
+
+    @Test
+    public void invalidateUser() throws AuthenticationException {
+        CachingTokenAuthenticator cachingAuthenticator = cachingAuthenticator(Duration.ofMinutes(1));
+        cachingAuthenticator.authenticate(CREDENTIALS);
+        cachingAuthenticator.invalidateUser(USER_ID + 1);
+        cachingAuthenticator.authenticate(CREDENTIALS);
+        verify(authenticator, times(1)).authenticate(CREDENTIALS);
+        cachingAuthenticator.invalidateUser(USER_ID);
+        cachingAuthenticator.authenticate(CREDENTIALS);
+        verify(authenticator, times(2)).authenticate(CREDENTIALS);
+    }
+}
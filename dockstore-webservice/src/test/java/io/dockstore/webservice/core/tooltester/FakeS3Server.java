@@ -0,0 +1,193 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.core.tooltester;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.apache.http.HttpStatus;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+
+/**
+ * An in-process stand-in for the parts of the S3 API that reading ToolTester logs uses: listing a bucket one page at a
+ * time, heading objects for their metadata, and getting objects or ranges of them. Objects are kept in memory, and
+ * every call is recorded so that tests can check how S3 was used.
+ */
+class FakeS3Server implements AutoCloseable {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private final HttpServer server;
+    private final int pageSize;
+    private final NavigableMap<String, byte[]> objects = new ConcurrentSkipListMap<>();
+    private final Map<String, Map<String, String>> metadata = new HashMap<>();
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param pageSize the most keys to list at once, small to make listings take many pages
+     */
+    FakeS3Server(int pageSize) throws IOException {
+        this.pageSize = pageSize;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return a client for this server, with the path-style addressing that S3-compatible stores use
+     */
+    S3Client client() {
+        return S3Client.builder().region(Region.US_EAST_1).endpointOverride(URI.create("http://localhost:" + server.getAddress().getPort()))
+            .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("access", "secret")))
+            .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).checksumValidationEnabled(false).build()).build();
+    }
+
+    void putObject(String key, String content, Map<String, String> objectMetadata) {
+        objects.put(key, content.getBytes(StandardCharsets.UTF_8));
+        metadata.put(key, objectMetadata);
+    }
+
+    /**
+     * @return the calls made so far, e.g. "LIST", "HEAD" or "GET"
+     */
+    List<String> calls() {
+        return calls;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private synchronized void handle(HttpExchange exchange) throws IOException {
+        try {
+            // the path is the bucket, then the key
+            final String[] path = exchange.getRequestURI().getPath().substring(1).split("/", 2);
+            final Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            if (path.length == 1 && "GET".equals(exchange.getRequestMethod())) {
+                calls.add("LIST");
+                list(exchange, path[0], query);
+                return;
+            }
+            final byte[] object = objects.get(path[1]);
+            if (object == null) {
+                calls.add(exchange.getRequestMethod());
+                respond(exchange, HttpStatus.SC_NOT_FOUND, "<Error><Code>NoSuchKey</Code><Message>The specified key does not exist.</Message></Error>");
+            } else if ("HEAD".equals(exchange.getRequestMethod())) {
+                calls.add("HEAD");
+                metadata.get(path[1]).forEach((name, value) -> exchange.getResponseHeaders().add("x-amz-meta-" + name, value));
+                exchange.sendResponseHeaders(HttpStatus.SC_OK, -1);
+            } else {
+                calls.add("GET");
+                get(exchange, object);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void list(HttpExchange exchange, String bucket, Map<String, String> query) throws IOException {
+        final String prefix = query.getOrDefault("prefix", "");
+        final String after = query.get("continuation-token");
+        final List<String> keys = (after == null ? objects : objects.tailMap(after, false)).keySet().stream().filter(key -> key.startsWith(prefix))
+            .limit(pageSize + 1L).collect(Collectors.toList());
+        final boolean truncated = keys.size() > pageSize;
+        final List<String> page = truncated ? keys.subList(0, pageSize) : keys;
+        final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">");
+        xml.append("<Name>").append(bucket).append("</Name><Prefix>").append(escape(prefix)).append("</Prefix>")
+            .append("<KeyCount>").append(page.size()).append("</KeyCount><MaxKeys>").append(pageSize).append("</MaxKeys>")
+            .append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (truncated) {
+            // the token is the last key of the page, the next page starts after it
+            xml.append("<NextContinuationToken>").append(escape(page.get(page.size() - 1))).append("</NextContinuationToken>");
+        }
+        for (String key : page) {
+            xml.append("<Contents><Key>").append(escape(key)).append("</Key><Size>").append(objects.get(key).length)
+                .append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+        }
+        xml.append("</ListBucketResult>");
+        respond(exchange, HttpStatus.SC_OK, xml.toString());
+    }
+
+    private void get(HttpExchange exchange, byte[] object) throws IOException {
+        final String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range == null) {
+            exchange.sendResponseHeaders(HttpStatus.SC_OK, object.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(object);
+            }
+            return;
+        }
+        final Matcher matcher = RANGE.matcher(range);
+        final int start = matcher.matches() ? Integer.parseInt(matcher.group(1)) : object.length;
+        if (start >= object.length) {
+            respond(exchange, HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE, "<Error><Code>InvalidRange</Code><Message>The requested range is not satisfiable</Message></Error>");
+            return;
+        }
+        final int end = matcher.group(2).isEmpty() ? object.length - 1 : Math.min(Integer.parseInt(matcher.group(2)), object.length - 1);
+        exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + object.length);
+        exchange.sendResponseHeaders(HttpStatus.SC_PARTIAL_CONTENT, end - start + 1L);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(Arrays.copyOfRange(object, start, end + 1));
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        final Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                final String[] nameAndValue = parameter.split("=", 2);
+                query.put(URLDecoder.decode(nameAndValue[0], StandardCharsets.UTF_8), nameAndValue.length == 1 ? "" : URLDecoder.decode(nameAndValue[1], StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String xml) throws IOException {
+        final byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
@@ -21,11 +21,18 @@ package io.dockstore.webservice.core.tooltester;
 import com.google.common.collect.Maps;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpStatus;
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 /**
  * TODO: Add more tests
@@ -69,6 +76,65 @@ public class ToolTesterS3ClientTest {
         Assert.assertEquals("10101011.log", toolTesterLog.getFilename());
     }
 
+    @Test
+    public void testLogIndexIsPaginatedAndCached() throws IOException {
+        try (FakeS3Server s3 = new FakeS3Server(2)) {
+            final String prefix = "tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.7.0/";
+            for (int i = 0; i < 5; i++) {
+                s3.putObject(prefix + "test%2Ftest1.json/cwltool/" + i + ".log", "log " + i, Map.of());
+            }
+            // not laid out like ToolTester's keys, so its metadata says which log it is
+            s3.putObject(prefix + "old.log", "old log", Map.of("tool_id", "quay.io/pancancer/pcawg-bwa-mem-workflow", "version_name", "2.7.0",
+                "test_file_path", "test2.json", "runner", "toil"));
+            // another version whose name starts with the same characters
+            s3.putObject("tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.7.01/test1.json/cwltool/1.log", "log", Map.of());
+
+            ToolTesterS3Client client = new ToolTesterS3Client(s3.client(), "bucket");
+            List<ToolTesterLog> logs = client.getToolTesterLogs("quay.io/pancancer/pcawg-bwa-mem-workflow", "2.7.0");
+            Assert.assertEquals(6, logs.size());
+            // 6 keys in pages of 2, and the metadata of the one key that needs it
+            Assert.assertEquals(List.of("LIST", "HEAD", "LIST", "LIST"), s3.calls());
+            Assert.assertEquals("toil", logs.get(0).getRunner());
+            ToolTesterLog log = logs.get(1);
+            Assert.assertEquals("quay.io/pancancer/pcawg-bwa-mem-workflow", log.getToolId());
+            Assert.assertEquals("2.7.0", log.getToolVersionName());
+            Assert.assertEquals("test/test1.json", log.getTestFilename());
+            Assert.assertEquals("cwltool", log.getRunner());
+            Assert.assertEquals(prefix + "test%2Ftest1.json/cwltool/0.log", log.getFilename());
+
+            // the index of the version is reused
+            Assert.assertEquals(logs, client.getToolTesterLogs("quay.io/pancancer/pcawg-bwa-mem-workflow", "2.7.0"));
+            Assert.assertEquals(4, s3.calls().size());
+        }
+    }
+
+    @Test
+    public void testLogsAreStreamedInRanges() throws IOException {
+        try (FakeS3Server s3 = new FakeS3Server(2)) {
+            s3.putObject("workflow/github.com/dockstore/hello_world/v1.0.0/hello_world.cwl.json/cwltool/1554477737092.log", "hello world", Map.of());
+            ToolTesterS3Client client = new ToolTesterS3Client(s3.client(), "bucket");
+            final String toolId = "#workflow/github.com/dockstore/hello_world";
+            try (ResponseInputStream<GetObjectResponse> log = client.getToolTesterLogStream(toolId, "v1.0.0", "hello_world.cwl.json", "cwltool", "1554477737092.log", "bytes=6-")) {
+                Assert.assertEquals("world", IOUtils.toString(log, StandardCharsets.UTF_8));
+                Assert.assertEquals("bytes 6-10/11", log.response().contentRange());
+                Assert.assertEquals(Long.valueOf(5), log.response().contentLength());
+            }
+            Assert.assertEquals("hello world", client.getToolTesterLog(toolId, "v1.0.0", "hello_world.cwl.json", "cwltool", "1554477737092.log"));
+            try {
+                client.getToolTesterLogStream(toolId, "v1.0.0", "hello_world.cwl.json", "cwltool", "1554477737092.log", "bytes=20-");
+                Assert.fail("A range after the end of the log should not be satisfiable");
+            } catch (S3Exception e) {
+                Assert.assertEquals(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE, e.statusCode());
+            }
+            try {
+                client.getToolTesterLogStream(toolId, "v1.0.0", "hello_world.cwl.json", "cwltool", "missing.log", null);
+                Assert.fail("A missing log should not be found");
+            } catch (NoSuchKeyException e) {
+                Assert.assertEquals(HttpStatus.SC_NOT_FOUND, e.statusCode());
+            }
+        }
+    }
+
     @Test
     @Ignore("this works to check if tooltester retrieval works, but you need the right creds")
     public void testLocal() throws IOException {
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.dockstore.common.DescriptorLanguage;
+import io.dockstore.common.Registry;
+import io.dockstore.webservice.core.Checksum;
+import io.dockstore.webservice.core.Image;
+import io.dockstore.webservice.core.SourceFile;
+import io.dockstore.webservice.core.Tag;
+import io.dockstore.webservice.core.Tool;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks which tags a refresh skips loading the files of
+ */
+public class AbstractImageRegistryTest {
+
+    private static final String REPOSITORY_ID = "namespace/tool";
+    private static final String COMMIT_ID = "0123456789abcdef";
+
+    private Tool tool;
+    private Tag tag;
+    private SourceCodeRepoInterface sourceCodeRepo;
+
+    @Before
+    public void setUp() {
+        tool = new Tool();
+        tag = new Tag();
+        tag.setName("1.0");
+        tag.setReference("1.0");
+        tag.setCommitID(COMMIT_ID);
+        tag.setCwlPath("/Dockstore.cwl");
+        tag.setWdlPath("/Dockstore.wdl");
+        tag.setDockerfilePath("/Dockerfile");
+        tag.getImages().add(image("sha256:aaa"));
+        final SourceFile sourceFile = new SourceFile();
+        sourceFile.setType(DescriptorLanguage.FileType.DOCKSTORE_CWL);
+        sourceFile.setPath("/Dockstore.cwl");
+        sourceFile.setAbsolutePath("/Dockstore.cwl");
+        tag.getSourceFiles().add(sourceFile);
+        tool.addWorkflowVersion(tag);
+
+        sourceCodeRepo = mock(SourceCodeRepoInterface.class);
+        when(sourceCodeRepo.getRepositoryId(tool)).thenReturn(REPOSITORY_ID);
+        when(sourceCodeRepo.getCommitID(REPOSITORY_ID, tag)).thenReturn(COMMIT_ID);
+    }
+
+    private static Image image(String digest) {
+        return new Image(List.of(new Checksum("sha256", digest)), "namespace/tool", "1.0", "id", Registry.DOCKER_HUB, 1L, "2022-01-01");
+    }
+
+    private boolean isUnchanged(String fingerprint) {
+        return AbstractImageRegistry.isUnchanged(tool, tag, fingerprint, sourceCodeRepo);
+    }
+
+    @Test
+    public void testUnchangedTagIsSkipped() {
+        Assert.assertTrue(isUnchanged(AbstractImageRegistry.fingerprint(tag)));
+    }
+
+    @Test
+    public void testNewTagIsLoaded() {
+        Assert.assertFalse(isUnchanged(null));
+        verify(sourceCodeRepo, never()).getCommitID(any(), any());
+    }
+
+    @Test
+    public void testNewCommitIsLoaded() {
+        final String fingerprint = AbstractImageRegistry.fingerprint(tag);
+        when(sourceCodeRepo.getCommitID(REPOSITORY_ID, tag)).thenReturn("fedcba9876543210");
+        Assert.assertFalse(isUnchanged(fingerprint));
+    }
+
+    @Test
+    public void testChangedImageDigestIsLoaded() {
+        final String fingerprint = AbstractImageRegistry.fingerprint(tag);
+        tag.getImages().clear();
+        tag.getImages().add(image("sha256:bbb"));
+        Assert.assertFalse(isUnchanged(fingerprint));
+        verify(sourceCodeRepo, never()).getCommitID(any(), any());
+    }
+
+    @Test
+    public void testChangedPathIsLoaded() {
+        final String fingerprint = AbstractImageRegistry.fingerprint(tag);
+        tag.setCwlPath("/tools/Dockstore.cwl");
+        Assert.assertFalse(isUnchanged(fingerprint));
+        verify(sourceCodeRepo, never()).getCommitID(any(), any());
+    }
+
+    @Test
+    public void testMissingFilesAreLoaded() {
+        // e.g. a tag whose files could not be loaded by the last refresh
+        tag.getSourceFiles().clear();
+        Assert.assertFalse(isUnchanged(AbstractImageRegistry.fingerprint(tag)));
+    }
+
+    @Test
+    public void testTagWithoutCommitIsLoaded() {
+        tag.setCommitID(null);
+        Assert.assertFalse(isUnchanged(AbstractImageRegistry.fingerprint(tag)));
+    }
+}
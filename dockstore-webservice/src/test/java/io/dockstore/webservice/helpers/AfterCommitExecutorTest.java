@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hibernate.Session;
+import org.hibernate.SessionEventListener;
+import org.hibernate.Transaction;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AfterCommitExecutorTest {
+
+    private final ExecutorService executorService = MoreExecutors.newDirectExecutorService();
+    private final List<SessionEventListener> listeners = new ArrayList<>();
+    private final AtomicInteger runs = new AtomicInteger();
+    private SessionFactoryImplementor sessionFactory;
+    private Session requestSession;
+    private AfterCommitExecutor afterCommitExecutor;
+
+    @Before
+    public void setUp() {
+        sessionFactory = mock(SessionFactoryImplementor.class);
+        requestSession = mockSession();
+        when(sessionFactory.getCurrentSession()).thenReturn(requestSession);
+        doAnswer(invocation -> {
+            for (Object listener : invocation.getArguments()) {
+                listeners.add((SessionEventListener)listener);
+            }
+            return null;
+        }).when(requestSession).addEventListeners(any());
+        afterCommitExecutor = new AfterCommitExecutor(executorService, sessionFactory);
+    }
+
+    @After
+    public void tearDown() {
+        ManagedSessionContext.unbind(sessionFactory);
+    }
+
+    private Session mockSession() {
+        final Session session = mock(Session.class);
+        when(session.getSessionFactory()).thenReturn(sessionFactory);
+        return session;
+    }
+
+    private void completeTransaction(boolean successful) {
+        listeners.forEach(listener -> listener.transactionCompletion(successful));
+    }
+
+    @Test
+    public void testRunsOnceAfterCommit() {
+        ManagedSessionContext.bind(requestSession);
+        Assert.assertTrue(afterCommitExecutor.executeAfterCommit(runs::incrementAndGet));
+        Assert.assertEquals("Nothing runs before the commit", 0, runs.get());
+        completeTransaction(true);
+        Assert.assertEquals(1, runs.get());
+        // the session's later transactions do not run it again
+        completeTransaction(true);
+        Assert.assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void testNothingRunsAfterRollback() {
+        ManagedSessionContext.bind(requestSession);
+        Assert.assertTrue(afterCommitExecutor.executeAfterCommit(runs::incrementAndGet));
+        completeTransaction(false);
+        completeTransaction(true);
+        Assert.assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void testNoTransactionToWaitFor() {
+        Assert.assertFalse(afterCommitExecutor.executeAfterCommit(runs::incrementAndGet));
+        Assert.assertTrue(listeners.isEmpty());
+        Assert.assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void testShutDownExecutorRejectsWork() {
+        executorService.shutdown();
+        Assert.assertFalse(afterCommitExecutor.execute(runs::incrementAndGet));
+        Assert.assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void testInTransactionRestoresTheCurrentSession() {
+        final Session backgroundSession = mockSession();
+        final Transaction transaction = mock(Transaction.class);
+        when(transaction.isActive()).thenReturn(true);
+        when(backgroundSession.beginTransaction()).thenReturn(transaction);
+        when(sessionFactory.openSession()).thenReturn(backgroundSession);
+        final ManagedSessionContext context = new ManagedSessionContext(sessionFactory);
+        ManagedSessionContext.bind(requestSession);
+
+        Assert.assertEquals("done", afterCommitExecutor.inTransaction(() -> {
+            Assert.assertSame(backgroundSession, context.currentSession());
+            return "done";
+        }));
+        verify(transaction).commit();
+        Assert.assertSame(requestSession, context.currentSession());
+
+        try {
+            afterCommitExecutor.inTransaction(() -> {
+                throw new IllegalStateException("failed");
+            });
+            Assert.fail("Expected the work to fail");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("failed", e.getMessage());
+        }
+        verify(transaction).rollback();
+        Assert.assertSame(requestSession, context.currentSession());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.sun.net.httpserver.HttpServer;
+import io.dockstore.common.DescriptorLanguage.FileType;
+import io.dockstore.webservice.core.SourceFile;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CheckUrlServiceTest {
+
+    private HttpServer server;
+    private String baseURL;
+    private ExecutorService executorService;
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+    /**
+     * Stands in for the CheckUrl lambda, URLs containing "public" are accessible, "private" are not, anything else is unknown
+     */
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/check", exchange -> {
+            String url = exchange.getRequestURI().getQuery().substring("url=".length());
+            requests.computeIfAbsent(url, key -> new AtomicInteger()).incrementAndGet();
+            String body = url.contains("public") ? "{\"message\":true}" : url.contains("private") ? "{\"message\":false}" : "{}";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        });
+        server.start();
+        baseURL = "http://localhost:" + server.getAddress().getPort() + "/check";
+        executorService = Executors.newFixedThreadPool(2);
+        CheckUrlService.init(executorService, null, Duration.ofMinutes(1));
+    }
+
+    @After
+    public void tearDown() {
+        CheckUrlService.init(null, null, Duration.ZERO);
+        executorService.shutdownNow();
+        server.stop(0);
+    }
+
+    @Test
+    public void testDefiniteAnswersAreCached() {
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(true, CheckUrlService.join(CheckUrlService.checkUrl("https://public.example.com/a.txt", baseURL)));
+            Assert.assertEquals(false, CheckUrlService.join(CheckUrlService.checkUrl("https://private.example.com/a.txt", baseURL)));
+            Assert.assertNull(CheckUrlService.join(CheckUrlService.checkUrl("https://unknown.example.com/a.txt", baseURL)));
+        }
+        Assert.assertEquals(1, requests.get("https://public.example.com/a.txt").get());
+        Assert.assertEquals(1, requests.get("https://private.example.com/a.txt").get());
+        // "don't know" is asked again
+        Assert.assertEquals(3, requests.get("https://unknown.example.com/a.txt").get());
+    }
+
+    @Test
+    public void testCheckUrls() {
+        Assert.assertEquals(Optional.of(true), CheckUrlService.join(CheckUrlService.checkUrls(Set.of("https://public.example.com/a.txt",
+            "https://public.example.com/b.txt"), baseURL)));
+        Assert.assertEquals(Optional.of(false), CheckUrlService.join(CheckUrlService.checkUrls(Set.of("https://public.example.com/a.txt",
+            "https://private.example.com/a.txt", "https://unknown.example.com/a.txt"), baseURL)));
+        Assert.assertEquals(Optional.empty(), CheckUrlService.join(CheckUrlService.checkUrls(Set.of("https://public.example.com/a.txt",
+            "https://unknown.example.com/a.txt"), baseURL)));
+    }
+
+    @Test
+    public void testCheckTestParameterFiles() {
+        SourceFile publicFile = testFile("/public.json", "{\"file\": {\"class\": \"File\", \"path\": \"https://public.example.com/a.txt\"}}");
+        SourceFile privateFile = testFile("/private.json", "{\"file\": {\"class\": \"File\", \"path\": \"https://private.example.com/a.txt\"}}");
+        SourceFile unknownFile = testFile("/unknown.yml", "file:\n  class: File\n  path: https://unknown.example.com/a.txt\n");
+        Assert.assertEquals(true, CheckUrlService.join(CheckUrlService.checkTestParameterFiles(List.of(privateFile, publicFile, unknownFile), baseURL)));
+        Assert.assertEquals(false, CheckUrlService.join(CheckUrlService.checkTestParameterFiles(List.of(privateFile, unknownFile), baseURL)));
+        Assert.assertNull(CheckUrlService.join(CheckUrlService.checkTestParameterFiles(List.of(unknownFile), baseURL)));
+        Assert.assertNull(CheckUrlService.join(CheckUrlService.checkTestParameterFiles(List.of(), baseURL)));
+    }
+
+    private static SourceFile testFile(String path, String content) {
+        SourceFile sourceFile = new SourceFile();
+        sourceFile.setPath(path);
+        sourceFile.setAbsolutePath(path);
+        sourceFile.setContent(content);
+        sourceFile.setType(FileType.CWL_TEST_JSON);
+        return sourceFile;
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.ElasticSearchConfig;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.HttpStatus;
+import org.elasticsearch.client.ResponseException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Searches a stand-in for Elasticsearch, which answers every search with the same result, or with an error
+ */
+public class ElasticSearchGatewayTest {
+
+    private static final String RESULT = "{\"hits\":{\"total\":{\"value\":1}},\"aggregations\":{\"verified\":{\"buckets\":[]}}}";
+    private static final String FACETS = "{\"size\": 0, \"aggs\": {\"verified\": {\"terms\": {\"field\": \"verified\"}}}, \"query\": {\"match_all\": {}}}";
+    private static final String REORDERED_FACETS = "{\"query\":{\"match_all\":{}},\"aggs\":{\"verified\":{\"terms\":{\"field\":\"verified\"}}},\"size\":0}";
+
+    private HttpServer server;
+    private ElasticSearchHelper helper;
+    private final AtomicInteger searches = new AtomicInteger();
+    private volatile int status = HttpStatus.SC_OK;
+    private volatile CountDownLatch hold = new CountDownLatch(0);
+    private volatile CountDownLatch holdSecondHalf = new CountDownLatch(0);
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", this::handle);
+        server.start();
+        final ElasticSearchConfig config = config();
+        helper = new ElasticSearchHelper(config);
+        helper.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        hold.countDown();
+        holdSecondHalf.countDown();
+        ElasticSearchGateway.init(new ElasticSearchConfig());
+        helper.stop();
+        server.stop(0);
+    }
+
+    private ElasticSearchConfig config() {
+        final ElasticSearchConfig config = new ElasticSearchConfig();
+        config.setHostname(server.getAddress().getHostString());
+        config.setPort(server.getAddress().getPort());
+        config.setSearchCacheRefreshDelayMillis(0);
+        return config;
+    }
+
+    /**
+     * Answers every search with the same result, streamed in chunks like Elasticsearch does
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        searches.incrementAndGet();
+        try {
+            exchange.getRequestBody().readAllBytes();
+            hold.await(1, TimeUnit.MINUTES);
+            final byte[] body = (status == HttpStatus.SC_OK ? RESULT : "{\"error\":\"overloaded\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body, 0, body.length / 2);
+                out.flush();
+                holdSecondHalf.await(1, TimeUnit.MINUTES);
+                out.write(body, body.length / 2, body.length - body.length / 2);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String search(String query, Map<String, String> parameters) throws IOException {
+        try (InputStream result = ElasticSearchGateway.search(query, parameters)) {
+            return new String(result.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testEquivalentSearchesShareOneResult() throws IOException {
+        ElasticSearchGateway.init(config());
+        Assert.assertEquals(RESULT, search(FACETS, Map.of()));
+        Assert.assertEquals(RESULT, search(REORDERED_FACETS, Map.of()));
+        Assert.assertEquals(1, searches.get());
+
+        // different parameters are a different search
+        Assert.assertEquals(RESULT, search(FACETS, Map.of("size", "5")));
+        Assert.assertEquals(2, searches.get());
+    }
+
+    @Test
+    public void testUnreadResultsAreNotKept() throws IOException {
+        ElasticSearchGateway.init(config());
+        ElasticSearchGateway.search(FACETS, Map.of()).close();
+        Assert.assertEquals(RESULT, search(FACETS, Map.of()));
+        Assert.assertEquals(2, searches.get());
+    }
+
+    @Test
+    public void testUpdatesDropKeptResults() throws IOException {
+        ElasticSearchGateway.init(config());
+        search(FACETS, Map.of());
+        ElasticSearchGateway.invalidate();
+        search(FACETS, Map.of());
+        search(FACETS, Map.of());
+        Assert.assertEquals(2, searches.get());
+    }
+
+    @Test
+    public void testResultsAreNotKeptUntilTheIndexIsRefreshed() throws IOException {
+        final ElasticSearchConfig config = config();
+        config.setSearchCacheRefreshDelayMillis(TimeUnit.MINUTES.toMillis(1));
+        ElasticSearchGateway.init(config);
+        search(FACETS, Map.of());
+        search(FACETS, Map.of());
+        Assert.assertEquals(1, searches.get());
+
+        // searches right after an update may not see it yet
+        ElasticSearchGateway.invalidate();
+        search(FACETS, Map.of());
+        search(FACETS, Map.of());
+        Assert.assertEquals(3, searches.get());
+    }
+
+    @Test
+    public void testLargeResultsAreStreamedButNotKept() throws IOException {
+        final ElasticSearchConfig config = config();
+        config.setSearchCacheMaxResponseBytes(RESULT.length() - 1);
+        ElasticSearchGateway.init(config);
+        Assert.assertEquals(RESULT, search(FACETS, Map.of()));
+        Assert.assertEquals(RESULT, search(FACETS, Map.of()));
+        Assert.assertEquals(2, searches.get());
+    }
+
+    @Test
+    public void testResultsAreStreamedAsElasticsearchSendsThem() throws IOException {
+        ElasticSearchGateway.init(config());
+        holdSecondHalf = new CountDownLatch(1);
+        final byte[] result = RESULT.getBytes(StandardCharsets.UTF_8);
+        try (InputStream stream = ElasticSearchGateway.search(FACETS, Map.of())) {
+            // the search is answered before Elasticsearch has sent the whole result
+            Assert.assertArrayEquals(Arrays.copyOf(result, result.length / 2), stream.readNBytes(result.length / 2));
+            holdSecondHalf.countDown();
+            Assert.assertEquals(RESULT.substring(result.length / 2), new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        // and kept once it has been read
+        Assert.assertEquals(RESULT, search(FACETS, Map.of()));
+        Assert.assertEquals(1, searches.get());
+    }
+
+    @Test
+    public void testSearchesWithoutABodyAreNotKept() throws IOException {
+        ElasticSearchGateway.init(config());
+        search(null, Map.of());
+        search(null, Map.of());
+        // nor are bodies that are not JSON, Elasticsearch reports what is wrong with them
+        search("{\"size\": ", Map.of());
+        search("{\"size\": ", Map.of());
+        Assert.assertEquals(4, searches.get());
+    }
+
+    @Test
+    public void testNoResultsAreKeptWithoutATimeToLive() throws IOException {
+        final ElasticSearchConfig config = config();
+        config.setSearchCacheTimeToLiveSeconds(0);
+        ElasticSearchGateway.init(config);
+        search(FACETS, Map.of());
+        search(FACETS, Map.of());
+        Assert.assertEquals(2, searches.get());
+    }
+
+    @Test
+    public void testOverloadedElasticsearchLowersTheLimit() throws IOException {
+        final ElasticSearchConfig config = config();
+        final int maxConcurrentSessions = 4;
+        config.setMaxConcurrentSessions(maxConcurrentSessions);
+        ElasticSearchGateway.init(config);
+        Assert.assertEquals(maxConcurrentSessions, ElasticSearchGateway.getConcurrencyLimit());
+
+        status = ElasticSearchGateway.TOO_MANY_REQUESTS_429;
+        while (ElasticSearchGateway.getConcurrencyLimit() > 1) {
+            try {
+                search(FACETS, Map.of());
+                Assert.fail("Elasticsearch rejected the search");
+            } catch (ResponseException e) {
+                Assert.assertEquals(ElasticSearchGateway.TOO_MANY_REQUESTS_429, e.getResponse().getStatusLine().getStatusCode());
+            }
+        }
+        Assert.assertEquals(1, ElasticSearchGateway.getConcurrencyLimit());
+
+        // searches that succeed while the limit is in use raise it again
+        status = HttpStatus.SC_OK;
+        search(FACETS, Map.of());
+        Assert.assertEquals(2, ElasticSearchGateway.getConcurrencyLimit());
+    }
+
+    @Test
+    public void testSearchesBeyondTheLimitAreRejected() throws Exception {
+        final ElasticSearchConfig config = config();
+        config.setMaxConcurrentSessions(1);
+        ElasticSearchGateway.init(config);
+        search(FACETS, Map.of());
+        hold = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> slowSearch = executor.submit(() -> search(null, Map.of()));
+            while (searches.get() == 1) {
+                Thread.sleep(10);
+            }
+            try {
+                search(null, Map.of());
+                Assert.fail("The only permit is in use");
+            } catch (CustomWebApplicationException e) {
+                Assert.assertEquals(ElasticSearchGateway.TOO_MANY_REQUESTS_429, e.getResponse().getStatus());
+            }
+            // results that are kept are served without a permit
+            Assert.assertEquals(RESULT, search(FACETS, Map.of()));
+            hold.countDown();
+            Assert.assertEquals(RESULT, slowSearch.get(1, TimeUnit.MINUTES));
+            Assert.assertEquals(2, searches.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import org.apache.http.HttpStatus;
+import org.orcid.jaxb.model.record.bulk.BulkElement;
+import org.orcid.jaxb.model.v3.release.error.OrcidError;
+import org.orcid.jaxb.model.v3.release.record.Work;
+import org.orcid.jaxb.model.v3.release.record.WorkBulk;
+import org.orcid.jaxb.model.v3.release.record.summary.WorkGroup;
+import org.orcid.jaxb.model.v3.release.record.summary.WorkSummary;
+import org.orcid.jaxb.model.v3.release.record.summary.Works;
+
+/**
+ * A local stand-in for the parts of the ORCID member API that exporting works uses. The works of one ORCID record are
+ * kept in memory, a work conflicts with another that has the same external identifier like ORCID, and every call is
+ * recorded so that tests can check how ORCID was used.
+ */
+class FakeOrcidServer implements AutoCloseable {
+
+    private static final Pattern WORKS = Pattern.compile("/v3\\.0/[^/]+/(works|work)(?:/(\\d+))?$");
+
+    private final HttpServer server;
+    private final JAXBContext context;
+    private final Map<Long, Work> works = new ConcurrentHashMap<>();
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+    private long nextPutCode = 1;
+
+    FakeOrcidServer() throws IOException, JAXBException {
+        context = JAXBContext.newInstance(Work.class, WorkBulk.class, Works.class);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return the base API URL of this server, to use instead of ORCID's
+     */
+    String baseApiUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/v3.0/";
+    }
+
+    /**
+     * Answers the next call with an error instead
+     * @param call method and path, e.g. "POST works" or "PUT work"
+     * @param status error status
+     */
+    void failNext(String call, int status) {
+        failures.put(call, status);
+    }
+
+    /**
+     * @return the calls made so far, as method and path, e.g. "POST works"
+     */
+    List<String> calls() {
+        return calls;
+    }
+
+    Map<Long, Work> works() {
+        return works;
+    }
+
+    /**
+     * Adds a work to the record as if it was added on ORCID, without Dockstore
+     * @return its put code
+     */
+    synchronized long addWork(Work work) {
+        long putCode = nextPutCode++;
+        work.setPutCode(putCode);
+        works.put(putCode, work);
+        return putCode;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private synchronized void handle(HttpExchange exchange) throws IOException {
+        try {
+            final Matcher matcher = WORKS.matcher(exchange.getRequestURI().getPath());
+            if (!matcher.matches()) {
+                respond(exchange, HttpStatus.SC_NOT_FOUND, "");
+                return;
+            }
+            final String call = exchange.getRequestMethod() + " " + matcher.group(1);
+            calls.add(call);
+            final Integer failure = failures.remove(call);
+            if (failure != null) {
+                respond(exchange, failure, "failed on purpose");
+                return;
+            }
+            final String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            if ("POST works".equals(call)) {
+                respond(exchange, HttpStatus.SC_OK, marshal(createWorks((WorkBulk) context.createUnmarshaller().unmarshal(new StringReader(body)))));
+            } else if ("GET works".equals(call)) {
+                respond(exchange, HttpStatus.SC_OK, marshal(summarize()));
+            } else if ("PUT work".equals(call)) {
+                final long putCode = Long.parseLong(matcher.group(2));
+                final Work work = (Work) context.createUnmarshaller().unmarshal(new StringReader(body));
+                if (!works.containsKey(putCode)) {
+                    respond(exchange, HttpStatus.SC_NOT_FOUND, "404 Not Found: The put-code " + putCode + " doesn't exist");
+                } else {
+                    works.put(putCode, work);
+                    respond(exchange, HttpStatus.SC_OK, marshal(work));
+                }
+            } else {
+                respond(exchange, HttpStatus.SC_METHOD_NOT_ALLOWED, call);
+            }
+        } catch (JAXBException e) {
+            respond(exchange, HttpStatus.SC_BAD_REQUEST, e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private WorkBulk createWorks(WorkBulk request) {
+        final WorkBulk response = new WorkBulk();
+        for (BulkElement element : request.getBulk()) {
+            final Work work = (Work) element;
+            final String externalId = externalId(work);
+            final boolean duplicate = works.values().stream().anyMatch(existing -> externalId(existing).equals(externalId));
+            if (duplicate) {
+                final OrcidError error = new OrcidError();
+                error.setResponseCode(HttpStatus.SC_CONFLICT);
+                error.setDeveloperMessage("409 Conflict: You have already added this activity (matched by external identifiers)");
+                response.getBulk().add(error);
+            } else if (work.getPutCode() != null) {
+                final OrcidError error = new OrcidError();
+                error.setResponseCode(HttpStatus.SC_BAD_REQUEST);
+                error.setDeveloperMessage("400 Bad Request: Put-code is included when not expected");
+                response.getBulk().add(error);
+            } else {
+                addWork(work);
+                response.getBulk().add(work);
+            }
+        }
+        return response;
+    }
+
+    private Works summarize() {
+        final Works summary = new Works();
+        works.forEach((putCode, work) -> {
+            final WorkGroup group = new WorkGroup();
+            group.getIdentifiers().getExternalIdentifier().addAll(work.getExternalIdentifiers().getExternalIdentifier());
+            final WorkSummary workSummary = new WorkSummary();
+            workSummary.setPutCode(putCode);
+            group.getWorkSummary().add(workSummary);
+            summary.getWorkGroup().add(group);
+        });
+        return summary;
+    }
+
+    private static String externalId(Work work) {
+        return work.getExternalIdentifiers().getExternalIdentifier().get(0).getValue();
+    }
+
+    private String marshal(Object object) throws JAXBException {
+        final StringWriter writer = new StringWriter();
+        context.createMarshaller().marshal(object, writer);
+        return writer.toString();
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/vnd.orcid+xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.swagger.zenodo.client.ApiClient;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.apache.http.HttpStatus;
+
+/**
+ * A local stand-in for the parts of the Zenodo deposition API that DOI registration uses. Depositions are kept in
+ * memory, reserved DOIs are derived from deposition ids, and every call is recorded so that tests can check how Zenodo was used.
+ */
+class FakeZenodoServer implements AutoCloseable {
+
+    private static final Pattern DEPOSITIONS = Pattern.compile(".*/deposit/depositions(?:/(\\d+)(?:/actions/(\\w+)|/files(?:/([^/]+))?)?)?$");
+    private static final Pattern BOUNDARY = Pattern.compile("boundary=\"?([^\";]+)\"?");
+    private static final String DOI_PREFIX = "10.5072/zenodo.";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final Map<Integer, Map<String, Object>> depositions = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> zipEntries = new ConcurrentHashMap<>();
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> conceptIds = new ConcurrentHashMap<>();
+    private int nextId = 1;
+
+    FakeZenodoServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return a client for this server, like the one made for a user with a Zenodo token
+     */
+    ApiClient client() {
+        ApiClient zenodoClient = new ApiClient();
+        zenodoClient.setBasePath("http://localhost:" + server.getAddress().getPort() + "/api");
+        zenodoClient.setApiKey("token");
+        return zenodoClient;
+    }
+
+    /**
+     * Answers the next call with an error instead
+     * @param call method and action, e.g. "POST files" or "POST newversion"
+     * @param status error status
+     */
+    void failNext(String call, int status) {
+        failures.put(call, status);
+    }
+
+    /**
+     * @return the calls made so far, as method and action, e.g. "POST publish"
+     */
+    List<String> calls() {
+        return calls;
+    }
+
+    Map<String, Object> deposition(int id) {
+        return depositions.get(id);
+    }
+
+    /**
+     * @return the names of the entries of an uploaded zip
+     */
+    List<String> zipEntries(String fileId) {
+        return zipEntries.get(fileId);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private synchronized void handle(HttpExchange exchange) throws IOException {
+        try {
+            final Matcher matcher = DEPOSITIONS.matcher(exchange.getRequestURI().getPath());
+            if (!matcher.matches()) {
+                respond(exchange, HttpStatus.SC_NOT_FOUND, Map.of("message", "not found"));
+                return;
+            }
+            final String method = exchange.getRequestMethod();
+            final Integer id = matcher.group(1) == null ? null : Integer.valueOf(matcher.group(1));
+            final String action = matcher.group(2) != null ? matcher.group(2) : exchange.getRequestURI().getPath().contains("/files") ? "files" : "depositions";
+            final String call = method + " " + action;
+            calls.add(call);
+            final Integer failure = failures.remove(call);
+            if (failure != null) {
+                respond(exchange, failure, Map.of("status", failure, "message", "failed on purpose"));
+                return;
+            }
+            final byte[] body = exchange.getRequestBody().readAllBytes();
+            if (id != null && !depositions.containsKey(id)) {
+                respond(exchange, HttpStatus.SC_NOT_FOUND, Map.of("status", HttpStatus.SC_NOT_FOUND, "message", "no deposition " + id));
+            } else if ("POST depositions".equals(call)) {
+                respond(exchange, HttpStatus.SC_CREATED, createDeposition(nextId++, new HashMap<>()));
+            } else if ("GET depositions".equals(call)) {
+                respond(exchange, HttpStatus.SC_OK, depositions.get(id));
+            } else if ("PUT depositions".equals(call)) {
+                respond(exchange, HttpStatus.SC_OK, putMetadata(id, body));
+            } else if ("POST newversion".equals(call)) {
+                respond(exchange, HttpStatus.SC_CREATED, newVersion(id, exchange));
+            } else if ("POST publish".equals(call)) {
+                publish(exchange, id);
+            } else if ("POST files".equals(call)) {
+                respond(exchange, HttpStatus.SC_CREATED, createFile(id, exchange, body));
+            } else if ("DELETE files".equals(call)) {
+                files(id).removeIf(file -> file.get("id").equals(matcher.group(3)));
+                exchange.sendResponseHeaders(HttpStatus.SC_NO_CONTENT, -1);
+            } else {
+                respond(exchange, HttpStatus.SC_METHOD_NOT_ALLOWED, Map.of("message", call));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Map<String, Object> createDeposition(int id, Map<String, Object> metadata) {
+        final Map<String, Object> deposition = new LinkedHashMap<>();
+        deposition.put("id", id);
+        deposition.put("submitted", false);
+        deposition.put("metadata", metadata);
+        deposition.put("files", new ArrayList<Map<String, Object>>());
+        deposition.put("links", new LinkedHashMap<String, String>());
+        depositions.put(id, deposition);
+        conceptIds.put(id, id);
+        return deposition;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> putMetadata(int id, byte[] body) throws IOException {
+        final Map<String, Object> metadata = (Map<String, Object>)objectMapper.readValue(body, Map.class).get("metadata");
+        if (Boolean.TRUE.equals(metadata.get("prereserve_doi"))) {
+            metadata.put("prereserve_doi", reservedDoi(id));
+        }
+        depositions.get(id).put("metadata", metadata);
+        return depositions.get(id);
+    }
+
+    private static Map<String, Object> reservedDoi(int id) {
+        final Map<String, Object> reserved = new LinkedHashMap<>();
+        reserved.put("doi", DOI_PREFIX + id);
+        reserved.put("recid", id);
+        return reserved;
+    }
+
+    /**
+     * Like Zenodo, makes a new draft only if the concept does not have one yet
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> newVersion(int id, HttpExchange exchange) {
+        final Map<String, Object> original = depositions.get(id);
+        final Integer existingDraftId = depositions.keySet().stream()
+            .filter(other -> conceptIds.get(other).equals(conceptIds.get(id)) && Boolean.FALSE.equals(depositions.get(other).get("submitted")))
+            .findFirst().orElse(null);
+        if (existingDraftId != null) {
+            ((Map<String, String>)original.get("links")).put("latest_draft", "http://" + exchange.getRequestHeaders().getFirst("Host") + "/api/deposit/depositions/"
+                + existingDraftId);
+            return original;
+        }
+        final int draftId = nextId++;
+        final Map<String, Object> metadata = new HashMap<>((Map<String, Object>)original.get("metadata"));
+        metadata.put("doi", DOI_PREFIX + draftId);
+        metadata.put("prereserve_doi", reservedDoi(draftId));
+        createDeposition(draftId, metadata);
+        conceptIds.put(draftId, conceptIds.get(id));
+        // the files of the previous version are copied to the new version
+        files(id).forEach(file -> {
+            final Map<String, Object> copy = new HashMap<>(file);
+            copy.put("id", UUID.randomUUID().toString());
+            zipEntries.put((String)copy.get("id"), zipEntries.get((String)file.get("id")));
+            files(draftId).add(copy);
+        });
+        ((Map<String, String>)original.get("links")).put("latest_draft", "http://" + exchange.getRequestHeaders().getFirst("Host") + "/api/deposit/depositions/" + draftId);
+        return original;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void publish(HttpExchange exchange, int id) throws IOException {
+        final Map<String, Object> deposition = depositions.get(id);
+        if (Boolean.TRUE.equals(deposition.get("submitted"))) {
+            respond(exchange, HttpStatus.SC_BAD_REQUEST, Map.of("status", HttpStatus.SC_BAD_REQUEST, "message", "already published"));
+            return;
+        }
+        deposition.put("submitted", true);
+        ((Map<String, Object>)deposition.get("metadata")).put("doi", DOI_PREFIX + id);
+        ((Map<String, String>)deposition.get("links")).put("conceptdoi", "https://doi.org/" + DOI_PREFIX + conceptIds.get(id));
+        respond(exchange, HttpStatus.SC_ACCEPTED, deposition);
+    }
+
+    /**
+     * Takes the name and the zip out of the multipart form, and remembers the names of the entries of the zip
+     */
+    private Map<String, Object> createFile(int id, HttpExchange exchange, byte[] body) throws IOException {
+        final Matcher boundary = BOUNDARY.matcher(exchange.getRequestHeaders().getFirst("Content-Type"));
+        if (!boundary.find()) {
+            throw new IOException("Not a multipart form");
+        }
+        // ISO-8859-1 maps every byte to a char and back
+        final String form = new String(body, StandardCharsets.ISO_8859_1);
+        String fileName = null;
+        byte[] content = null;
+        for (String part : form.split("--" + Pattern.quote(boundary.group(1)))) {
+            final int headersEnd = part.indexOf("\r\n\r\n");
+            if (headersEnd < 0) {
+                continue;
+            }
+            final String headers = part.substring(0, headersEnd);
+            final String value = part.substring(headersEnd + "\r\n\r\n".length(), part.length() - "\r\n".length());
+            if (headers.contains("name=\"name\"")) {
+                fileName = value;
+            } else if (headers.contains("name=\"file\"")) {
+                content = value.getBytes(StandardCharsets.ISO_8859_1);
+            }
+        }
+        if (content == null) {
+            throw new IOException("No file in the form");
+        }
+        final List<String> entries = new ArrayList<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(content))) {
+            for (ZipEntry entry = zipInputStream.getNextEntry(); entry != null; entry = zipInputStream.getNextEntry()) {
+                entries.add(entry.getName());
+            }
+        }
+        final Map<String, Object> file = new LinkedHashMap<>();
+        file.put("id", UUID.randomUUID().toString());
+        file.put("filename", fileName);
+        file.put("filesize", content.length);
+        zipEntries.put((String)file.get("id"), entries);
+        files(id).add(file);
+        return file;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<Map<String, Object>> files(int id) {
+        return (List<Map<String, Object>>)depositions.get(id).get("files");
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        final byte[] json = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(json);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.common.SourceControl;
+import io.dockstore.webservice.core.BioWorkflow;
+import io.dockstore.webservice.core.OrcidPutCode;
+import io.dockstore.webservice.core.Workflow;
+import io.dockstore.webservice.core.WorkflowVersion;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.apache.http.HttpStatus;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ORCIDBulkExportTest {
+
+    private static final String ORCID_ID = "0000-0001-8365-0487";
+    private static final String TOKEN = "fakeToken";
+    private static final long USER_ID = 1;
+
+    private FakeOrcidServer orcid;
+    private Workflow workflow;
+
+    @Before
+    public void setUp() throws Exception {
+        orcid = new FakeOrcidServer();
+        ORCIDHelper.setOrcidBaseApiUrl(orcid.baseApiUrl());
+        workflow = new BioWorkflow();
+        workflow.setSourceControl(SourceControl.GITHUB);
+        workflow.setOrganization("dockstore");
+        workflow.setRepository("dockstore-ui2");
+        workflow.setWorkflowName("test");
+        workflow.setConceptDoi("10.5281/zenodo.1");
+    }
+
+    @After
+    public void tearDown() {
+        orcid.close();
+    }
+
+    private WorkflowVersion version(int i) {
+        WorkflowVersion version = new WorkflowVersion();
+        version.setParent(workflow);
+        version.setName("version" + i);
+        version.setDoiURL("10.5281/zenodo." + (i + 1));
+        return version;
+    }
+
+    private List<ORCIDBulkExport.Export> versions(int count) {
+        List<ORCIDBulkExport.Export> exports = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            exports.add(new ORCIDBulkExport.Export(workflow, version(i)));
+        }
+        return exports;
+    }
+
+    private static List<String> putCodes(List<ORCIDBulkExport.Export> exports) {
+        return exports.stream().map(export -> export.getPutCode(USER_ID)).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testExportsInOneBulkRequest() {
+        List<ORCIDBulkExport.Export> exports = versions(3);
+        exports.add(new ORCIDBulkExport.Export(workflow, null));
+        ORCIDBulkExport.export(ORCID_ID, TOKEN, USER_ID, exports);
+
+        Assert.assertEquals(List.of("POST works"), orcid.calls());
+        Assert.assertEquals(4, orcid.works().size());
+        Assert.assertTrue(exports.stream().allMatch(export -> export.getError() == null));
+        // the put codes are recorded on the versions and the entry
+        Assert.assertEquals(List.of("1", "2", "3", "4"), putCodes(exports));
+        Assert.assertEquals("4", workflow.getUserIdToOrcidPutCode().get(USER_ID).orcidPutCode);
+        Assert.assertEquals(workflow.getEntryPath() + ":version1", orcid.works().get(1L).getWorkTitle().getTitle().getContent());
+    }
+
+    @Test
+    public void testLargeExportsAreBatched() {
+        List<ORCIDBulkExport.Export> exports = versions(ORCIDHelper.MAX_BULK_WORKS + 1);
+        ORCIDBulkExport.export(ORCID_ID, TOKEN, USER_ID, exports);
+
+        Assert.assertEquals(Collections.nCopies(2, "POST works"), orcid.calls());
+        Assert.assertEquals(ORCIDHelper.MAX_BULK_WORKS + 1, orcid.works().size());
+        Assert.assertTrue(exports.stream().allMatch(export -> export.getPutCode(USER_ID) != null && export.getError() == null));
+    }
+
+    @Test
+    public void testExistingWorksAreUpdatedOrLinked() throws Exception {
+        List<ORCIDBulkExport.Export> exports = versions(3);
+        // Dockstore has the put code of the first work
+        ORCIDBulkExport.export(ORCID_ID, TOKEN, USER_ID, exports.subList(0, 1));
+        // the second was deleted on ORCID since it was exported
+        exports.get(1).getVersion().get().getVersionMetadata().getUserIdToOrcidPutCode().put(USER_ID, new OrcidPutCode("99"));
+        // the third was added on ORCID without Dockstore
+        long existingPutCode = orcid.addWork(ORCIDHelper.getOrcidWork(workflow, exports.get(2).getVersion(), null));
+        orcid.calls().clear();
+
+        ORCIDBulkExport.export(ORCID_ID, TOKEN, USER_ID, exports);
+
+        Assert.assertEquals(List.of("PUT work", "PUT work", "POST works", "GET works", "PUT work"), orcid.calls());
+        Assert.assertTrue(exports.stream().allMatch(export -> export.getError() == null));
+        Assert.assertEquals("1", exports.get(0).getPutCode(USER_ID));
+        Assert.assertEquals("3", exports.get(1).getPutCode(USER_ID));
+        Assert.assertEquals(String.valueOf(existingPutCode), exports.get(2).getPutCode(USER_ID));
+        Assert.assertEquals(3, orcid.works().size());
+    }
+
+    @Test
+    public void testFailuresOnlyAffectTheirWorks() {
+        List<ORCIDBulkExport.Export> exports = versions(2);
+        ORCIDBulkExport.export(ORCID_ID, TOKEN, USER_ID, exports.subList(0, 1));
+        orcid.calls().clear();
+
+        // the update fails, the new work is still created
+        orcid.failNext("PUT work", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        ORCIDBulkExport.export(ORCID_ID, TOKEN, USER_ID, exports);
+        Assert.assertTrue(exports.get(0).getError().contains("failed on purpose"));
+        Assert.assertEquals("1", exports.get(0).getPutCode(USER_ID));
+        Assert.assertNull(exports.get(1).getError());
+        Assert.assertEquals("2", exports.get(1).getPutCode(USER_ID));
+
+        // the bulk request fails, so do all of its works
+        List<ORCIDBulkExport.Export> moreExports = versions(4).subList(2, 4);
+        orcid.failNext("POST works", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        ORCIDBulkExport.export(ORCID_ID, TOKEN, USER_ID, moreExports);
+        Assert.assertTrue(moreExports.stream().allMatch(export -> export.getPutCode(USER_ID) == null && export.getError().contains("failed on purpose")));
+        Assert.assertEquals(2, orcid.works().size());
+    }
+
+    @Test
+    public void testPutCodesByExternalId() throws Exception {
+        long putCode = orcid.addWork(ORCIDHelper.getOrcidWork(workflow, Optional.empty(), null));
+        Assert.assertEquals(Optional.of(putCode), Optional.ofNullable(ORCIDHelper.getPutCodesByExternalId(ORCID_ID, TOKEN).get(workflow.getConceptDoi())));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.dropwizard.db.ManagedDataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReadReplicaRoutingDataSourceTest {
+
+    private static final Duration MAX_LAG = Duration.ofSeconds(10);
+
+    private final SessionFactory sessionFactory = mock(SessionFactory.class);
+    private final Session session = mock(Session.class);
+    private final ManagedDataSource primary = mock(ManagedDataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+
+    @Before
+    public void setUp() throws SQLException {
+        when(session.getSessionFactory()).thenReturn(sessionFactory);
+        when(sessionFactory.getCurrentSession()).thenReturn(session);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        ReadReplicaRoutingDataSource.routeReadOnlyUnitsOfWork(sessionFactory);
+    }
+
+    @After
+    public void tearDown() {
+        ManagedSessionContext.unbind(sessionFactory);
+        ReadReplicaRoutingDataSource.routeReadOnlyUnitsOfWork(null);
+    }
+
+    /**
+     * @param lagSeconds seconds since the last transaction a streaming replica replayed committed, null if it has not replayed anything yet
+     * @return a replica whose connections are returned from getConnection() and also answer the replication lag query
+     */
+    private static ManagedDataSource replica(Double lagSeconds) throws SQLException {
+        return replica(true, false, lagSeconds);
+    }
+
+    /**
+     * @param streaming whether the WAL receiver of the replica is streaming from the primary
+     * @param replayedAll whether the replica has replayed everything it received
+     * @param lagSeconds seconds since the last transaction the replica replayed committed, null if it has not replayed anything yet
+     * @return a replica whose connections are returned from getConnection() and also answer the replication lag query
+     */
+    private static ManagedDataSource replica(boolean streaming, boolean replayedAll, Double lagSeconds) throws SQLException {
+        ManagedDataSource replica = mock(ManagedDataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(replica.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(ReadReplicaRoutingDataSource.REPLICATION_LAG_QUERY)).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean("in_recovery")).thenReturn(true);
+        when(resultSet.getBoolean("streaming")).thenReturn(streaming);
+        when(resultSet.getBoolean("replayed_all")).thenReturn(replayedAll);
+        when(resultSet.getDouble("lag_seconds")).thenReturn(lagSeconds == null ? 0 : lagSeconds);
+        when(resultSet.wasNull()).thenReturn(lagSeconds == null);
+        return replica;
+    }
+
+    private ReadReplicaRoutingDataSource routingDataSource(ManagedDataSource... replicas) {
+        ReadReplicaRoutingDataSource dataSource = new ReadReplicaRoutingDataSource(primary, List.of(replicas), MAX_LAG, Duration.ofSeconds(1));
+        dataSource.checkReplicationLag();
+        return dataSource;
+    }
+
+    private void bindSession(boolean readOnly) {
+        when(session.isDefaultReadOnly()).thenReturn(readOnly);
+        ManagedSessionContext.bind(session);
+    }
+
+    @Test
+    public void testReadOnlyUnitOfWorkUsesReplica() throws SQLException {
+        ManagedDataSource replica = replica(0.0);
+        ReadReplicaRoutingDataSource dataSource = routingDataSource(replica);
+        bindSession(true);
+        Assert.assertSame(replica.getConnection(), dataSource.getConnection());
+        Assert.assertEquals(List.of(0.0), dataSource.getReplicationLags());
+    }
+
+    @Test
+    public void testOtherConnectionsUsePrimary() throws SQLException {
+        ReadReplicaRoutingDataSource dataSource = routingDataSource(replica(0.0));
+        Assert.assertSame("outside of units of work", primaryConnection, dataSource.getConnection());
+        bindSession(false);
+        Assert.assertSame("in writable units of work", primaryConnection, dataSource.getConnection());
+        ReadReplicaRoutingDataSource.routeReadOnlyUnitsOfWork(null);
+        when(session.isDefaultReadOnly()).thenReturn(true);
+        Assert.assertSame("before routing starts", primaryConnection, dataSource.getConnection());
+    }
+
+    @Test
+    public void testLaggingReplicasAreSkipped() throws SQLException {
+        ManagedDataSource caughtUp = replica(1.0);
+        ReadReplicaRoutingDataSource dataSource = routingDataSource(replica(MAX_LAG.getSeconds() + 1.0), replica(null), caughtUp);
+        bindSession(true);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertSame(caughtUp.getConnection(), dataSource.getConnection());
+        }
+        Assert.assertSame("without usable replicas", primaryConnection, routingDataSource(replica(null)).getConnection());
+    }
+
+    @Test
+    public void testDisconnectedReplicasAreSkipped() throws SQLException {
+        // it has replayed everything it received before the connection to the primary was lost, and receives nothing more
+        ReadReplicaRoutingDataSource dataSource = routingDataSource(replica(false, true, MAX_LAG.getSeconds() - 1.0));
+        bindSession(true);
+        Assert.assertSame(primaryConnection, dataSource.getConnection());
+        Assert.assertEquals(1, dataSource.getReplicationLags().size());
+        Assert.assertNull(dataSource.getReplicationLags().get(0));
+
+        Assert.assertEquals("a streaming replica that has replayed everything is caught up", List.of(0.0),
+            routingDataSource(replica(true, true, MAX_LAG.getSeconds() + 1.0)).getReplicationLags());
+    }
+
+    @Test
+    public void testReplicasAreUsedInTurn() throws SQLException {
+        ManagedDataSource first = replica(0.0);
+        ManagedDataSource second = replica(0.0);
+        ReadReplicaRoutingDataSource dataSource = routingDataSource(first, second);
+        bindSession(true);
+        Connection connection = dataSource.getConnection();
+        Assert.assertNotSame(connection, dataSource.getConnection());
+        Assert.assertSame(connection, dataSource.getConnection());
+    }
+
+    @Test
+    public void testUnreachableReplicaFallsBackToPrimary() throws SQLException {
+        ManagedDataSource replica = replica(0.0);
+        ReadReplicaRoutingDataSource dataSource = routingDataSource(replica);
+        bindSession(true);
+        when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+        Assert.assertSame(primaryConnection, dataSource.getConnection());
+        Assert.assertEquals("the replica is skipped until it is checked again", 1, dataSource.getReplicationLags().size());
+        Assert.assertNull(dataSource.getReplicationLags().get(0));
+        Assert.assertSame(primaryConnection, dataSource.getConnection());
+    }
+
+    @Test
+    public void testReplicaReadsAreNotPutInTheCache() throws SQLException {
+        ManagedDataSource replica = replica(0.0);
+        ReadReplicaRoutingDataSource dataSource = routingDataSource(replica);
+        bindSession(false);
+        dataSource.getConnection();
+        verify(session, never()).setCacheMode(any());
+
+        // a transaction on the primary has committed and evicted the cached rows, which the replica may not have replayed yet
+        bindSession(true);
+        Assert.assertSame(replica.getConnection(), dataSource.getConnection());
+        verify(session).setCacheMode(CacheMode.GET);
+        Assert.assertFalse("what the replica read must not be put in the cache", CacheMode.GET.isPutEnabled());
+        Assert.assertTrue("cached rows are still read", CacheMode.GET.isGetEnabled());
+    }
+
+    @Test
+    public void testPrimaryReadsAreCached() throws SQLException {
+        ManagedDataSource replica = replica(0.0);
+        ReadReplicaRoutingDataSource dataSource = routingDataSource(replica);
+        bindSession(true);
+        when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+        Assert.assertSame(primaryConnection, dataSource.getConnection());
+        verify(session, never()).setCacheMode(any());
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.dockstore.common.Registry;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.RegistryRefreshConfig;
+import io.dockstore.webservice.core.Tag;
+import io.dockstore.webservice.core.Tool;
+import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.jdbi.EventDAO;
+import io.dockstore.webservice.jdbi.FileDAO;
+import io.dockstore.webservice.jdbi.FileFormatDAO;
+import io.dockstore.webservice.jdbi.TagDAO;
+import io.dockstore.webservice.jdbi.ToolDAO;
+import io.dockstore.webservice.jdbi.UserDAO;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import org.apache.commons.io.FileUtils;
+import org.apache.http.HttpStatus;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Refreshes tags from a stubbed registry. The registry holds back the first requests until as many as the executor has threads are
+ * in flight, so that the concurrency reached does not depend on timing.
+ */
+public class RegistryRefreshExecutorTest {
+
+    private static final int THREADS = 4;
+    private static final int TOOLS = 16;
+    private static final long CACHE_SIZE = 1_000_000;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private Cache cache;
+    private CountDownLatch arrivals = new CountDownLatch(0);
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    private final List<String> requests = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", this::handle);
+        server.start();
+        executor = Executors.newFixedThreadPool(THREADS);
+        cache = new Cache(Files.createTempDirectory("registry-refresh").toFile(), CACHE_SIZE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        RegistryRefreshExecutor.init(null, new RegistryRefreshConfig(), null);
+        server.stop(0);
+        executor.shutdownNow();
+        cache.close();
+        FileUtils.deleteDirectory(cache.directory());
+    }
+
+    /**
+     * Answers each repository's tag listing with an ETag, and with a 304 to a request conditional on that ETag
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        final int concurrent = concurrentRequests.incrementAndGet();
+        maxConcurrentRequests.accumulateAndGet(concurrent, Math::max);
+        try {
+            arrivals.countDown();
+            if (!arrivals.await(1, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Too few requests were made at once");
+            }
+            final String path = exchange.getRequestURI().getPath();
+            final String etag = '"' + path + '"';
+            final boolean unchanged = etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"));
+            synchronized (requests) {
+                requests.add((unchanged ? "304 " : "200 ") + path);
+            }
+            exchange.getResponseHeaders().add("ETag", etag);
+            if (unchanged) {
+                exchange.sendResponseHeaders(HttpStatus.SC_NOT_MODIFIED, -1);
+                return;
+            }
+            final byte[] body = ("{\"results\": [{\"name\": \"" + path + "\"}]}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(HttpStatus.SC_OK, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            concurrentRequests.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private static String path(Tool tool) {
+        return "/repositories/" + tool.getNamespace() + "/" + tool.getName() + "/tags";
+    }
+
+    private String url(Tool tool) {
+        return "http://localhost:" + server.getAddress().getPort() + path(tool);
+    }
+
+    private List<Tag> getTags(Tool tool) {
+        final Optional<String> listing = RegistryRefreshExecutor.getListing(Registry.DOCKER_HUB, url(tool));
+        final Tag tag = new Tag();
+        tag.setName(listing.orElseThrow());
+        return List.of(tag);
+    }
+
+    private static List<Tool> tools() {
+        final List<Tool> tools = new ArrayList<>();
+        for (int i = 0; i < TOOLS; i++) {
+            final Tool tool = new Tool();
+            tool.setRegistry(Registry.DOCKER_HUB.getDockerPath());
+            tool.setNamespace("namespace");
+            tool.setName("tool" + i);
+            // without a GitLab token, refreshing does not load files from source control
+            tool.setGitUrl("git@gitlab.com:namespace/tool" + i + ".git");
+            tools.add(tool);
+        }
+        return tools;
+    }
+
+    private static List<String> requests(String status, List<Tool> tools) {
+        return tools.stream().map(tool -> status + " " + path(tool)).collect(Collectors.toList());
+    }
+
+    private void refresh(List<Tool> tools) {
+        final List<CompletableFuture<List<Tag>>> tags = RegistryRefreshExecutor.getTags(tools, this::getTags);
+        for (int i = 0; i < tools.size(); i++) {
+            Assert.assertTrue(tags.get(i).join().get(0).getName().contains(path(tools.get(i))));
+        }
+    }
+
+    @Test
+    public void testTagsAreFetchedOneAtATimeWithoutExecutor() {
+        final RegistryRefreshConfig config = new RegistryRefreshConfig();
+        config.setRequestsPerSecond(0);
+        RegistryRefreshExecutor.init(null, config, null);
+        final List<Tool> tools = tools();
+
+        refresh(tools);
+        Assert.assertEquals(1, maxConcurrentRequests.get());
+        Assert.assertEquals("The tools are fetched in order", requests("200", tools), requests);
+    }
+
+    @Test
+    public void testTagsAreFetchedWithBoundedConcurrency() {
+        final RegistryRefreshConfig config = new RegistryRefreshConfig();
+        config.setRequestsPerSecond(0);
+        RegistryRefreshExecutor.init(executor, config, null);
+        arrivals = new CountDownLatch(THREADS);
+        final List<Tool> tools = tools();
+
+        refresh(tools);
+        Assert.assertEquals(THREADS, maxConcurrentRequests.get());
+        Assert.assertEquals("Each tool is fetched once", Set.copyOf(requests("200", tools)), Set.copyOf(requests));
+        Assert.assertEquals(TOOLS, requests.size());
+    }
+
+    @Test
+    public void testRequestsAreRateLimitedPerRegistry() {
+        final RegistryRefreshConfig config = new RegistryRefreshConfig();
+        config.setRequestsPerSecond(0);
+        RegistryRefreshExecutor.init(executor, config, null);
+        Assert.assertTrue(RegistryRefreshExecutor.getRateLimiter(Registry.QUAY_IO).isEmpty());
+
+        // one request a minute, so no test is slow enough for a second permit to be free
+        config.setRequestsPerSecond(1.0 / TimeUnit.MINUTES.toSeconds(1));
+        RegistryRefreshExecutor.init(executor, config, null);
+        RegistryRefreshExecutor.acquire(Registry.QUAY_IO);
+        Assert.assertFalse(RegistryRefreshExecutor.getRateLimiter(Registry.QUAY_IO).orElseThrow().tryAcquire());
+        // other registries have their own limits
+        RegistryRefreshExecutor.acquire(Registry.DOCKER_HUB);
+        Assert.assertFalse(RegistryRefreshExecutor.getRateLimiter(Registry.DOCKER_HUB).orElseThrow().tryAcquire());
+        Assert.assertTrue(RegistryRefreshExecutor.getRateLimiter(Registry.GITLAB).orElseThrow().tryAcquire());
+    }
+
+    @Test
+    public void testListingsAreRevalidated() {
+        final RegistryRefreshConfig config = new RegistryRefreshConfig();
+        config.setRequestsPerSecond(0);
+        RegistryRefreshExecutor.init(null, config, new OkHttpClient.Builder().cache(cache).build());
+        final List<Tool> tools = tools();
+
+        refresh(tools);
+        refresh(tools);
+        final List<String> expected = new ArrayList<>(requests("200", tools));
+        expected.addAll(requests("304", tools));
+        Assert.assertEquals(expected, requests);
+    }
+
+    @Test
+    public void testFailuresOnlyAffectTheirTools() {
+        RegistryRefreshExecutor.init(executor, new RegistryRefreshConfig(), null);
+        final List<Tool> tools = tools();
+        final List<CompletableFuture<List<Tag>>> tags = RegistryRefreshExecutor.getTags(tools, tool -> {
+            if (tool.getName().equals("tool1")) {
+                throw new IllegalStateException("failed on purpose");
+            }
+            return List.of();
+        });
+        try {
+            tags.get(1).join();
+            Assert.fail("Expected the tags of tool1 to fail");
+        } catch (CompletionException e) {
+            Assert.assertEquals("failed on purpose", e.getCause().getMessage());
+        }
+        Assert.assertEquals(TOOLS - 1, tags.stream().filter(future -> future != tags.get(1)).map(CompletableFuture::join).filter(List::isEmpty).count());
+    }
+
+    /**
+     * Refreshes every tool of a registry through {@link AbstractImageRegistry#refreshTools}, with the database stubbed out
+     */
+    @Test
+    public void testRefreshToolsFetchesTagsConcurrently() {
+        final RegistryRefreshConfig config = new RegistryRefreshConfig();
+        config.setRequestsPerSecond(0);
+        RegistryRefreshExecutor.init(executor, config, null);
+        arrivals = new CountDownLatch(THREADS);
+        final List<Tool> tools = tools();
+
+        final AbstractImageRegistry registry = mock(AbstractImageRegistry.class, CALLS_REAL_METHODS);
+        doReturn(new ArrayList<>(tools)).when(registry).getToolsFromNamespace(any());
+        doNothing().when(registry).updateAPIToolsWithBuildInformation(any());
+        doReturn(Registry.DOCKER_HUB).when(registry).getRegistry();
+        doAnswer(invocation -> getTags(invocation.getArgument(0))).when(registry).getTags(any());
+
+        final User user = new User();
+        user.setUsername("refresher");
+        final UserDAO userDAO = mock(UserDAO.class);
+        when(userDAO.findById(any())).thenReturn(user);
+        final ToolDAO toolDAO = mock(ToolDAO.class);
+        when(toolDAO.findByUserRegistryNamespace(anyLong(), any(), any())).thenReturn(new ArrayList<>());
+        final TagDAO tagDAO = mock(TagDAO.class);
+        final Map<Long, Tag> created = new HashMap<>();
+        when(tagDAO.create(any())).thenAnswer(invocation -> {
+            final long id = created.size() + 1L;
+            created.put(id, invocation.getArgument(0));
+            return id;
+        });
+        when(tagDAO.findById(anyLong())).thenAnswer(invocation -> created.get(invocation.<Long>getArgument(0)));
+
+        final List<Tool> refreshed = registry.refreshTools(1, userDAO, toolDAO, tagDAO, mock(FileDAO.class), mock(FileFormatDAO.class), null, null, null,
+            "namespace", mock(EventDAO.class), "test");
+        Assert.assertEquals(THREADS, maxConcurrentRequests.get());
+        Assert.assertEquals(TOOLS, refreshed.size());
+        for (Tool tool : refreshed) {
+            Assert.assertEquals(1, tool.getWorkflowVersions().size());
+            Assert.assertTrue(tool.getWorkflowVersions().iterator().next().getName().contains(path(tool)));
+        }
+        Assert.assertEquals(Set.copyOf(requests("200", tools)), Set.copyOf(requests));
+    }
+}
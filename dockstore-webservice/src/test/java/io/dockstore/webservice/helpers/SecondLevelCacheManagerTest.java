@@ -0,0 +1,175 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.dropwizard.db.DataSourceFactory;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.cache.CacheManager;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.TimestampsRegion;
+import org.hibernate.engine.spi.ActionQueue;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SecondLevelCacheManagerTest {
+
+    private static final String LABEL = "io.dockstore.webservice.core.Label";
+    private static final String ENTRY_LABELS = "io.dockstore.webservice.core.Tool.labels";
+
+    private SessionFactoryImplementor sessionFactory;
+    private CacheImplementor cache;
+    private EntityPersister labelPersister;
+    private EventSource session;
+    private SecondLevelCacheManager manager;
+
+    @Before
+    public void setUp() {
+        sessionFactory = mock(SessionFactoryImplementor.class);
+        when(sessionFactory.unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getSessionFactoryOptions()).thenReturn(mock(SessionFactoryOptions.class));
+        cache = mock(CacheImplementor.class);
+        when(sessionFactory.getCache()).thenReturn(cache);
+
+        labelPersister = mock(EntityPersister.class);
+        when(labelPersister.hasCache()).thenReturn(true);
+        when(labelPersister.getEntityName()).thenReturn(LABEL);
+        when(labelPersister.getQuerySpaces()).thenReturn(new String[] {"label"});
+        final EntityPersister uncachedPersister = mock(EntityPersister.class);
+        when(uncachedPersister.getQuerySpaces()).thenReturn(new String[] {"tool"});
+        final CollectionPersister labelsPersister = mock(CollectionPersister.class);
+        when(labelsPersister.hasCache()).thenReturn(true);
+        when(labelsPersister.getRole()).thenReturn(ENTRY_LABELS);
+        when(labelsPersister.getCollectionSpaces()).thenReturn(new String[] {"entry_label"});
+        final MetamodelImplementor metamodel = mock(MetamodelImplementor.class);
+        when(metamodel.entityPersisters()).thenReturn(Map.of(LABEL, labelPersister, "io.dockstore.webservice.core.Tool", uncachedPersister));
+        when(metamodel.collectionPersisters()).thenReturn(Map.of(ENTRY_LABELS, labelsPersister));
+        when(sessionFactory.getMetamodel()).thenReturn(metamodel);
+
+        session = mock(EventSource.class);
+        when(session.getActionQueue()).thenReturn(mock(ActionQueue.class));
+        manager = new SecondLevelCacheManager(sessionFactory, new DataSourceFactory());
+        manager.findCachedTables();
+    }
+
+    @Test
+    public void testBulkStatementsEvictRegions() {
+        // e.g. DELETE FROM entry_label, which names no rows
+        manager.onTablesChanged(session, new String[] {"tool", "entry_label"});
+        Assert.assertEquals(Set.of("cr|" + ENTRY_LABELS), manager.getPendingKeys(session));
+        manager.onTablesChanged(session, new String[] {"label"});
+        Assert.assertEquals(Set.of("cr|" + ENTRY_LABELS, "r|" + LABEL), manager.getPendingKeys(session));
+    }
+
+    @Test
+    public void testFlushedEntitiesEvictRows() {
+        manager.onEntityChange(session, labelPersister, 1L);
+        // the flush of the label's update
+        manager.onTablesChanged(session, new String[] {"label"});
+        Assert.assertEquals(Set.of("e|" + LABEL + "|1"), manager.getPendingKeys(session));
+        // a bulk statement later in the same transaction
+        manager.onTablesChanged(session, new String[] {"label"});
+        Assert.assertEquals(Set.of("e|" + LABEL + "|1", "r|" + LABEL), manager.getPendingKeys(session));
+    }
+
+    @Test
+    public void testUncachedTablesAreNotSent() {
+        manager.onTablesChanged(session, new String[] {"tool"});
+        Assert.assertTrue(manager.getPendingKeys(session).isEmpty());
+    }
+
+    @Test
+    public void testEvictRegionsChangedByOtherReplicas() {
+        manager.evict("other\ncr|" + ENTRY_LABELS + "\nr|" + LABEL + "\ne|" + LABEL + "|2");
+        verify(cache).evictCollectionData(ENTRY_LABELS);
+        verify(cache).evictEntityData(LABEL);
+        verify(cache).evictEntityData(LABEL, 2L);
+    }
+
+    @Test
+    public void testPayloadsFitInANotification() {
+        Set<String> keys = new LinkedHashSet<>();
+        for (long id = 0; id < 1000; id++) {
+            keys.add("e|io.dockstore.webservice.core.Label|" + id);
+        }
+        List<String> payloads = SecondLevelCacheManager.toPayloads("node", keys);
+        Assert.assertTrue(payloads.size() > 1);
+        Set<String> received = new LinkedHashSet<>();
+        for (String payload : payloads) {
+            Assert.assertTrue("Postgres rejects payloads of 8000 bytes or more", payload.length() < 8000);
+            String[] lines = payload.split("\n");
+            Assert.assertEquals("every payload names its sender", "node", lines[0]);
+            received.addAll(List.of(lines).subList(1, lines.length));
+        }
+        Assert.assertEquals(List.copyOf(keys), List.copyOf(received));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testHitRatioGauges() {
+        final JCacheRegionFactory regionFactory = mock(JCacheRegionFactory.class);
+        final CacheManager cacheManager = mock(CacheManager.class);
+        when(regionFactory.getCacheManager()).thenReturn(cacheManager);
+        when(cache.getRegionFactory()).thenReturn(regionFactory);
+        final TimestampsRegion timestampsRegion = mock(TimestampsRegion.class);
+        when(timestampsRegion.getName()).thenReturn("default-update-timestamps-region");
+        final TimestampsCache timestampsCache = mock(TimestampsCache.class);
+        when(timestampsCache.getRegion()).thenReturn(timestampsRegion);
+        when(cache.getTimestampsCache()).thenReturn(timestampsCache);
+        when(cache.getCacheRegionNames()).thenReturn(Set.of("label", "default-update-timestamps-region"));
+        final com.github.benmanes.caffeine.cache.Cache<Object, Object> labels = Caffeine.newBuilder().recordStats().build();
+        final javax.cache.Cache<Object, Object> labelRegion = mock(javax.cache.Cache.class);
+        when(labelRegion.unwrap(com.github.benmanes.caffeine.cache.Cache.class)).thenReturn(labels);
+        when(cacheManager.getCache("label")).thenReturn(labelRegion);
+
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        SecondLevelCacheManager.registerMetrics(sessionFactory, metricRegistry);
+        Assert.assertEquals(Set.of("hibernate.cache.label.hit-ratio"), metricRegistry.getGauges().keySet());
+        final Gauge<Double> hitRatio = metricRegistry.getGauges().get("hibernate.cache.label.hit-ratio");
+        Assert.assertTrue("no reads yet", hitRatio.getValue().isNaN());
+        labels.getIfPresent(1L);
+        labels.put(1L, "label");
+        labels.getIfPresent(1L);
+        labels.getIfPresent(1L);
+        labels.getIfPresent(1L);
+        Assert.assertEquals(0.75, hitRatio.getValue(), 0);
+    }
+
+    @Test
+    public void testSmallPayload() {
+        Assert.assertEquals(List.of("node\nq|organization\nc|io.dockstore.webservice.core.Tool.labels|1"),
+            SecondLevelCacheManager.toPayloads("node", new LinkedHashSet<>(List.of("q|organization", "c|io.dockstore.webservice.core.Tool.labels|1"))));
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.VirtualThreadConfig;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.server.DefaultServerFactory;
+import io.dropwizard.server.SimpleServerFactory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class VirtualThreadsTest {
+
+    private static final int MAX_CONCURRENCY = 3;
+    private static final int TASKS = 20;
+
+    @After
+    public void tearDown() {
+        VirtualThreads.init(new VirtualThreadConfig());
+    }
+
+    private static VirtualThreadConfig enabled() {
+        final VirtualThreadConfig config = new VirtualThreadConfig();
+        config.setEnabled(true);
+        return config;
+    }
+
+    @Test
+    public void testEnabledOnlyWhenSupported() {
+        Assert.assertFalse(VirtualThreads.init(new VirtualThreadConfig()));
+        Assert.assertEquals(VirtualThreads.isSupported(), VirtualThreads.init(enabled()));
+        Assert.assertEquals(VirtualThreads.isSupported(), VirtualThreads.isEnabled());
+        Assert.assertNull("Pinned threads are only traced when asked", System.getProperty("jdk.tracePinnedThreads"));
+    }
+
+    /**
+     * Runs on platform threads, so that it runs on any Java version
+     */
+    @Test
+    public void testBoundedExecutorLimitsConcurrency() throws Exception {
+        final ExecutorService executor = new VirtualThreads.BoundedThreadPerTaskExecutor(Thread::new, MAX_CONCURRENCY);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            final int task = i;
+            futures.add(executor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(10);
+                running.decrementAndGet();
+                return task;
+            }));
+        }
+        for (int i = 0; i < TASKS; i++) {
+            Assert.assertEquals(i, futures.get(i).get(1, TimeUnit.MINUTES).intValue());
+        }
+        Assert.assertEquals(MAX_CONCURRENCY, maxRunning.get());
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        Assert.assertTrue(executor.isTerminated());
+        try {
+            executor.execute(() -> { });
+            Assert.fail("The executor is shut down");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testShutdownNowInterruptsTasks() throws Exception {
+        final ExecutorService executor = new VirtualThreads.BoundedThreadPerTaskExecutor(Thread::new, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final Future<?> blocked = executor.submit(() -> {
+            started.countDown();
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            return null;
+        });
+        // waits for the only permit
+        executor.submit(() -> { });
+        started.await(1, TimeUnit.MINUTES);
+        executor.shutdownNow();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        Assert.assertTrue(blocked.isDone());
+    }
+
+    @Test
+    public void testVirtualThreadExecutor() throws Exception {
+        Assume.assumeTrue("Virtual threads need Java 21 or later", VirtualThreads.isSupported());
+        final ExecutorService executor = VirtualThreads.newExecutor("test-", MAX_CONCURRENCY);
+        final Future<Boolean> isVirtual = executor.submit(() -> (Boolean)Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+        Assert.assertTrue(isVirtual.get(1, TimeUnit.MINUTES));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+
+    @Test
+    public void testServerThreadPool() {
+        final DockstoreServerFactory factory = new DockstoreServerFactory();
+        ThreadPool threadPool = factory.createThreadPool(new MetricRegistry());
+        Assert.assertFalse(threadPool instanceof DockstoreServerFactory.VirtualThreadPool);
+        Assert.assertEquals(factory.getMaxThreads(), ((QueuedThreadPool)threadPool).getMaxThreads());
+
+        if (VirtualThreads.init(enabled())) {
+            threadPool = factory.createThreadPool(new MetricRegistry());
+            Assert.assertTrue(threadPool instanceof DockstoreServerFactory.VirtualThreadPool);
+            Assert.assertEquals(factory.getMaxThreads(), ((QueuedThreadPool)threadPool).getMaxThreads());
+        }
+    }
+
+    @Test
+    public void testServerTypeDefaultsToDockstore() throws IOException {
+        final ObjectMapper mapper = Jackson.newObjectMapper(new YAMLFactory());
+        Assert.assertEquals(DockstoreServerFactory.class, new DockstoreWebserviceConfiguration().getServerFactory().getClass());
+        Assert.assertEquals(DockstoreServerFactory.class,
+            mapper.readValue("server:\n  maxThreads: 64\n", DockstoreWebserviceConfiguration.class).getServerFactory().getClass());
+        Assert.assertEquals(DockstoreServerFactory.class,
+            mapper.readValue("server:\n  type: dockstore\n", DockstoreWebserviceConfiguration.class).getServerFactory().getClass());
+        // other types are still honoured
+        Assert.assertEquals(DefaultServerFactory.class,
+            mapper.readValue("server:\n  type: default\n", DockstoreWebserviceConfiguration.class).getServerFactory().getClass());
+        Assert.assertEquals(SimpleServerFactory.class,
+            mapper.readValue("server:\n  type: simple\n", DockstoreWebserviceConfiguration.class).getServerFactory().getClass());
+    }
+}
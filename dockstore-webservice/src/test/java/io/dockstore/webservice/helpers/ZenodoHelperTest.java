@@ -9,11 +9,205 @@ import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.core.BioWorkflow;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowVersion;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipOutputStream;
+import org.apache.http.HttpStatus;
+import org.junit.After;
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Test;
 
 public class ZenodoHelperTest {
 
+    private static final String WORKFLOW_URL = "https://dockstore.org/workflows/github.com/DataBiosphere/topmed-workflows/UM_variant_caller_wdl";
+    private static final String GA4GH_BASE_URL = "https://dockstore.org/api/api/ga4gh/v2/tools/";
+    private static final String DOCKSTORE_URL = "https://dockstore.org";
+
+    private FakeZenodoServer zenodo;
+    private File zipFile;
+
+    @Before
+    public void setup() throws IOException {
+        zenodo = new FakeZenodoServer();
+        final Path zip = Files.createTempFile("doi", ".zip");
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(zip))) {
+            final List<String> paths = new ArrayList<>();
+            EntryVersionHelper.writeZipEntry(zipOutputStream, paths, zip, "/Dockstore.wdl", "version 1.0");
+            EntryVersionHelper.writeZipEntry(zipOutputStream, paths, zip, "/tasks/task.wdl", "version 1.0");
+        }
+        zipFile = zip.toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        zenodo.close();
+        Files.deleteIfExists(zipFile.toPath());
+    }
+
+    private static Workflow workflow() {
+        final Workflow workflow = new BioWorkflow();
+        workflow.setSourceControl(SourceControl.GITHUB);
+        workflow.setOrganization("DataBiosphere");
+        workflow.setRepository("topmed-workflows");
+        workflow.setWorkflowName("UM_variant_caller_wdl");
+        workflow.setDescriptorType(DescriptorLanguage.WDL);
+        return workflow;
+    }
+
+    private static WorkflowVersion version(Workflow workflow, String name) {
+        final WorkflowVersion workflowVersion = new WorkflowVersion();
+        workflowVersion.setWorkflowPath("/Dockstore.wdl");
+        workflowVersion.setName(name);
+        workflow.addWorkflowVersion(workflowVersion);
+        return workflowVersion;
+    }
+
+    private static ZenodoHelper.ZenodoVersion describe(Workflow workflow, WorkflowVersion workflowVersion) {
+        return ZenodoHelper.describeVersion(workflow, workflowVersion, WORKFLOW_URL, GA4GH_BASE_URL);
+    }
+
+    private ZenodoHelper.ZenodoDraft draft(Workflow workflow, WorkflowVersion workflowVersion) {
+        final ZenodoHelper.ZenodoVersion zenodoVersion = describe(workflow, workflowVersion);
+        return ZenodoHelper.reserveDoi(zenodo.client(), ZenodoHelper.createDeposition(zenodo.client(), zenodoVersion), zenodoVersion);
+    }
+
+    /**
+     * Runs the steps that the DOI service runs, without the database
+     */
+    private ZenodoHelper.ZenodoDoiResult registerDoi(Workflow workflow, WorkflowVersion workflowVersion) {
+        final ZenodoHelper.ZenodoDraft draft = draft(workflow, workflowVersion);
+        ZenodoHelper.replaceFiles(zenodo.client(), draft.getDepositionId(), zipFile, ZenodoHelper.createZipFileName(workflow, workflowVersion));
+        final ZenodoHelper.ZenodoDoiResult result = ZenodoHelper.publishDeposit(zenodo.client(), draft, describe(workflow, workflowVersion), DOCKSTORE_URL);
+        workflowVersion.setDoiURL(result.getDoiUrl());
+        workflow.setConceptDoi(result.getConceptDoi());
+        return result;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRegisterNewDoi() {
+        final Workflow workflow = workflow();
+        final WorkflowVersion workflowVersion = version(workflow, "1.32.0");
+
+        final ZenodoHelper.ZenodoDoiResult result = registerDoi(workflow, workflowVersion);
+        Assert.assertEquals("10.5072-zenodo.1", result.getDoiAlias());
+        Assert.assertEquals("10.5072/zenodo.1", result.getDoiUrl());
+        Assert.assertEquals("10.5072/zenodo.1", result.getConceptDoi());
+        Assert.assertEquals(List.of("POST depositions", "PUT depositions", "GET depositions", "POST files", "GET depositions", "PUT depositions", "POST publish"),
+            zenodo.calls());
+
+        final List<Map<String, Object>> files = zenodo.files(1);
+        Assert.assertEquals(1, files.size());
+        Assert.assertEquals("github.com-DataBiosphere-topmed-workflows-UM_variant_caller_wdl_1.32.0.zip", files.get(0).get("filename"));
+        Assert.assertEquals(List.of("Dockstore.wdl", "tasks/", "tasks/task.wdl"), zenodo.zipEntries((String)files.get(0).get("id")));
+        final Map<String, Object> metadata = (Map<String, Object>)zenodo.deposition(1).get("metadata");
+        Assert.assertEquals("1.32.0", metadata.get("version"));
+        Assert.assertTrue(metadata.get("related_identifiers").toString().contains(DOCKSTORE_URL + "/aliases/workflow-versions/10.5072-zenodo.1"));
+    }
+
+    @Test
+    public void testNewVersionReplacesCopiedFiles() {
+        final Workflow workflow = workflow();
+        registerDoi(workflow, version(workflow, "1.32.0"));
+        zenodo.calls().clear();
+
+        final ZenodoHelper.ZenodoDoiResult result = registerDoi(workflow, version(workflow, "1.33.0"));
+        Assert.assertEquals("10.5072-zenodo.2", result.getDoiAlias());
+        Assert.assertEquals("10.5072/zenodo.2", result.getDoiUrl());
+        Assert.assertEquals("the concept DOI is kept", "10.5072/zenodo.1", result.getConceptDoi());
+        Assert.assertEquals(List.of("POST newversion", "GET depositions", "GET depositions", "DELETE files", "POST files", "GET depositions", "PUT depositions",
+            "POST publish"), zenodo.calls());
+        Assert.assertEquals(1, zenodo.files(2).size());
+        Assert.assertEquals("github.com-DataBiosphere-topmed-workflows-UM_variant_caller_wdl_1.33.0.zip", zenodo.files(2).get(0).get("filename"));
+    }
+
+    @Test
+    public void testStepsCanBeResumed() {
+        final Workflow workflow = workflow();
+        final WorkflowVersion workflowVersion = version(workflow, "1.32.0");
+        final String fileName = ZenodoHelper.createZipFileName(workflow, workflowVersion);
+        final ZenodoHelper.ZenodoDraft draft = draft(workflow, workflowVersion);
+
+        // an upload that failed, e.g. after Zenodo stored the file, is repeated without leaving two files behind
+        ZenodoHelper.replaceFiles(zenodo.client(), draft.getDepositionId(), zipFile, fileName);
+        zenodo.failNext("POST files", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        try {
+            ZenodoHelper.replaceFiles(zenodo.client(), draft.getDepositionId(), zipFile, fileName);
+            fail("The upload should have failed");
+        } catch (CustomWebApplicationException ex) {
+            assertTrue(ex.getErrorMessage().contains("Could not create files"));
+        }
+        ZenodoHelper.replaceFiles(zenodo.client(), draft.getDepositionId(), zipFile, fileName);
+        Assert.assertEquals(1, zenodo.files(draft.getDepositionId()).size());
+
+        // publishing again, e.g. when the webservice stopped before recording the step, returns the DOI that was published
+        final ZenodoHelper.ZenodoDoiResult result = ZenodoHelper.publishDeposit(zenodo.client(), draft, describe(workflow, workflowVersion), DOCKSTORE_URL);
+        final ZenodoHelper.ZenodoDoiResult republished = ZenodoHelper.publishDeposit(zenodo.client(), draft, describe(workflow, workflowVersion), DOCKSTORE_URL);
+        Assert.assertEquals(result.getDoiUrl(), republished.getDoiUrl());
+        Assert.assertEquals(result.getConceptDoi(), republished.getConceptDoi());
+        Assert.assertEquals(1, zenodo.calls().stream().filter("POST publish"::equals).count());
+    }
+
+    @Test
+    public void testReservingTheDoiCanBeRepeated() {
+        final Workflow workflow = workflow();
+        final WorkflowVersion workflowVersion = version(workflow, "1.32.0");
+        final ZenodoHelper.ZenodoVersion zenodoVersion = describe(workflow, workflowVersion);
+
+        // the deposition was recorded, but the webservice stopped before recording the reserved DOI
+        final int depositionId = ZenodoHelper.createDeposition(zenodo.client(), zenodoVersion);
+        final ZenodoHelper.ZenodoDraft draft = ZenodoHelper.reserveDoi(zenodo.client(), depositionId, zenodoVersion);
+        final ZenodoHelper.ZenodoDraft again = ZenodoHelper.reserveDoi(zenodo.client(), depositionId, zenodoVersion);
+        Assert.assertEquals(depositionId, again.getDepositionId());
+        Assert.assertEquals(draft.getDoiAlias(), again.getDoiAlias());
+        Assert.assertEquals(1, zenodo.calls().stream().filter("POST depositions"::equals).count());
+    }
+
+    @Test
+    public void testInterruptedNewVersionIsReused() {
+        final Workflow workflow = workflow();
+        registerDoi(workflow, version(workflow, "1.32.0"));
+        final ZenodoHelper.ZenodoVersion zenodoVersion = describe(workflow, version(workflow, "1.33.0"));
+
+        // the webservice stopped before recording the new version, Zenodo returns it when asked again
+        final int depositionId = ZenodoHelper.createDeposition(zenodo.client(), zenodoVersion);
+        Assert.assertEquals(depositionId, ZenodoHelper.createDeposition(zenodo.client(), zenodoVersion));
+        Assert.assertEquals(ZenodoHelper.reserveDoi(zenodo.client(), depositionId, zenodoVersion).getDoiAlias(),
+            ZenodoHelper.reserveDoi(zenodo.client(), depositionId, zenodoVersion).getDoiAlias());
+    }
+
+    @Test
+    public void testNewVersionOfSomeoneElsesDoi() {
+        final Workflow workflow = workflow();
+        registerDoi(workflow, version(workflow, "1.32.0"));
+        zenodo.failNext("POST newversion", HttpStatus.SC_FORBIDDEN);
+        try {
+            ZenodoHelper.createDeposition(zenodo.client(), describe(workflow, version(workflow, "1.33.0")));
+            fail("Should not be able to create a new version of a deposition without permission");
+        } catch (CustomWebApplicationException ex) {
+            assertTrue(ex.getErrorMessage().contains("Please ask the person who created DOI 10.5072/zenodo.1"));
+        }
+    }
+
+    @Test
+    public void testOneDoiPerVersion() {
+        final Workflow workflow = workflow();
+        final WorkflowVersion workflowVersion = version(workflow, "1.32.0");
+        registerDoi(workflow, workflowVersion);
+        try {
+            ZenodoHelper.checkForExistingDOIForWorkflowVersion(workflowVersion);
+            fail("Should not be able to register a second DOI for a version");
+        } catch (CustomWebApplicationException ex) {
+            Assert.assertEquals(HttpStatus.SC_METHOD_NOT_ALLOWED, ex.getResponse().getStatus());
+        }
+    }
+
     @Test
     public void testcreateWorkflowTrsUrl() {
         final Workflow workflow = new BioWorkflow();
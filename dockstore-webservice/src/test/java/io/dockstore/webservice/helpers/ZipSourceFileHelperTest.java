@@ -4,10 +4,20 @@ import static org.junit.Assert.fail;
 
 import io.dockstore.common.DescriptorLanguage;
 import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
 import io.dropwizard.testing.ResourceHelpers;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.apache.http.HttpStatus;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -18,6 +28,30 @@ public class ZipSourceFileHelperTest {
      * Contains workflow in folder
      */
     private static final String WHALESAY_ZIP_PATH = ResourceHelpers.resourceFilePath("whalesayinsubdir.zip");
+    private static final String DOCKSTORE_YML = "dockstoreVersion: 1.0\nclass: workflow\nprimaryDescriptor: Dockstore.wdl\n";
+    private static final String WDL = "version 1.0\nworkflow hello {\n}\n";
+
+    private static byte[] zip(Map<String, String> files) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                zipOutputStream.putNextEntry(new ZipEntry(file.getKey()));
+                zipOutputStream.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+                zipOutputStream.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void assertRejected(byte[] zip, DockstoreWebserviceConfiguration.LimitConfig limitConfig, int status, String message) {
+        try {
+            ZipSourceFileHelper.sourceFilesFromInputStream(new ByteArrayInputStream(zip), DescriptorLanguage.FileType.DOCKSTORE_WDL, limitConfig);
+            fail("Expected the zip to be rejected");
+        } catch (CustomWebApplicationException ex) {
+            Assert.assertEquals(status, ex.getResponse().getStatus());
+            Assert.assertTrue(ex.getErrorMessage(), ex.getErrorMessage().startsWith(message));
+        }
+    }
 
     @Test
     public void validateZip() throws IOException {
@@ -68,4 +102,56 @@ public class ZipSourceFileHelperTest {
             // This is expected
         }
     }
+
+    @Test
+    public void sourceFilesFromInputStream() throws IOException {
+        try (InputStream inputStream = new FileInputStream(SMART_SEQ_ZIP_PATH); ZipFile smartSeqZipFile = new ZipFile(new File(SMART_SEQ_ZIP_PATH))) {
+            final ZipSourceFileHelper.SourceFiles streamed = ZipSourceFileHelper.sourceFilesFromInputStream(inputStream, DescriptorLanguage.FileType.DOCKSTORE_WDL);
+            final ZipSourceFileHelper.SourceFiles sourceFiles = ZipSourceFileHelper.sourceFilesFromZip(smartSeqZipFile, DescriptorLanguage.FileType.DOCKSTORE_WDL);
+            Assert.assertEquals("SmartSeq2SingleSample.wdl", streamed.getPrimaryDescriptor().getPath());
+            Assert.assertEquals(sourceFiles.getAllDescriptors().size(), streamed.getAllDescriptors().size());
+            for (int i = 0; i < sourceFiles.getAllDescriptors().size(); i++) {
+                Assert.assertEquals(sourceFiles.getAllDescriptors().get(i).getAbsolutePath(), streamed.getAllDescriptors().get(i).getAbsolutePath());
+                Assert.assertEquals(sourceFiles.getAllDescriptors().get(i).getType(), streamed.getAllDescriptors().get(i).getType());
+                Assert.assertEquals(sourceFiles.getAllDescriptors().get(i).getContent(), streamed.getAllDescriptors().get(i).getContent());
+            }
+        }
+    }
+
+    @Test
+    public void sourceFilesFromInputStreamLimits() throws IOException {
+        final byte[] zip = zip(Map.of(".dockstore.yml", DOCKSTORE_YML, "Dockstore.wdl", WDL));
+        final DockstoreWebserviceConfiguration.LimitConfig limitConfig = new DockstoreWebserviceConfiguration.LimitConfig();
+        Assert.assertEquals(2, ZipSourceFileHelper.sourceFilesFromInputStream(new ByteArrayInputStream(zip), DescriptorLanguage.FileType.DOCKSTORE_WDL, limitConfig)
+            .getAllDescriptors().size());
+
+        limitConfig.setZipEntriesLimit(1);
+        assertRejected(zip, limitConfig, HttpStatus.SC_BAD_REQUEST, "Too many entries");
+
+        limitConfig.setZipEntriesLimit(2);
+        limitConfig.setZipSizeLimit(zip.length - 1L);
+        assertRejected(zip, limitConfig, HttpStatus.SC_REQUEST_TOO_LONG, "Request body is too large");
+
+        limitConfig.setZipSizeLimit(zip.length);
+        limitConfig.setZipUncompressedSizeLimit(DOCKSTORE_YML.length());
+        assertRejected(zip, limitConfig, HttpStatus.SC_BAD_REQUEST, "Zip contents too large");
+    }
+
+    @Test
+    public void sourceFilesFromInputStreamZipBomb() throws IOException {
+        // a megabyte of nothing compresses to about a kilobyte, it is rejected by its ratio long before the end of it
+        final byte[] zip = zip(Map.of("bomb.txt", " ".repeat(1_000_000), ".dockstore.yml", DOCKSTORE_YML, "Dockstore.wdl", WDL));
+        final DockstoreWebserviceConfiguration.LimitConfig limitConfig = new DockstoreWebserviceConfiguration.LimitConfig();
+        limitConfig.setZipUncompressedSizeLimit(Long.MAX_VALUE);
+        assertRejected(zip, limitConfig, HttpStatus.SC_BAD_REQUEST, "Zip contents too compressed");
+    }
+
+    @Test
+    public void sourceFilesFromInputStreamInvalidEntries() throws IOException {
+        final DockstoreWebserviceConfiguration.LimitConfig limitConfig = new DockstoreWebserviceConfiguration.LimitConfig();
+        assertRejected(zip(Map.of("../Dockstore.wdl", WDL)), limitConfig, HttpStatus.SC_BAD_REQUEST, "Invalid entry");
+        assertRejected(zip(Map.of("/etc/Dockstore.wdl", WDL)), limitConfig, HttpStatus.SC_BAD_REQUEST, "Invalid entry");
+        assertRejected("not a zip".getBytes(StandardCharsets.UTF_8), limitConfig, HttpStatus.SC_BAD_REQUEST, "Error reading request");
+        assertRejected(zip(Map.of("Dockstore.wdl", WDL)), limitConfig, HttpStatus.SC_BAD_REQUEST, "Missing .dockstore.yml");
+    }
 }
@@ -0,0 +1,93 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.dockstore.webservice.languages;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ImportGraphTest {
+
+    /**
+     * Files are represented by their imports, one absolute path per line
+     */
+    private static ImportGraph build(Map<String, String> files, AtomicInteger scans) {
+        return ImportGraph.build("/main.wdl", files.get("/main.wdl"), path -> Optional.ofNullable(files.get(path)), (path, content) -> {
+            scans.incrementAndGet();
+            return content.isEmpty() ? Collections.emptyList() : Arrays.asList(content.split("\n"));
+        });
+    }
+
+    @Test
+    public void testSharedImportsAreScannedOnce() {
+        // a wide diamond: every file in the middle imports the same shared file
+        Map<String, String> files = new HashMap<>();
+        List<String> middle = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            middle.add("/middle" + i + ".wdl");
+            files.put("/middle" + i + ".wdl", "/shared.wdl");
+        }
+        files.put("/main.wdl", String.join("\n", middle));
+        files.put("/shared.wdl", "/leaf.wdl");
+        files.put("/leaf.wdl", "");
+        AtomicInteger scans = new AtomicInteger();
+        ImportGraph graph = build(files, scans);
+        Assert.assertEquals(files.size(), scans.get());
+        Assert.assertEquals(files.keySet(), graph.getFiles());
+        Assert.assertEquals("/main.wdl", graph.getRoot());
+        Assert.assertEquals(List.of("/leaf.wdl"), graph.getImports("/shared.wdl"));
+        Assert.assertTrue(graph.getCycles().isEmpty());
+        Assert.assertTrue(graph.getRecursiveImports().isEmpty());
+    }
+
+    @Test
+    public void testEveryCycleIsReported() {
+        Map<String, String> files = new HashMap<>();
+        files.put("/main.wdl", "/first.wdl\n/self.wdl\n/a.wdl\n/missing.wdl");
+        files.put("/first.wdl", "/main.wdl");
+        files.put("/self.wdl", "/self.wdl");
+        files.put("/a.wdl", "/b.wdl");
+        files.put("/b.wdl", "/c.wdl");
+        files.put("/c.wdl", "/a.wdl");
+        ImportGraph graph = build(files, new AtomicInteger());
+        Assert.assertEquals(List.of(List.of("/main.wdl", "/first.wdl"), List.of("/self.wdl"), List.of("/a.wdl", "/b.wdl", "/c.wdl")), graph.getCycles());
+        // the primary descriptor is not named, the file found to import it again is
+        Assert.assertEquals(List.of("/first.wdl", "/self.wdl", "/a.wdl"), graph.getRecursiveImports());
+        Assert.assertEquals(Collections.singleton("/missing.wdl"), graph.getMissingImports());
+    }
+
+    @Test
+    public void testDeepChainDoesNotOverflow() {
+        Map<String, String> files = new HashMap<>();
+        final int depth = 100_000;
+        files.put("/main.wdl", "/0.wdl");
+        for (int i = 0; i < depth; i++) {
+            files.put("/" + i + ".wdl", "/" + (i + 1) + ".wdl");
+        }
+        files.put("/" + depth + ".wdl", "/0.wdl");
+        ImportGraph graph = build(files, new AtomicInteger());
+        Assert.assertEquals(1, graph.getCycles().size());
+        Assert.assertEquals(depth + 1, graph.getCycles().get(0).size());
+        Assert.assertEquals(List.of("/0.wdl"), graph.getRecursiveImports());
+    }
+}
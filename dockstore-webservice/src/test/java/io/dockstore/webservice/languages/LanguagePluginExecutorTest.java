@@ -0,0 +1,203 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.dockstore.webservice.languages;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dockstore.common.DescriptorLanguage.FileType;
+import io.dockstore.language.MinimalLanguageInterface.GenericFileType;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.LanguagePluginConfig;
+import io.dockstore.webservice.core.SourceFile;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpStatus;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LanguagePluginExecutorTest {
+
+    private ExecutorService executorService;
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setup() {
+        executorService = Executors.newFixedThreadPool(2);
+        metricRegistry = new MetricRegistry();
+        LanguagePluginConfig config = new LanguagePluginConfig();
+        config.setTimeoutSeconds(1);
+        config.setMaxConcurrentCallsPerPlugin(1);
+        config.setMaxInputCharacters(10);
+        config.setThreads(2);
+        LanguagePluginExecutor.init(executorService, metricRegistry, config);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        LanguagePluginExecutor.init(null, new MetricRegistry(), new LanguagePluginConfig());
+        executorService.shutdownNow();
+        // so that no call is still stuck in the next test
+        Assert.assertTrue(executorService.awaitTermination(1, TimeUnit.MINUTES));
+    }
+
+    @Test
+    public void testCallIsTimed() {
+        Assert.assertEquals("done", LanguagePluginExecutor.call("TestPlugin", "indexWorkflowFiles", () -> "done"));
+        Assert.assertEquals(1, metricRegistry.timer(MetricRegistry.name(LanguagePluginExecutor.class, "TestPlugin", "indexWorkflowFiles")).getCount());
+    }
+
+    @Test
+    public void testTimeoutCancelsCall() {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try {
+            LanguagePluginExecutor.call("SlowPlugin", "parseWorkflowForMetadata", () -> {
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            });
+            Assert.fail("Expected the call to time out");
+        } catch (CustomWebApplicationException e) {
+            Assert.assertEquals(HttpStatus.SC_UNPROCESSABLE_ENTITY, e.getResponse().getStatus());
+        }
+        try {
+            Assert.assertTrue("The timed out call should have been interrupted", interrupted.await(1, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Assert.fail();
+        }
+    }
+
+    @Test
+    public void testConcurrencyLimitPerPlugin() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = callers.submit(() -> LanguagePluginExecutor.call("BusyPlugin", "validateWorkflowSet", () -> {
+                started.countDown();
+                release.await();
+                return "first";
+            }));
+            started.await();
+            try {
+                LanguagePluginExecutor.call("BusyPlugin", "validateWorkflowSet", () -> "second");
+                Assert.fail("Expected the plugin to be busy");
+            } catch (CustomWebApplicationException e) {
+                Assert.assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, e.getResponse().getStatus());
+            }
+            // other plugins are not affected
+            Assert.assertEquals("other", LanguagePluginExecutor.call("OtherPlugin", "validateWorkflowSet", () -> "other"));
+            release.countDown();
+            Assert.assertEquals("first", first.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStuckCallsKeepTheirWorker() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch returned = new CountDownLatch(2);
+        // stands in for a plugin busy computing, which does not stop when interrupted
+        Callable<String> stuck = () -> {
+            try {
+                while (!release.await(1, TimeUnit.MINUTES)) {
+                    // keep waiting
+                }
+            } catch (InterruptedException e) {
+                while (release.getCount() > 0) {
+                    Thread.onSpinWait();
+                }
+            }
+            returned.countDown();
+            return "late";
+        };
+        assertStatus(HttpStatus.SC_UNPROCESSABLE_ENTITY, () -> LanguagePluginExecutor.call("StuckPlugin", "validateWorkflowSet", stuck));
+        Assert.assertEquals(1, LanguagePluginExecutor.getStuckCalls());
+        // the stuck call still holds the plugin's only permit
+        assertStatus(HttpStatus.SC_SERVICE_UNAVAILABLE, () -> LanguagePluginExecutor.call("StuckPlugin", "validateWorkflowSet", () -> "next"));
+
+        // once every worker is stuck, no plugin is called
+        assertStatus(HttpStatus.SC_UNPROCESSABLE_ENTITY, () -> LanguagePluginExecutor.call("OtherStuckPlugin", "validateWorkflowSet", stuck));
+        Assert.assertEquals(2, LanguagePluginExecutor.getStuckCalls());
+        assertStatus(HttpStatus.SC_SERVICE_UNAVAILABLE, () -> LanguagePluginExecutor.call("OtherPlugin", "validateWorkflowSet", () -> "other"));
+
+        release.countDown();
+        Assert.assertTrue(returned.await(1, TimeUnit.MINUTES));
+        while (LanguagePluginExecutor.getStuckCalls() > 0) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals("next", LanguagePluginExecutor.call("StuckPlugin", "validateWorkflowSet", () -> "next"));
+        Assert.assertEquals("other", LanguagePluginExecutor.call("OtherPlugin", "validateWorkflowSet", () -> "other"));
+    }
+
+    private static void assertStatus(int status, Runnable call) {
+        try {
+            call.run();
+            Assert.fail("Expected status " + status);
+        } catch (CustomWebApplicationException e) {
+            Assert.assertEquals(status, e.getResponse().getStatus());
+        }
+    }
+
+    @Test
+    public void testPluginExceptionsAreRethrown() {
+        try {
+            LanguagePluginExecutor.call("BrokenPlugin", "generateToolsTable", () -> {
+                throw new NullPointerException("broken");
+            });
+            Assert.fail("Expected the plugin exception");
+        } catch (NullPointerException e) {
+            Assert.assertEquals("broken", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testIndexedSourceFilesViewAndBudget() {
+        SourceFile descriptor = new SourceFile();
+        descriptor.setPath("/main.ga");
+        descriptor.setAbsolutePath("/main.ga");
+        descriptor.setContent("12345");
+        descriptor.setType(FileType.DOCKSTORE_GXFORMAT2);
+        SourceFile testFile = new SourceFile();
+        testFile.setPath("/test.json");
+        testFile.setAbsolutePath("/test.json");
+        testFile.setContent("123456");
+        testFile.setType(FileType.GXFORMAT2_TEST_FILE);
+
+        IndexedSourceFiles indexedFiles = new IndexedSourceFiles(List.of(descriptor));
+        Assert.assertSame(descriptor.getContent(), indexedFiles.get("/main.ga").getLeft());
+        Assert.assertEquals(GenericFileType.IMPORTED_DESCRIPTOR, indexedFiles.get("/main.ga").getRight());
+        Assert.assertSame(indexedFiles, LanguagePluginExecutor.checkBudget("TestPlugin", indexedFiles));
+
+        IndexedSourceFiles tooLarge = new IndexedSourceFiles(List.of(descriptor, testFile));
+        Assert.assertEquals(GenericFileType.TEST_PARAMETER_FILE, tooLarge.get("/test.json").getRight());
+        try {
+            LanguagePluginExecutor.checkBudget("TestPlugin", tooLarge);
+            Assert.fail("Expected the files to exceed the budget");
+        } catch (CustomWebApplicationException e) {
+            Assert.assertEquals(HttpStatus.SC_REQUEST_TOO_LONG, e.getResponse().getStatus());
+        }
+    }
+}
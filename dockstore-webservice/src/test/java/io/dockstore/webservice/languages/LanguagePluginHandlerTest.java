@@ -2,6 +2,7 @@ package io.dockstore.webservice.languages;
 
 import static org.mockito.Mockito.when;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.api.client.util.Charsets;
 import com.google.common.io.Files;
 import io.dockstore.common.DescriptorLanguage;
@@ -10,6 +11,7 @@ import io.dockstore.common.VersionTypeValidation;
 import io.dockstore.language.MinimalLanguageInterface;
 import io.dockstore.language.RecommendedLanguageInterface;
 import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration.LanguagePluginConfig;
 import io.dockstore.webservice.core.Entry;
 import io.dockstore.webservice.core.SourceControlOrganization;
 import io.dockstore.webservice.core.SourceFile;
@@ -127,6 +129,25 @@ public class LanguagePluginHandlerTest {
     }
 
 
+    @Test
+    public void validateWorkflowSetKeepsExecutorStatusTest() throws IOException {
+        Set<SourceFile> sourceFileSet = new TreeSet<>();
+        sourceFileSet.add(createSourceFile(MAIN_DESCRIPTOR_CWL, MAIN_DESCRIPTOR_CWL_RESOURCE_PATH, FileType.DOCKSTORE_CWL));
+        LanguagePluginConfig config = new LanguagePluginConfig();
+        config.setMaxInputCharacters(1);
+        LanguagePluginExecutor.init(null, new MetricRegistry(), config);
+        try {
+            new LanguagePluginHandler(TestLanguage.class).validateWorkflowSet(sourceFileSet, MAIN_DESCRIPTOR_CWL);
+            Assert.fail("Expected the files to exceed the budget");
+        } catch (CustomWebApplicationException e) {
+            // not turned into a problem with the files
+            Assert.assertEquals(HttpStatus.SC_REQUEST_TOO_LONG, e.getResponse().getStatus());
+        } finally {
+            LanguagePluginExecutor.init(null, new MetricRegistry(), new LanguagePluginConfig());
+        }
+    }
+
+
     // TODO add coverage for CompleteLanguageInterface
     @Test
     public void getContentTest() throws IOException {
@@ -0,0 +1,140 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.dockstore.webservice.languages;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dockstore.common.DescriptorLanguage;
+import io.dockstore.common.VersionTypeValidation;
+import io.dockstore.webservice.core.SourceFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LanguageValidationEngineTest {
+
+    private ExecutorService executorService;
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setup() {
+        executorService = Executors.newFixedThreadPool(4);
+        metricRegistry = new MetricRegistry();
+        LanguageValidationEngine.init(executorService, metricRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        LanguageValidationEngine.init(null, new MetricRegistry());
+        executorService.shutdownNow();
+    }
+
+    private static SourceFile testParameterFile(String path, String content) {
+        SourceFile sourceFile = new SourceFile();
+        sourceFile.setPath(path);
+        sourceFile.setAbsolutePath(path);
+        sourceFile.setContent(content);
+        sourceFile.setType(DescriptorLanguage.FileType.CWL_TEST_JSON);
+        return sourceFile;
+    }
+
+    @Test
+    public void testMessagesAreSortedByPath() {
+        Set<SourceFile> sourceFiles = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            sourceFiles.add(testParameterFile(String.format("/test%02d.json", i), i % 2 == 0 ? "{\"foo\": \"bar\"}" : "{\"foo\": [}"));
+        }
+        VersionTypeValidation validation = new CWLHandler().validateTestParameterSet(sourceFiles);
+        Assert.assertFalse(validation.isValid());
+        Assert.assertEquals(10, validation.getMessage().size());
+        List<String> paths = new ArrayList<>(validation.getMessage().keySet());
+        List<String> sortedPaths = new ArrayList<>(paths);
+        sortedPaths.sort(String::compareTo);
+        Assert.assertEquals(sortedPaths, paths);
+        Assert.assertEquals("/test01.json", paths.get(0));
+        Assert.assertEquals(1, metricRegistry.timer(MetricRegistry.name(LanguageValidationEngine.class,
+            DescriptorLanguage.FileType.CWL_TEST_JSON.toString(), LanguageValidationEngine.TEST_PARAMETER_SET)).getCount());
+    }
+
+    @Test
+    public void testValidSetWithPool() {
+        Set<SourceFile> sourceFiles = new HashSet<>();
+        sourceFiles.add(testParameterFile("/a.json", "{\"foo\": \"bar\"}"));
+        sourceFiles.add(testParameterFile("/b.yaml", "foo: bar"));
+        VersionTypeValidation validation = new CWLHandler().validateTestParameterSet(sourceFiles);
+        Assert.assertTrue(validation.isValid());
+        Assert.assertTrue(validation.getMessage().isEmpty());
+    }
+
+    @Test
+    public void testFatalErrorShortCircuits() {
+        List<SourceFile> sourceFiles = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            sourceFiles.add(testParameterFile("/test" + i + ".json", "{}"));
+        }
+        VersionTypeValidation validation = LanguageValidationEngine.validateFiles(DescriptorLanguage.CWL, LanguageValidationEngine.TEST_PARAMETER_SET, sourceFiles,
+            sourceFile -> {
+                if ("/test3.json".equals(sourceFile.getPath())) {
+                    throw new IllegalStateException("boom");
+                }
+                return Optional.of("not fatal");
+            });
+        Assert.assertFalse(validation.isValid());
+        Assert.assertEquals(1, validation.getMessage().size());
+        Assert.assertEquals("boom", validation.getMessage().get("/test3.json"));
+    }
+
+    @Test
+    public void testFilesAreCheckedConcurrently() {
+        final int files = 4;
+        List<SourceFile> sourceFiles = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            sourceFiles.add(testParameterFile("/test" + i + ".json", "{}"));
+        }
+        // every check waits until all the files are being checked at once, which only happens if they are checked concurrently
+        CountDownLatch running = new CountDownLatch(files);
+        VersionTypeValidation validation = LanguageValidationEngine.validateFiles(DescriptorLanguage.CWL, LanguageValidationEngine.TEST_PARAMETER_SET, sourceFiles,
+            sourceFile -> {
+                running.countDown();
+                try {
+                    return running.await(1, TimeUnit.MINUTES) ? Optional.empty() : Optional.of("checked alone");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return Optional.of("interrupted");
+                }
+            });
+        Assert.assertTrue(validation.getMessage().toString(), validation.isValid());
+    }
+
+    @Test
+    public void testTimedWithoutPool() {
+        LanguageValidationEngine.init(null, metricRegistry);
+        VersionTypeValidation validation = LanguageValidationEngine.timed(DescriptorLanguage.WDL, LanguageValidationEngine.WORKFLOW_SET,
+            () -> new VersionTypeValidation(true, null));
+        Assert.assertTrue(validation.isValid());
+        Assert.assertEquals(1, metricRegistry.timer(MetricRegistry.name(LanguageValidationEngine.class,
+            DescriptorLanguage.WDL.toString(), LanguageValidationEngine.WORKFLOW_SET)).getCount());
+    }
+}
@@ -3,6 +3,7 @@ package io.dockstore.webservice.languages;
 import io.dockstore.common.DockerImageReference;
 import io.dockstore.common.DockerParameter;
 import io.dropwizard.testing.FixtureHelpers;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import org.junit.Assert;
@@ -48,4 +49,26 @@ public class NextflowHandlerTest {
             }
         });
     }
+
+    @Test
+    public void testAnalysisIsCachedByContent() {
+        NextflowAnalysis.clearCache();
+        final String chipseq = FixtureHelpers.fixture("nfl-chipseq/main.nf");
+        final NextflowAnalysis analysis = NextflowAnalysis.of(chipseq);
+        // same content from another version of the workflow is not parsed again
+        Assert.assertSame(analysis, NextflowAnalysis.of(new String(chipseq)));
+        Assert.assertEquals(1, NextflowAnalysis.getCacheStats().hitCount());
+        Assert.assertNull(NextflowAnalysis.of(null));
+
+        Assert.assertEquals(19, analysis.getProcesses().size());
+        Assert.assertTrue(analysis.getProcesses().containsKey("makeBWAindex"));
+        Assert.assertTrue(analysis.getHelpMessage().contains("nextflow run"));
+        final Map<String, List<String>> callsToDependencies = analysis.getCallsToDependencies();
+        Assert.assertEquals(analysis.getProcesses().keySet(), callsToDependencies.keySet());
+
+        final String dockerImagesNextflow = FixtureHelpers.fixture("fixtures/dockerImages.nf");
+        Assert.assertEquals("$params.container", NextflowAnalysis.of(dockerImagesNextflow).getProcesses().get("parameterizedDocker").getContainer());
+        Assert.assertTrue(NextflowAnalysis.of(dockerImagesNextflow).getIncludeLines().isEmpty());
+        Assert.assertEquals(List.of("include { RNASEQ } from './modules/rnaseq'"), NextflowAnalysis.of("include { RNASEQ } from './modules/rnaseq'\n").getIncludeLines());
+    }
 }
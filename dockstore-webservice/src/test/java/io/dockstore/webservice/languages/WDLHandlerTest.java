@@ -107,6 +107,39 @@ public class WDLHandlerTest {
     }
 
 
+    @Test
+    public void testImportGraphIsBuiltOncePerVersion() {
+        WDLHandler.clearImportGraphCache();
+        final String main = "version 1.0\nimport \"tasks/a.wdl\"\nworkflow main {}\n";
+        final Set<SourceFile> sourceFiles = Set.of(sourceFile("/main.wdl", main), sourceFile("/tasks/a.wdl", "version 1.0\nimport \"b.wdl\"\n"),
+            sourceFile("/tasks/b.wdl", "version 1.0\nimport \"a.wdl\"\n"));
+        final WDLHandler wdlHandler = new WDLHandler();
+        Assert.assertEquals(Optional.of(WDLHandler.ERROR_PARSING_WORKFLOW_RECURSIVE_LOCAL_IMPORT + "/tasks/a.wdl"),
+            wdlHandler.reportValidationForLocalRecursiveImports(main, sourceFiles, "/main.wdl"));
+
+        // e.g. the DAG of the same version, loaded again and without its primary descriptor
+        final Set<SourceFile> secondaryFiles = Set.of(sourceFile("/tasks/b.wdl", "version 1.0\nimport \"a.wdl\"\n"),
+            sourceFile("/tasks/a.wdl", "version 1.0\nimport \"b.wdl\"\n"));
+        final ImportGraph graph = WDLHandler.buildImportGraph("/main.wdl", new String(main), secondaryFiles);
+        Assert.assertEquals(1, WDLHandler.getImportGraphCacheStats().hitCount());
+        Assert.assertSame(graph, WDLHandler.buildImportGraph("/main.wdl", main, sourceFiles));
+
+        // a changed file is a different version
+        final ImportGraph fixed = WDLHandler.buildImportGraph("/main.wdl", main, Set.of(sourceFile("/tasks/a.wdl", "version 1.0\nimport \"b.wdl\"\n"),
+            sourceFile("/tasks/b.wdl", "version 1.0\n")));
+        Assert.assertNotSame(graph, fixed);
+        Assert.assertTrue(fixed.getCycles().isEmpty());
+    }
+
+    private static SourceFile sourceFile(String absolutePath, String content) {
+        final SourceFile sourceFile = new SourceFile();
+        sourceFile.setType(DescriptorLanguage.FileType.DOCKSTORE_WDL);
+        sourceFile.setPath(absolutePath);
+        sourceFile.setAbsolutePath(absolutePath);
+        sourceFile.setContent(content);
+        return sourceFile;
+    }
+
     @Test
     public void testRepeatedFilename() throws IOException {
         final String content = getGatkSvMainDescriptorContent();
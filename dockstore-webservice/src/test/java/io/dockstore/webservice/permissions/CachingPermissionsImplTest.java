@@ -0,0 +1,187 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.permissions;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.core.Workflow;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.http.HttpStatus;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Uses the {@link InMemoryPermissionsImpl} as a stand-in for SAM, counting how often the roles of a user are listed by it.
+ */
+public class CachingPermissionsImplTest {
+
+    private static final Duration TIME_TO_LIVE = Duration.ofSeconds(30);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final User owner = new User();
+    private final User janeDoe = new User();
+    private InMemoryPermissionsImpl inMemoryPermissions;
+    private CachingPermissionsImpl cachingPermissions;
+    private Workflow fooWorkflow;
+    private Workflow gooWorkflow;
+
+    private static Workflow workflow(String path, User owner) {
+        Workflow workflow = Mockito.mock(Workflow.class);
+        when(workflow.getWorkflowPath()).thenReturn(path);
+        when(workflow.getUsers()).thenReturn(new HashSet<>(Collections.singletonList(owner)));
+        return workflow;
+    }
+
+    @Before
+    public void setup() {
+        owner.setId(1);
+        owner.setUsername("john");
+        janeDoe.setId(2);
+        janeDoe.setUsername("jane");
+        fooWorkflow = workflow("foo", owner);
+        gooWorkflow = workflow("goo", owner);
+        inMemoryPermissions = spy(new InMemoryPermissionsImpl());
+        cachingPermissions = new CachingPermissionsImpl(inMemoryPermissions, TIME_TO_LIVE, nanos::get);
+    }
+
+    private void share(Workflow workflow, Role role) {
+        cachingPermissions.setPermission(owner, workflow, new Permission(janeDoe.getUsername(), role));
+    }
+
+    private void verifyRolesListed(User user, int times) {
+        verify(inMemoryPermissions, times(times)).workflowsSharedWithUser(user);
+        // every check is answered from the roles
+        verify(inMemoryPermissions, never()).canDoAction(eq(user), any(), any());
+        verify(inMemoryPermissions, never()).canDoActions(eq(user), any(), any());
+    }
+
+    @Test
+    public void testDecisionsAreReused() {
+        share(fooWorkflow, Role.READER);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(cachingPermissions.canDoAction(janeDoe, fooWorkflow, Role.Action.READ));
+            Assert.assertFalse(cachingPermissions.canDoAction(janeDoe, fooWorkflow, Role.Action.WRITE));
+            Assert.assertFalse(cachingPermissions.canDoAction(janeDoe, gooWorkflow, Role.Action.READ));
+        }
+        verifyRolesListed(janeDoe, 1);
+
+        // roles are per user
+        final User other = new User();
+        other.setId(3);
+        other.setUsername("other");
+        Assert.assertFalse(cachingPermissions.canDoAction(other, fooWorkflow, Role.Action.READ));
+        verifyRolesListed(other, 1);
+    }
+
+    @Test
+    public void testDecisionsExpire() {
+        share(fooWorkflow, Role.READER);
+        Assert.assertTrue(cachingPermissions.canDoAction(janeDoe, fooWorkflow, Role.Action.READ));
+        nanos.addAndGet(TIME_TO_LIVE.toNanos() + 1);
+        Assert.assertTrue(cachingPermissions.canDoAction(janeDoe, fooWorkflow, Role.Action.READ));
+        verifyRolesListed(janeDoe, 2);
+    }
+
+    @Test
+    public void testChangingPermissionsInvalidatesDecisions() {
+        share(fooWorkflow, Role.READER);
+        share(gooWorkflow, Role.READER);
+        Assert.assertFalse(cachingPermissions.canDoAction(janeDoe, fooWorkflow, Role.Action.WRITE));
+        Assert.assertFalse(cachingPermissions.canDoAction(janeDoe, gooWorkflow, Role.Action.WRITE));
+
+        share(fooWorkflow, Role.WRITER);
+        Assert.assertTrue(cachingPermissions.canDoAction(janeDoe, fooWorkflow, Role.Action.WRITE));
+        cachingPermissions.removePermission(owner, fooWorkflow, janeDoe.getUsername(), Role.WRITER);
+        Assert.assertFalse(cachingPermissions.canDoAction(janeDoe, fooWorkflow, Role.Action.READ));
+        Assert.assertTrue(cachingPermissions.canDoAction(janeDoe, gooWorkflow, Role.Action.READ));
+        verifyRolesListed(janeDoe, 3);
+    }
+
+    @Test
+    public void testBatchedDecisions() {
+        share(fooWorkflow, Role.WRITER);
+        final Workflow unshared = workflow("unshared", owner);
+        Assert.assertTrue(cachingPermissions.canDoAction(janeDoe, fooWorkflow, Role.Action.WRITE));
+
+        final Set<Role.Action> actions = EnumSet.of(Role.Action.READ, Role.Action.WRITE, Role.Action.SHARE);
+        Map<String, Set<Role.Action>> allowedActions = cachingPermissions.canDoActions(janeDoe, List.of(fooWorkflow, gooWorkflow, unshared), actions);
+        Assert.assertEquals(EnumSet.of(Role.Action.READ, Role.Action.WRITE), allowedActions.get("foo"));
+        Assert.assertEquals(Set.of(), allowedActions.get("goo"));
+        Assert.assertEquals(Set.of(), allowedActions.get("unshared"));
+        Assert.assertEquals(allowedActions, cachingPermissions.canDoActions(janeDoe, List.of(fooWorkflow, gooWorkflow, unshared), actions));
+        Assert.assertEquals(List.of(Role.Action.WRITE, Role.Action.READ), cachingPermissions.getActionsForWorkflow(janeDoe, fooWorkflow));
+        verifyRolesListed(janeDoe, 1);
+    }
+
+    @Test
+    public void testSeparateChecksListRolesOnce() {
+        share(fooWorkflow, Role.WRITER);
+        share(gooWorkflow, Role.READER);
+        Assert.assertTrue(cachingPermissions.isAllowed(janeDoe, fooWorkflow, Role.Action.WRITE));
+        Assert.assertFalse(cachingPermissions.isAllowed(janeDoe, fooWorkflow, Role.Action.SHARE));
+        Assert.assertTrue(cachingPermissions.isAllowed(janeDoe, gooWorkflow, Role.Action.READ));
+        Assert.assertFalse(cachingPermissions.isAllowed(janeDoe, gooWorkflow, Role.Action.WRITE));
+        Assert.assertFalse(cachingPermissions.isAllowed(janeDoe, workflow("unshared", owner), Role.Action.READ));
+        verifyRolesListed(janeDoe, 1);
+    }
+
+    @Test
+    public void testFailuresAreNotCached() {
+        share(fooWorkflow, Role.READER);
+        doThrow(new CustomWebApplicationException("Error getting shared workflows", HttpStatus.SC_BAD_GATEWAY)).doCallRealMethod()
+                .when(inMemoryPermissions).workflowsSharedWithUser(any());
+        try {
+            cachingPermissions.isAllowed(janeDoe, fooWorkflow, Role.Action.READ);
+            Assert.fail("Expected the failure to be thrown");
+        } catch (CustomWebApplicationException e) {
+            Assert.assertEquals(HttpStatus.SC_BAD_GATEWAY, e.getResponse().getStatus());
+        }
+        // asked again, rather than denied from the cache
+        Assert.assertTrue(cachingPermissions.isAllowed(janeDoe, fooWorkflow, Role.Action.READ));
+        Assert.assertTrue(cachingPermissions.isAllowed(janeDoe, fooWorkflow, Role.Action.READ));
+        verifyRolesListed(janeDoe, 2);
+    }
+
+    @Test
+    public void testSharedWorkflowsAreReused() {
+        Assert.assertEquals(Map.of(), cachingPermissions.workflowsSharedWithUser(janeDoe));
+        Assert.assertEquals(Map.of(), cachingPermissions.workflowsSharedWithUser(janeDoe));
+        verify(inMemoryPermissions, times(1)).workflowsSharedWithUser(janeDoe);
+
+        share(fooWorkflow, Role.READER);
+        Assert.assertEquals(Map.of(Role.READER, List.of("foo")), cachingPermissions.workflowsSharedWithUser(janeDoe));
+        verify(inMemoryPermissions, times(2)).workflowsSharedWithUser(janeDoe);
+    }
+}
@@ -31,11 +31,13 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import org.apache.http.HttpStatus;
 import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
@@ -205,6 +207,74 @@ public class SamPermissionsImplTest {
         Assert.assertEquals(DOCKSTORE_ORG_WORKFLOW_NAME, writerWorkflows.get(0));
     }
 
+    @Test
+    public void testCanDoActions() throws ApiException {
+        ResourceAndAccessPolicy reader = new ResourceAndAccessPolicy();
+        reader.setResourceId(SamConstants.ENCODED_WORKFLOW_PREFIX + FOO_WORKFLOW_NAME);
+        reader.setAccessPolicyName(SamConstants.READ_POLICY);
+        ResourceAndAccessPolicy writer = new ResourceAndAccessPolicy();
+        writer.setResourceId(SamConstants.ENCODED_WORKFLOW_PREFIX + URLEncoder.encode(DOCKSTORE_ORG_WORKFLOW_NAME, StandardCharsets.UTF_8));
+        writer.setAccessPolicyName(SamConstants.WRITE_POLICY);
+        when(resourcesApiMock.listResourcesAndPolicies(SamConstants.RESOURCE_TYPE)).thenReturn(Arrays.asList(reader, writer));
+        Workflow dockstoreOrgWorkflow = Mockito.mock(Workflow.class);
+        when(dockstoreOrgWorkflow.getWorkflowPath()).thenReturn(DOCKSTORE_ORG_WORKFLOW_NAME);
+        Workflow gooWorkflow = Mockito.mock(Workflow.class);
+        when(gooWorkflow.getWorkflowPath()).thenReturn(GOO_WORKFLOW_NAME);
+
+        final Map<String, Set<Role.Action>> allowedActions = samPermissionsImpl.canDoActions(userMock,
+                Arrays.asList(workflowInstance, dockstoreOrgWorkflow, gooWorkflow), EnumSet.of(Role.Action.READ, Role.Action.WRITE));
+        Assert.assertEquals(EnumSet.of(Role.Action.READ), allowedActions.get(FOO_WORKFLOW_NAME));
+        Assert.assertEquals(EnumSet.of(Role.Action.READ, Role.Action.WRITE), allowedActions.get(DOCKSTORE_ORG_WORKFLOW_NAME));
+        Assert.assertTrue(allowedActions.get(GOO_WORKFLOW_NAME).isEmpty());
+        // one call to SAM, however many workflows and actions
+        verify(resourcesApiMock, times(1)).listResourcesAndPolicies(SamConstants.RESOURCE_TYPE);
+        verify(resourcesApiMock, times(0)).resourceAction(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testCanDoActionsWhenSamFails() throws ApiException {
+        when(resourcesApiMock.listResourcesAndPolicies(SamConstants.RESOURCE_TYPE))
+                .thenThrow(new ApiException(HttpStatus.SC_UNAUTHORIZED, "Unauthorized"))
+                .thenThrow(new ApiException(HttpStatus.SC_INTERNAL_SERVER_ERROR, "Server error"));
+        Workflow gooWorkflow = Mockito.mock(Workflow.class);
+        when(gooWorkflow.getWorkflowPath()).thenReturn(GOO_WORKFLOW_NAME);
+        final List<Workflow> workflows = List.of(workflowInstance, gooWorkflow);
+        // a user that is not in SAM has no policies
+        Assert.assertTrue(samPermissionsImpl.canDoActions(userMock, workflows, EnumSet.allOf(Role.Action.class)).get(FOO_WORKFLOW_NAME).isEmpty());
+        // an error is not a decision
+        try {
+            samPermissionsImpl.canDoActions(userMock, workflows, EnumSet.allOf(Role.Action.class));
+            Assert.fail("Expected the error to be thrown");
+        } catch (CustomWebApplicationException e) {
+            Assert.assertEquals(HttpStatus.SC_BAD_GATEWAY, e.getResponse().getStatus());
+        }
+    }
+
+    @Test
+    public void testCanDoActionsOnOneWorkflow() throws ApiException {
+        final String resourceId = SamConstants.WORKFLOW_PREFIX + FOO_WORKFLOW_NAME;
+        when(resourcesApiMock.resourceAction(SamConstants.RESOURCE_TYPE, resourceId, SamConstants.toSamAction(Role.Action.READ))).thenReturn(Boolean.TRUE);
+        when(resourcesApiMock.resourceAction(SamConstants.RESOURCE_TYPE, resourceId, SamConstants.toSamAction(Role.Action.WRITE))).thenReturn(Boolean.FALSE);
+        Assert.assertEquals(EnumSet.of(Role.Action.READ),
+                samPermissionsImpl.canDoActions(userMock, List.of(workflowInstance), EnumSet.of(Role.Action.READ, Role.Action.WRITE)).get(FOO_WORKFLOW_NAME));
+        Assert.assertTrue(samPermissionsImpl.isAllowed(userMock, workflowInstance, Role.Action.READ));
+        // the user's policies on all resources are not listed for one workflow
+        verify(resourcesApiMock, times(0)).listResourcesAndPolicies(SamConstants.RESOURCE_TYPE);
+        verify(resourcesApiMock, times(2)).resourceAction(SamConstants.RESOURCE_TYPE, resourceId, SamConstants.toSamAction(Role.Action.READ));
+
+        // no SAM resource is no permission, but an error is not a decision
+        when(resourcesApiMock.resourceAction(SamConstants.RESOURCE_TYPE, resourceId, SamConstants.toSamAction(Role.Action.SHARE)))
+                .thenThrow(new ApiException(HttpStatus.SC_NOT_FOUND, "Not found"))
+                .thenThrow(new ApiException(HttpStatus.SC_INTERNAL_SERVER_ERROR, "Server error"));
+        Assert.assertFalse(samPermissionsImpl.isAllowed(userMock, workflowInstance, Role.Action.SHARE));
+        try {
+            samPermissionsImpl.isAllowed(userMock, workflowInstance, Role.Action.SHARE);
+            Assert.fail("Expected the error to be thrown");
+        } catch (CustomWebApplicationException e) {
+            Assert.assertEquals(HttpStatus.SC_BAD_GATEWAY, e.getResponse().getStatus());
+        }
+    }
+
     @Test
     public void testCanRead() throws ApiException {
         when(resourcesApiMock.resourceAction(SamConstants.RESOURCE_TYPE, SamConstants.WORKFLOW_PREFIX + FOO_WORKFLOW_NAME, Role.Action.READ.toString())).thenReturn(Boolean.TRUE);